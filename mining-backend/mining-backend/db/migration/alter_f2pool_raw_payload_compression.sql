@@ -0,0 +1,12 @@
+-- f2pool_raw_payload：正文改为 gzip 压缩存储（历史明文行由维护任务逐批压缩）
+ALTER TABLE f2pool_raw_payload
+    MODIFY COLUMN payload MEDIUMTEXT NULL,
+    ADD COLUMN payload_gz MEDIUMBLOB NULL AFTER payload,
+    ADD COLUMN payload_size INT NULL AFTER payload_gz,
+    ADD INDEX idx_created_time (created_time);
+
+-- 保留期清理按指纹检查业务表引用
+ALTER TABLE f2pool_worker_snapshot ADD INDEX idx_payload_fingerprint (payload_fingerprint);
+ALTER TABLE f2pool_account_overview ADD INDEX idx_payload_fingerprint (payload_fingerprint);
+ALTER TABLE f2pool_assets_balance ADD INDEX idx_payload_fingerprint (payload_fingerprint);
+ALTER TABLE f2pool_payout_daily ADD INDEX idx_payload_fingerprint (payload_fingerprint);
@@ -0,0 +1,38 @@
+-- GPU 最新状态表：每块 GPU 一行，由 GPU 明细上报链路维护（替代 MAX(bucket_time) 自连接查询）
+CREATE TABLE IF NOT EXISTS `device_gpu_latest` (
+  `device_id` VARCHAR(128) NOT NULL COMMENT '设备ID',
+  `gpu_index` INT NOT NULL COMMENT 'GPU 索引',
+  `user_id` BIGINT NOT NULL COMMENT '用户ID',
+  `gpu_name` VARCHAR(128) NULL COMMENT 'GPU 名称',
+  `hashrate_mhs` DECIMAL(20,4) NOT NULL DEFAULT 0 COMMENT '最新算力（MH/s）',
+  `algorithm` VARCHAR(32) NULL COMMENT '挖矿算法',
+  `bucket_time` DATETIME NOT NULL COMMENT '最新上报的分钟桶',
+  `updated_time` DATETIME NOT NULL COMMENT '更新时间',
+
+  PRIMARY KEY (`device_id`, `gpu_index`),
+  INDEX `idx_user_bucket` (`user_id`, `bucket_time`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='GPU 最新算力状态';
+
+-- 首次上线回填：取最近一天内每块 GPU 的最新分钟桶。
+-- 在新版本（上报时维护 device_gpu_latest）上线之后执行，覆盖建表到上线之间的空档；
+-- 可重复执行，与 batchUpsertLatest 相同只保留更新的桶，不会用旧数据覆盖上报链路写入的新数据。
+INSERT INTO device_gpu_latest
+(device_id, gpu_index, user_id, gpu_name, hashrate_mhs, algorithm, bucket_time, updated_time)
+SELECT r.device_id, r.gpu_index, r.user_id, r.gpu_name, r.hashrate_mhs, r.algorithm, r.bucket_time, NOW()
+FROM device_gpu_hashrate_reports r
+INNER JOIN (
+    SELECT device_id, gpu_index, MAX(bucket_time) AS max_time
+    FROM device_gpu_hashrate_reports
+    WHERE bucket_time >= NOW() - INTERVAL 1 DAY
+    GROUP BY device_id, gpu_index
+) latest
+    ON r.device_id = latest.device_id
+   AND r.gpu_index = latest.gpu_index
+   AND r.bucket_time = latest.max_time
+ON DUPLICATE KEY UPDATE
+  user_id = IF(VALUES(bucket_time) >= bucket_time, VALUES(user_id), user_id),
+  gpu_name = IF(VALUES(bucket_time) >= bucket_time, VALUES(gpu_name), gpu_name),
+  hashrate_mhs = IF(VALUES(bucket_time) >= bucket_time, VALUES(hashrate_mhs), hashrate_mhs),
+  algorithm = IF(VALUES(bucket_time) >= bucket_time, VALUES(algorithm), algorithm),
+  updated_time = IF(VALUES(bucket_time) >= bucket_time, NOW(), updated_time),
+  bucket_time = GREATEST(bucket_time, VALUES(bucket_time));
@@ -0,0 +1,78 @@
+-- 设备算力趋势汇总层级（15 分钟 / 1 小时），由 device_hashrate_reports 增量汇总
+CREATE TABLE IF NOT EXISTS `device_hashrate_rollups` (
+  `id` BIGINT PRIMARY KEY AUTO_INCREMENT COMMENT '主键ID',
+  `tier_minutes` SMALLINT NOT NULL COMMENT '汇总层级（分钟）：15 / 60',
+  `user_id` BIGINT NOT NULL COMMENT '用户ID',
+  `device_id` VARCHAR(128) NOT NULL COMMENT '设备ID',
+  `bucket_time` DATETIME NOT NULL COMMENT '汇总桶起始时间',
+  `cpu_hashrate_avg` DECIMAL(20,2) NOT NULL DEFAULT 0 COMMENT 'CPU 平均算力（H/s）',
+  `cpu_hashrate_max` DECIMAL(20,2) NOT NULL DEFAULT 0 COMMENT 'CPU 最大算力（H/s）',
+  `cpu_hashrate_min` DECIMAL(20,2) NOT NULL DEFAULT 0 COMMENT 'CPU 最小算力（H/s）',
+  `gpu_hashrate_avg` DECIMAL(20,4) NOT NULL DEFAULT 0 COMMENT 'GPU 平均算力（MH/s）',
+  `gpu_hashrate_max` DECIMAL(20,4) NOT NULL DEFAULT 0 COMMENT 'GPU 最大算力（MH/s）',
+  `gpu_hashrate_min` DECIMAL(20,4) NOT NULL DEFAULT 0 COMMENT 'GPU 最小算力（MH/s）',
+  `sample_count` INT NOT NULL DEFAULT 0 COMMENT '桶内分钟样本数',
+  `algorithm` VARCHAR(32) NULL COMMENT '挖矿算法',
+  `updated_time` DATETIME NOT NULL COMMENT '最近汇总时间',
+
+  UNIQUE KEY `uk_device_tier_bucket` (`device_id`, `tier_minutes`, `bucket_time`),
+  INDEX `idx_tier_bucket` (`tier_minutes`, `bucket_time`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='设备算力汇总桶';
+
+-- GPU 明细汇总层级，由 device_gpu_hashrate_reports 增量汇总
+CREATE TABLE IF NOT EXISTS `device_gpu_hashrate_rollups` (
+  `id` BIGINT PRIMARY KEY AUTO_INCREMENT COMMENT '主键ID',
+  `tier_minutes` SMALLINT NOT NULL COMMENT '汇总层级（分钟）：15 / 60',
+  `user_id` BIGINT NOT NULL COMMENT '用户ID',
+  `device_id` VARCHAR(128) NOT NULL COMMENT '设备ID',
+  `gpu_index` INT NOT NULL COMMENT 'GPU 索引',
+  `gpu_name` VARCHAR(128) NULL COMMENT 'GPU 名称',
+  `bucket_time` DATETIME NOT NULL COMMENT '汇总桶起始时间',
+  `hashrate_avg` DECIMAL(20,4) NOT NULL DEFAULT 0 COMMENT '平均算力（MH/s）',
+  `hashrate_max` DECIMAL(20,4) NOT NULL DEFAULT 0 COMMENT '最大算力（MH/s）',
+  `hashrate_min` DECIMAL(20,4) NOT NULL DEFAULT 0 COMMENT '最小算力（MH/s）',
+  `sample_count` INT NOT NULL DEFAULT 0 COMMENT '桶内分钟样本数',
+  `algorithm` VARCHAR(32) NULL COMMENT '挖矿算法',
+  `updated_time` DATETIME NOT NULL COMMENT '最近汇总时间',
+
+  UNIQUE KEY `uk_device_gpu_tier_bucket` (`device_id`, `gpu_index`, `tier_minutes`, `bucket_time`),
+  INDEX `idx_device_tier_bucket` (`device_id`, `tier_minutes`, `bucket_time`),
+  INDEX `idx_tier_bucket` (`tier_minutes`, `bucket_time`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='GPU 算力汇总桶';
+
+-- 分钟桶按保留期清理需要 bucket_time 索引
+ALTER TABLE `device_hashrate_reports` ADD INDEX `idx_bucket_time` (`bucket_time`);
+ALTER TABLE `device_gpu_hashrate_reports` ADD INDEX `idx_bucket_time` (`bucket_time`);
+
+-- 首次上线回填历史分钟桶（可重复执行，桶边界与定时任务相同：整点 + 分钟按层级向下取整）
+INSERT INTO device_hashrate_rollups
+(tier_minutes, user_id, device_id, bucket_time, cpu_hashrate_avg, cpu_hashrate_max, cpu_hashrate_min,
+ gpu_hashrate_avg, gpu_hashrate_max, gpu_hashrate_min, sample_count, algorithm, updated_time)
+SELECT t.tier, MAX(r.user_id), r.device_id,
+       DATE_FORMAT(r.bucket_time, '%Y-%m-%d %H:00:00') + INTERVAL (MINUTE(r.bucket_time) DIV t.tier * t.tier) MINUTE AS rollup_bucket,
+       AVG(r.cpu_hashrate), MAX(r.cpu_hashrate), MIN(r.cpu_hashrate),
+       AVG(r.gpu_hashrate), MAX(r.gpu_hashrate), MIN(r.gpu_hashrate),
+       COUNT(*), MAX(r.algorithm), NOW()
+FROM device_hashrate_reports r
+CROSS JOIN (SELECT 15 AS tier UNION ALL SELECT 60) t
+GROUP BY t.tier, r.device_id, rollup_bucket
+ON DUPLICATE KEY UPDATE
+  user_id = VALUES(user_id),
+  cpu_hashrate_avg = VALUES(cpu_hashrate_avg), cpu_hashrate_max = VALUES(cpu_hashrate_max), cpu_hashrate_min = VALUES(cpu_hashrate_min),
+  gpu_hashrate_avg = VALUES(gpu_hashrate_avg), gpu_hashrate_max = VALUES(gpu_hashrate_max), gpu_hashrate_min = VALUES(gpu_hashrate_min),
+  sample_count = VALUES(sample_count), algorithm = VALUES(algorithm), updated_time = NOW();
+
+INSERT INTO device_gpu_hashrate_rollups
+(tier_minutes, user_id, device_id, gpu_index, gpu_name, bucket_time, hashrate_avg, hashrate_max, hashrate_min,
+ sample_count, algorithm, updated_time)
+SELECT t.tier, MAX(r.user_id), r.device_id, r.gpu_index, MAX(r.gpu_name),
+       DATE_FORMAT(r.bucket_time, '%Y-%m-%d %H:00:00') + INTERVAL (MINUTE(r.bucket_time) DIV t.tier * t.tier) MINUTE AS rollup_bucket,
+       AVG(r.hashrate_mhs), MAX(r.hashrate_mhs), MIN(r.hashrate_mhs),
+       COUNT(*), MAX(r.algorithm), NOW()
+FROM device_gpu_hashrate_reports r
+CROSS JOIN (SELECT 15 AS tier UNION ALL SELECT 60) t
+GROUP BY t.tier, r.device_id, r.gpu_index, rollup_bucket
+ON DUPLICATE KEY UPDATE
+  user_id = VALUES(user_id), gpu_name = VALUES(gpu_name),
+  hashrate_avg = VALUES(hashrate_avg), hashrate_max = VALUES(hashrate_max), hashrate_min = VALUES(hashrate_min),
+  sample_count = VALUES(sample_count), algorithm = VALUES(algorithm), updated_time = NOW();
@@ -0,0 +1,17 @@
+-- 设备列表游标分页索引：WHERE 条件 + (排序列, id) 与 keyset 查询的 ORDER BY 一致，翻页直接在索引上定位
+-- 排序列直接使用原始列（不做 COALESCE），NULL 段由游标条件单独处理，因此每种排序都能走对应索引、无需 filesort
+-- 用户设备列表：按 create_time 排序（默认）
+ALTER TABLE `devices`
+  ADD INDEX `idx_user_deleted_create_id` (`user_id`, `is_deleted`, `create_time`, `id`);
+
+-- 用户设备列表：按设备名称排序
+ALTER TABLE `devices`
+  ADD INDEX `idx_user_deleted_name_id` (`user_id`, `is_deleted`, `device_name`, `id`);
+
+-- 用户设备列表：按最后在线时间排序
+ALTER TABLE `devices`
+  ADD INDEX `idx_user_deleted_online_id` (`user_id`, `is_deleted`, `last_online_time`, `id`);
+
+-- 管理端全量设备列表（按 create_time 倒序）
+ALTER TABLE `devices`
+  ADD INDEX `idx_deleted_create_id` (`is_deleted`, `create_time`, `id`);
@@ -0,0 +1,9 @@
+-- Redis 分钟桶落库记录：flush_key 为认领时生成的 flushing key，崩溃重试时据此去重
+CREATE TABLE IF NOT EXISTS payhash_ingest_flushes (
+    flush_key    VARCHAR(128) NOT NULL,
+    bucket_time  DATETIME     NOT NULL,
+    worker_count INT          NOT NULL DEFAULT 0,
+    created_time DATETIME     NOT NULL,
+    PRIMARY KEY (flush_key),
+    KEY idx_created_time (created_time)
+) ENGINE = InnoDB DEFAULT CHARSET = utf8mb4;
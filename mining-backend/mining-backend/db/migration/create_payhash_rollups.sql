@@ -0,0 +1,31 @@
+-- payhash 小时/日汇总（POOL: miner_payhash_stats，F2POOL: f2pool_payhash_stats）
+CREATE TABLE IF NOT EXISTS payhash_rollup_hourly (
+    source       VARCHAR(16)  NOT NULL COMMENT 'POOL / F2POOL',
+    account      VARCHAR(64)  NOT NULL DEFAULT '' COMMENT 'F2Pool 账户；POOL 为空串',
+    coin         VARCHAR(16)  NOT NULL DEFAULT '',
+    hour_start   DATETIME     NOT NULL,
+    worker_id    VARCHAR(128) NOT NULL,
+    payhash      BIGINT       NOT NULL DEFAULT 0,
+    updated_time DATETIME     NOT NULL,
+    PRIMARY KEY (source, account, coin, hour_start, worker_id)
+) ENGINE = InnoDB DEFAULT CHARSET = utf8mb4;
+
+CREATE TABLE IF NOT EXISTS payhash_rollup_daily (
+    source       VARCHAR(16)  NOT NULL,
+    account      VARCHAR(64)  NOT NULL DEFAULT '',
+    coin         VARCHAR(16)  NOT NULL DEFAULT '',
+    day_start    DATE         NOT NULL,
+    worker_id    VARCHAR(128) NOT NULL,
+    payhash      BIGINT       NOT NULL DEFAULT 0,
+    updated_time DATETIME     NOT NULL,
+    PRIMARY KEY (source, account, coin, day_start, worker_id)
+) ENGINE = InnoDB DEFAULT CHARSET = utf8mb4;
+
+-- 汇总表可信的起点（首次回填后写入，NULL 表示尚未回填）；起点之前的窗口按分钟明细聚合。
+-- 每个 source 一行，同时作为写入方（共享锁）与修复任务（排他锁）之间的栅栏
+CREATE TABLE IF NOT EXISTS payhash_rollup_coverage (
+    source       VARCHAR(16) NOT NULL,
+    covered_from DATETIME    NULL,
+    updated_time DATETIME    NOT NULL,
+    PRIMARY KEY (source)
+) ENGINE = InnoDB DEFAULT CHARSET = utf8mb4;
@@ -0,0 +1,12 @@
+-- 入账增量同步高水位：每个来源（c3pool / f2pool / antpool）与地址一行，记录已同步到的最大时间与区块高度
+CREATE TABLE IF NOT EXISTS payout_sync_watermarks (
+    source       VARCHAR(32)  NOT NULL,
+    address      VARCHAR(191) NOT NULL,
+    last_ts      DATETIME     NULL,
+    last_height  BIGINT       NULL,
+    updated_time DATETIME     NOT NULL,
+    PRIMARY KEY (source, address)
+) ENGINE = InnoDB DEFAULT CHARSET = utf8mb4;
+
+-- 批量 tx_hash IN (...) 去重依赖该索引（已有唯一键时可忽略）
+-- ALTER TABLE xmr_wallet_incoming ADD UNIQUE KEY uk_tx_hash (tx_hash);
@@ -0,0 +1,18 @@
+-- 定时任务集群协调：任务租约（含分片租约 job#shard）与节点心跳
+CREATE TABLE IF NOT EXISTS scheduler_job_leases (
+    job_name      VARCHAR(160) NOT NULL COMMENT '任务名；分片租约为 任务名#分片号',
+    owner         VARCHAR(160) NULL COMMENT '当前持有者（节点ID#获取序号），释放后为 NULL',
+    fencing_token BIGINT       NOT NULL DEFAULT 0 COMMENT '每次获取自增，用于识别过期持有者',
+    acquired_time DATETIME(3)  NOT NULL,
+    lease_until   DATETIME(3)  NOT NULL COMMENT '租约到期时间（数据库时钟）',
+    updated_time  DATETIME(3)  NOT NULL,
+    PRIMARY KEY (job_name)
+) ENGINE = InnoDB DEFAULT CHARSET = utf8mb4;
+
+CREATE TABLE IF NOT EXISTS scheduler_nodes (
+    node_id        VARCHAR(128) NOT NULL,
+    started_time   DATETIME(3)  NOT NULL,
+    heartbeat_time DATETIME(3)  NOT NULL,
+    PRIMARY KEY (node_id),
+    KEY idx_scheduler_nodes_heartbeat (heartbeat_time)
+) ENGINE = InnoDB DEFAULT CHARSET = utf8mb4;
@@ -0,0 +1,13 @@
+-- 平台(admin)/unclaimed 账户待入账记录：结算事务只插入，按窗口合并进 users 余额
+CREATE TABLE IF NOT EXISTS settlement_platform_credits (
+    id           BIGINT         NOT NULL AUTO_INCREMENT,
+    user_id      BIGINT         NOT NULL,
+    cal_amount   DECIMAL(30, 8) NOT NULL DEFAULT 0,
+    cny_amount   DECIMAL(20, 2) NOT NULL DEFAULT 0,
+    source_ref   VARCHAR(128)            DEFAULT NULL COMMENT 'tx_hash 或 wallet-shard-N',
+    apply_id     VARCHAR(36)             DEFAULT NULL COMMENT '合并批次；NULL 表示尚未计入余额',
+    created_time DATETIME       NOT NULL,
+    applied_time DATETIME                DEFAULT NULL,
+    PRIMARY KEY (id),
+    KEY idx_apply_id (apply_id, id)
+) ENGINE = InnoDB DEFAULT CHARSET = utf8mb4;
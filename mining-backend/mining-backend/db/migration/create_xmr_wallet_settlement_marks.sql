@@ -0,0 +1,20 @@
+-- 钱包入账分账完成标记：分片批量结算时每个分片事务为其入账的每份分账写入 (tx_hash, user_id)，
+-- 部分分片失败时入账保持未结算，下一轮重试跳过已有标记的分账；
+-- 标记按用户而非分片编号记录，重试时即使邀请人变化导致分片归属改变也不会重复入账。
+CREATE TABLE IF NOT EXISTS `xmr_wallet_settlement_marks` (
+  `tx_hash` VARCHAR(128) NOT NULL COMMENT '入账交易哈希',
+  `user_id` BIGINT NOT NULL COMMENT 'payhash 分摊出的原始用户ID',
+  `shard_no` INT NOT NULL COMMENT '入账时所在分片（仅排查用）',
+  `created_time` DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '完成时间',
+  PRIMARY KEY (`tx_hash`, `user_id`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='钱包入账分账完成标记';
+
+-- 钱包入账分摊记录：批量结算在任何分片提交前先写入每笔入账的完整分摊 (tx_hash, user_id, portion)，
+-- 之后的重试（包括关闭批量开关后的逐笔结算轮次）一律按这份记录续结，不再按可能已变化的 payhash 快照重新分摊。
+CREATE TABLE IF NOT EXISTS `xmr_wallet_settlement_shares` (
+  `tx_hash` VARCHAR(128) NOT NULL COMMENT '入账交易哈希',
+  `user_id` BIGINT NOT NULL COMMENT 'payhash 分摊出的原始用户ID',
+  `portion_xmr` DECIMAL(30,12) NOT NULL COMMENT '分给该用户的 XMR',
+  `created_time` DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '记录时间',
+  PRIMARY KEY (`tx_hash`, `user_id`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='钱包入账分摊记录';
@@ -0,0 +1,11 @@
+package com.slb.mining_backend.common.event;
+
+/**
+ * 行情/汇率快照已刷新（定时任务完成一轮拉取后发布）。
+ *
+ * 依赖行情计算的缓存（如用户算力收益汇总）监听该事件使自身失效。
+ *
+ * @param source 刷新来源，仅用于日志排查
+ */
+public record MarketDataRefreshedEvent(String source) {
+}
@@ -0,0 +1,293 @@
+package com.slb.mining_backend.common.http;
+
+import com.slb.mining_backend.config.OutboundCallProperties;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * 外部接口调用治理器，供各矿池客户端共享（NodejsPoolClient / F2PoolClient / AntpoolClient）。
+ *
+ * 规则：
+ * - 按 host 的令牌桶匀速发放许可，调用方通过 Mono.delay 非阻塞等待；遇到 429/5xx/超时乘性降速，成功后加性恢复；
+ * - 按 host 熔断：连续失败达到阈值后拒绝调用，open-seconds 后放行单个探测请求（半开），成功恢复、失败重新熔断；
+ * - 按 provider 的舱壁限制同时在途请求数，避免一个上游变慢拖住所有定时任务；被舱壁拒绝或在等待许可期间被取消的调用归还已预留的许可；
+ * - 每次调用按 (provider, endpoint, outcome) 记录耗时直方图，熔断状态与当前速率比例以 gauge 导出。
+ *
+ * 治理器只负责“单次尝试”；重试由调用方包在外层，被拒绝的调用（OutboundCallRejectedException）不应重试。
+ */
+@Component
+@Slf4j
+public class OutboundCallGovernor {
+
+    private final OutboundCallProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final LongSupplier clock;
+    private final Map<String, Channel> channels = new ConcurrentHashMap<>();
+
+    public OutboundCallGovernor(OutboundCallProperties properties, MeterRegistry meterRegistry) {
+        this(properties, meterRegistry, System::nanoTime);
+    }
+
+    OutboundCallGovernor(OutboundCallProperties properties, MeterRegistry meterRegistry, LongSupplier clock) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        this.clock = clock;
+    }
+
+    /**
+     * 获取（或创建）某个 provider 的调用通道。同一 provider 的基础速率只能有一个，以不同速率重复获取时直接失败。
+     *
+     * @param provider         provider 标识，用作指标标签与舱壁维度
+     * @param permitsPerSecond 每个 host 的基础速率
+     */
+    public Channel channel(String provider, double permitsPerSecond) {
+        Channel channel = channels.computeIfAbsent(provider, p -> new Channel(p, permitsPerSecond));
+        if (channel.baseIntervalNanos != intervalNanos(permitsPerSecond)) {
+            throw new IllegalStateException("Outbound channel for provider " + provider + " already exists with "
+                    + (1_000_000_000d / channel.baseIntervalNanos) + " permits/s, requested " + permitsPerSecond);
+        }
+        return channel;
+    }
+
+    private static long intervalNanos(double permitsPerSecond) {
+        return (long) Math.ceil(1_000_000_000d / Math.max(0.001d, permitsPerSecond));
+    }
+
+    /**
+     * 单个 provider 的调用通道：舱壁按 provider 计数，限流与熔断按 host 计数。
+     */
+    public final class Channel {
+
+        private final String provider;
+        private final long baseIntervalNanos;
+        private final Semaphore bulkhead;
+        private final Map<String, HostState> hosts = new ConcurrentHashMap<>();
+
+        private Channel(String provider, double permitsPerSecond) {
+            this.provider = provider;
+            this.baseIntervalNanos = intervalNanos(permitsPerSecond);
+            int maxConcurrent = Math.max(1, properties.getMaxConcurrentPerProvider());
+            this.bulkhead = new Semaphore(maxConcurrent);
+            Gauge.builder("slb.outbound.bulkhead.active", bulkhead, b -> maxConcurrent - b.availablePermits())
+                    .description("provider 当前在途的外部请求数")
+                    .tag("provider", provider)
+                    .register(meterRegistry);
+        }
+
+        /**
+         * 执行一次受治理的调用。
+         *
+         * @param endpoint       接口模板（指标标签，须为低基数，不要传入带参数的完整 URL）
+         * @param url            实际请求地址（按其 host 限流与熔断）
+         * @param permitDeadline 等待许可的上限；预计等待更久时以 RATE_LIMITED 拒绝且不消耗许可。null 表示不限
+         * @param call           实际请求（应自带超时）
+         */
+        public <T> Mono<T> execute(String endpoint, String url, Duration permitDeadline, Supplier<Mono<T>> call) {
+            return Mono.defer(() -> {
+                HostState host = hosts.computeIfAbsent(hostOf(url), this::newHostState);
+                if (!host.tryEnter()) {
+                    return reject(OutboundCallRejectedException.Reason.CIRCUIT_OPEN, endpoint);
+                }
+                Permit permit = host.reserve(permitDeadline);
+                if (permit == null) {
+                    host.releaseProbe();
+                    return reject(OutboundCallRejectedException.Reason.RATE_LIMITED, endpoint);
+                }
+                AtomicBoolean started = new AtomicBoolean();
+                Mono<T> attempt = Mono.defer(() -> {
+                    if (!bulkhead.tryAcquire()) {
+                        host.refund(permit);
+                        host.releaseProbe();
+                        return reject(OutboundCallRejectedException.Reason.BULKHEAD_FULL, endpoint);
+                    }
+                    started.set(true);
+                    long startNanos = clock.getAsLong();
+                    return Mono.defer(call)
+                            .doOnSuccess(value -> {
+                                host.onSuccess();
+                                record(endpoint, "success", startNanos);
+                            })
+                            .doOnError(err -> {
+                                boolean unhealthy = isUnhealthy(err);
+                                if (unhealthy) {
+                                    host.onFailure(endpoint);
+                                } else {
+                                    host.onSuccess();
+                                }
+                                record(endpoint, unhealthy ? "failure" : "client_error", startNanos);
+                            })
+                            .doFinally(signal -> bulkhead.release());
+                });
+                return (permit.delay().isZero() ? attempt : Mono.delay(permit.delay()).then(attempt))
+                        .doOnCancel(() -> {
+                            if (!started.get()) {
+                                host.refund(permit);
+                            }
+                            host.releaseProbe();
+                        });
+            });
+        }
+
+        private <T> Mono<T> reject(OutboundCallRejectedException.Reason reason, String endpoint) {
+            meterRegistry.counter("slb.outbound.rejected", "provider", provider, "reason", reason.name()).increment();
+            return Mono.error(new OutboundCallRejectedException(reason, provider, endpoint));
+        }
+
+        private void record(String endpoint, String outcome, long startNanos) {
+            Timer.builder("slb.outbound.calls")
+                    .description("外部接口单次调用耗时")
+                    .tags("provider", provider, "endpoint", endpoint, "outcome", outcome)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry)
+                    .record(clock.getAsLong() - startNanos, TimeUnit.NANOSECONDS);
+        }
+
+        private HostState newHostState(String host) {
+            HostState state = new HostState(provider, host, baseIntervalNanos);
+            Gauge.builder("slb.outbound.circuit.open", state, s -> s.isOpen() ? 1 : 0)
+                    .description("熔断状态（1=熔断中或半开）")
+                    .tags("provider", provider, "host", host)
+                    .register(meterRegistry);
+            Gauge.builder("slb.outbound.rate.ratio", state, HostState::rateRatio)
+                    .description("当前速率相对基础速率的比例（429/5xx 后降低，成功后恢复）")
+                    .tags("provider", provider, "host", host)
+                    .register(meterRegistry);
+            return state;
+        }
+    }
+
+    /**
+     * 已预留的许可：需等待的时长与占用的发放间隔（纳秒），未使用时按间隔归还。
+     */
+    record Permit(Duration delay, long costNanos) {
+    }
+
+    /**
+     * 单个 host 的限流与熔断状态；所有状态变更在对象锁内完成。
+     */
+    final class HostState {
+
+        private final String provider;
+        private final String host;
+        private final long baseIntervalNanos;
+        private double rateRatio = 1.0d;
+        private long nextFreeNanos;
+        private int consecutiveFailures;
+        private boolean open;
+        private long openedAtNanos;
+        private boolean probeInFlight;
+
+        private HostState(String provider, String host, long baseIntervalNanos) {
+            this.provider = provider;
+            this.host = host;
+            this.baseIntervalNanos = baseIntervalNanos;
+            this.nextFreeNanos = clock.getAsLong();
+        }
+
+        synchronized boolean tryEnter() {
+            if (!open) {
+                return true;
+            }
+            long openNanos = TimeUnit.SECONDS.toNanos(Math.max(1L, properties.getOpenSeconds()));
+            if (probeInFlight || clock.getAsLong() - openedAtNanos < openNanos) {
+                return false;
+            }
+            probeInFlight = true;
+            return true;
+        }
+
+        synchronized Permit reserve(Duration maxWait) {
+            long now = clock.getAsLong();
+            long start = Math.max(now, nextFreeNanos);
+            long waitNanos = start - now;
+            if (maxWait != null && waitNanos > maxWait.toNanos()) {
+                return null;
+            }
+            long costNanos = (long) (baseIntervalNanos / rateRatio);
+            nextFreeNanos = start + costNanos;
+            return new Permit(Duration.ofNanos(waitNanos), costNanos);
+        }
+
+        /**
+         * 归还未发出请求的许可：后续许可整体提前一个间隔，但不早于当前时刻。
+         */
+        synchronized void refund(Permit permit) {
+            nextFreeNanos = Math.max(clock.getAsLong(), nextFreeNanos - permit.costNanos());
+        }
+
+        synchronized void onSuccess() {
+            if (open) {
+                log.info("Outbound circuit closed (provider={}, host={})", provider, host);
+            }
+            open = false;
+            probeInFlight = false;
+            consecutiveFailures = 0;
+            rateRatio = Math.min(1.0d, rateRatio + Math.max(0d, properties.getRecoveryStep()));
+        }
+
+        synchronized void onFailure(String endpoint) {
+            double floor = Math.min(1.0d, Math.max(0.001d, properties.getMinRateRatio()));
+            rateRatio = Math.max(floor, rateRatio * Math.min(1.0d, Math.max(0d, properties.getThrottleFactor())));
+            consecutiveFailures++;
+            if (open || consecutiveFailures >= Math.max(1, properties.getFailureThreshold())) {
+                if (!open) {
+                    log.warn("Outbound circuit opened (provider={}, host={}, endpoint={}, consecutiveFailures={})",
+                            provider, host, endpoint, consecutiveFailures);
+                }
+                open = true;
+                probeInFlight = false;
+                openedAtNanos = clock.getAsLong();
+            }
+        }
+
+        /**
+         * 半开探测未真正发出（被限流/舱壁拒绝或被取消）时归还探测名额。
+         */
+        synchronized void releaseProbe() {
+            probeInFlight = false;
+        }
+
+        synchronized boolean isOpen() {
+            return open;
+        }
+
+        synchronized double rateRatio() {
+            return rateRatio;
+        }
+    }
+
+    /**
+     * 429、5xx、超时与连接失败等视为上游不健康；其余 4xx 说明上游可用，只是请求本身有误。
+     */
+    static boolean isUnhealthy(Throwable err) {
+        if (err instanceof WebClientResponseException wcre) {
+            int status = wcre.getStatusCode().value();
+            return status >= 500 || status == 429;
+        }
+        return true;
+    }
+
+    private static String hostOf(String url) {
+        try {
+            String host = URI.create(url).getHost();
+            return host != null ? host.toLowerCase() : "";
+        } catch (IllegalArgumentException ex) {
+            return "";
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.slb.mining_backend.common.http;
+
+import lombok.Getter;
+
+/**
+ * 外部调用在发出前被治理器拒绝（熔断中、限流许可不足或舱壁已满）；不应重试。
+ */
+@Getter
+public class OutboundCallRejectedException extends RuntimeException {
+
+    public enum Reason {
+        CIRCUIT_OPEN,
+        RATE_LIMITED,
+        BULKHEAD_FULL
+    }
+
+    private final Reason reason;
+
+    public OutboundCallRejectedException(Reason reason, String provider, String endpoint) {
+        super("Outbound call rejected (" + reason + ", provider=" + provider + ", endpoint=" + endpoint + ")");
+        this.reason = reason;
+    }
+}
@@ -0,0 +1,39 @@
+package com.slb.mining_backend.common.job;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 定时任务的集群执行方式；未标注的 @Scheduled 方法按 CLUSTER 独占执行，任务名为 类名.方法名。
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface ClusterJob {
+
+    /**
+     * 任务名（租约主键）；为空时使用 类名.方法名。
+     */
+    String value() default "";
+
+    Scope scope() default Scope.CLUSTER;
+
+    /**
+     * 分片数；大于 0 时按分片租约执行，任务内通过 {@link JobShard#owns(String)} 过滤本节点负责的数据。
+     */
+    int shards() default 0;
+
+    enum Scope {
+        /**
+         * 集群内同一时刻只有一个节点执行（或按分片均摊）。
+         */
+        CLUSTER,
+        /**
+         * 每个节点各自执行：刷新本地内存缓存、冲刷本地写缓冲等节点内任务。
+         */
+        NODE
+    }
+}
@@ -0,0 +1,50 @@
+package com.slb.mining_backend.common.job;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.AnnotationUtils;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.StringUtils;
+
+import java.lang.reflect.Method;
+
+/**
+ * 所有 @Scheduled 方法经 {@link JobCoordinator} 执行（含手动调用同一方法的管理接口）。
+ *
+ * <p>切面排在事务切面之外：先拿租约再开事务，租约释放发生在事务提交之后。
+ * 未获得租约时方法体不执行，返回 null（定时任务方法均为 void）。</p>
+ */
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class ClusterJobAspect {
+
+    private final JobCoordinator coordinator;
+
+    public ClusterJobAspect(JobCoordinator coordinator) {
+        this.coordinator = coordinator;
+    }
+
+    @Around("@annotation(org.springframework.scheduling.annotation.Scheduled)")
+    public Object aroundScheduled(ProceedingJoinPoint joinPoint) throws Throwable {
+        Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+        ClusterJob clusterJob = AnnotationUtils.findAnnotation(method, ClusterJob.class);
+        if (clusterJob != null && clusterJob.scope() == ClusterJob.Scope.NODE) {
+            return joinPoint.proceed();
+        }
+        String jobName = clusterJob != null && StringUtils.hasText(clusterJob.value())
+                ? clusterJob.value().trim()
+                : ClassUtils.getUserClass(joinPoint.getTarget()).getSimpleName() + "." + method.getName();
+        if (clusterJob != null && clusterJob.shards() > 0) {
+            coordinator.invokeSharded(jobName, clusterJob.shards(), joinPoint::proceed);
+        } else {
+            coordinator.invokeExclusive(jobName, joinPoint::proceed);
+        }
+        return null;
+    }
+}
@@ -0,0 +1,318 @@
+package com.slb.mining_backend.common.job;
+
+import com.slb.mining_backend.config.JobCoordinatorProperties;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 定时任务集群协调器：基于 MySQL 行租约保证同一任务在集群内互斥执行，并支持分片均摊。
+ *
+ * 规则：
+ * - 独占任务每次执行前获取租约，结束后释放；释放后租约至少保留 min-hold-seconds，吸收节点间的调度偏差；
+ * - 分片任务的分片租约跨周期持有并持续续约，各节点按 ceil(分片数 / 在线节点数) 持有分片，
+ *   超额分片在下一次执行前归还，新节点随之接手；节点失联后其分片在租约到期后由其他节点接管；
+ * - 每次获取租约 fencing_token 自增，续约按 (owner, token) 校验，续约失败即标记租约丢失；
+ *   分片租约丢失后 {@link JobShard#owns(String)} 对该分片立即返回 false，独占任务通过 {@link JobLease#currentLost()} 检查；
+ * - 租约表不可用（数据库故障、未执行 db/migration/create_scheduler_job_leases.sql）时按单机方式照常执行并记录 ERROR：
+ *   结算类任务自身有幂等标记，跳过周期造成的积压比多节点重复执行更难发现。
+ */
+@Component
+@Slf4j
+public class JobCoordinator {
+
+    /**
+     * 可抛出受检异常的任务体（切面中的 ProceedingJoinPoint::proceed）。
+     */
+    @FunctionalInterface
+    interface JobTask {
+        void run() throws Throwable;
+    }
+
+    private final JobLeaseMapper leaseMapper;
+    private final JobCoordinatorProperties properties;
+    private final String nodeId;
+    private final AtomicLong acquisitions = new AtomicLong(0L);
+    private final Set<JobLease> activeLeases = ConcurrentHashMap.newKeySet();
+    private final Map<String, Map<Integer, JobLease>> shardHoldings = new ConcurrentHashMap<>();
+    private final Map<String, ReentrantLock> localLocks = new ConcurrentHashMap<>();
+    private final Set<String> knownJobs = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService renewer;
+    private volatile int activeNodes = 1;
+
+    public JobCoordinator(JobLeaseMapper leaseMapper, JobCoordinatorProperties properties) {
+        this.leaseMapper = leaseMapper;
+        this.properties = properties;
+        this.nodeId = resolveNodeId(properties.getNodeId());
+        this.renewer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "job-lease-renewer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        heartbeat();
+        long heartbeatSeconds = Math.max(1L, properties.getNodeHeartbeatSeconds());
+        long renewSeconds = Math.max(1L, properties.getRenewIntervalSeconds());
+        renewer.scheduleWithFixedDelay(this::heartbeat, heartbeatSeconds, heartbeatSeconds, TimeUnit.SECONDS);
+        renewer.scheduleWithFixedDelay(this::renewAll, renewSeconds, renewSeconds, TimeUnit.SECONDS);
+        log.info("Job coordinator started: nodeId={}, leaseSeconds={}", nodeId, properties.getLeaseSeconds());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        renewer.shutdownNow();
+        if (!properties.isEnabled()) {
+            return;
+        }
+        for (Map<Integer, JobLease> held : shardHoldings.values()) {
+            for (JobLease lease : held.values()) {
+                release(lease, 0L);
+            }
+            held.clear();
+        }
+        try {
+            leaseMapper.deleteNode(nodeId);
+        } catch (DataAccessException e) {
+            log.warn("Failed to unregister scheduler node {}: {}", nodeId, e.getMessage());
+        }
+    }
+
+    /**
+     * 在集群内独占执行；未获得租约（其他节点正在执行或刚执行过）时不执行并返回 false。
+     */
+    public boolean runExclusive(String jobName, Runnable task) {
+        try {
+            return invokeExclusive(jobName, task::run);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    boolean invokeExclusive(String jobName, JobTask task) throws Throwable {
+        if (!properties.isEnabled()) {
+            task.run();
+            return true;
+        }
+        ReentrantLock local = localLocks.computeIfAbsent(jobName, key -> new ReentrantLock());
+        if (!local.tryLock()) {
+            log.debug("Job {} is already running on this node; skip", jobName);
+            return false;
+        }
+        try {
+            JobLease lease;
+            try {
+                lease = acquire(jobName);
+            } catch (DataAccessException e) {
+                log.error("Job lease store unavailable, running {} on node {} WITHOUT cluster coordination: {}",
+                        jobName, nodeId, e.getMessage(), e);
+                task.run();
+                return true;
+            }
+            if (lease == null) {
+                log.debug("Job {} lease is held by another node; skip", jobName);
+                return false;
+            }
+            activeLeases.add(lease);
+            JobLease previousLease = JobLease.bind(lease);
+            JobShard previousShard = JobShard.bind(null);
+            try {
+                task.run();
+            } finally {
+                JobShard.restore(previousShard);
+                JobLease.restore(previousLease);
+                activeLeases.remove(lease);
+                release(lease, Math.max(0L, properties.getMinHoldSeconds()) * 1000L);
+            }
+            if (lease.isLost()) {
+                log.warn("Job {} lost its lease while running (token={})", jobName, lease.getFencingToken());
+            }
+            return true;
+        } finally {
+            local.unlock();
+        }
+    }
+
+    /**
+     * 按分片执行：先按在线节点数调整本节点持有的分片租约，再以持有的分片集合执行一次任务；
+     * 一个分片也未持有时不执行并返回 false。
+     */
+    boolean invokeSharded(String jobName, int shardCount, JobTask task) throws Throwable {
+        if (!properties.isEnabled()) {
+            task.run();
+            return true;
+        }
+        ReentrantLock local = localLocks.computeIfAbsent(jobName, key -> new ReentrantLock());
+        if (!local.tryLock()) {
+            log.debug("Job {} is already running on this node; skip", jobName);
+            return false;
+        }
+        try {
+            Map<Integer, JobLease> held = shardHoldings.computeIfAbsent(jobName, key -> new ConcurrentHashMap<>());
+            boolean storeAvailable = rebalance(jobName, shardCount, held);
+            JobShard shard;
+            if (!held.isEmpty()) {
+                shard = new JobShard(shardCount, held);
+            } else if (!storeAvailable) {
+                log.error("Job lease store unavailable, running {} on node {} for ALL shards WITHOUT cluster coordination",
+                        jobName, nodeId);
+                shard = null;
+            } else {
+                log.debug("Job {} has no shard assigned to node {}; skip", jobName, nodeId);
+                return false;
+            }
+            JobShard previousShard = JobShard.bind(shard);
+            JobLease previousLease = JobLease.bind(null);
+            try {
+                task.run();
+            } finally {
+                JobLease.restore(previousLease);
+                JobShard.restore(previousShard);
+            }
+            return true;
+        } finally {
+            local.unlock();
+        }
+    }
+
+    /**
+     * @return 租约表是否可用（获取分片租约时未出现数据库异常）
+     */
+    private boolean rebalance(String jobName, int shardCount, Map<Integer, JobLease> held) {
+        held.entrySet().removeIf(entry -> entry.getValue().isLost() || entry.getKey() >= shardCount);
+        int quota = (shardCount + Math.max(1, activeNodes) - 1) / Math.max(1, activeNodes);
+        if (held.size() > quota) {
+            // 归还序号最大的超额分片，让新加入的节点接手
+            List<Integer> shardNos = new ArrayList<>(held.keySet());
+            shardNos.sort(null);
+            for (int i = shardNos.size() - 1; i >= 0 && held.size() > quota; i--) {
+                JobLease lease = held.remove(shardNos.get(i));
+                activeLeases.remove(lease);
+                release(lease, 0L);
+            }
+            return true;
+        }
+        int start = Math.floorMod(nodeId.hashCode(), shardCount);
+        for (int i = 0; i < shardCount && held.size() < quota; i++) {
+            int shardNo = (start + i) % shardCount;
+            if (held.containsKey(shardNo)) {
+                continue;
+            }
+            JobLease lease;
+            try {
+                lease = acquire(jobName + "#" + shardNo);
+            } catch (DataAccessException e) {
+                log.error("Failed to acquire job lease {}#{}: {}", jobName, shardNo, e.getMessage());
+                return false;
+            }
+            if (lease != null) {
+                held.put(shardNo, lease);
+                activeLeases.add(lease);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return 获得的租约；被其他节点持有时返回 null，租约表不可用时抛出 DataAccessException
+     */
+    private JobLease acquire(String leaseName) {
+        if (!knownJobs.contains(leaseName)) {
+            leaseMapper.insertIfAbsent(leaseName);
+            knownJobs.add(leaseName);
+        }
+        String owner = nodeId + "#" + acquisitions.incrementAndGet();
+        if (leaseMapper.tryAcquire(leaseName, owner, leaseMillis()) <= 0) {
+            return null;
+        }
+        Long token = leaseMapper.selectFencingToken(leaseName, owner);
+        return token != null ? new JobLease(leaseName, owner, token) : null;
+    }
+
+    private void release(JobLease lease, long holdMillis) {
+        if (lease == null || lease.isLost()) {
+            return;
+        }
+        try {
+            leaseMapper.release(lease.getJobName(), lease.getOwner(), lease.getFencingToken(), holdMillis);
+        } catch (DataAccessException e) {
+            log.warn("Failed to release job lease {}: {}", lease.getJobName(), e.getMessage());
+        }
+    }
+
+    void renewAll() {
+        for (JobLease lease : activeLeases) {
+            try {
+                int updated = leaseMapper.renew(lease.getJobName(), lease.getOwner(), lease.getFencingToken(), leaseMillis());
+                if (updated > 0) {
+                    lease.markRenewed();
+                    continue;
+                }
+                log.warn("Job lease {} was taken over by another node (token={})", lease.getJobName(), lease.getFencingToken());
+                lease.markLost();
+                activeLeases.remove(lease);
+            } catch (DataAccessException e) {
+                log.warn("Failed to renew job lease {}: {}", lease.getJobName(), e.getMessage());
+                // 数据库不可用超过一个租约周期：其他节点可能已接管
+                if (System.nanoTime() - lease.getRenewedAtNanos() >= TimeUnit.MILLISECONDS.toNanos(leaseMillis())) {
+                    lease.markLost();
+                    activeLeases.remove(lease);
+                }
+            }
+        }
+    }
+
+    void heartbeat() {
+        try {
+            leaseMapper.heartbeatNode(nodeId);
+            int count = leaseMapper.countActiveNodes(Math.max(1L, properties.getNodeTtlSeconds()) * 1000L);
+            activeNodes = Math.max(1, count);
+        } catch (DataAccessException e) {
+            log.warn("Failed to heartbeat scheduler node {}: {}", nodeId, e.getMessage());
+        }
+    }
+
+    private long leaseMillis() {
+        return Math.max(1L, properties.getLeaseSeconds()) * 1000L;
+    }
+
+    private static String resolveNodeId(String configured) {
+        if (StringUtils.hasText(configured)) {
+            return configured.trim();
+        }
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            host = "unknown";
+        }
+        return host + ":" + ProcessHandle.current().pid() + ":" + UUID.randomUUID().toString().substring(0, 8);
+    }
+}
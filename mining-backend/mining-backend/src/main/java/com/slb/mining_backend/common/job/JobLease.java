@@ -0,0 +1,84 @@
+package com.slb.mining_backend.common.job;
+
+/**
+ * 一次成功获取的任务租约。
+ *
+ * <p>fencingToken 在每次获取时单调递增；续约失败（被其他节点接管或数据库不可用）后标记为 lost，
+ * 长时间运行的任务应在关键写入前检查 {@link #isLost()} 并尽早退出。</p>
+ */
+public final class JobLease {
+
+    private static final ThreadLocal<JobLease> CURRENT = new ThreadLocal<>();
+
+    private final String jobName;
+    private final String owner;
+    private final long fencingToken;
+    private volatile boolean lost;
+    private volatile long renewedAtNanos = System.nanoTime();
+
+    JobLease(String jobName, String owner, long fencingToken) {
+        this.jobName = jobName;
+        this.owner = owner;
+        this.fencingToken = fencingToken;
+    }
+
+    /**
+     * 当前线程正在执行的独占任务租约；不在协调器内执行时返回 null。
+     */
+    public static JobLease current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * 当前线程的租约是否已丢失；不在协调器内执行时返回 false。
+     */
+    public static boolean currentLost() {
+        JobLease lease = CURRENT.get();
+        return lease != null && lease.isLost();
+    }
+
+    /**
+     * 绑定到当前线程并返回之前的租约（嵌套调用其他任务时由调用方恢复）。
+     */
+    static JobLease bind(JobLease lease) {
+        JobLease previous = CURRENT.get();
+        CURRENT.set(lease);
+        return previous;
+    }
+
+    static void restore(JobLease previous) {
+        if (previous == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(previous);
+        }
+    }
+
+    public String getJobName() {
+        return jobName;
+    }
+
+    public String getOwner() {
+        return owner;
+    }
+
+    public long getFencingToken() {
+        return fencingToken;
+    }
+
+    public boolean isLost() {
+        return lost;
+    }
+
+    void markLost() {
+        lost = true;
+    }
+
+    long getRenewedAtNanos() {
+        return renewedAtNanos;
+    }
+
+    void markRenewed() {
+        renewedAtNanos = System.nanoTime();
+    }
+}
@@ -0,0 +1,47 @@
+package com.slb.mining_backend.common.job;
+
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+/**
+ * 任务租约（scheduler_job_leases）与节点心跳（scheduler_nodes）；时间一律取数据库时钟，避免节点间时钟偏差。
+ */
+@Mapper
+public interface JobLeaseMapper {
+
+    /**
+     * 首次使用任务名时建行（已存在则忽略）。
+     */
+    int insertIfAbsent(@Param("jobName") String jobName);
+
+    /**
+     * 租约已过期时抢占：owner 置为本次获取标识，fencing_token 自增；返回 1 表示获取成功。
+     */
+    int tryAcquire(@Param("jobName") String jobName,
+                   @Param("owner") String owner,
+                   @Param("leaseMillis") long leaseMillis);
+
+    Long selectFencingToken(@Param("jobName") String jobName, @Param("owner") String owner);
+
+    /**
+     * 续约；owner/token 不匹配（已被接管）时返回 0。
+     */
+    int renew(@Param("jobName") String jobName,
+              @Param("owner") String owner,
+              @Param("fencingToken") long fencingToken,
+              @Param("leaseMillis") long leaseMillis);
+
+    /**
+     * 释放租约：租约保留到 acquired_time + holdMillis（不早于当前时间）。
+     */
+    int release(@Param("jobName") String jobName,
+                @Param("owner") String owner,
+                @Param("fencingToken") long fencingToken,
+                @Param("holdMillis") long holdMillis);
+
+    int heartbeatNode(@Param("nodeId") String nodeId);
+
+    int countActiveNodes(@Param("ttlMillis") long ttlMillis);
+
+    int deleteNode(@Param("nodeId") String nodeId);
+}
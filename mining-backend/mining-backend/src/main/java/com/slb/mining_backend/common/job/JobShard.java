@@ -0,0 +1,72 @@
+package com.slb.mining_backend.common.job;
+
+import java.util.Map;
+
+/**
+ * 分片任务在本节点本次执行中负责的分片集合。
+ *
+ * <p>数据按 floorMod(key.hashCode(), shardCount) 归属分片（String.hashCode 在各 JVM 间一致）；
+ * 不在分片任务内执行时（单机模式、手动触发）{@link #owns(String)} 恒为 true。
+ * 执行期间某个分片的租约被标记丢失后，该分片的数据键立即不再归本节点，长任务在逐条处理时自然停止。</p>
+ */
+public final class JobShard {
+
+    private static final ThreadLocal<JobShard> CURRENT = new ThreadLocal<>();
+
+    private final int shardCount;
+    private final Map<Integer, JobLease> leases;
+
+    JobShard(int shardCount, Map<Integer, JobLease> leases) {
+        this.shardCount = shardCount;
+        this.leases = Map.copyOf(leases);
+    }
+
+    public static JobShard current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * 当前节点是否负责该数据键（账户名、子地址等）。
+     */
+    public static boolean owns(String key) {
+        return owns(CURRENT.get(), key);
+    }
+
+    /**
+     * 派发到其他线程的分片任务使用：shard 为调度线程上 {@link #current()} 捕获的分片，null 表示不在分片任务内。
+     */
+    public static boolean owns(JobShard shard, String key) {
+        return shard == null || shard.contains(key);
+    }
+
+    static JobShard bind(JobShard shard) {
+        JobShard previous = CURRENT.get();
+        CURRENT.set(shard);
+        return previous;
+    }
+
+    static void restore(JobShard previous) {
+        if (previous == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(previous);
+        }
+    }
+
+    public static int shardOf(String key, int shardCount) {
+        return Math.floorMod(key == null ? 0 : key.hashCode(), Math.max(1, shardCount));
+    }
+
+    public boolean contains(String key) {
+        JobLease lease = leases.get(shardOf(key, shardCount));
+        return lease != null && !lease.isLost();
+    }
+
+    public int getShardCount() {
+        return shardCount;
+    }
+
+    public int ownedCount() {
+        return (int) leases.values().stream().filter(lease -> !lease.isLost()).count();
+    }
+}
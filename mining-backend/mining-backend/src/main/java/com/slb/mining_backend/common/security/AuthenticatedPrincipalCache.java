@@ -0,0 +1,142 @@
+package com.slb.mining_backend.common.security;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.slb.mining_backend.config.PrincipalCacheProperties;
+import com.slb.mining_backend.modules.users.entity.User;
+import com.slb.mining_backend.modules.users.mapper.UserMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.GuavaCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 已认证用户缓存（uid -> User），供 JwtFilter 恢复登录态，避免每个请求都按 uid 查库。
+ *
+ * <p>规则：</p>
+ * <ul>
+ *     <li>短 TTL（security.principal-cache.ttl-seconds），不存在的用户不缓存；</li>
+ *     <li>命中后由调用方照常校验 status（禁用用户拒绝访问）；</li>
+ *     <li>资料/密码/结算偏好/状态变更在事务提交后失效，并通过 Redis pub/sub 通知其他节点；</li>
+ *     <li>加载期间若发生失效，本次加载结果不写入缓存。</li>
+ * </ul>
+ * <p>注意：缓存的 User 仅用于身份与低频资料字段，余额等实时数据必须查库。</p>
+ */
+@Component
+@Slf4j
+public class AuthenticatedPrincipalCache implements MessageListener {
+
+    private static final String CHANNEL = "auth:principal:invalidate";
+    static final String CACHE_NAME = "auth.principal";
+
+    private final UserMapper userMapper;
+    private final StringRedisTemplate redisTemplate;
+    private final RedisMessageListenerContainer listenerContainer;
+    private final PrincipalCacheProperties properties;
+    private final Cache<Long, User> cache;
+    private final AtomicLong invalidations = new AtomicLong(0L);
+
+    public AuthenticatedPrincipalCache(UserMapper userMapper,
+                                       StringRedisTemplate redisTemplate,
+                                       RedisMessageListenerContainer listenerContainer,
+                                       PrincipalCacheProperties properties,
+                                       MeterRegistry meterRegistry) {
+        this.userMapper = userMapper;
+        this.redisTemplate = redisTemplate;
+        this.listenerContainer = listenerContainer;
+        this.properties = properties;
+        this.cache = CacheBuilder.newBuilder()
+                .maximumSize(Math.max(1L, properties.getMaximumSize()))
+                .expireAfterWrite(Math.max(1L, properties.getTtlSeconds()), TimeUnit.SECONDS)
+                .recordStats()
+                .build();
+        GuavaCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+    }
+
+    @PostConstruct
+    public void subscribe() {
+        if (properties.isEnabled() && properties.isRedisFanout()) {
+            listenerContainer.addMessageListener(this, new ChannelTopic(CHANNEL));
+        }
+    }
+
+    /**
+     * 按 uid 获取用户；用户不存在时返回 null。
+     */
+    public User get(Long uid) {
+        if (uid == null) {
+            return null;
+        }
+        if (!properties.isEnabled()) {
+            return userMapper.selectById(uid).orElse(null);
+        }
+        User cached = cache.getIfPresent(uid);
+        if (cached != null) {
+            return cached;
+        }
+        long generation = invalidations.get();
+        User loaded = userMapper.selectById(uid).orElse(null);
+        if (loaded != null && invalidations.get() == generation) {
+            cache.put(uid, loaded);
+        }
+        return loaded;
+    }
+
+    /**
+     * 用户资料/状态已变更：在当前事务提交后失效并广播；无事务时立即执行。
+     */
+    public void invalidateAfterCommit(Long uid) {
+        if (uid == null) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    invalidate(uid);
+                }
+            });
+            return;
+        }
+        invalidate(uid);
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        try {
+            invalidateLocal(Long.parseLong(body.trim()));
+        } catch (NumberFormatException e) {
+            log.warn("Ignore malformed principal invalidation message: {}", body);
+        }
+    }
+
+    private void invalidate(Long uid) {
+        invalidateLocal(uid);
+        if (!properties.isEnabled() || !properties.isRedisFanout()) {
+            return;
+        }
+        try {
+            redisTemplate.convertAndSend(CHANNEL, String.valueOf(uid));
+        } catch (Exception e) {
+            log.warn("Failed to publish principal invalidation for user {}: {}", uid, e.getMessage());
+        }
+    }
+
+    private void invalidateLocal(Long uid) {
+        invalidations.incrementAndGet();
+        cache.invalidate(uid);
+    }
+}
@@ -2,9 +2,9 @@ package com.slb.mining_backend.common.util;
 
 import com.slb.mining_backend.common.security.AuthErrorType;
 import com.slb.mining_backend.common.security.AuthProblemSupport;
+import com.slb.mining_backend.common.security.AuthenticatedPrincipalCache;
 import com.slb.mining_backend.common.security.CustomUserDetails;
 import com.slb.mining_backend.modules.users.entity.User;
-import com.slb.mining_backend.modules.users.mapper.UserMapper;
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.ExpiredJwtException;
 import io.jsonwebtoken.JwtException;
@@ -43,7 +43,16 @@ public class JwtFilter extends OncePerRequestFilter {
     private UserDetailsService userDetailsService;
 
     @Autowired
-    private UserMapper userMapper;
+    private AuthenticatedPrincipalCache principalCache;
+
+    /**
+     * 长轮询（DeferredResult）完成后的异步派发同样解析 Token：
+     * 无状态会话下认证信息不会跨派发保留，授权规则在 ASYNC 派发上仍然生效。
+     */
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        return false;
+    }
 
     @Override
     protected void doFilterInternal(
@@ -104,7 +113,7 @@ public class JwtFilter extends OncePerRequestFilter {
         }
 
         try {
-            Claims claims = jwtUtil.parseClaims(token);
+            Claims claims = jwtUtil.parseClaimsCached(token);
 
             if (isExpired(claims)) {
                 AuthProblemSupport.flag(
@@ -134,7 +143,8 @@ public class JwtFilter extends OncePerRequestFilter {
             Long uid = resolveUidFromClaims(claims);
             UserDetails userDetails;
             if (uid != null) {
-                User user = userMapper.selectById(uid).orElse(null);
+                // 短 TTL 缓存（资料/状态变更时失效），命中后仍校验禁用状态
+                User user = principalCache.get(uid);
                 if (user == null) {
                     AuthProblemSupport.flag(
                             request,
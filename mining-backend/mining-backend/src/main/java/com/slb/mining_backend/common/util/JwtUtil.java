@@ -1,5 +1,8 @@
 package com.slb.mining_backend.common.util;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.Hashing;
 import com.slb.mining_backend.common.security.CustomUserDetails;
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.JwtException;
@@ -20,6 +23,7 @@ import java.security.Key;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 
 @Component
@@ -41,12 +45,28 @@ public class JwtUtil {
     @Value("${security.jwt.refresh-token-expire}")
     private long refreshTokenExpire; // seconds
 
+    /** 已校验 token 的 claims 缓存容量；<=0 表示关闭 */
+    @Value("${security.jwt.claims-cache-size:100000}")
+    private long claimsCacheSize;
+
+    @Value("${security.jwt.claims-cache-ttl-seconds:300}")
+    private long claimsCacheTtlSeconds;
+
     private Key key;
 
+    /** token 摘要(SHA-256) -> 已通过签名校验的 claims；不保存 token 原文 */
+    private Cache<String, Claims> claimsCache;
+
     @PostConstruct
     public void init() {
         // 保证 secret 至少 32 bytes，HS256 可用
         this.key = Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
+        if (claimsCacheSize > 0) {
+            this.claimsCache = CacheBuilder.newBuilder()
+                    .maximumSize(claimsCacheSize)
+                    .expireAfterWrite(Math.max(1L, claimsCacheTtlSeconds), TimeUnit.SECONDS)
+                    .build();
+        }
     }
 
     /* ----------- 公共解析工具 ----------- */
@@ -67,6 +87,24 @@ public class JwtUtil {
         return extractAllClaims(token);
     }
 
+    /**
+     * 同 parseClaims，但按 token 摘要缓存解析结果：同一 token 在缓存期内不重复做签名校验与 JSON 解析。
+     * 缓存中的 claims 已过期时回退到完整解析（由解析器抛出 ExpiredJwtException），行为与不走缓存一致。
+     */
+    public Claims parseClaimsCached(String token) {
+        if (claimsCache == null || !StringUtils.hasText(token)) {
+            return extractAllClaims(token);
+        }
+        String digest = Hashing.sha256().hashString(token, StandardCharsets.UTF_8).toString();
+        Claims cached = claimsCache.getIfPresent(digest);
+        if (cached != null && !isExpired(cached)) {
+            return cached;
+        }
+        Claims claims = extractAllClaims(token);
+        claimsCache.put(digest, claims);
+        return claims;
+    }
+
     public Claims parseRefreshClaims(String token) {
         Claims claims = extractAllClaims(token);
         ensureTokenType(claims, TOKEN_TYPE_REFRESH);
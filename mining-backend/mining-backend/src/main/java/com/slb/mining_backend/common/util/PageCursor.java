@@ -0,0 +1,62 @@
+package com.slb.mining_backend.common.util;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.slb.mining_backend.common.exception.BizException;
+import org.springframework.util.StringUtils;
+
+import java.util.Base64;
+import java.util.Objects;
+
+/**
+ * 游标分页的不透明游标：记录排序字段、排序方向以及上一页最后一行的（排序值, 主键）。
+ *
+ * 对外为 Base64URL(JSON)，客户端只需原样回传；游标与本次请求的排序参数不一致时拒绝，
+ * 避免换了排序方式后继续用旧位置翻页得到错乱结果。
+ */
+public record PageCursor(@JsonProperty("s") String sortBy,
+                         @JsonProperty("o") String orderBy,
+                         @JsonProperty("v") String value,
+                         @JsonProperty("k") String key) {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    /**
+     * 游标分页单页上限。
+     */
+    public static final int MAX_PAGE_SIZE = 100;
+
+    public static int clampSize(int size) {
+        return Math.min(Math.max(size, 1), MAX_PAGE_SIZE);
+    }
+
+    public String encode() {
+        try {
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(MAPPER.writeValueAsBytes(this));
+        } catch (Exception e) {
+            throw new IllegalStateException("Failed to encode page cursor", e);
+        }
+    }
+
+    /**
+     * 解析游标；为空表示第一页，返回 null。
+     */
+    public static PageCursor decode(String cursor, String sortBy, String orderBy) {
+        if (!StringUtils.hasText(cursor)) {
+            return null;
+        }
+        PageCursor decoded;
+        try {
+            decoded = MAPPER.readValue(Base64.getUrlDecoder().decode(cursor.trim()), PageCursor.class);
+        } catch (Exception e) {
+            throw new BizException(400, "无效的分页游标");
+        }
+        if (decoded == null || !StringUtils.hasText(decoded.key())) {
+            throw new BizException(400, "无效的分页游标");
+        }
+        if (!Objects.equals(decoded.sortBy(), sortBy) || !Objects.equals(decoded.orderBy(), orderBy)) {
+            throw new BizException(400, "分页游标与排序参数不一致");
+        }
+        return decoded;
+    }
+}
@@ -0,0 +1,25 @@
+package com.slb.mining_backend.common.vo;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * 游标（keyset）分页结果。
+ *
+ * nextCursor 为下一页的不透明游标，hasMore=false 时为 null；
+ * total 仅在请求 withTotal 时返回，totalExact=false 表示该值为估算值。
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CursorPageVo<T> {
+    private Integer size;
+    private Boolean hasMore;
+    private String nextCursor;
+    private Long total;
+    private Boolean totalExact;
+    private List<T> list;
+}
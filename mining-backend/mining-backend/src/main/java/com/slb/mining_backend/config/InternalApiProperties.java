@@ -0,0 +1,48 @@
+package com.slb.mining_backend.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 服务间调用（/api/v1/internal/**）配置。
+ *
+ * <p>请求须同时满足：来源地址在 allowedCidrs 内，且请求头 X-Internal-Api-Key 与 apiKey 一致。</p>
+ */
+@Component
+@ConfigurationProperties(prefix = "app.internal")
+@Data
+public class InternalApiProperties {
+
+    /**
+     * 示例配置中的占位密钥，视同未配置。
+     */
+    public static final String PLACEHOLDER_API_KEY = "change-me";
+
+    /**
+     * 内部调用密钥。为空或仍为占位值 change-me 时拒绝所有内部调用。
+     */
+    private String apiKey = "";
+
+    /**
+     * 允许访问内部接口的来源地址（CIDR 或单个 IP）。默认仅本机与私有网段。
+     * <p>经反向代理转发时，需配置 server.forward-headers-strategy 才能取到真实来源地址。</p>
+     */
+    private List<String> allowedCidrs = new ArrayList<>(List.of(
+            "127.0.0.1/32",
+            "::1/128",
+            "10.0.0.0/8",
+            "172.16.0.0/12",
+            "192.168.0.0/16"
+    ));
+
+    /**
+     * 密钥是否已配置为可用值（非空且不是占位值）。
+     */
+    public boolean isApiKeyConfigured() {
+        return apiKey != null && !apiKey.isBlank() && !PLACEHOLDER_API_KEY.equals(apiKey.trim());
+    }
+}
@@ -0,0 +1,52 @@
+package com.slb.mining_backend.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 定时任务集群协调配置（MySQL 行租约 + fencing token）。
+ *
+ * <p>所有 @Scheduled 任务默认经协调器执行：同一任务在集群内同一时刻只有一个节点运行；
+ * 分片任务按固定分片数拆分，各节点按在线节点数均摊分片租约。</p>
+ */
+@Component
+@ConfigurationProperties(prefix = "app.jobs.coordinator")
+@Data
+public class JobCoordinatorProperties {
+
+    /**
+     * 是否启用集群协调；关闭时所有任务按单机方式直接执行（仅限单节点部署）。
+     */
+    private boolean enabled = true;
+
+    /**
+     * 节点标识；为空时使用 主机名:进程号:随机后缀。
+     */
+    private String nodeId;
+
+    /**
+     * 租约时长（秒）：持有节点失联后，其他节点最多等待该时长接管。
+     */
+    private long leaseSeconds = 60;
+
+    /**
+     * 续约间隔（秒），应明显小于 leaseSeconds。
+     */
+    private long renewIntervalSeconds = 20;
+
+    /**
+     * 独占任务结束后租约的最短保留时长（秒）：吸收节点间的时钟/调度偏差，避免同一 cron 周期被另一节点重复执行。
+     */
+    private long minHoldSeconds = 10;
+
+    /**
+     * 节点心跳间隔（秒）。
+     */
+    private long nodeHeartbeatSeconds = 15;
+
+    /**
+     * 节点在线判定窗口（秒）：超过该时长未心跳的节点不参与分片均摊。
+     */
+    private long nodeTtlSeconds = 45;
+}
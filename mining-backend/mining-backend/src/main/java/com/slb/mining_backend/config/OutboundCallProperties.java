@@ -0,0 +1,47 @@
+package com.slb.mining_backend.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 外部接口（矿池 API）调用治理配置：按 host 的自适应限流、熔断与按 provider 的并发隔离。
+ *
+ * <p>各 provider 的基础速率仍取自其自身配置（perHostReqPer15Min / per-host-qps），
+ * 这里只配置遇到 429/5xx 时的降速、恢复与熔断策略。</p>
+ */
+@Component
+@ConfigurationProperties(prefix = "app.outbound")
+@Data
+public class OutboundCallProperties {
+
+    /**
+     * 遇到 429/5xx/超时时速率乘以该系数（乘性降速）。
+     */
+    private double throttleFactor = 0.5d;
+
+    /**
+     * 速率下限（相对基础速率的比例）。
+     */
+    private double minRateRatio = 0.1d;
+
+    /**
+     * 每次成功调用后速率比例的回升步长（加性恢复），直至回到基础速率。
+     */
+    private double recoveryStep = 0.05d;
+
+    /**
+     * 连续失败达到该次数后熔断。
+     */
+    private int failureThreshold = 5;
+
+    /**
+     * 熔断持续时长（秒），到期后放行一个探测请求（半开），成功则恢复、失败则重新熔断。
+     */
+    private long openSeconds = 30;
+
+    /**
+     * 每个 provider 同时在途的请求数上限（舱壁），超出时直接拒绝。
+     */
+    private int maxConcurrentPerProvider = 8;
+}
@@ -0,0 +1,37 @@
+package com.slb.mining_backend.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 已认证用户（JwtFilter 按 uid 恢复的 User）缓存配置。
+ *
+ * <p>缓存命中时仍校验用户状态（禁用用户直接拒绝）；用户资料/密码/状态变更后失效，
+ * 多节点部署时通过 Redis pub/sub 广播失效。</p>
+ */
+@Component
+@ConfigurationProperties(prefix = "security.principal-cache")
+@Data
+public class PrincipalCacheProperties {
+
+    /**
+     * 是否启用缓存；关闭时每个请求都按 uid 查库。
+     */
+    private boolean enabled = true;
+
+    /**
+     * 写入后的最长存活时间（秒）：未经失效通知的变更（如直接改库）最多延迟该时长生效。
+     */
+    private long ttlSeconds = 30;
+
+    /**
+     * 缓存的最大用户数。
+     */
+    private long maximumSize = 50_000;
+
+    /**
+     * 是否通过 Redis pub/sub 跨节点广播失效；单节点部署可关闭。
+     */
+    private boolean redisFanout = true;
+}
@@ -9,6 +9,8 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpMethod;
 import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authorization.AuthorizationDecision;
+import org.springframework.security.authorization.AuthorizationManager;
 import org.springframework.security.config.Customizer;
 import org.springframework.security.config.annotation.authentication.configuration.AuthenticationConfiguration;
 import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
@@ -17,7 +19,9 @@ import org.springframework.security.config.annotation.web.configuration.EnableWe
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.access.intercept.RequestAuthorizationContext;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
+import org.springframework.security.web.util.matcher.IpAddressMatcher;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.CorsConfigurationSource;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
@@ -38,6 +42,8 @@ public class SecurityConfig {
     @Autowired
     private CorsProperties corsProperties;
     @Autowired
+    private InternalApiProperties internalApiProperties;
+    @Autowired
     private JwtAuthenticationEntryPoint unauthorizedHandler;
     @Autowired
     private JwtAccessDeniedHandler accessDeniedHandler;
@@ -65,6 +71,8 @@ public class SecurityConfig {
                 .authorizeHttpRequests(auth -> auth
                         // 预检请求必须放行，否则浏览器会直接报跨域（并且不会真正发业务请求）
                         .requestMatchers(HttpMethod.OPTIONS, "/**").permitAll()
+                        // 服务间调用：仅放行内网来源，X-Internal-Api-Key 由接口自行校验
+                        .requestMatchers("/api/v1/internal/**").access(internalNetworkOnly())
                         .requestMatchers(
                                 "/api/v1/auth/**",
                                 "/api/v1/user/login",
@@ -106,6 +114,18 @@ public class SecurityConfig {
         return http.build();
     }
 
+    /**
+     * 内部接口的来源地址校验（app.internal.allowed-cidrs）。
+     */
+    private AuthorizationManager<RequestAuthorizationContext> internalNetworkOnly() {
+        List<IpAddressMatcher> matchers = internalApiProperties.getAllowedCidrs().stream()
+                .filter(cidr -> cidr != null && !cidr.isBlank())
+                .map(cidr -> new IpAddressMatcher(cidr.trim()))
+                .toList();
+        return (authentication, context) -> new AuthorizationDecision(
+                matchers.stream().anyMatch(matcher -> matcher.matches(context.getRequest())));
+    }
+
     /**
      * Spring Security 的 CORS 数据源。
      * <p>注意：仅有 WebMvcConfigurer 的 addCorsMappings 对于 Security 链不一定生效；推荐使用该方式。</p>
@@ -1,6 +1,7 @@
 package com.slb.mining_backend.modules.admin.controller;
 
 import com.slb.mining_backend.common.api.ApiResponse;
+import com.slb.mining_backend.common.vo.CursorPageVo;
 import com.slb.mining_backend.common.vo.PageVo;
 import com.slb.mining_backend.modules.admin.service.AdminDeviceService;
 import com.slb.mining_backend.modules.admin.vo.AdminDeviceListItemVo;
@@ -40,4 +41,23 @@ public class AdminDeviceController {
             @RequestParam(required = false) Long ownerUid) {
         return ApiResponse.ok(deviceService.listDevices(page, size, keyword, status, ownerUid));
     }
+
+    @GetMapping("/cursor")
+    @Operation(summary = "设备列表（全部设备，游标分页）",
+            description = "按创建时间倒序游标翻页；首页不传 cursor，之后回传响应中的 nextCursor。withTotal=true 且无筛选条件时总数为估算值（totalExact=false）。")
+    public ApiResponse<CursorPageVo<AdminDeviceListItemVo>> listDevicesByCursor(
+            @Parameter(description = "上一页返回的 nextCursor，首页不传")
+            @RequestParam(required = false) String cursor,
+            @Parameter(description = "每页数量，最大 100", example = "20")
+            @RequestParam(defaultValue = "20") int size,
+            @Parameter(description = "关键词（设备ID/名称）", example = "DEV-001")
+            @RequestParam(required = false) String keyword,
+            @Parameter(description = "设备状态（ONLINE/OFFLINE）", example = "ONLINE")
+            @RequestParam(required = false) String status,
+            @Parameter(description = "设备归属用户ID", example = "1001")
+            @RequestParam(required = false) Long ownerUid,
+            @Parameter(description = "是否返回总数", example = "false")
+            @RequestParam(defaultValue = "false") boolean withTotal) {
+        return ApiResponse.ok(deviceService.listDevicesByCursor(cursor, size, keyword, status, ownerUid, withTotal));
+    }
 }
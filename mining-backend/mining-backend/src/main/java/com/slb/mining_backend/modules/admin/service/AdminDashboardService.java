@@ -3,6 +3,7 @@ package com.slb.mining_backend.modules.admin.service;
 import com.slb.mining_backend.modules.admin.vo.DeviceSummaryVo;
 import com.slb.mining_backend.modules.admin.vo.UserAssetsSummaryVo;
 import com.slb.mining_backend.modules.device.mapper.DeviceMapper;
+import com.slb.mining_backend.modules.device.service.DeviceService;
 import com.slb.mining_backend.modules.users.mapper.UserMapper;
 import org.springframework.stereotype.Service;
 
@@ -17,15 +18,17 @@ public class AdminDashboardService {
 
     private final DeviceMapper deviceMapper;
     private final UserMapper userMapper;
+    private final DeviceService deviceService;
 
-    public AdminDashboardService(DeviceMapper deviceMapper, UserMapper userMapper) {
+    public AdminDashboardService(DeviceMapper deviceMapper, UserMapper userMapper, DeviceService deviceService) {
         this.deviceMapper = deviceMapper;
         this.userMapper = userMapper;
+        this.deviceService = deviceService;
     }
 
     public DeviceSummaryVo getDeviceSummary() {
         long total = deviceMapper.countTotalDevices();
-        long online = deviceMapper.countOnlineDevices();
+        long online = deviceService.getOnlineDeviceCount();
         BigDecimal cpuHps = safe(deviceMapper.sumTotalCpuHashrate());
         BigDecimal cpuKh = cpuHps.divide(ONE_THOUSAND, 2, RoundingMode.HALF_UP);
         BigDecimal cfxMh = safe(deviceMapper.sumTotalGpuHashrateOctopus()).setScale(2, RoundingMode.HALF_UP);
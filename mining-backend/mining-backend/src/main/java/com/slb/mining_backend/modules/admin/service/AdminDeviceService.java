@@ -1,5 +1,8 @@
 package com.slb.mining_backend.modules.admin.service;
 
+import com.slb.mining_backend.common.exception.BizException;
+import com.slb.mining_backend.common.util.PageCursor;
+import com.slb.mining_backend.common.vo.CursorPageVo;
 import com.slb.mining_backend.common.vo.PageVo;
 import com.slb.mining_backend.modules.admin.vo.AdminDeviceListItemVo;
 import com.slb.mining_backend.modules.device.mapper.DeviceMapper;
@@ -8,6 +11,7 @@ import org.springframework.util.StringUtils;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -15,6 +19,8 @@ import java.util.List;
 public class AdminDeviceService {
 
     private static final BigDecimal ONE_THOUSAND = BigDecimal.valueOf(1000L);
+    private static final String CURSOR_SORT_BY = "createTime";
+    private static final String CURSOR_ORDER_BY = "desc";
 
     private final DeviceMapper deviceMapper;
 
@@ -30,6 +36,46 @@ public class AdminDeviceService {
         }
         int offset = Math.max(0, (page - 1) * size);
         List<AdminDeviceListItemVo> rows = deviceMapper.findAdminDevicesPaginated(keyword, statusCode, ownerUid, offset, size);
+        return new PageVo<>(total, page, size, toListItems(rows));
+    }
+
+    /**
+     * 游标分页：按 (创建时间, 设备ID) 倒序定位下一页，深翻页不再随 OFFSET 线性变慢。
+     * withTotal 时：无筛选条件返回表统计信息中的估算行数（totalExact=false），有筛选条件按条件精确计数。
+     */
+    public CursorPageVo<AdminDeviceListItemVo> listDevicesByCursor(String cursor, int size, String keyword, String status,
+                                                                   Long ownerUid, boolean withTotal) {
+        Integer statusCode = normalizeStatus(status);
+        int pageSize = PageCursor.clampSize(size);
+        PageCursor position = PageCursor.decode(cursor, CURSOR_SORT_BY, CURSOR_ORDER_BY);
+        LocalDateTime cursorTime = position == null ? null : parseCursorTime(position.value());
+        String cursorKey = position == null ? null : position.key();
+
+        List<AdminDeviceListItemVo> rows = deviceMapper.findAdminDevicesAfter(
+                keyword, statusCode, ownerUid, cursorTime, cursorKey, pageSize + 1);
+        boolean hasMore = rows.size() > pageSize;
+        if (hasMore) {
+            rows = rows.subList(0, pageSize);
+        }
+        String nextCursor = null;
+        if (hasMore) {
+            AdminDeviceListItemVo last = rows.get(rows.size() - 1);
+            nextCursor = new PageCursor(CURSOR_SORT_BY, CURSOR_ORDER_BY,
+                    String.valueOf(last.getCreatedAt()), last.getDeviceId()).encode();
+        }
+
+        Long total = null;
+        Boolean totalExact = null;
+        if (withTotal) {
+            boolean filtered = StringUtils.hasText(keyword) || statusCode != null || ownerUid != null;
+            Long estimate = filtered ? null : deviceMapper.estimateDeviceRows();
+            totalExact = estimate == null;
+            total = estimate != null ? estimate : deviceMapper.countAdminDevices(keyword, statusCode, ownerUid);
+        }
+        return new CursorPageVo<>(pageSize, hasMore, nextCursor, total, totalExact, toListItems(rows));
+    }
+
+    private List<AdminDeviceListItemVo> toListItems(List<AdminDeviceListItemVo> rows) {
         List<AdminDeviceListItemVo> list = new ArrayList<>();
         for (AdminDeviceListItemVo row : rows) {
             if (row == null) {
@@ -47,7 +93,15 @@ public class AdminDeviceService {
             vo.setCreatedAt(row.getCreatedAt());
             list.add(vo);
         }
-        return new PageVo<>(total, page, size, list);
+        return list;
+    }
+
+    private LocalDateTime parseCursorTime(String value) {
+        try {
+            return LocalDateTime.parse(value);
+        } catch (RuntimeException e) {
+            throw new BizException(400, "无效的分页游标");
+        }
     }
 
     private Integer normalizeStatus(String status) {
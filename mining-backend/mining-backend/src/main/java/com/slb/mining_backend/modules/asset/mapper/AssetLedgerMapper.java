@@ -6,6 +6,7 @@ import org.apache.ibatis.annotations.Param;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.List;
 
 /**
  * MyBatis mapper：用于 asset_ledger 表的持久化操作。
@@ -26,6 +27,11 @@ public interface AssetLedgerMapper {
      */
     int insertIgnore(AssetLedger ledger);
 
+    /**
+     * 批量幂等插入：命中唯一键冲突的行被忽略。
+     */
+    int batchInsertIgnore(@Param("ledgers") List<AssetLedger> ledgers);
+
     /**
      * 汇总某用户在指定 refType 且时间范围内的 amount_cal（用于统计新手折扣等）。
      */
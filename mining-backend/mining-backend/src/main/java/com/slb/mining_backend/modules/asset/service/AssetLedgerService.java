@@ -7,6 +7,7 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.List;
 
 @Service
 public class AssetLedgerService {
@@ -64,6 +65,23 @@ public class AssetLedgerService {
                                    String txHash,
                                    String remark,
                                    LocalDateTime eventTime) {
+        AssetLedger ledger = buildMiningPayout(userId, currency, amountXmr, amountCal, amountCny, refId, txHash, remark, eventTime);
+        // 幂等写入：依赖数据库唯一键避免重复入账（重复时返回 0）
+        assetLedgerMapper.insertIgnore(ledger);
+    }
+
+    /**
+     * 构造矿池结算流水（不落库），供批量结算先收集、再通过 {@link #recordMiningPayouts(List)} 一次写入。
+     */
+    public AssetLedger buildMiningPayout(Long userId,
+                                         String currency,
+                                         BigDecimal amountXmr,
+                                         BigDecimal amountCal,
+                                         BigDecimal amountCny,
+                                         Long refId,
+                                         String txHash,
+                                         String remark,
+                                         LocalDateTime eventTime) {
         AssetLedger ledger = new AssetLedger();
         ledger.setUserId(userId);
         ledger.setCurrency(currency);
@@ -75,8 +93,18 @@ public class AssetLedgerService {
         ledger.setTxHash(txHash);
         ledger.setRemark(remark);
         ledger.setEventTime(eventTime);
-        // 幂等写入：依赖数据库唯一键避免重复入账（重复时返回 0）
-        assetLedgerMapper.insertIgnore(ledger);
+        return ledger;
+    }
+
+    /**
+     * 批量幂等写入矿池结算流水（多行 INSERT IGNORE，唯一键冲突的行被忽略）。
+     */
+    @Transactional
+    public void recordMiningPayouts(List<AssetLedger> ledgers) {
+        if (ledgers == null || ledgers.isEmpty()) {
+            return;
+        }
+        assetLedgerMapper.batchInsertIgnore(ledgers);
     }
 
     /**
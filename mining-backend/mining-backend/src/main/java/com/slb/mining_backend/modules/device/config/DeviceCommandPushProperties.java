@@ -0,0 +1,57 @@
+package com.slb.mining_backend.modules.device.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 远程控制指令推送（长轮询）配置。
+ *
+ * 客户端通过 GET /api/v1/devices/{deviceId}/remote-control/poll 挂起等待，指令下发后由进程内等待表唤醒；
+ * 多节点部署时通过 Redis pub/sub 广播到所有节点。
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "app.devices.command-push")
+public class DeviceCommandPushProperties {
+
+    /**
+     * 长轮询默认等待时长（秒）。
+     */
+    private int defaultWaitSeconds = 25;
+
+    /**
+     * 长轮询最大等待时长（秒），客户端传入的 waitSeconds 会被截断到该值。
+     */
+    private int maxWaitSeconds = 60;
+
+    /**
+     * 单台设备同时挂起的长轮询上限（防止异常客户端占满连接）。
+     */
+    private int maxWaitersPerDevice = 4;
+
+    /**
+     * 是否通过 Redis pub/sub 跨节点广播指令通知；单节点部署可关闭，仅在本进程内唤醒。
+     */
+    private boolean redisFanout = true;
+
+    /**
+     * 是否使用 Redis 待执行标记：设备详情接口在标记明确为“无待执行指令”时跳过查询指令表，避免每次轮询都查库。
+     */
+    private boolean pendingHintEnabled = true;
+
+    /**
+     * “无待执行指令”标记的有效期（秒）：过期后下一次设备详情请求重新查库确认。
+     */
+    private int noPendingHintTtlSeconds = 60;
+
+    /**
+     * 唤醒等待者的线程数（唤醒回调会查询指令表）。
+     */
+    private int signalThreads = 2;
+
+    /**
+     * 唤醒任务队列容量；队列满时放弃唤醒，等待者超时后客户端重新轮询。
+     */
+    private int signalQueueCapacity = 1000;
+}
@@ -0,0 +1,68 @@
+package com.slb.mining_backend.modules.device.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 设备算力趋势的汇总层级（rollup）配置。
+ *
+ * 分钟桶（device_hashrate_reports / device_gpu_hashrate_reports）定期增量汇总为 15 分钟、1 小时两级
+ * （均值/最大/最小/样本数），趋势接口按查询窗口与点数预算自动选择层级，长窗口只读取几百行汇总数据。
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "app.devices.hashrate-rollup")
+public class DeviceHashrateRollupProperties {
+
+    /**
+     * 是否启用汇总层级；关闭时趋势接口仅读取分钟桶（窗口上限 1440 分钟）。
+     */
+    private boolean enabled = true;
+
+    /**
+     * 增量汇总任务间隔（毫秒）。
+     */
+    private long fixedDelayMs = 300_000L;
+
+    /**
+     * 节点启动后首轮汇总的回看窗口（分钟，向下对齐到整点）；之后从已处理的高水位增量汇总。
+     */
+    private int lookbackMinutes = 120;
+
+    /**
+     * 增量汇总时高水位回退的分钟数，覆盖缓冲刷盘等造成的迟到上报（起点仍对齐到整点）。
+     */
+    private int lateArrivalMinutes = 5;
+
+    /**
+     * 单条趋势曲线的点数预算：选择点数不超过该值的最细层级。
+     */
+    private int pointBudget = 360;
+
+    /**
+     * 趋势接口允许查询的最大窗口（分钟）。
+     */
+    private int maxTrendMinutes = 30 * 24 * 60;
+
+    /**
+     * 分钟桶保留天数（<=0 表示不清理，默认不清理）。
+     * 分钟明细仍是其他统计/对账的数据来源，开启前需确认没有读取超出保留期分钟桶的场景。
+     */
+    private int minuteRetentionDays = 0;
+
+    /**
+     * 15 分钟汇总保留天数（<=0 表示不清理）。
+     */
+    private int quarterHourRetentionDays = 90;
+
+    /**
+     * 1 小时汇总保留天数（<=0 表示不清理）。
+     */
+    private int hourlyRetentionDays = 400;
+
+    /**
+     * 过期数据清理时单条 DELETE 的行数上限（分批删除，避免长事务）。
+     */
+    private int purgeBatchSize = 5000;
+}
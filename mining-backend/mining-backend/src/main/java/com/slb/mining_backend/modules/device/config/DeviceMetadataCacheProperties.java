@@ -0,0 +1,42 @@
+package com.slb.mining_backend.modules.device.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 设备元数据（归属用户、删除标记、名称/类型等静态字段）缓存配置。
+ *
+ * 设备接口与上报接口的归属校验优先读取该缓存；设备注册/换绑、更新、删除后失效，
+ * 多节点部署时通过 Redis pub/sub 广播失效；写路径额外比对 Redis 中的设备归属版本。
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "app.devices.metadata-cache")
+public class DeviceMetadataCacheProperties {
+
+    /**
+     * 是否启用缓存；关闭时每次归属校验都查库。
+     */
+    private boolean enabled = true;
+
+    /**
+     * 缓存的最大设备数，超过后按近似 LRU 淘汰。
+     */
+    private long maximumSize = 100_000;
+
+    /**
+     * 写入后的最长存活时间（秒），兜底覆盖 pub/sub 消息丢失等极端情况。
+     */
+    private long expireAfterWriteSeconds = 600;
+
+    /**
+     * 是否通过 Redis pub/sub 跨节点广播失效；单节点部署可关闭。
+     */
+    private boolean redisFanout = true;
+
+    /**
+     * Redis 中设备归属版本的存活时间（秒），需大于 expireAfterWriteSeconds。
+     */
+    private long versionTtlSeconds = 86_400;
+}
@@ -0,0 +1,37 @@
+package com.slb.mining_backend.modules.device.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 设备心跳（在线状态）注册表配置。
+ *
+ * 开启后由上报链路维护“设备 -> 最近上报时间”的有序结构，离线扫描只处理真正过期的设备（按主键批量更新），
+ * 在线设备数也直接从注册表读取，不再扫描 devices 表。
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "app.devices.presence")
+public class DevicePresenceProperties {
+
+    /**
+     * 是否启用心跳注册表；关闭时回退到按 last_online_time 全表扫描。
+     */
+    private boolean enabled = true;
+
+    /**
+     * 存储：redis（多节点共享，ZSET 按最近上报时间排序）或 local（单机内存，仅用于单节点/测试）。
+     */
+    private String store = "redis";
+
+    /**
+     * 每次从注册表取出的过期设备数量上限（同时也是单条 UPDATE 的主键数量上限）。
+     */
+    private int expireBatchSize = 1000;
+
+    /**
+     * 兜底全表扫描间隔（毫秒）：用于修正注册表之外的数据（如人工改库、注册表丢失）。
+     */
+    private long fullScanFixedDelayMs = 3_600_000L;
+}
@@ -0,0 +1,47 @@
+package com.slb.mining_backend.modules.device.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 设备算力上报写缓冲（write-behind）配置。
+ *
+ * 开启后 hashrate-report 不再同步写库：同一设备同一分钟桶的上报在内存中合并，
+ * 由后台任务定期批量 upsert device_hashrate_reports，并批量刷新 devices 的在线状态/算力。
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "app.devices.report-buffer")
+public class DeviceReportBufferProperties {
+
+    /**
+     * 是否启用写缓冲；关闭时保持原有的同步写库逻辑。
+     */
+    private boolean enabled = false;
+
+    /**
+     * 后台刷盘间隔（毫秒）。
+     */
+    private long flushIntervalMs = 1000;
+
+    /**
+     * 单条多行 SQL 最多携带的行数（分批写入）。
+     */
+    private int flushBatchSize = 500;
+
+    /**
+     * 内存中最多积压的分钟桶数量（按 deviceId + 分钟去重后计数）。
+     */
+    private int maxPendingReports = 50_000;
+
+    /**
+     * 积压达到上限时，上报请求最多等待刷盘腾出空间的时间（毫秒）；超时返回 429。
+     */
+    private long offerTimeoutMs = 200;
+
+    /**
+     * 应用关闭时排空缓冲的最长时间（毫秒）。
+     */
+    private long shutdownDrainTimeoutMs = 10_000;
+}
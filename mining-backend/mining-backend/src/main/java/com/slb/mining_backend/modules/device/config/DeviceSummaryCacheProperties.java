@@ -0,0 +1,58 @@
+package com.slb.mining_backend.modules.device.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 用户算力收益汇总（/devices/hashrate-summary）缓存配置。
+ *
+ * 缓存按“用户版本 + 行情版本”失效：设备绑定/删除、或上报使设备的汇总输入发生实质变化时递增用户版本，
+ * 行情/汇率刷新时递增行情版本；TTL 兜底覆盖阈值内的算力波动、在线判定窗口滑动、平台费率调整等变化。
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "app.devices.summary-cache")
+public class DeviceSummaryCacheProperties {
+
+    /**
+     * 是否启用缓存；关闭时每次请求都实时计算。
+     */
+    private boolean enabled = true;
+
+    /**
+     * 缓存条目最长存活时间（秒）。
+     */
+    private long ttlSeconds = 60;
+
+    /**
+     * 进程内缓存的最大用户数，超过后按 LRU 淘汰。
+     */
+    private int localMaxEntries = 20_000;
+
+    /**
+     * 上报算力相对上次触发失效时的变化比例超过该值才失效用户汇总（如 0.05 表示 5%）。
+     */
+    private double hashrateChangeRatio = 0.05;
+
+    /**
+     * 设备汇总输入的空闲过期时长（秒）：超过该时长没有上报的设备，下一次上报视为变化（覆盖离线后重新上线）。
+     */
+    private long reportedInputIdleSeconds = 300;
+
+    /**
+     * 进程内记录汇总输入的最大设备数，超过后按 LRU 淘汰（被淘汰设备的下一次上报视为变化）。
+     */
+    private int maxTrackedDevices = 200_000;
+
+    /**
+     * 是否启用 Redis 共享层：版本号与汇总结果存放在 Redis，多节点共享计算结果与失效信号。
+     * 关闭时各节点只能靠 TTL 感知其他节点上的变化，仅适用于单节点部署。
+     */
+    private boolean redisEnabled = true;
+
+    /**
+     * Redis 中用户版本号的存活时间（秒），需远大于 ttlSeconds。
+     */
+    private long versionTtlSeconds = 86_400;
+}
@@ -0,0 +1,35 @@
+package com.slb.mining_backend.modules.device.entity;
+
+import lombok.Data;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * 对应表：device_gpu_hashrate_rollups
+ *
+ * 单块 GPU 的算力汇总桶（15 分钟 / 1 小时），由 GPU 分钟明细增量汇总而来，仅用于趋势展示。
+ */
+@Data
+public class DeviceGpuHashrateRollup implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private Long id;
+    /**
+     * 汇总层级（分钟）：15 / 60
+     */
+    private Integer tierMinutes;
+    private Long userId;
+    private String deviceId;
+    private Integer gpuIndex;
+    private String gpuName;
+    private LocalDateTime bucketTime;
+    private BigDecimal hashrateAvg;
+    private BigDecimal hashrateMax;
+    private BigDecimal hashrateMin;
+    private Integer sampleCount;
+    private String algorithm;
+    private LocalDateTime updatedTime;
+}
@@ -0,0 +1,36 @@
+package com.slb.mining_backend.modules.device.entity;
+
+import lombok.Data;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * 对应表：device_hashrate_rollups
+ *
+ * 设备算力汇总桶（15 分钟 / 1 小时），由分钟桶增量汇总而来，仅用于趋势展示。
+ */
+@Data
+public class DeviceHashrateRollup implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private Long id;
+    /**
+     * 汇总层级（分钟）：15 / 60
+     */
+    private Integer tierMinutes;
+    private Long userId;
+    private String deviceId;
+    private LocalDateTime bucketTime;
+    private BigDecimal cpuHashrateAvg;
+    private BigDecimal cpuHashrateMax;
+    private BigDecimal cpuHashrateMin;
+    private BigDecimal gpuHashrateAvg;
+    private BigDecimal gpuHashrateMax;
+    private BigDecimal gpuHashrateMin;
+    private Integer sampleCount;
+    private String algorithm;
+    private LocalDateTime updatedTime;
+}
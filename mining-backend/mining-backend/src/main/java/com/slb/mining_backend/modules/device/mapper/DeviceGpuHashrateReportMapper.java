@@ -20,6 +20,17 @@ public interface DeviceGpuHashrateReportMapper {
      */
     int upsertMinuteReport(DeviceGpuHashrateReport report);
 
+    /**
+     * 多行幂等 upsert：一次上报的全部 GPU（或写缓冲一个刷盘窗口内多台设备的 GPU）合并为一条 SQL。
+     */
+    int batchUpsertMinuteReports(@Param("reports") List<DeviceGpuHashrateReport> reports);
+
+    /**
+     * 维护 device_gpu_latest（每块 GPU 一行的最新状态表）：按 (device_id, gpu_index) upsert，
+     * 仅当上报的分钟桶不早于已有记录时覆盖（乱序/重放的旧上报不会回退最新状态）。
+     */
+    int batchUpsertLatest(@Param("reports") List<DeviceGpuHashrateReport> reports);
+
     /**
      * 查询设备最近一段时间的 GPU 明细上报（按 bucket_time 升序返回）。
      */
@@ -28,13 +39,18 @@ public interface DeviceGpuHashrateReportMapper {
                                                       @Param("since") LocalDateTime since);
 
     /**
-     * 查询当前用户下每台设备的 GPU 顺时算力（每块 GPU 最近一分钟桶）。
+     * 分批删除早于 before 的分钟桶（保留期清理，汇总层级已覆盖更早的数据）。
+     */
+    int deleteBefore(@Param("before") LocalDateTime before, @Param("limit") int limit);
+
+    /**
+     * 查询当前用户下每台设备的 GPU 顺时算力（读取 device_gpu_latest，每块 GPU 一行）。
      */
     List<DeviceGpuHashrateSnapshotVo> selectLatestByUser(@Param("userId") Long userId,
                                                          @Param("cutoffTime") LocalDateTime cutoffTime);
 
     /**
-     * 查询当前用户下 GPU 最新算力按算法汇总（基于每块 GPU 最新一分钟桶）。
+     * 查询当前用户下 GPU 最新算力按算法汇总（读取 device_gpu_latest，每块 GPU 一行）。
      */
     List<GpuAlgorithmHashrateVo> sumLatestHashrateByAlgorithm(@Param("userId") Long userId,
                                                               @Param("cutoffTime") LocalDateTime cutoffTime);
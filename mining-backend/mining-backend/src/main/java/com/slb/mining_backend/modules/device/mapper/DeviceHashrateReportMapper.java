@@ -18,12 +18,22 @@ public interface DeviceHashrateReportMapper {
      */
     int upsertMinuteReport(DeviceHashrateReport report);
 
+    /**
+     * 多行幂等 upsert：写缓冲刷盘时一次写入多个设备/分钟桶（语义同 upsertMinuteReport）。
+     */
+    int batchUpsertMinuteReports(@Param("reports") List<DeviceHashrateReport> reports);
+
     /**
      * 查询设备最近一段时间的分钟桶上报（按 bucket_time 升序返回，便于前端画图）。
      */
     List<DeviceHashrateReport> selectByDeviceSince(@Param("userId") Long userId,
                                                    @Param("deviceId") String deviceId,
                                                    @Param("since") LocalDateTime since);
+
+    /**
+     * 分批删除早于 before 的分钟桶（保留期清理，汇总层级已覆盖更早的数据）。
+     */
+    int deleteBefore(@Param("before") LocalDateTime before, @Param("limit") int limit);
 }
 
 
@@ -0,0 +1,65 @@
+package com.slb.mining_backend.modules.device.mapper;
+
+import com.slb.mining_backend.modules.device.entity.DeviceGpuHashrateRollup;
+import com.slb.mining_backend.modules.device.entity.DeviceHashrateRollup;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * MyBatis mapper：操作 device_hashrate_rollups / device_gpu_hashrate_rollups 表（算力趋势汇总层级，仅展示）。
+ */
+@Mapper
+public interface DeviceHashrateRollupMapper {
+
+    /**
+     * 将 [since, until) 内的设备分钟桶按 tierMinutes 汇总并幂等 upsert（重复执行结果一致）。
+     *
+     * @param tierMinutes 汇总层级（分钟）
+     * @param since       起始时间（需对齐到层级边界）
+     * @param until       结束时间（不含）
+     * @return 受影响的记录数
+     */
+    int rollupFromMinuteReports(@Param("tierMinutes") int tierMinutes,
+                                @Param("since") LocalDateTime since,
+                                @Param("until") LocalDateTime until);
+
+    /**
+     * 将 [since, until) 内的 GPU 分钟明细按 tierMinutes 汇总并幂等 upsert。
+     */
+    int rollupGpuFromMinuteReports(@Param("tierMinutes") int tierMinutes,
+                                   @Param("since") LocalDateTime since,
+                                   @Param("until") LocalDateTime until);
+
+    /**
+     * 查询设备某一层级的汇总桶（按 bucket_time 升序）。
+     */
+    List<DeviceHashrateRollup> selectByDeviceSince(@Param("tierMinutes") int tierMinutes,
+                                                   @Param("userId") Long userId,
+                                                   @Param("deviceId") String deviceId,
+                                                   @Param("since") LocalDateTime since);
+
+    /**
+     * 查询设备某一层级的 GPU 汇总桶（按 bucket_time 升序）。
+     */
+    List<DeviceGpuHashrateRollup> selectGpuByDeviceSince(@Param("tierMinutes") int tierMinutes,
+                                                         @Param("userId") Long userId,
+                                                         @Param("deviceId") String deviceId,
+                                                         @Param("since") LocalDateTime since);
+
+    /**
+     * 分批删除某一层级早于 before 的汇总桶。
+     */
+    int deleteBefore(@Param("tierMinutes") int tierMinutes,
+                     @Param("before") LocalDateTime before,
+                     @Param("limit") int limit);
+
+    /**
+     * 分批删除某一层级早于 before 的 GPU 汇总桶。
+     */
+    int deleteGpuBefore(@Param("tierMinutes") int tierMinutes,
+                        @Param("before") LocalDateTime before,
+                        @Param("limit") int limit);
+}
@@ -50,6 +50,19 @@ public interface DeviceMapper {
             @Param("orderBy") String orderBy
     );
 
+    /**
+     * 游标分页查询设备列表：返回排序位置在 (cursorValue, cursorKey) 之后的 limit 条；cursorKey 为空时从头开始
+     */
+    List<Device> findByUserIdAndStatusAfter(
+            @Param("userId") Long userId,
+            @Param("status") Integer status,
+            @Param("sortBy") String sortBy,
+            @Param("orderBy") String orderBy,
+            @Param("cursorValue") Object cursorValue,
+            @Param("cursorKey") String cursorKey,
+            @Param("limit") int limit
+    );
+
     long countTotalDevices();
     long countOnlineDevices();
     BigDecimal sumTotalCpuHashrate();
@@ -77,6 +90,15 @@ public interface DeviceMapper {
             @Param("offset") int offset,
             @Param("size") int size
     );
+    List<com.slb.mining_backend.modules.admin.vo.AdminDeviceListItemVo> findAdminDevicesAfter(
+            @Param("keyword") String keyword,
+            @Param("status") Integer status,
+            @Param("ownerUid") Long ownerUid,
+            @Param("cursorTime") LocalDateTime cursorTime,
+            @Param("cursorKey") String cursorKey,
+            @Param("limit") int limit
+    );
+    Long estimateDeviceRows();
 
     /**
      * 将超过截止时间未再上报心跳的设备标记为离线并清零算力。
@@ -86,4 +108,28 @@ public interface DeviceMapper {
      */
     int markDevicesOffline(@Param("cutoffTime") LocalDateTime cutoffTime);
 
+    /**
+     * 按主键将心跳过期的设备标记为离线并清零算力（心跳注册表取出的过期设备使用）。
+     * 仍以 last_online_time 复核，避免把刚刚重新上报的设备误标为离线。
+     *
+     * @param ids        设备ID
+     * @param cutoffTime 判断离线的时间阈值
+     * @return 受影响的记录数
+     */
+    int markDevicesOfflineByIds(@Param("ids") List<String> ids, @Param("cutoffTime") LocalDateTime cutoffTime);
+
+    /**
+     * 查询当前在线设备的心跳信息（仅 id/userId/lastOnlineTime），用于启动时回填心跳注册表。
+     */
+    List<Device> selectOnlinePresence();
+
+    /**
+     * 批量刷新上报设备的在线状态与算力（写缓冲刷盘与同步上报共用，一条多行 UPDATE）。
+     * 仅更新仍归属于上报用户且未删除的设备；cpuHashrate 为空时保留原值。
+     *
+     * @param devices 设备状态快照（使用 id/userId/算力/收益/lastOnlineTime 字段）
+     * @return 受影响的记录数
+     */
+    int batchUpdateReportedStatus(@Param("devices") List<Device> devices);
+
 }
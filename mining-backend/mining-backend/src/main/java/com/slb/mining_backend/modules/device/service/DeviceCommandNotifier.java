@@ -0,0 +1,170 @@
+package com.slb.mining_backend.modules.device.service;
+
+import com.slb.mining_backend.modules.device.config.DeviceCommandPushProperties;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 远程控制指令通知：
+ * - 指令落库（事务提交）后写入 Redis 待执行标记，并唤醒长轮询的等待者；
+ * - 多节点时通过 Redis pub/sub 广播 deviceId，由各节点唤醒本地等待者；
+ * - 唤醒回调会查库，统一在独立线程池执行，不占用 Redis 监听线程与下发请求线程。
+ *
+ * 待执行标记取值："1" 表示有待执行指令（TTL 到指令过期），"0" 表示查库确认没有（短 TTL）；
+ * 只有明确的 "0" 才跳过查库，标记缺失、未知取值或 Redis 异常都回退到查库。
+ */
+@Component
+@Slf4j
+public class DeviceCommandNotifier implements MessageListener {
+
+    private static final String CHANNEL = "device:command:notify";
+    private static final String PENDING_KEY_PREFIX = "device:command:pending:";
+    private static final String HINT_PENDING = "1";
+    private static final String HINT_NONE = "0";
+
+    private final StringRedisTemplate redisTemplate;
+    private final RedisMessageListenerContainer listenerContainer;
+    private final DeviceCommandWaiterRegistry waiterRegistry;
+    private final DeviceCommandPushProperties properties;
+    private final ExecutorService signalExecutor;
+
+    public DeviceCommandNotifier(StringRedisTemplate redisTemplate,
+                                 RedisMessageListenerContainer listenerContainer,
+                                 DeviceCommandWaiterRegistry waiterRegistry,
+                                 DeviceCommandPushProperties properties) {
+        this.redisTemplate = redisTemplate;
+        this.listenerContainer = listenerContainer;
+        this.waiterRegistry = waiterRegistry;
+        this.properties = properties;
+        AtomicInteger threadSeq = new AtomicInteger();
+        int threads = Math.max(1, properties.getSignalThreads());
+        this.signalExecutor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, properties.getSignalQueueCapacity())), runnable -> {
+            Thread thread = new Thread(runnable, "device-command-signal-" + threadSeq.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PostConstruct
+    public void subscribe() {
+        if (properties.isRedisFanout()) {
+            listenerContainer.addMessageListener(this, new ChannelTopic(CHANNEL));
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        signalExecutor.shutdown();
+    }
+
+    /**
+     * 指令已创建：在当前事务提交后再通知（保证被唤醒的等待者能查到新指令）；无事务时立即通知。
+     */
+    public void publishAfterCommit(String deviceId, LocalDateTime expiresAt) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    publish(deviceId, expiresAt);
+                }
+            });
+            return;
+        }
+        publish(deviceId, expiresAt);
+    }
+
+    /**
+     * 设备是否可能存在待执行指令：仅当标记明确为“无”时返回 false，其余情况（标记缺失/Redis 异常）都回退到查库。
+     */
+    public boolean mayHavePendingCommand(String deviceId) {
+        if (!properties.isPendingHintEnabled()) {
+            return true;
+        }
+        try {
+            return !HINT_NONE.equals(redisTemplate.opsForValue().get(PENDING_KEY_PREFIX + deviceId));
+        } catch (Exception e) {
+            log.warn("Failed to read pending command hint for device {}: {}", deviceId, e.getMessage());
+            return true;
+        }
+    }
+
+    /**
+     * 查库确认设备没有待执行指令：写入“无”标记。
+     * 仅在标记不存在时写入（SET NX），与下发时无条件写入的“有”标记竞争时，“有”标记总是胜出。
+     */
+    public void markNoPendingCommand(String deviceId) {
+        if (!properties.isPendingHintEnabled()) {
+            return;
+        }
+        try {
+            redisTemplate.opsForValue().setIfAbsent(PENDING_KEY_PREFIX + deviceId, HINT_NONE,
+                    Duration.ofSeconds(Math.max(1, properties.getNoPendingHintTtlSeconds())));
+        } catch (Exception e) {
+            log.debug("Failed to write pending command hint for device {}: {}", deviceId, e.getMessage());
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        signalAsync(new String(message.getBody(), StandardCharsets.UTF_8));
+    }
+
+    private void publish(String deviceId, LocalDateTime expiresAt) {
+        try {
+            if (properties.isPendingHintEnabled()) {
+                Duration ttl = Duration.between(LocalDateTime.now(), expiresAt);
+                if (!ttl.isNegative() && !ttl.isZero()) {
+                    redisTemplate.opsForValue().set(PENDING_KEY_PREFIX + deviceId, HINT_PENDING, ttl);
+                }
+            }
+            if (properties.isRedisFanout()) {
+                // 本节点也会收到广播，由监听回调统一唤醒
+                redisTemplate.convertAndSend(CHANNEL, deviceId);
+                return;
+            }
+        } catch (Exception e) {
+            log.warn("Failed to publish remote command notification for device {}: {}", deviceId, e.getMessage());
+        }
+        signalAsync(deviceId);
+    }
+
+    /**
+     * 在唤醒线程池中执行等待者回调（回调会查库）；队列满时放弃唤醒，等待者超时后由客户端重新轮询取到指令。
+     */
+    void signalAsync(String deviceId) {
+        try {
+            signalExecutor.execute(() -> {
+                try {
+                    int woken = waiterRegistry.signal(deviceId);
+                    if (woken > 0) {
+                        log.debug("Woke {} command waiters for device {}", woken, deviceId);
+                    }
+                } catch (Exception e) {
+                    log.warn("Failed to wake command waiters for device {}: {}", deviceId, e.getMessage());
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            log.warn("Command signal queue is full, waiters of device {} will pick up the command on next poll", deviceId);
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.slb.mining_backend.modules.device.service;
+
+import com.slb.mining_backend.common.api.ApiResponse;
+import com.slb.mining_backend.common.trace.TraceIdHolder;
+import com.slb.mining_backend.modules.device.config.DeviceCommandPushProperties;
+import com.slb.mining_backend.modules.device.vo.RemoteControlStatus;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.async.DeferredResult;
+
+/**
+ * 远程控制指令长轮询：
+ * - 已有待执行指令时立即返回；
+ * - 否则挂起请求，指令下发（DeviceCommandNotifier）后立即返回，超时返回空数据，客户端随即发起下一次等待。
+ */
+@Service
+@Slf4j
+public class DeviceCommandPushService {
+
+    private final DeviceService deviceService;
+    private final DeviceCommandWaiterRegistry waiterRegistry;
+    private final DeviceCommandPushProperties properties;
+
+    public DeviceCommandPushService(DeviceService deviceService,
+                                    DeviceCommandWaiterRegistry waiterRegistry,
+                                    DeviceCommandPushProperties properties) {
+        this.deviceService = deviceService;
+        this.waiterRegistry = waiterRegistry;
+        this.properties = properties;
+    }
+
+    public DeferredResult<ApiResponse<RemoteControlStatus>> awaitCommand(String deviceId, Long userId, Integer waitSeconds) {
+        String traceId = TraceIdHolder.require();
+        long timeoutMs = resolveWaitSeconds(waitSeconds) * 1000L;
+        DeferredResult<ApiResponse<RemoteControlStatus>> result =
+                new DeferredResult<>(timeoutMs, () -> response(null, traceId));
+
+        // 先登记再查库：查库与登记之间下发的指令也能唤醒本次等待
+        Runnable cancel = waiterRegistry.register(deviceId, () -> resolve(result, deviceId, userId, traceId),
+                properties.getMaxWaitersPerDevice());
+        result.onCompletion(cancel);
+        RemoteControlStatus pending;
+        try {
+            pending = deviceService.getPendingRemoteControl(deviceId, userId);
+        } catch (RuntimeException e) {
+            cancel.run();
+            throw e;
+        }
+        if (pending != null) {
+            result.setResult(response(pending, traceId));
+        }
+        return result;
+    }
+
+    private void resolve(DeferredResult<ApiResponse<RemoteControlStatus>> result, String deviceId, Long userId, String traceId) {
+        if (result.isSetOrExpired()) {
+            return;
+        }
+        try {
+            result.setResult(response(deviceService.getPendingRemoteControl(deviceId, userId), traceId));
+        } catch (Exception e) {
+            log.warn("Failed to deliver remote command to waiter of device {}: {}", deviceId, e.getMessage());
+            result.setResult(response(null, traceId));
+        }
+    }
+
+    private int resolveWaitSeconds(Integer waitSeconds) {
+        int max = Math.max(1, properties.getMaxWaitSeconds());
+        int value = waitSeconds != null && waitSeconds > 0 ? waitSeconds : properties.getDefaultWaitSeconds();
+        return Math.min(Math.max(1, value), max);
+    }
+
+    private ApiResponse<RemoteControlStatus> response(RemoteControlStatus status, String traceId) {
+        // 异步完成时不在原请求线程（TraceIdHolder 无值），显式带回原请求的 traceId
+        ApiResponse<RemoteControlStatus> response = new ApiResponse<>();
+        response.setCode(0);
+        response.setMessage("ok");
+        response.setData(status);
+        response.setTraceId(traceId);
+        return response;
+    }
+}
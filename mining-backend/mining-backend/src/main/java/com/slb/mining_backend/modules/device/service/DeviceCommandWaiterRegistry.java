@@ -0,0 +1,66 @@
+package com.slb.mining_backend.modules.device.service;
+
+import com.slb.mining_backend.common.exception.BizException;
+import org.springframework.stereotype.Component;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 进程内的设备指令等待表：deviceId -> 正在长轮询的等待者。
+ *
+ * 指令下发后 signal(deviceId) 唤醒该设备的全部等待者（一次性，唤醒后即移除）。
+ */
+@Component
+public class DeviceCommandWaiterRegistry {
+
+    private final ConcurrentHashMap<String, Set<Runnable>> waiters = new ConcurrentHashMap<>();
+
+    /**
+     * 登记等待者。
+     *
+     * @param deviceId   设备ID
+     * @param onSignal   指令到达时的回调（在通知线程中执行）
+     * @param maxWaiters 单台设备的等待者上限
+     * @return 取消登记的句柄（请求完成/超时后调用）
+     */
+    public Runnable register(String deviceId, Runnable onSignal, int maxWaiters) {
+        waiters.compute(deviceId, (k, set) -> {
+            Set<Runnable> target = set != null ? set : ConcurrentHashMap.newKeySet();
+            if (target.size() >= Math.max(1, maxWaiters)) {
+                throw new BizException(429, "该设备等待指令的连接过多，请稍后重试");
+            }
+            target.add(onSignal);
+            return target;
+        });
+        return () -> unregister(deviceId, onSignal);
+    }
+
+    /**
+     * 唤醒设备的全部等待者。
+     *
+     * @return 被唤醒的等待者数量
+     */
+    public int signal(String deviceId) {
+        Set<Runnable> signalled = waiters.remove(deviceId);
+        if (signalled == null) {
+            return 0;
+        }
+        signalled.forEach(Runnable::run);
+        return signalled.size();
+    }
+
+    /**
+     * 当前挂起的等待者总数。
+     */
+    public int size() {
+        return waiters.values().stream().mapToInt(Set::size).sum();
+    }
+
+    private void unregister(String deviceId, Runnable onSignal) {
+        waiters.computeIfPresent(deviceId, (k, set) -> {
+            set.remove(onSignal);
+            return set.isEmpty() ? null : set;
+        });
+    }
+}
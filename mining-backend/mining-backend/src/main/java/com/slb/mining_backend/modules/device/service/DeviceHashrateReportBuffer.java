@@ -0,0 +1,360 @@
+package com.slb.mining_backend.modules.device.service;
+
+import com.slb.mining_backend.common.exception.BizException;
+import com.slb.mining_backend.common.job.ClusterJob;
+import com.slb.mining_backend.modules.device.config.DeviceReportBufferProperties;
+import com.slb.mining_backend.modules.device.entity.Device;
+import com.slb.mining_backend.modules.device.entity.DeviceGpuHashrateReport;
+import com.slb.mining_backend.modules.device.entity.DeviceHashrateReport;
+import com.slb.mining_backend.modules.device.mapper.DeviceGpuHashrateReportMapper;
+import com.slb.mining_backend.modules.device.mapper.DeviceHashrateReportMapper;
+import com.slb.mining_backend.modules.device.mapper.DeviceMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * 设备分钟算力上报的写缓冲（write-behind）。
+ *
+ * 规则：
+ * - 同一设备同一分钟桶（GPU 明细为同一 GPU index）的多次上报在内存中合并，只保留最后一次（与 DB upsert 覆盖语义一致）；
+ * - 同一设备的在线状态/算力只保留 last_online_time 最新的一份；
+ * - 后台按 flush-interval-ms 跨设备批量 upsert device_hashrate_reports / device_gpu_hashrate_reports，
+ *   并用一条多行 UPDATE 刷新 devices；
+ * - 刷盘后失效涉及用户的算力汇总缓存（HashrateSummaryCache），保证汇总读到的是已落库的数据；
+ * - 积压达到 max-pending-reports 时，上报请求短暂等待刷盘，超时返回 429（背压）；
+ * - 应用关闭时排空缓冲，关闭过程中的新上报回退为同步写库。
+ */
+@Service
+@Slf4j
+public class DeviceHashrateReportBuffer {
+
+    private final DeviceHashrateReportMapper deviceHashrateReportMapper;
+    private final DeviceGpuHashrateReportMapper deviceGpuHashrateReportMapper;
+    private final DeviceMapper deviceMapper;
+    private final DeviceReportBufferProperties properties;
+    private final HashrateSummaryCache hashrateSummaryCache;
+
+    private final Map<String, DeviceHashrateReport> pendingReports = new ConcurrentHashMap<>();
+    private final Map<String, DeviceGpuHashrateReport> pendingGpuReports = new ConcurrentHashMap<>();
+    private final Map<String, Device> pendingDevices = new ConcurrentHashMap<>();
+    /**
+     * 积压计数：包含“已从 map 取出但尚未落库成功”的分钟桶，保证背压上限覆盖刷盘中的数据。
+     */
+    private final AtomicInteger pendingCount = new AtomicInteger(0);
+    private final Object capacityMonitor = new Object();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private volatile boolean closed = false;
+
+    private final Timer flushTimer;
+    private final Counter flushedReports;
+    private final Counter flushFailures;
+    private final Counter rejectedReports;
+
+    public DeviceHashrateReportBuffer(DeviceHashrateReportMapper deviceHashrateReportMapper,
+                                      DeviceGpuHashrateReportMapper deviceGpuHashrateReportMapper,
+                                      DeviceMapper deviceMapper,
+                                      DeviceReportBufferProperties properties,
+                                      HashrateSummaryCache hashrateSummaryCache,
+                                      MeterRegistry meterRegistry) {
+        this.deviceHashrateReportMapper = deviceHashrateReportMapper;
+        this.deviceGpuHashrateReportMapper = deviceGpuHashrateReportMapper;
+        this.deviceMapper = deviceMapper;
+        this.properties = properties;
+        this.hashrateSummaryCache = hashrateSummaryCache;
+        Gauge.builder("slb.device.report.buffer.pending", pendingCount, AtomicInteger::get)
+                .description("待落库的设备分钟算力桶数量（含 GPU 明细）")
+                .register(meterRegistry);
+        Gauge.builder("slb.device.report.buffer.pending.devices", pendingDevices, Map::size)
+                .description("待刷新的设备在线状态数量")
+                .register(meterRegistry);
+        this.flushTimer = Timer.builder("slb.device.report.buffer.flush")
+                .description("设备算力写缓冲单次刷盘耗时")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        this.flushedReports = Counter.builder("slb.device.report.buffer.flushed")
+                .description("已批量落库的设备分钟算力桶数量")
+                .register(meterRegistry);
+        this.flushFailures = Counter.builder("slb.device.report.buffer.flush.failures")
+                .description("批量落库失败次数（失败数据会回填缓冲等待下次重试）")
+                .register(meterRegistry);
+        this.rejectedReports = Counter.builder("slb.device.report.buffer.rejected")
+                .description("因积压达到上限被拒绝（429）的上报次数")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 当前是否走写缓冲；关闭中或未启用时调用方应同步写库。
+     */
+    public boolean isEnabled() {
+        return properties.isEnabled() && !closed;
+    }
+
+    /**
+     * 缓冲一次分钟上报及其对应的设备状态。
+     *
+     * @param report      分钟桶上报（deviceId + bucketTime 去重）
+     * @param devicePatch 设备在线状态/算力快照（仅使用状态、算力、收益、last_online_time 字段）
+     */
+    public void enqueue(DeviceHashrateReport report, Device devicePatch) {
+        put(pendingReports, reportKey(report), report);
+        mergeDevice(devicePatch);
+    }
+
+    /**
+     * 缓冲一次 GPU 明细上报（多块 GPU）及其对应的设备状态；刷盘时与其他设备的明细合并为多行 upsert。
+     */
+    public void enqueueGpuReports(List<DeviceGpuHashrateReport> reports, Device devicePatch) {
+        if (reports != null) {
+            for (DeviceGpuHashrateReport report : reports) {
+                put(pendingGpuReports, gpuReportKey(report), report);
+            }
+        }
+        mergeDevice(devicePatch);
+    }
+
+    @Scheduled(fixedDelayString = "${app.devices.report-buffer.flush-interval-ms:1000}")
+    @ClusterJob(scope = ClusterJob.Scope.NODE)
+    public void scheduledFlush() {
+        if (!properties.isEnabled() || !flushLock.tryLock()) {
+            return;
+        }
+        try {
+            flushOnce();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void drainOnShutdown() {
+        closed = true;
+        long deadline = System.currentTimeMillis() + Math.max(0, properties.getShutdownDrainTimeoutMs());
+        flushLock.lock();
+        try {
+            while ((pendingCount.get() > 0 || !pendingDevices.isEmpty()) && System.currentTimeMillis() < deadline) {
+                if (!flushOnce()) {
+                    sleepQuietly(200);
+                }
+            }
+        } finally {
+            flushLock.unlock();
+        }
+        if (pendingCount.get() > 0 || !pendingDevices.isEmpty()) {
+            log.warn("Device hashrate buffer not fully drained on shutdown (pendingReports={}, pendingDevices={})",
+                    pendingCount.get(), pendingDevices.size());
+        } else {
+            log.info("Device hashrate buffer drained on shutdown");
+        }
+    }
+
+    /**
+     * 执行一次刷盘。
+     *
+     * @return 本轮数据是否全部写入成功（无数据时视为成功）
+     */
+    private boolean flushOnce() {
+        List<DeviceHashrateReport> reports = drain(pendingReports);
+        List<DeviceGpuHashrateReport> gpuReports = drain(pendingGpuReports);
+        List<Device> devices = drain(pendingDevices);
+        if (reports.isEmpty() && gpuReports.isEmpty() && devices.isEmpty()) {
+            return true;
+        }
+        long start = System.nanoTime();
+        int batchSize = Math.max(1, properties.getFlushBatchSize());
+        boolean ok = flushChunks(reports, batchSize, deviceHashrateReportMapper::batchUpsertMinuteReports,
+                pendingReports, DeviceHashrateReportBuffer::reportKey, "device hashrate reports");
+        ok &= flushChunks(gpuReports, batchSize, this::writeGpuReports,
+                pendingGpuReports, DeviceHashrateReportBuffer::gpuReportKey, "device gpu hashrate reports");
+        List<Device> writtenDevices = new ArrayList<>(devices.size());
+        for (int from = 0; from < devices.size(); from += batchSize) {
+            List<Device> chunk = devices.subList(from, Math.min(devices.size(), from + batchSize));
+            try {
+                deviceMapper.batchUpdateReportedStatus(chunk);
+                writtenDevices.addAll(chunk);
+            } catch (DataAccessException ex) {
+                ok = false;
+                flushFailures.increment();
+                log.warn("Failed to flush {} device status updates, requeue for retry: {}", chunk.size(), ex.getMessage());
+                for (Device device : chunk) {
+                    pendingDevices.merge(device.getId(), device, DeviceHashrateReportBuffer::newerOf);
+                }
+            }
+        }
+        flushTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        // 汇总读取设备行上的算力：只按已写入的设备状态判断是否需要失效，重试中的设备在写入成功后再判断
+        hashrateSummaryCache.onDevicesReported(writtenDevices);
+        log.debug("Flushed device hashrate buffer: reports={}, gpuReports={}, devices={}, ok={}",
+                reports.size(), gpuReports.size(), devices.size(), ok);
+        return ok;
+    }
+
+    /**
+     * GPU 分钟明细与 device_gpu_latest 一起写入；两者均为幂等 upsert，失败重试时整块重写即可。
+     */
+    private void writeGpuReports(List<DeviceGpuHashrateReport> chunk) {
+        deviceGpuHashrateReportMapper.batchUpsertMinuteReports(chunk);
+        deviceGpuHashrateReportMapper.batchUpsertLatest(chunk);
+    }
+
+    private <T> boolean flushChunks(List<T> rows, int batchSize, Consumer<List<T>> writer,
+                                    Map<String, T> pending, Function<T, String> keyFn, String what) {
+        boolean ok = true;
+        for (int from = 0; from < rows.size(); from += batchSize) {
+            List<T> chunk = rows.subList(from, Math.min(rows.size(), from + batchSize));
+            try {
+                writer.accept(chunk);
+                flushedReports.increment(chunk.size());
+                releaseCapacity(chunk.size());
+            } catch (DataAccessException ex) {
+                ok = false;
+                flushFailures.increment();
+                log.warn("Failed to flush {} {}, requeue for retry: {}", chunk.size(), what, ex.getMessage());
+                requeue(pending, chunk, keyFn);
+            }
+        }
+        return ok;
+    }
+
+    private <T> void put(Map<String, T> pending, String key, T value) {
+        // 已在缓冲中的分钟桶直接覆盖，不占新容量；replace 与刷盘的 remove 互斥，不存在“判断后被取走”的窗口
+        if (pending.replace(key, value) != null) {
+            return;
+        }
+        reserveCapacity();
+        if (pending.put(key, value) != null) {
+            // 预留期间同一分钟桶已被其他上报写入，本次只是覆盖：归还预留
+            releaseCapacity(1);
+        }
+    }
+
+    private void mergeDevice(Device devicePatch) {
+        if (devicePatch != null && devicePatch.getId() != null) {
+            pendingDevices.merge(devicePatch.getId(), devicePatch, DeviceHashrateReportBuffer::newerOf);
+        }
+    }
+
+    private static <T> List<T> drain(Map<String, T> pending) {
+        List<T> drained = new ArrayList<>();
+        for (String key : pending.keySet()) {
+            T value = pending.remove(key);
+            if (value != null) {
+                drained.add(value);
+            }
+        }
+        return drained;
+    }
+
+    private <T> void requeue(Map<String, T> pending, List<T> chunk, Function<T, String> keyFn) {
+        int superseded = 0;
+        for (T row : chunk) {
+            // 刷盘期间同一分钟桶若有新上报，以新上报为准（新上报已单独计数），旧数据直接丢弃
+            if (pending.putIfAbsent(keyFn.apply(row), row) != null) {
+                superseded++;
+            }
+        }
+        if (superseded > 0) {
+            releaseCapacity(superseded);
+        }
+    }
+
+    /**
+     * 原子地预留一个分钟桶的容量（CAS），积压已满时等待刷盘腾出空间，超时返回 429。
+     */
+    private void reserveCapacity() {
+        int max = Math.max(1, properties.getMaxPendingReports());
+        if (tryReserve(max)) {
+            return;
+        }
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(Math.max(0, properties.getOfferTimeoutMs()));
+        synchronized (capacityMonitor) {
+            while (!tryReserve(max)) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    rejectedReports.increment();
+                    throw new BizException(429, "算力上报繁忙，请稍后重试");
+                }
+                try {
+                    TimeUnit.NANOSECONDS.timedWait(capacityMonitor, remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    rejectedReports.increment();
+                    throw new BizException(429, "算力上报繁忙，请稍后重试");
+                }
+            }
+        }
+    }
+
+    private boolean tryReserve(int max) {
+        int current;
+        do {
+            current = pendingCount.get();
+            if (current >= max) {
+                return false;
+            }
+        } while (!pendingCount.compareAndSet(current, current + 1));
+        return true;
+    }
+
+    private void releaseCapacity(int n) {
+        pendingCount.addAndGet(-n);
+        synchronized (capacityMonitor) {
+            capacityMonitor.notifyAll();
+        }
+    }
+
+    private static Device newerOf(Device current, Device candidate) {
+        Device newer;
+        Device older;
+        if (current.getLastOnlineTime() == null) {
+            newer = candidate;
+            older = current;
+        } else if (candidate.getLastOnlineTime() == null) {
+            newer = current;
+            older = candidate;
+        } else if (candidate.getLastOnlineTime().isBefore(current.getLastOnlineTime())) {
+            newer = current;
+            older = candidate;
+        } else {
+            newer = candidate;
+            older = current;
+        }
+        // GPU 明细上报的补丁不携带 CPU 算力，沿用同一窗口内较早一次 CPU 上报的值
+        if (newer.getCpuHashrate() == null) {
+            newer.setCpuHashrate(older.getCpuHashrate());
+        }
+        return newer;
+    }
+
+    private static String reportKey(DeviceHashrateReport report) {
+        return report.getDeviceId() + "|" + report.getBucketTime();
+    }
+
+    private static String gpuReportKey(DeviceGpuHashrateReport report) {
+        return report.getDeviceId() + "|" + report.getGpuIndex() + "|" + report.getBucketTime();
+    }
+
+    private static void sleepQuietly(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package com.slb.mining_backend.modules.device.service;
+
+import com.slb.mining_backend.modules.device.config.DeviceHashrateRollupProperties;
+import com.slb.mining_backend.modules.device.entity.DeviceGpuHashrateRollup;
+import com.slb.mining_backend.modules.device.entity.DeviceHashrateRollup;
+import com.slb.mining_backend.modules.device.mapper.DeviceGpuHashrateReportMapper;
+import com.slb.mining_backend.modules.device.mapper.DeviceHashrateReportMapper;
+import com.slb.mining_backend.modules.device.mapper.DeviceHashrateRollupMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.function.IntSupplier;
+
+/**
+ * 设备算力趋势汇总层级：
+ * - 定时将高水位之后的分钟桶增量汇总为 15 分钟 / 1 小时桶（幂等 upsert，可重复执行）；
+ * - 按查询窗口与点数预算为趋势接口选择层级；
+ * - 按保留期分批清理汇总桶（分钟桶默认不清理，见 minuteRetentionDays）。
+ *
+ * 桶边界统一由 {@link #bucketStart} 定义（本地时间：所在整点 + 分钟按层级向下取整），
+ * DeviceHashrateRollupMapper 的 SQL 与趋势查询的起点对齐都使用同一规则。
+ */
+@Service
+@Slf4j
+public class DeviceHashrateRollupService {
+
+    public static final int TIER_MINUTE = 1;
+    public static final int TIER_QUARTER_HOUR = 15;
+    public static final int TIER_HOUR = 60;
+
+    private static final int LEGACY_MAX_TREND_MINUTES = 24 * 60;
+    private static final int MINUTES_PER_DAY = 24 * 60;
+
+    private final DeviceHashrateRollupMapper rollupMapper;
+    private final DeviceHashrateReportMapper deviceHashrateReportMapper;
+    private final DeviceGpuHashrateReportMapper deviceGpuHashrateReportMapper;
+    private final DeviceHashrateRollupProperties properties;
+
+    /**
+     * 已完整汇总到的时间点（不含）：仅在两个层级都汇总成功后推进；节点重启后为空，按 lookbackMinutes 冷启动。
+     * 多节点时各节点的高水位只可能落后（重复汇总幂等），不会跳过数据。
+     */
+    private volatile LocalDateTime processedUntil;
+
+    public DeviceHashrateRollupService(DeviceHashrateRollupMapper rollupMapper,
+                                       DeviceHashrateReportMapper deviceHashrateReportMapper,
+                                       DeviceGpuHashrateReportMapper deviceGpuHashrateReportMapper,
+                                       DeviceHashrateRollupProperties properties) {
+        this.rollupMapper = rollupMapper;
+        this.deviceHashrateReportMapper = deviceHashrateReportMapper;
+        this.deviceGpuHashrateReportMapper = deviceGpuHashrateReportMapper;
+        this.properties = properties;
+    }
+
+    /**
+     * 趋势接口允许查询的最大窗口（分钟）。
+     */
+    public int maxTrendMinutes() {
+        if (!properties.isEnabled()) {
+            return LEGACY_MAX_TREND_MINUTES;
+        }
+        return Math.max(LEGACY_MAX_TREND_MINUTES, properties.getMaxTrendMinutes());
+    }
+
+    /**
+     * 为查询窗口选择层级：在保留期覆盖该窗口的层级中，取点数不超过预算的最细层级；都超预算时取 1 小时。
+     *
+     * @param minutes 查询窗口（分钟，已按 maxTrendMinutes 截断）
+     * @return 层级（分钟）：1 / 15 / 60
+     */
+    public int resolveTierMinutes(int minutes) {
+        if (!properties.isEnabled()) {
+            return TIER_MINUTE;
+        }
+        int budget = Math.max(1, properties.getPointBudget());
+        if (covers(properties.getMinuteRetentionDays(), minutes) && minutes <= budget) {
+            return TIER_MINUTE;
+        }
+        if (covers(properties.getQuarterHourRetentionDays(), minutes)
+                && (minutes + TIER_QUARTER_HOUR - 1) / TIER_QUARTER_HOUR <= budget) {
+            return TIER_QUARTER_HOUR;
+        }
+        return TIER_HOUR;
+    }
+
+    /**
+     * 查询设备某一层级自 since 起的汇总桶（按时间升序）。
+     */
+    public List<DeviceHashrateRollup> selectDeviceRollups(int tierMinutes, Long userId, String deviceId, LocalDateTime since) {
+        return rollupMapper.selectByDeviceSince(tierMinutes, userId, deviceId, since);
+    }
+
+    /**
+     * 查询设备某一层级自 since 起的 GPU 汇总桶（按时间、GPU index 升序）。
+     */
+    public List<DeviceGpuHashrateRollup> selectGpuRollups(int tierMinutes, Long userId, String deviceId, LocalDateTime since) {
+        return rollupMapper.selectGpuByDeviceSince(tierMinutes, userId, deviceId, since);
+    }
+
+    /**
+     * 定时任务：从高水位所在的整点起增量汇总（迟到上报回退 lateArrivalMinutes），保证 15 分钟 / 1 小时桶都是完整重算。
+     */
+    @Scheduled(fixedDelayString = "${app.devices.hashrate-rollup.fixed-delay-ms:300000}")
+    public void rollupRecent() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        LocalDateTime until = LocalDateTime.now();
+        LocalDateTime watermark = processedUntil != null
+                ? processedUntil.minusMinutes(Math.max(0, properties.getLateArrivalMinutes()))
+                : until.minusMinutes(Math.max(TIER_HOUR, properties.getLookbackMinutes()));
+        if (rollup(bucketStart(watermark, TIER_HOUR), until)) {
+            processedUntil = until;
+        }
+    }
+
+    /**
+     * 汇总 [since, until) 内的分钟桶到 15 分钟 / 1 小时层级；since 需对齐到整点。
+     *
+     * @return 两个层级是否都汇总成功
+     */
+    public boolean rollup(LocalDateTime since, LocalDateTime until) {
+        boolean ok = true;
+        for (int tier : new int[]{TIER_QUARTER_HOUR, TIER_HOUR}) {
+            try {
+                int rows = rollupMapper.rollupFromMinuteReports(tier, since, until);
+                int gpuRows = rollupMapper.rollupGpuFromMinuteReports(tier, since, until);
+                log.debug("Hashrate rollup tier={}m since={} until={} rows={} gpuRows={}", tier, since, until, rows, gpuRows);
+            } catch (Exception e) {
+                ok = false;
+                log.warn("Hashrate rollup failed for tier {}m since {}: {}", tier, since, e.getMessage());
+            }
+        }
+        return ok;
+    }
+
+    /**
+     * 汇总桶起点：time 所在整点 + 分钟按层级向下取整（本地时间，层级需整除 60）。
+     * 与 DeviceHashrateRollupMapper 中 rollup_bucket 的 SQL 定义一致。
+     */
+    public static LocalDateTime bucketStart(LocalDateTime time, int tierMinutes) {
+        LocalDateTime hour = time.truncatedTo(ChronoUnit.HOURS);
+        if (tierMinutes >= TIER_HOUR) {
+            return hour;
+        }
+        int step = Math.max(1, tierMinutes);
+        return hour.plusMinutes(time.getMinute() / step * step);
+    }
+
+    /**
+     * 定时任务：按保留期分批清理分钟桶与汇总桶。
+     */
+    @Scheduled(cron = "${app.devices.hashrate-rollup.purge-cron:0 15 4 * * ?}")
+    public void purgeExpired() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        int limit = Math.max(1, properties.getPurgeBatchSize());
+
+        if (properties.getMinuteRetentionDays() > 0) {
+            LocalDateTime before = now.minusDays(properties.getMinuteRetentionDays());
+            long purged = purgeInBatches(() -> deviceHashrateReportMapper.deleteBefore(before, limit), limit);
+            long gpuPurged = purgeInBatches(() -> deviceGpuHashrateReportMapper.deleteBefore(before, limit), limit);
+            logPurged("minute", before, purged, gpuPurged);
+        }
+        purgeTier(TIER_QUARTER_HOUR, properties.getQuarterHourRetentionDays(), now, limit);
+        purgeTier(TIER_HOUR, properties.getHourlyRetentionDays(), now, limit);
+    }
+
+    private void purgeTier(int tier, int retentionDays, LocalDateTime now, int limit) {
+        if (retentionDays <= 0) {
+            return;
+        }
+        LocalDateTime before = now.minusDays(retentionDays);
+        long purged = purgeInBatches(() -> rollupMapper.deleteBefore(tier, before, limit), limit);
+        long gpuPurged = purgeInBatches(() -> rollupMapper.deleteGpuBefore(tier, before, limit), limit);
+        logPurged(tier + "m", before, purged, gpuPurged);
+    }
+
+    private long purgeInBatches(IntSupplier deleteBatch, int limit) {
+        long total = 0;
+        try {
+            int deleted;
+            do {
+                deleted = deleteBatch.getAsInt();
+                total += deleted;
+            } while (deleted >= limit);
+        } catch (Exception e) {
+            log.warn("Hashrate purge batch failed after {} rows: {}", total, e.getMessage());
+        }
+        return total;
+    }
+
+    private void logPurged(String tier, LocalDateTime before, long purged, long gpuPurged) {
+        if (purged > 0 || gpuPurged > 0) {
+            log.info("Purged hashrate {} buckets before {}: device={}, gpu={}", tier, before, purged, gpuPurged);
+        }
+    }
+
+    private static boolean covers(int retentionDays, int minutes) {
+        return retentionDays <= 0 || minutes <= (long) retentionDays * MINUTES_PER_DAY;
+    }
+}
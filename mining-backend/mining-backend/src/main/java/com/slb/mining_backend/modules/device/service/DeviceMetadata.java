@@ -0,0 +1,34 @@
+package com.slb.mining_backend.modules.device.service;
+
+import com.slb.mining_backend.modules.device.entity.Device;
+
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+/**
+ * 设备元数据快照：只包含归属与静态字段（不含在线状态、算力等随上报变化的字段）。
+ */
+public record DeviceMetadata(String id,
+                             Long userId,
+                             String deviceName,
+                             String deviceType,
+                             boolean deleted,
+                             LocalDateTime createTime) {
+
+    public static DeviceMetadata from(Device device) {
+        return new DeviceMetadata(
+                device.getId(),
+                device.getUserId(),
+                device.getDeviceName(),
+                device.getDeviceType(),
+                Boolean.TRUE.equals(device.getIsDeleted()),
+                device.getCreateTime());
+    }
+
+    /**
+     * 设备未删除且归属于指定用户。
+     */
+    public boolean isOwnedBy(Long userId) {
+        return !deleted && userId != null && Objects.equals(this.userId, userId);
+    }
+}
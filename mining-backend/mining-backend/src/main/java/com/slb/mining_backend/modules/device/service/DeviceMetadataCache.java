@@ -0,0 +1,215 @@
+package com.slb.mining_backend.modules.device.service;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.slb.mining_backend.modules.device.config.DeviceMetadataCacheProperties;
+import com.slb.mining_backend.modules.device.entity.Device;
+import com.slb.mining_backend.modules.device.mapper.DeviceMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.GuavaCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 设备元数据缓存（deviceId -> 归属用户、删除标记、静态字段）。
+ *
+ * 规则：
+ * - 只缓存存在的设备（含已软删除），不存在的设备不缓存；
+ * - 设备注册/换绑、更新、删除在事务提交后失效本地条目，并通过 Redis pub/sub 通知其他节点；
+ * - 加载期间若发生失效，本次加载结果不写入缓存（避免把提交前读到的旧归属写回）；
+ * - 写路径（上报、下发指令）使用 {@link #getVerified}：命中时再比对 Redis 中的设备归属版本，
+ *   版本不一致或读取失败时回源，不依赖 pub/sub 消息送达；
+ * - 命中/未命中等指标注册到 MeterRegistry（cache.gets{cache=device.metadata}）。
+ */
+@Component
+@Slf4j
+public class DeviceMetadataCache implements MessageListener {
+
+    private static final String CHANNEL = "device:metadata:invalidate";
+    private static final String VERSION_KEY_PREFIX = "device:metadata:ver:";
+    private static final String NO_VERSION = "0";
+    static final String CACHE_NAME = "device.metadata";
+
+    private final DeviceMapper deviceMapper;
+    private final StringRedisTemplate redisTemplate;
+    private final RedisMessageListenerContainer listenerContainer;
+    private final DeviceMetadataCacheProperties properties;
+    private final Cache<String, Entry> cache;
+    /**
+     * 失效代数：每次失效递增，加载前后不一致说明加载期间发生过失效。
+     */
+    private final AtomicLong invalidations = new AtomicLong(0L);
+
+    /**
+     * 缓存条目：元数据 + 加载前读到的归属版本（Redis 不可用时为 null，写路径命中时一律回源）。
+     */
+    private record Entry(DeviceMetadata metadata, String version) {
+    }
+
+    public DeviceMetadataCache(DeviceMapper deviceMapper,
+                               StringRedisTemplate redisTemplate,
+                               RedisMessageListenerContainer listenerContainer,
+                               DeviceMetadataCacheProperties properties,
+                               MeterRegistry meterRegistry) {
+        this.deviceMapper = deviceMapper;
+        this.redisTemplate = redisTemplate;
+        this.listenerContainer = listenerContainer;
+        this.properties = properties;
+        this.cache = CacheBuilder.newBuilder()
+                .maximumSize(Math.max(1L, properties.getMaximumSize()))
+                .expireAfterWrite(Math.max(1L, properties.getExpireAfterWriteSeconds()), TimeUnit.SECONDS)
+                .recordStats()
+                .build();
+        GuavaCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+    }
+
+    @PostConstruct
+    public void subscribe() {
+        if (properties.isEnabled() && properties.isRedisFanout()) {
+            listenerContainer.addMessageListener(this, new ChannelTopic(CHANNEL));
+        }
+    }
+
+    /**
+     * 读取设备元数据（含已软删除的设备）；设备不存在时返回 null。
+     */
+    public DeviceMetadata get(String deviceId) {
+        if (deviceId == null) {
+            return null;
+        }
+        if (!properties.isEnabled()) {
+            return load(deviceId);
+        }
+        Entry cached = cache.getIfPresent(deviceId);
+        if (cached != null) {
+            return cached.metadata();
+        }
+        return loadAndCache(deviceId);
+    }
+
+    /**
+     * 写路径读取：命中时比对 Redis 中的设备归属版本，版本变化（其他节点已换绑/删除）或无法确认时回源。
+     */
+    public DeviceMetadata getVerified(String deviceId) {
+        if (deviceId == null) {
+            return null;
+        }
+        if (!properties.isEnabled()) {
+            return load(deviceId);
+        }
+        Entry cached = cache.getIfPresent(deviceId);
+        if (cached != null && cached.version() != null && cached.version().equals(readVersion(deviceId))) {
+            return cached.metadata();
+        }
+        return reload(deviceId);
+    }
+
+    /**
+     * 跳过缓存直接回源，并用结果刷新本地条目（缓存可能滞后于其他节点的变更时使用）。
+     */
+    public DeviceMetadata reload(String deviceId) {
+        invalidateLocal(deviceId);
+        return get(deviceId);
+    }
+
+    /**
+     * 设备归属/静态字段已变更：在当前事务提交后失效并广播；无事务时立即执行。
+     */
+    public void invalidateAfterCommit(String deviceId) {
+        if (deviceId == null) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    invalidate(deviceId);
+                }
+            });
+            return;
+        }
+        invalidate(deviceId);
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        invalidateLocal(new String(message.getBody(), StandardCharsets.UTF_8));
+    }
+
+    private void invalidate(String deviceId) {
+        invalidateLocal(deviceId);
+        if (!properties.isEnabled()) {
+            return;
+        }
+        bumpVersion(deviceId);
+        if (!properties.isRedisFanout()) {
+            return;
+        }
+        try {
+            redisTemplate.convertAndSend(CHANNEL, deviceId);
+        } catch (Exception e) {
+            log.warn("Failed to publish device metadata invalidation for device {}: {}", deviceId, e.getMessage());
+        }
+    }
+
+    private void invalidateLocal(String deviceId) {
+        invalidations.incrementAndGet();
+        cache.invalidate(deviceId);
+    }
+
+    /**
+     * 先读版本再查库：加载期间发生的换绑会让记录的版本落后，下一次写路径校验时回源。
+     */
+    private DeviceMetadata loadAndCache(String deviceId) {
+        long generation = invalidations.get();
+        String version = readVersion(deviceId);
+        DeviceMetadata loaded = load(deviceId);
+        if (loaded != null && invalidations.get() == generation) {
+            cache.put(deviceId, new Entry(loaded, version));
+        }
+        return loaded;
+    }
+
+    /**
+     * 设备归属版本；未设置时为 "0"，Redis 异常时返回 null（无法确认）。
+     */
+    private String readVersion(String deviceId) {
+        try {
+            String version = redisTemplate.opsForValue().get(VERSION_KEY_PREFIX + deviceId);
+            return version != null ? version : NO_VERSION;
+        } catch (Exception e) {
+            log.debug("Failed to read device metadata version for device {}: {}", deviceId, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 版本取当前时间戳（而非 INCR）：版本 key 过期后重新设置也不会回到某个旧条目记录的值。
+     */
+    private void bumpVersion(String deviceId) {
+        try {
+            redisTemplate.opsForValue().set(VERSION_KEY_PREFIX + deviceId, String.valueOf(System.currentTimeMillis()),
+                    Duration.ofSeconds(Math.max(properties.getExpireAfterWriteSeconds(), properties.getVersionTtlSeconds())));
+        } catch (Exception e) {
+            log.warn("Failed to bump device metadata version for device {}: {}", deviceId, e.getMessage());
+        }
+    }
+
+    private DeviceMetadata load(String deviceId) {
+        Device device = deviceMapper.findById(deviceId).orElse(null);
+        return device != null ? DeviceMetadata.from(device) : null;
+    }
+}
@@ -0,0 +1,58 @@
+package com.slb.mining_backend.modules.device.service;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 设备心跳注册表：按“最近上报时间”排序维护在线设备，用于精确找出心跳过期的设备并统计在线数。
+ *
+ * 实现：
+ * - RedisDevicePresenceRegistry：多节点共享（ZSET，score = 最近上报时间戳）；
+ * - LocalDevicePresenceRegistry：单机内存实现（单节点部署 / 测试）。
+ */
+public interface DevicePresenceRegistry {
+
+    /**
+     * 记录一次心跳（设备上报）。
+     */
+    void touch(String deviceId, Long userId, LocalDateTime lastSeen);
+
+    /**
+     * 移除设备（删除、换绑等不再视为在线的场景）。
+     */
+    void remove(String deviceId);
+
+    /**
+     * 读取（不移除）最近上报时间早于 cutoff 的设备，按最近上报时间升序。
+     *
+     * 调用方在 DB 离线更新成功后再调用 {@link #removeExpired}；中途崩溃时设备仍留在注册表，下一轮重新处理。
+     *
+     * @param cutoff 过期阈值
+     * @param limit  本次最多读取数量
+     * @return 过期设备 ID
+     */
+    List<String> peekExpired(LocalDateTime cutoff, int limit);
+
+    /**
+     * 移除仍然早于 cutoff 的设备；期间重新上报（心跳已刷新）的设备保留。
+     *
+     * @return 实际移除数量
+     */
+    int removeExpired(Collection<String> deviceIds, LocalDateTime cutoff);
+
+    /**
+     * 最近上报时间不早于 cutoff 的设备数量。
+     */
+    long countOnline(LocalDateTime cutoff);
+
+    /**
+     * 指定用户下最近上报时间不早于 cutoff 的设备数量。
+     */
+    long countOnlineByUser(Long userId, LocalDateTime cutoff);
+
+    /**
+     * 注册表中的设备总数（含尚未被取出的过期设备）。
+     */
+    long size();
+}
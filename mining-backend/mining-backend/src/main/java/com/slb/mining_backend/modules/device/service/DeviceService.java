@@ -4,7 +4,11 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.slb.mining_backend.common.exception.BizException;
+import com.slb.mining_backend.common.job.ClusterJob;
+import com.slb.mining_backend.common.util.PageCursor;
+import com.slb.mining_backend.common.vo.CursorPageVo;
 import com.slb.mining_backend.common.vo.PageVo;
+import com.slb.mining_backend.modules.device.config.DevicePresenceProperties;
 import com.slb.mining_backend.modules.device.dto.AckCommandRequest;
 import com.slb.mining_backend.modules.device.dto.DeviceHashrateReportReqDto;
 import com.slb.mining_backend.modules.device.dto.DeviceRegisterReqDto;
@@ -12,7 +16,9 @@ import com.slb.mining_backend.modules.device.dto.DeviceUpdateReqDto;
 import com.slb.mining_backend.modules.device.dto.SendCommandRequest;
 import com.slb.mining_backend.modules.device.dto.SendCommandResponse;
 import com.slb.mining_backend.modules.device.entity.Device;
+import com.slb.mining_backend.modules.device.entity.DeviceGpuHashrateRollup;
 import com.slb.mining_backend.modules.device.entity.DeviceHashrateReport;
+import com.slb.mining_backend.modules.device.entity.DeviceHashrateRollup;
 import com.slb.mining_backend.modules.device.entity.DeviceRemoteCommand;
 import com.slb.mining_backend.modules.device.enums.CommandStatus;
 import com.slb.mining_backend.modules.device.enums.CommandType;
@@ -36,6 +42,8 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -66,6 +74,13 @@ public class DeviceService {
     private final InviteService inviteService;
     private final InviteProperties inviteProperties;
     private final PlatformSettingsService platformSettingsService;
+    private final DeviceHashrateReportBuffer deviceHashrateReportBuffer;
+    private final DevicePresenceRegistry devicePresenceRegistry;
+    private final DevicePresenceProperties devicePresenceProperties;
+    private final DeviceHashrateRollupService deviceHashrateRollupService;
+    private final DeviceCommandNotifier deviceCommandNotifier;
+    private final HashrateSummaryCache hashrateSummaryCache;
+    private final DeviceMetadataCache deviceMetadataCache;
 
     @Value("${app.earnings.estimate.xmr-block-reward}")
     private BigDecimal xmrBlockReward;
@@ -112,7 +127,14 @@ public class DeviceService {
                          UserMapper userMapper,
                          InviteService inviteService,
                          InviteProperties inviteProperties,
-                         PlatformSettingsService platformSettingsService) {
+                         PlatformSettingsService platformSettingsService,
+                         DeviceHashrateReportBuffer deviceHashrateReportBuffer,
+                         DevicePresenceRegistry devicePresenceRegistry,
+                         DevicePresenceProperties devicePresenceProperties,
+                         DeviceHashrateRollupService deviceHashrateRollupService,
+                         DeviceCommandNotifier deviceCommandNotifier,
+                         HashrateSummaryCache hashrateSummaryCache,
+                         DeviceMetadataCache deviceMetadataCache) {
         this.deviceMapper = deviceMapper;
         this.deviceHashrateReportMapper = deviceHashrateReportMapper;
         this.deviceGpuHashrateReportMapper = deviceGpuHashrateReportMapper;
@@ -123,6 +145,13 @@ public class DeviceService {
         this.inviteService = inviteService;
         this.inviteProperties = inviteProperties;
         this.platformSettingsService = platformSettingsService;
+        this.deviceHashrateReportBuffer = deviceHashrateReportBuffer;
+        this.devicePresenceRegistry = devicePresenceRegistry;
+        this.devicePresenceProperties = devicePresenceProperties;
+        this.deviceHashrateRollupService = deviceHashrateRollupService;
+        this.deviceCommandNotifier = deviceCommandNotifier;
+        this.hashrateSummaryCache = hashrateSummaryCache;
+        this.deviceMetadataCache = deviceMetadataCache;
     }
 
     /**
@@ -142,10 +171,12 @@ public class DeviceService {
         Device existingDevice = deviceMapper.findById(deviceId).orElse(null);
         if (existingDevice != null) {
             boolean needUpdate = false;
+            Long previousUserId = existingDevice.getUserId();
 
             // 允许“切号换绑”：同一台物理设备在不同账号登录时，注册接口会将设备归属切换到当前用户
             // 备注：device_id 全局唯一；换绑后，旧账号将不再拥有该设备的访问权限
-            if (existingDevice.getUserId() == null || !existingDevice.getUserId().equals(userId)) {
+            boolean rebound = existingDevice.getUserId() == null || !existingDevice.getUserId().equals(userId);
+            if (rebound) {
                 log.info("Rebinding device {} from user {} to user {}", deviceId, existingDevice.getUserId(), userId);
                 existingDevice.setUserId(userId);
                 existingDevice.setStatus(0);      // 注册本身不代表在线
@@ -187,6 +218,11 @@ public class DeviceService {
 
             if (needUpdate) {
                 deviceMapper.update(existingDevice);
+                deviceMetadataCache.invalidateAfterCommit(deviceId);
+            }
+            if (rebound) {
+                removePresence(deviceId);
+                hashrateSummaryCache.invalidateUserAfterCommit(previousUserId);
             }
 
             // 返回现有设备信息 (包含密钥，以便客户端恢复)
@@ -241,11 +277,14 @@ public class DeviceService {
      *
      * 规则：
      * - 上报时将设备置为在线，并刷新 last_online_time；
-     * - 同一分钟内重复上报会覆盖该分钟桶的数据（DB 层唯一键 + upsert）。
+     * - 同一分钟内重复上报会覆盖该分钟桶的数据（DB 层唯一键 + upsert）；
+     * - 开启 app.devices.report-buffer.enabled 时改为写缓冲，由 DeviceHashrateReportBuffer 合并后批量落库；
+     * - 归属校验走设备元数据缓存，设备行只按 id + user_id 更新上报字段，不再逐次 SELECT。
      */
     @Transactional
     public void reportHashrate(String deviceId, DeviceHashrateReportReqDto dto, Long userId) {
-        Device device = findDeviceAndVerifyOwnership(deviceId, userId);
+        verifyDeviceOwnershipForWrite(deviceId, userId);
+        Device device = newReportedStatusPatch(deviceId, userId);
         LocalDateTime now = LocalDateTime.now();
         LocalDateTime bucketTime = truncateToMinute(now);
 
@@ -261,14 +300,21 @@ public class DeviceService {
         report.setUptime(dto.getUptime());
         report.setVersion(dto.getVersion());
         report.setAlgorithm(dto.getAlgorithm());
-        deviceHashrateReportMapper.upsertMinuteReport(report);
 
         device.setStatus(1); // 在线
         device.setCpuHashrate(cpuHashrate.doubleValue());
         device.setGpuHashrate(gpuHashrate.doubleValue());
         applyGpuEstimatesFromAlgorithm(device, gpuHashrate, dto.getAlgorithm());
         device.setLastOnlineTime(now);
-        deviceMapper.update(device);
+        touchPresence(deviceId, userId, now);
+
+        if (deviceHashrateReportBuffer.isEnabled()) {
+            deviceHashrateReportBuffer.enqueue(report, device);
+            return;
+        }
+        deviceHashrateReportMapper.upsertMinuteReport(report);
+        deviceMapper.batchUpdateReportedStatus(List.of(device));
+        hashrateSummaryCache.onDeviceReportedAfterCommit(device);
     }
 
     /**
@@ -276,11 +322,14 @@ public class DeviceService {
      *
      * 规则：
      * - 上报时将设备置为在线，并刷新 last_online_time；
-     * - 同一分钟内同一 GPU index 重复上报会覆盖该分钟桶的数据（DB 层唯一键 + upsert）。
+     * - 同一分钟内同一 GPU index 重复上报会覆盖该分钟桶的数据（DB 层唯一键 + upsert）；
+     * - 全部 GPU 合并为一条多行 upsert，并同步维护 device_gpu_latest（每块 GPU 一行的最新状态）；
+     *   开启写缓冲时与其他设备的明细一起按刷盘窗口批量落库。
      */
     @Transactional
     public void reportGpuHashrateDetail(String deviceId, com.slb.mining_backend.modules.device.dto.DeviceGpuHashrateReportReqDto dto, Long userId) {
-        Device device = findDeviceAndVerifyOwnership(deviceId, userId);
+        verifyDeviceOwnershipForWrite(deviceId, userId);
+        Device device = newReportedStatusPatch(deviceId, userId);
         LocalDateTime now = LocalDateTime.now();
         LocalDateTime bucketTime = truncateToMinute(dto != null ? dto.getBucketTime() : null);
         if (bucketTime == null) {
@@ -293,6 +342,7 @@ public class DeviceService {
         BigDecimal totalGpuHashrate = BigDecimal.ZERO;
         BigDecimal octopusHashrate = BigDecimal.ZERO;
         BigDecimal kawpowHashrate = BigDecimal.ZERO;
+        List<com.slb.mining_backend.modules.device.entity.DeviceGpuHashrateReport> reports = new ArrayList<>(dto.getGpus().size());
         for (com.slb.mining_backend.modules.device.dto.DeviceGpuHashrateItemDto item : dto.getGpus()) {
             if (item == null || item.getIndex() == null || item.getIndex() < 0) {
                 continue;
@@ -317,27 +367,44 @@ public class DeviceService {
             report.setHashrateMhs(hashrate);
             report.setAlgorithm(item.getAlgorithm());
             report.setBucketTime(bucketTime);
-            deviceGpuHashrateReportMapper.upsertMinuteReport(report);
+            reports.add(report);
         }
 
         device.setStatus(1); // 在线
         device.setGpuHashrate(totalGpuHashrate.doubleValue());
         applyDeviceGpuAlgorithmStats(device, octopusHashrate, kawpowHashrate);
         device.setLastOnlineTime(now);
-        deviceMapper.update(device);
+        touchPresence(deviceId, userId, now);
+
+        if (deviceHashrateReportBuffer.isEnabled()) {
+            deviceHashrateReportBuffer.enqueueGpuReports(reports, device);
+            return;
+        }
+        if (!reports.isEmpty()) {
+            deviceGpuHashrateReportMapper.batchUpsertMinuteReports(reports);
+            deviceGpuHashrateReportMapper.batchUpsertLatest(reports);
+        }
+        deviceMapper.batchUpdateReportedStatus(List.of(device));
+        hashrateSummaryCache.onDeviceReportedAfterCommit(device);
     }
 
     /**
-     * 获取设备最近 N 分钟的算力趋势（分钟桶）。
+     * 获取设备最近 N 分钟的算力趋势。
+     *
+     * 按窗口与点数预算自动选择粒度：短窗口读取分钟桶，长窗口读取 15 分钟 / 1 小时汇总桶（见 DeviceHashrateRollupService）。
      */
     public List<DeviceHashratePointVo> getDeviceHashrateTrend(String deviceId, Long userId, int minutes) {
         if (minutes <= 0) {
             return List.of();
         }
         // 验证设备归属（避免越权读他人设备曲线）
-        findDeviceAndVerifyOwnership(deviceId, userId);
+        verifyDeviceOwnership(deviceId, userId);
 
-        int safeMinutes = Math.min(minutes, 24 * 60); // 防止一次拉取过大
+        int safeMinutes = Math.min(minutes, deviceHashrateRollupService.maxTrendMinutes()); // 防止一次拉取过大
+        int tierMinutes = deviceHashrateRollupService.resolveTierMinutes(safeMinutes);
+        if (tierMinutes != DeviceHashrateRollupService.TIER_MINUTE) {
+            return getDeviceHashrateRollupTrend(deviceId, userId, safeMinutes, tierMinutes);
+        }
         LocalDateTime since = truncateToMinute(LocalDateTime.now().minusMinutes(safeMinutes));
 
         List<DeviceHashrateReport> reports = deviceHashrateReportMapper.selectByDeviceSince(userId, deviceId, since);
@@ -350,6 +417,7 @@ public class DeviceService {
         for (DeviceHashrateReport r : reports) {
             DeviceHashratePointVo p = new DeviceHashratePointVo();
             p.setBucketTime(r.getBucketTime());
+            p.setResolutionMinutes(DeviceHashrateRollupService.TIER_MINUTE);
             BigDecimal cpuHashrate = safeDecimal(r.getCpuHashrate());
             BigDecimal gpuHashrate = safeDecimal(r.getGpuHashrate());
             p.setCpuHashrate(cpuHashrate);
@@ -365,15 +433,52 @@ public class DeviceService {
         return points;
     }
 
+    private List<DeviceHashratePointVo> getDeviceHashrateRollupTrend(String deviceId, Long userId, int minutes, int tierMinutes) {
+        LocalDateTime since = DeviceHashrateRollupService.bucketStart(LocalDateTime.now().minusMinutes(minutes), tierMinutes);
+        List<DeviceHashrateRollup> rollups = deviceHashrateRollupService.selectDeviceRollups(tierMinutes, userId, deviceId, since);
+        if (rollups == null || rollups.isEmpty()) {
+            return List.of();
+        }
+        IncomeContext incomeContext = buildIncomeContext();
+        BigDecimal netMultiplier = resolveEstimateNetMultiplier(userId);
+        List<DeviceHashratePointVo> points = new ArrayList<>(rollups.size());
+        for (DeviceHashrateRollup r : rollups) {
+            DeviceHashratePointVo p = new DeviceHashratePointVo();
+            p.setBucketTime(r.getBucketTime());
+            p.setResolutionMinutes(tierMinutes);
+            BigDecimal cpuHashrate = safeDecimal(r.getCpuHashrateAvg());
+            BigDecimal gpuHashrate = safeDecimal(r.getGpuHashrateAvg());
+            p.setCpuHashrate(cpuHashrate);
+            p.setGpuHashrate(gpuHashrate);
+            p.setTotalHashrate(toMhFromHps(cpuHashrate).add(gpuHashrate));
+            p.setCpuHashrateMax(safeDecimal(r.getCpuHashrateMax()));
+            p.setCpuHashrateMin(safeDecimal(r.getCpuHashrateMin()));
+            p.setGpuHashrateMax(safeDecimal(r.getGpuHashrateMax()));
+            p.setGpuHashrateMin(safeDecimal(r.getGpuHashrateMin()));
+            p.setSampleCount(r.getSampleCount());
+            p.setAlgorithm(r.getAlgorithm());
+            BigDecimal cpuIncome = estimateDailyIncomeCny(cpuHashrate, incomeContext, true);
+            p.setCpuDailyIncomeCny(applyEstimateNetMultiplier(cpuIncome, netMultiplier, 2));
+            BigDecimal gpuDailyIncome = estimateGpuDailyIncomeCnyWithFallback(gpuHashrate, r.getAlgorithm(), incomeContext);
+            p.setGpuDailyIncomeCny(applyEstimateNetMultiplier(gpuDailyIncome, netMultiplier, 2));
+            points.add(p);
+        }
+        return points;
+    }
+
     /**
-     * 获取设备 GPU 明细趋势（最近 N 分钟，按 GPU index 分组）。
+     * 获取设备 GPU 明细趋势（最近 N 分钟，按 GPU index 分组；长窗口自动使用汇总桶）。
      */
     public List<com.slb.mining_backend.modules.device.vo.DeviceGpuHashrateSeriesVo> getDeviceGpuHashrateTrend(String deviceId, Long userId, int minutes) {
         if (minutes <= 0) {
             return List.of();
         }
-        findDeviceAndVerifyOwnership(deviceId, userId);
-        int safeMinutes = Math.min(minutes, 24 * 60);
+        verifyDeviceOwnership(deviceId, userId);
+        int safeMinutes = Math.min(minutes, deviceHashrateRollupService.maxTrendMinutes());
+        int tierMinutes = deviceHashrateRollupService.resolveTierMinutes(safeMinutes);
+        if (tierMinutes != DeviceHashrateRollupService.TIER_MINUTE) {
+            return getDeviceGpuHashrateRollupTrend(deviceId, userId, safeMinutes, tierMinutes);
+        }
         LocalDateTime since = truncateToMinute(LocalDateTime.now().minusMinutes(safeMinutes));
         List<com.slb.mining_backend.modules.device.entity.DeviceGpuHashrateReport> reports =
                 deviceGpuHashrateReportMapper.selectByDeviceSince(userId, deviceId, since);
@@ -403,6 +508,7 @@ public class DeviceService {
                 com.slb.mining_backend.modules.device.vo.DeviceGpuHashratePointVo p =
                         new com.slb.mining_backend.modules.device.vo.DeviceGpuHashratePointVo();
                 p.setBucketTime(r.getBucketTime());
+                p.setResolutionMinutes(DeviceHashrateRollupService.TIER_MINUTE);
                 BigDecimal hashrate = safeDecimal(r.getHashrateMhs());
                 p.setHashrate(hashrate);
                 p.setAlgorithm(r.getAlgorithm());
@@ -420,6 +526,50 @@ public class DeviceService {
         return series;
     }
 
+    private List<com.slb.mining_backend.modules.device.vo.DeviceGpuHashrateSeriesVo> getDeviceGpuHashrateRollupTrend(
+            String deviceId, Long userId, int minutes, int tierMinutes) {
+        LocalDateTime since = DeviceHashrateRollupService.bucketStart(LocalDateTime.now().minusMinutes(minutes), tierMinutes);
+        List<DeviceGpuHashrateRollup> rollups = deviceHashrateRollupService.selectGpuRollups(tierMinutes, userId, deviceId, since);
+        if (rollups == null || rollups.isEmpty()) {
+            return List.of();
+        }
+        Map<Integer, List<DeviceGpuHashrateRollup>> grouped = rollups.stream().collect(Collectors.groupingBy(
+                DeviceGpuHashrateRollup::getGpuIndex, java.util.TreeMap::new, Collectors.toList()));
+
+        IncomeContext incomeContext = buildIncomeContext();
+        BigDecimal netMultiplier = resolveEstimateNetMultiplier(userId);
+        List<com.slb.mining_backend.modules.device.vo.DeviceGpuHashrateSeriesVo> series = new ArrayList<>(grouped.size());
+        for (Map.Entry<Integer, List<DeviceGpuHashrateRollup>> entry : grouped.entrySet()) {
+            List<com.slb.mining_backend.modules.device.vo.DeviceGpuHashratePointVo> points = new ArrayList<>(entry.getValue().size());
+            String name = null;
+            for (DeviceGpuHashrateRollup r : entry.getValue()) {
+                if (name == null && r.getGpuName() != null && !r.getGpuName().isBlank()) {
+                    name = r.getGpuName();
+                }
+                com.slb.mining_backend.modules.device.vo.DeviceGpuHashratePointVo p =
+                        new com.slb.mining_backend.modules.device.vo.DeviceGpuHashratePointVo();
+                p.setBucketTime(r.getBucketTime());
+                p.setResolutionMinutes(tierMinutes);
+                BigDecimal hashrate = safeDecimal(r.getHashrateAvg());
+                p.setHashrate(hashrate);
+                p.setHashrateMax(safeDecimal(r.getHashrateMax()));
+                p.setHashrateMin(safeDecimal(r.getHashrateMin()));
+                p.setSampleCount(r.getSampleCount());
+                p.setAlgorithm(r.getAlgorithm());
+                BigDecimal income = estimateGpuDailyIncomeCnyWithFallback(hashrate, r.getAlgorithm(), incomeContext);
+                p.setGpuDailyIncomeCny(applyEstimateNetMultiplier(income, netMultiplier, 2));
+                points.add(p);
+            }
+            com.slb.mining_backend.modules.device.vo.DeviceGpuHashrateSeriesVo s =
+                    new com.slb.mining_backend.modules.device.vo.DeviceGpuHashrateSeriesVo();
+            s.setIndex(entry.getKey());
+            s.setName(name);
+            s.setPoints(points);
+            series.add(s);
+        }
+        return series;
+    }
+
     /**
      * 获取设备列表 (分页)
      */
@@ -431,10 +581,48 @@ public class DeviceService {
 
         int offset = (page - 1) * size;
         List<Device> devices = deviceMapper.findByUserIdAndStatusPaginated(userId, status, offset, size, sortBy, orderBy);
+        return new PageVo<>(total, page, size, toDeviceListVos(userId, devices));
+    }
+
+    /**
+     * 获取设备列表 (游标分页)：按 (排序值, 设备ID) 定位下一页，翻页代价与页深无关。
+     *
+     * @param cursor    上一页返回的 nextCursor，为空表示第一页
+     * @param withTotal 是否返回总数（用户维度按索引计数，为精确值）
+     */
+    public CursorPageVo<DeviceVo> getDeviceListByCursor(Long userId, Integer status, String cursor, int size,
+                                                        String sortBy, String orderBy, boolean withTotal) {
+        String sortKey = normalizeDeviceListSortBy(sortBy);
+        String order = "asc".equalsIgnoreCase(orderBy) ? "asc" : "desc";
+        int pageSize = PageCursor.clampSize(size);
+        PageCursor position = PageCursor.decode(cursor, sortKey, order);
+
+        Object cursorValue = position == null ? null : parseDeviceListCursorValue(sortKey, position.value());
+        String cursorKey = position == null ? null : position.key();
+        // 多取一条判断是否还有下一页，避免额外 count
+        List<Device> devices = deviceMapper.findByUserIdAndStatusAfter(
+                userId, status, sortKey, order, cursorValue, cursorKey, pageSize + 1);
+        boolean hasMore = devices.size() > pageSize;
+        if (hasMore) {
+            devices = devices.subList(0, pageSize);
+        }
+        String nextCursor = null;
+        if (hasMore) {
+            Device last = devices.get(devices.size() - 1);
+            nextCursor = new PageCursor(sortKey, order, deviceListSortValue(sortKey, last), last.getId()).encode();
+        }
+        Long total = withTotal ? deviceMapper.countByUserIdAndStatus(userId, status) : null;
+        return new CursorPageVo<>(pageSize, hasMore, nextCursor, total, withTotal ? Boolean.TRUE : null,
+                toDeviceListVos(userId, devices));
+    }
 
+    private List<DeviceVo> toDeviceListVos(Long userId, List<Device> devices) {
+        if (devices.isEmpty()) {
+            return List.of();
+        }
         IncomeContext incomeContext = buildIncomeContext();
         BigDecimal netMultiplier = resolveEstimateNetMultiplier(userId);
-        List<DeviceVo> voList = devices.stream().map(device -> {
+        return devices.stream().map(device -> {
             DeviceVo vo = new DeviceVo();
             BeanUtils.copyProperties(device, vo);
             vo.setDeviceId(device.getId()); // 确保ID被复制
@@ -447,8 +635,36 @@ public class DeviceService {
             vo.setDeviceSecret(null);
             return vo;
         }).collect(Collectors.toList());
+    }
 
-        return new PageVo<>(total, page, size, voList);
+    private static String normalizeDeviceListSortBy(String sortBy) {
+        if ("deviceName".equals(sortBy) || "lastOnlineTime".equals(sortBy)) {
+            return sortBy;
+        }
+        return "createTime";
+    }
+
+    /**
+     * 游标中的排序值：与 Mapper 中的排序列一致，排序列为 NULL 时记为 null（Mapper 按 NULL 段单独定位）。
+     */
+    private static String deviceListSortValue(String sortKey, Device device) {
+        Object value = switch (sortKey) {
+            case "deviceName" -> device.getDeviceName();
+            case "lastOnlineTime" -> device.getLastOnlineTime();
+            default -> device.getCreateTime();
+        };
+        return value == null ? null : value.toString();
+    }
+
+    private static Object parseDeviceListCursorValue(String sortKey, String value) {
+        if (value == null || "deviceName".equals(sortKey)) {
+            return value;
+        }
+        try {
+            return LocalDateTime.parse(value);
+        } catch (RuntimeException e) {
+            throw new BizException(400, "无效的分页游标");
+        }
     }
 
     /**
@@ -475,10 +691,14 @@ public class DeviceService {
         }
         vo.setDeviceSecret(null);
         
-        // 查询待执行的远程控制指令
-        RemoteControlStatus remoteControl = getLatestPendingCommands(userId, deviceId);
-        if (remoteControl != null && remoteControl.hasCommands()) {
-            vo.setRemoteControl(remoteControl);
+        // 查询待执行的远程控制指令（标记明确为“无”时跳过查库；推荐客户端改用 remote-control/poll 长轮询）
+        if (deviceCommandNotifier.mayHavePendingCommand(deviceId)) {
+            RemoteControlStatus remoteControl = getLatestPendingCommands(userId, deviceId);
+            if (remoteControl != null && remoteControl.hasCommands()) {
+                vo.setRemoteControl(remoteControl);
+            } else {
+                deviceCommandNotifier.markNoPendingCommand(deviceId);
+            }
         }
         
         return vo;
@@ -492,6 +712,7 @@ public class DeviceService {
         Device device = findDeviceAndVerifyOwnership(deviceId, userId);
         device.setDeviceName(dto.getDeviceName());
         deviceMapper.update(device);
+        deviceMetadataCache.invalidateAfterCommit(deviceId);
 
         DeviceVo vo = new DeviceVo();
         BeanUtils.copyProperties(device, vo);
@@ -509,7 +730,7 @@ public class DeviceService {
     }
 
     /**
-     * 获取当前用户所有设备的 GPU 顺时算力列表（每块 GPU 最近一分钟桶）。
+     * 获取当前用户所有设备的 GPU 顺时算力列表（每块 GPU 最近一分钟桶，读取 device_gpu_latest）。
      */
     public List<DeviceGpuHashrateSnapshotVo> getLatestGpuHashrateSnapshots(Long userId) {
         LocalDateTime cutoffTime = LocalDateTime.now().minusMinutes(deviceOfflineThresholdMinutes);
@@ -537,6 +758,9 @@ public class DeviceService {
         device.setIsDeleted(true);
         device.setStatus(0); // 标记为离线
         deviceMapper.update(device);
+        removePresence(deviceId);
+        deviceMetadataCache.invalidateAfterCommit(deviceId);
+        hashrateSummaryCache.invalidateUserAfterCommit(userId);
     }
 
 
@@ -548,6 +772,46 @@ public class DeviceService {
                 .orElseThrow(() -> new BizException(404, "设备不存在或您没有权限访问"));
     }
 
+    /**
+     * 内部方法：仅校验设备归属（读设备元数据缓存，不需要设备的实时字段时使用）。
+     *
+     * 缓存判定不通过时回源确认一次：其他节点刚完成绑定/恢复而失效广播尚未到达时，避免误报无权限。
+     */
+    private DeviceMetadata verifyDeviceOwnership(String deviceId, Long userId) {
+        return checkOwnership(deviceMetadataCache.get(deviceId), deviceId, userId);
+    }
+
+    /**
+     * 内部方法：写路径的归属校验（上报、下发指令）：缓存命中时还需设备归属版本一致，否则回源，
+     * 换绑/删除后不会因失效广播延迟而继续按旧归属写入。
+     */
+    private DeviceMetadata verifyDeviceOwnershipForWrite(String deviceId, Long userId) {
+        return checkOwnership(deviceMetadataCache.getVerified(deviceId), deviceId, userId);
+    }
+
+    private DeviceMetadata checkOwnership(DeviceMetadata metadata, String deviceId, Long userId) {
+        if (metadata != null && metadata.isOwnedBy(userId)) {
+            return metadata;
+        }
+        if (metadata != null) {
+            metadata = deviceMetadataCache.reload(deviceId);
+            if (metadata != null && metadata.isOwnedBy(userId)) {
+                return metadata;
+            }
+        }
+        throw new BizException(404, "设备不存在或您没有权限访问");
+    }
+
+    /**
+     * 上报时的设备状态补丁：只携带 id / user_id（用于按归属更新）与本次上报写入的字段。
+     */
+    private static Device newReportedStatusPatch(String deviceId, Long userId) {
+        Device device = new Device();
+        device.setId(deviceId);
+        device.setUserId(userId);
+        return device;
+    }
+
     // 设备统计方法类
     /**
      * 根据用户ID获取设备总数
@@ -565,13 +829,33 @@ public class DeviceService {
      * @return 在线设备数
      */
     public long getOnlineTotalDeviceCount(Long userId) {
+        if (devicePresenceProperties.isEnabled()) {
+            return devicePresenceRegistry.countOnlineByUser(userId, presenceCutoff());
+        }
         return deviceMapper.countByUserIdAndStatus(userId, 1);
     }
 
     /**
-     * 汇总当前用户的在线算力并估算实时收益
+     * 全平台在线设备数（启用心跳注册表时直接读取注册表，不扫描 devices 表）
+     * @return 在线设备数
+     */
+    public long getOnlineDeviceCount() {
+        if (devicePresenceProperties.isEnabled()) {
+            return devicePresenceRegistry.countOnline(presenceCutoff());
+        }
+        return deviceMapper.countOnlineDevices();
+    }
+
+    /**
+     * 汇总当前用户的在线算力并估算实时收益。
+     *
+     * 结果按用户缓存（见 HashrateSummaryCache）：设备上报落库或行情刷新后失效，另有短 TTL 兜底。
      */
     public HashrateSummaryVo getHashrateSummary(Long userId) {
+        return hashrateSummaryCache.get(userId, () -> computeHashrateSummary(userId));
+    }
+
+    private HashrateSummaryVo computeHashrateSummary(Long userId) {
         BigDecimal cpuHashrate = safeHashrate(deviceMapper.sumCpuHashrateByUserId(userId));
         BigDecimal gpuHashrateDevice = safeHashrate(deviceMapper.sumGpuHashrateByUserId(userId));
 
@@ -1077,16 +1361,109 @@ public class DeviceService {
 
     /**
      * 定时任务：将超过阈值未收到算力上报（last_online_time 未刷新）的设备判定为离线。
+     *
+     * 启用心跳注册表时只从注册表取出已过期的设备，按主键批量更新；否则按 last_online_time 全表扫描。
+     *
+     * 每个节点各自执行：store=local 时注册表只在本节点内存中，只能由本节点过期；
+     * store=redis 时多个节点并发扫描也安全（离线更新幂等，注册表按“仍早于 cutoff 且归属未变”原子移除）。
      */
     @Scheduled(fixedDelayString = "${app.devices.offline-scan-fixed-delay-ms:60000}")
+    @ClusterJob(scope = ClusterJob.Scope.NODE)
     public void markDevicesOfflineIfHeartbeatExpired() {
         if (deviceOfflineThresholdMinutes <= 0) {
             return;
         }
-        LocalDateTime cutoff = LocalDateTime.now().minusMinutes(deviceOfflineThresholdMinutes);
+        LocalDateTime cutoff = presenceCutoff();
+        if (!devicePresenceProperties.isEnabled()) {
+            int affected = deviceMapper.markDevicesOffline(cutoff);
+            if (affected > 0) {
+                log.info("Marked {} devices offline due to no heartbeat since {}", affected, cutoff);
+            }
+            return;
+        }
+        int batchSize = Math.max(1, devicePresenceProperties.getExpireBatchSize());
+        int expired = 0;
+        int affected = 0;
+        List<String> ids;
+        do {
+            ids = devicePresenceRegistry.peekExpired(cutoff, batchSize);
+            if (!ids.isEmpty()) {
+                // 先落库再从注册表移除：DB 更新失败或进程崩溃时设备仍在注册表中，下一轮重试
+                affected += deviceMapper.markDevicesOfflineByIds(ids, cutoff);
+                expired += devicePresenceRegistry.removeExpired(ids, cutoff);
+            }
+        } while (ids.size() >= batchSize);
+        if (affected > 0) {
+            log.info("Marked {} devices offline due to no heartbeat since {} (expired in registry: {})", affected, cutoff, expired);
+        }
+    }
+
+    /**
+     * 兜底全表扫描：修正心跳注册表之外的数据（注册表丢失、人工改库等），仅在启用注册表时运行。
+     */
+    @Scheduled(fixedDelayString = "${app.devices.presence.full-scan-fixed-delay-ms:3600000}",
+            initialDelayString = "${app.devices.presence.full-scan-fixed-delay-ms:3600000}")
+    public void markDevicesOfflineFullScan() {
+        if (!devicePresenceProperties.isEnabled() || deviceOfflineThresholdMinutes <= 0) {
+            return;
+        }
+        LocalDateTime cutoff = presenceCutoff();
         int affected = deviceMapper.markDevicesOffline(cutoff);
         if (affected > 0) {
-            log.info("Marked {} devices offline due to no heartbeat since {}", affected, cutoff);
+            log.info("Full scan marked {} devices offline due to no heartbeat since {}", affected, cutoff);
+        }
+    }
+
+    /**
+     * 启动时回填心跳注册表：注册表为空（首次启用 / Redis 数据丢失）时，从 devices 表加载当前在线设备。
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void seedPresenceRegistry() {
+        if (!devicePresenceProperties.isEnabled()) {
+            return;
+        }
+        try {
+            if (devicePresenceRegistry.size() > 0) {
+                return;
+            }
+            List<Device> online = deviceMapper.selectOnlinePresence();
+            LocalDateTime fallback = LocalDateTime.now();
+            for (Device device : online) {
+                devicePresenceRegistry.touch(device.getId(), device.getUserId(),
+                        device.getLastOnlineTime() != null ? device.getLastOnlineTime() : fallback);
+            }
+            log.info("Seeded device presence registry with {} online devices", online.size());
+        } catch (Exception e) {
+            log.warn("Failed to seed device presence registry: {}", e.getMessage());
+        }
+    }
+
+    private LocalDateTime presenceCutoff() {
+        return LocalDateTime.now().minusMinutes(deviceOfflineThresholdMinutes);
+    }
+
+    /**
+     * 心跳注册表仅为派生数据，写入失败不影响上报本身（兜底全表扫描会修正离线状态）。
+     */
+    private void touchPresence(String deviceId, Long userId, LocalDateTime lastSeen) {
+        if (!devicePresenceProperties.isEnabled()) {
+            return;
+        }
+        try {
+            devicePresenceRegistry.touch(deviceId, userId, lastSeen);
+        } catch (Exception e) {
+            log.warn("Failed to record presence for device {}: {}", deviceId, e.getMessage());
+        }
+    }
+
+    private void removePresence(String deviceId) {
+        if (!devicePresenceProperties.isEnabled()) {
+            return;
+        }
+        try {
+            devicePresenceRegistry.remove(deviceId);
+        } catch (Exception e) {
+            log.warn("Failed to remove presence for device {}: {}", deviceId, e.getMessage());
         }
     }
 
@@ -1096,7 +1473,7 @@ public class DeviceService {
     @Transactional
     public SendCommandResponse sendRemoteControl(String deviceId, SendCommandRequest request, Long userId) {
         // 1. 验证设备归属权限
-        findDeviceAndVerifyOwnership(deviceId, userId);
+        verifyDeviceOwnershipForWrite(deviceId, userId);
         
         // 2. 验证commandType合法性
         CommandType commandType;
@@ -1120,6 +1497,7 @@ public class DeviceService {
         command.setExpiresAt(LocalDateTime.now().plusMinutes(5)); // 5分钟过期
         
         deviceRemoteCommandMapper.insert(command);
+        deviceCommandNotifier.publishAfterCommit(deviceId, command.getExpiresAt());
         
         // 5. 返回结果
         SendCommandResponse response = new SendCommandResponse();
@@ -1162,6 +1540,15 @@ public class DeviceService {
             request.getCommandId(), deviceId, request.getSuccess(), request.getError());
     }
 
+    /**
+     * 查询设备当前待执行的远程控制指令（校验设备归属）；无待执行指令时返回 null。
+     */
+    public RemoteControlStatus getPendingRemoteControl(String deviceId, Long userId) {
+        verifyDeviceOwnership(deviceId, userId);
+        RemoteControlStatus status = getLatestPendingCommands(userId, deviceId);
+        return status != null && status.hasCommands() ? status : null;
+    }
+
     /**
      * 获取最新的待执行指令
      */
@@ -0,0 +1,357 @@
+package com.slb.mining_backend.modules.device.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.slb.mining_backend.common.event.MarketDataRefreshedEvent;
+import com.slb.mining_backend.modules.device.config.DeviceSummaryCacheProperties;
+import com.slb.mining_backend.modules.device.entity.Device;
+import com.slb.mining_backend.modules.device.vo.HashrateSummaryVo;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * 用户算力收益汇总缓存。
+ *
+ * 规则：
+ * - 缓存条目记录计算时的（用户版本, 行情版本），读取时版本不一致即视为失效；
+ * - 用户版本对应汇总的设备输入：设备绑定/删除时递增；算力上报只有在设备的汇总输入（归属、CPU/GPU 算力、
+ *   按算法拆分的 GPU 算力）相对上次变化超过 hashrate-change-ratio、或设备久未上报后重新上报时才递增，
+ *   稳定上报的设备不会让缓存失效；
+ * - 行情/汇率刷新（MarketDataRefreshedEvent）时递增行情版本；
+ * - 计算期间发生的失效不会被覆盖：结果按计算开始前读到的版本写入，下一次读取自然不命中；
+ * - TTL 兜底：阈值内的算力波动、在线判定窗口滑动、平台费率调整等最多延迟 ttl-seconds 生效；
+ * - 开启 redis-enabled（默认）时版本号与结果存放在 Redis，多节点共享计算结果与失效信号，进程内副本仍按版本校验；
+ *   Redis 异常时直接实时计算，不影响接口可用性；
+ * - 进程内条目按 LRU 淘汰（local-max-entries）。
+ */
+@Component
+@Slf4j
+public class HashrateSummaryCache {
+
+    private static final String VALUE_KEY_PREFIX = "device:summary:";
+    private static final String USER_VERSION_KEY_PREFIX = "device:summary:ver:user:";
+    private static final String MARKET_VERSION_KEY = "device:summary:ver:market";
+
+    private static final DefaultRedisScript<Long> BUMP_SCRIPT = new DefaultRedisScript<>("""
+            for _, key in ipairs(KEYS) do
+                redis.call('INCR', key)
+                redis.call('EXPIRE', key, tonumber(ARGV[1]))
+            end
+            return #KEYS
+            """, Long.class);
+
+    private final DeviceSummaryCacheProperties properties;
+    private final StringRedisTemplate redisTemplate;
+    private final ObjectMapper objectMapper;
+
+    private final Cache<Long, LocalEntry> entries;
+    /**
+     * 进程内模式的用户版本：取值来自全局递增序列；条目被淘汰时把版本下限抬到被淘汰的值，
+     * 保证淘汰后读到的版本仍大于任何旧条目记录的版本。
+     */
+    private final Cache<Long, Long> userVersions;
+    private final AtomicLong versionSeq = new AtomicLong(0L);
+    private final AtomicLong evictedVersionFloor = new AtomicLong(0L);
+    private final AtomicLong marketVersion = new AtomicLong(0L);
+    /**
+     * 设备上次触发失效时的汇总输入（deviceId -> 输入），用于判断上报是否改变了汇总；久未上报（离线）的设备自然过期。
+     */
+    private final Cache<String, ReportedInput> reportedInputs;
+
+    private record Versions(long user, long market) {
+    }
+
+    private record LocalEntry(HashrateSummaryVo summary, Versions versions, long expiresAtMillis) {
+    }
+
+    private record ReportedInput(Long userId, double cpu, double gpu, double gpuOctopus, double gpuKawpow) {
+    }
+
+    /**
+     * Redis 中的缓存结构（JSON）。
+     */
+    @Data
+    static class SharedEntry {
+        private long userVersion;
+        private long marketVersion;
+        private long expiresAtMillis;
+        private HashrateSummaryVo summary;
+    }
+
+    public HashrateSummaryCache(DeviceSummaryCacheProperties properties,
+                                StringRedisTemplate redisTemplate,
+                                ObjectMapper objectMapper) {
+        this.properties = properties;
+        this.redisTemplate = redisTemplate;
+        this.objectMapper = objectMapper;
+        int maxEntries = Math.max(1, properties.getLocalMaxEntries());
+        this.entries = CacheBuilder.newBuilder()
+                .maximumSize(maxEntries)
+                .build();
+        this.userVersions = CacheBuilder.newBuilder()
+                .maximumSize(maxEntries)
+                .<Long, Long>removalListener(notification -> {
+                    if (notification.wasEvicted() && notification.getValue() != null) {
+                        evictedVersionFloor.accumulateAndGet(notification.getValue(), Math::max);
+                    }
+                })
+                .build();
+        this.reportedInputs = CacheBuilder.newBuilder()
+                .maximumSize(Math.max(1, properties.getMaxTrackedDevices()))
+                .expireAfterAccess(Math.max(1L, properties.getReportedInputIdleSeconds()), TimeUnit.SECONDS)
+                .build();
+    }
+
+    /**
+     * 读取用户汇总；未命中时调用 loader 计算并写回缓存。
+     */
+    public HashrateSummaryVo get(Long userId, Supplier<HashrateSummaryVo> loader) {
+        if (!properties.isEnabled() || userId == null) {
+            return loader.get();
+        }
+        Versions versions = currentVersions(userId);
+        if (versions == null) {
+            return loader.get();
+        }
+        long now = System.currentTimeMillis();
+        LocalEntry local = entries.getIfPresent(userId);
+        if (local != null && local.versions().equals(versions) && local.expiresAtMillis() > now) {
+            return local.summary();
+        }
+        if (properties.isRedisEnabled()) {
+            SharedEntry shared = readShared(userId);
+            if (shared != null && shared.getSummary() != null
+                    && shared.getUserVersion() == versions.user()
+                    && shared.getMarketVersion() == versions.market()
+                    && shared.getExpiresAtMillis() > now) {
+                putLocal(userId, new LocalEntry(shared.getSummary(), versions, shared.getExpiresAtMillis()));
+                return shared.getSummary();
+            }
+        }
+
+        HashrateSummaryVo summary = loader.get();
+        long expiresAt = now + Math.max(1L, properties.getTtlSeconds()) * 1000L;
+        putLocal(userId, new LocalEntry(summary, versions, expiresAt));
+        if (properties.isRedisEnabled()) {
+            writeShared(userId, versions, summary, expiresAt);
+        }
+        return summary;
+    }
+
+    /**
+     * 设备上报已写入（事务提交后）：汇总输入有实质变化时才失效该设备所属用户；无事务时立即判断。
+     */
+    public void onDeviceReportedAfterCommit(Device devicePatch) {
+        if (devicePatch == null) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    onDevicesReported(List.of(devicePatch));
+                }
+            });
+            return;
+        }
+        onDevicesReported(List.of(devicePatch));
+    }
+
+    /**
+     * 一批设备上报已写入（写缓冲刷盘后调用）：只失效汇总输入有实质变化的用户，一次 Redis 往返。
+     */
+    public void onDevicesReported(Collection<Device> devicePatches) {
+        if (!properties.isEnabled() || devicePatches == null || devicePatches.isEmpty()) {
+            return;
+        }
+        Set<Long> changedUsers = new LinkedHashSet<>();
+        for (Device device : devicePatches) {
+            if (device != null && device.getId() != null && device.getUserId() != null && recordReportedInput(device)) {
+                changedUsers.add(device.getUserId());
+            }
+        }
+        invalidateUsers(changedUsers);
+    }
+
+    /**
+     * 用户数据已变化：在当前事务提交后再失效（保证随后重新计算能读到新数据）；无事务时立即失效。
+     */
+    public void invalidateUserAfterCommit(Long userId) {
+        if (userId == null) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    invalidateUsers(List.of(userId));
+                }
+            });
+            return;
+        }
+        invalidateUsers(List.of(userId));
+    }
+
+    /**
+     * 批量失效用户（写缓冲刷盘后调用，一次 Redis 往返）。
+     */
+    public void invalidateUsers(Collection<Long> userIds) {
+        if (!properties.isEnabled() || userIds == null || userIds.isEmpty()) {
+            return;
+        }
+        Set<Long> distinct = new LinkedHashSet<>();
+        for (Long userId : userIds) {
+            if (userId != null) {
+                distinct.add(userId);
+            }
+        }
+        if (distinct.isEmpty()) {
+            return;
+        }
+        for (Long userId : distinct) {
+            userVersions.put(userId, versionSeq.incrementAndGet());
+            entries.invalidate(userId);
+        }
+        if (properties.isRedisEnabled()) {
+            List<String> keys = new ArrayList<>(distinct.size());
+            for (Long userId : distinct) {
+                keys.add(USER_VERSION_KEY_PREFIX + userId);
+            }
+            bumpRedisVersions(keys);
+        }
+    }
+
+    @EventListener(MarketDataRefreshedEvent.class)
+    public void onMarketDataRefreshed(MarketDataRefreshedEvent event) {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        marketVersion.incrementAndGet();
+        if (properties.isRedisEnabled()) {
+            bumpRedisVersions(List.of(MARKET_VERSION_KEY));
+        }
+        log.debug("Hashrate summary cache invalidated by market data refresh: source={}", event.source());
+    }
+
+    /**
+     * 当前版本；Redis 模式下读取失败返回 null（调用方跳过缓存）。
+     */
+    private Versions currentVersions(Long userId) {
+        if (!properties.isRedisEnabled()) {
+            Long version = userVersions.getIfPresent(userId);
+            return new Versions(version != null ? version : evictedVersionFloor.get(), marketVersion.get());
+        }
+        try {
+            List<String> values = redisTemplate.opsForValue()
+                    .multiGet(List.of(USER_VERSION_KEY_PREFIX + userId, MARKET_VERSION_KEY));
+            if (values == null || values.size() < 2) {
+                return null;
+            }
+            return new Versions(parseVersion(values.get(0)), parseVersion(values.get(1)));
+        } catch (Exception e) {
+            log.warn("Failed to read hashrate summary cache versions for user {}: {}", userId, e.getMessage());
+            return null;
+        }
+    }
+
+    private SharedEntry readShared(Long userId) {
+        try {
+            String json = redisTemplate.opsForValue().get(VALUE_KEY_PREFIX + userId);
+            return json == null ? null : objectMapper.readValue(json, SharedEntry.class);
+        } catch (Exception e) {
+            log.warn("Failed to read shared hashrate summary for user {}: {}", userId, e.getMessage());
+            return null;
+        }
+    }
+
+    private void writeShared(Long userId, Versions versions, HashrateSummaryVo summary, long expiresAtMillis) {
+        try {
+            SharedEntry shared = new SharedEntry();
+            shared.setUserVersion(versions.user());
+            shared.setMarketVersion(versions.market());
+            shared.setExpiresAtMillis(expiresAtMillis);
+            shared.setSummary(summary);
+            redisTemplate.opsForValue().set(VALUE_KEY_PREFIX + userId, objectMapper.writeValueAsString(shared),
+                    Duration.ofSeconds(Math.max(1L, properties.getTtlSeconds())));
+        } catch (Exception e) {
+            log.warn("Failed to write shared hashrate summary for user {}: {}", userId, e.getMessage());
+        }
+    }
+
+    private void bumpRedisVersions(List<String> keys) {
+        try {
+            redisTemplate.execute(BUMP_SCRIPT, keys,
+                    String.valueOf(Math.max(properties.getTtlSeconds(), properties.getVersionTtlSeconds())));
+        } catch (Exception e) {
+            log.warn("Failed to bump hashrate summary cache versions ({} keys): {}", keys.size(), e.getMessage());
+        }
+    }
+
+    private void putLocal(Long userId, LocalEntry entry) {
+        entries.put(userId, entry);
+    }
+
+    /**
+     * 记录设备的汇总输入，返回相对上次记录是否有实质变化（首次上报 / 久未上报 / 换绑 / 任一算力变化超过阈值）。
+     * 只有发生变化时才更新记录，避免缓慢漂移被逐次吸收。
+     */
+    private boolean recordReportedInput(Device device) {
+        ReportedInput current = new ReportedInput(device.getUserId(), value(device.getCpuHashrate()),
+                value(device.getGpuHashrate()), value(device.getGpuHashrateOctopus()), value(device.getGpuHashrateKawpow()));
+        ReportedInput previous = reportedInputs.getIfPresent(device.getId());
+        if (previous != null && !isMaterialChange(previous, current)) {
+            return false;
+        }
+        reportedInputs.put(device.getId(), current);
+        return true;
+    }
+
+    private boolean isMaterialChange(ReportedInput previous, ReportedInput current) {
+        double ratio = Math.max(0d, properties.getHashrateChangeRatio());
+        return !Objects.equals(previous.userId(), current.userId())
+                || changed(previous.cpu(), current.cpu(), ratio)
+                || changed(previous.gpu(), current.gpu(), ratio)
+                || changed(previous.gpuOctopus(), current.gpuOctopus(), ratio)
+                || changed(previous.gpuKawpow(), current.gpuKawpow(), ratio);
+    }
+
+    private static boolean changed(double previous, double current, double ratio) {
+        if (previous <= 0d || current <= 0d) {
+            return (previous > 0d) != (current > 0d);
+        }
+        return Math.abs(current - previous) > previous * ratio;
+    }
+
+    private static double value(Double hashrate) {
+        return hashrate != null ? hashrate : 0d;
+    }
+
+    private static long parseVersion(String value) {
+        if (value == null || value.isBlank()) {
+            return 0L;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return 0L;
+        }
+    }
+}
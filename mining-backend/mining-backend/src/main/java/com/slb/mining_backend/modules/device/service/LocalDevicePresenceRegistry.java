@@ -0,0 +1,133 @@
+package com.slb.mining_backend.modules.device.service;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * 单机内存版心跳注册表：按最近上报时间排序的 TreeSet + deviceId 索引。
+ *
+ * 仅适用于单节点部署或测试；多节点部署请使用 app.devices.presence.store=redis。
+ */
+@Component
+@ConditionalOnProperty(prefix = "app.devices.presence", name = "store", havingValue = "local")
+public class LocalDevicePresenceRegistry implements DevicePresenceRegistry {
+
+    private record Entry(String deviceId, Long userId, long lastSeenMillis) {
+    }
+
+    private static final Comparator<Entry> BY_LAST_SEEN = Comparator
+            .comparingLong(Entry::lastSeenMillis)
+            .thenComparing(Entry::deviceId);
+
+    private final TreeSet<Entry> byLastSeen = new TreeSet<>(BY_LAST_SEEN);
+    private final Map<String, Entry> byDevice = new HashMap<>();
+    private final Map<Long, Set<String>> byUser = new HashMap<>();
+
+    @Override
+    public synchronized void touch(String deviceId, Long userId, LocalDateTime lastSeen) {
+        if (deviceId == null || lastSeen == null) {
+            return;
+        }
+        removeInternal(deviceId);
+        Entry entry = new Entry(deviceId, userId, toMillis(lastSeen));
+        byLastSeen.add(entry);
+        byDevice.put(deviceId, entry);
+        if (userId != null) {
+            byUser.computeIfAbsent(userId, k -> new HashSet<>()).add(deviceId);
+        }
+    }
+
+    @Override
+    public synchronized void remove(String deviceId) {
+        if (deviceId != null) {
+            removeInternal(deviceId);
+        }
+    }
+
+    @Override
+    public synchronized List<String> peekExpired(LocalDateTime cutoff, int limit) {
+        long cutoffMillis = toMillis(cutoff);
+        List<String> expired = new ArrayList<>();
+        for (Entry entry : byLastSeen) {
+            if (expired.size() >= limit || entry.lastSeenMillis() >= cutoffMillis) {
+                break;
+            }
+            expired.add(entry.deviceId());
+        }
+        return expired;
+    }
+
+    @Override
+    public synchronized int removeExpired(Collection<String> deviceIds, LocalDateTime cutoff) {
+        long cutoffMillis = toMillis(cutoff);
+        int removed = 0;
+        for (String deviceId : deviceIds) {
+            Entry entry = byDevice.get(deviceId);
+            if (entry != null && entry.lastSeenMillis() < cutoffMillis) {
+                removeInternal(deviceId);
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    @Override
+    public synchronized long countOnline(LocalDateTime cutoff) {
+        return byLastSeen.tailSet(new Entry("", null, toMillis(cutoff)), true).size();
+    }
+
+    @Override
+    public synchronized long countOnlineByUser(Long userId, LocalDateTime cutoff) {
+        Set<String> devices = byUser.get(userId);
+        if (devices == null) {
+            return 0L;
+        }
+        long cutoffMillis = toMillis(cutoff);
+        return devices.stream()
+                .map(byDevice::get)
+                .filter(e -> e != null && e.lastSeenMillis() >= cutoffMillis)
+                .count();
+    }
+
+    @Override
+    public synchronized long size() {
+        return byDevice.size();
+    }
+
+    private void removeInternal(String deviceId) {
+        Entry old = byDevice.remove(deviceId);
+        if (old != null) {
+            byLastSeen.remove(old);
+            detachFromUser(old);
+        }
+    }
+
+    private void detachFromUser(Entry entry) {
+        if (entry.userId() == null) {
+            return;
+        }
+        Set<String> devices = byUser.get(entry.userId());
+        if (devices != null) {
+            devices.remove(entry.deviceId());
+            if (devices.isEmpty()) {
+                byUser.remove(entry.userId());
+            }
+        }
+    }
+
+    private static long toMillis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
@@ -0,0 +1,207 @@
+package com.slb.mining_backend.modules.device.service;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Redis 版心跳注册表（多节点共享）。
+ *
+ * 结构（key 共用 {device:presence} hash tag，Redis Cluster 下位于同一 slot）：
+ * - {device:presence}:last_seen   ZSET，member = deviceId，score = 最近上报时间戳（毫秒）；
+ * - {device:presence}:owner       HASH，deviceId -> userId；
+ * - {device:presence}:user:<uid>  ZSET，按用户维度的在线设备（用于用户在线数统计）。
+ *
+ * 写入/移除均使用 Lua 脚本保证原子性，脚本访问的 key 全部通过 KEYS[] 传入：
+ * 涉及的用户 key 由调用方按“预期归属”给出，脚本内校验 owner 与预期一致，不一致时返回 0，调用方读取实际归属后重试。
+ */
+@Component
+@ConditionalOnProperty(prefix = "app.devices.presence", name = "store", havingValue = "redis", matchIfMissing = true)
+public class RedisDevicePresenceRegistry implements DevicePresenceRegistry {
+
+    static final String KEY_LAST_SEEN = "{device:presence}:last_seen";
+    static final String KEY_OWNER = "{device:presence}:owner";
+    static final String USER_KEY_PREFIX = "{device:presence}:user:";
+    private static final int MAX_OWNER_RETRIES = 3;
+
+    /**
+     * KEYS: last_seen, owner, 新归属用户 key, 预期旧归属用户 key；ARGV: deviceId, 时间戳, 新 userId（可为空）, 预期旧 userId（可为空）。
+     */
+    private static final DefaultRedisScript<Long> TOUCH_SCRIPT = new DefaultRedisScript<>("""
+            local old = redis.call('HGET', KEYS[2], ARGV[1]) or ''
+            if old ~= ARGV[4] then
+                return 0
+            end
+            if old ~= '' and old ~= ARGV[3] then
+                redis.call('ZREM', KEYS[4], ARGV[1])
+            end
+            redis.call('ZADD', KEYS[1], ARGV[2], ARGV[1])
+            if ARGV[3] ~= '' then
+                redis.call('HSET', KEYS[2], ARGV[1], ARGV[3])
+                redis.call('ZADD', KEYS[3], ARGV[2], ARGV[1])
+            else
+                redis.call('HDEL', KEYS[2], ARGV[1])
+            end
+            return 1
+            """, Long.class);
+
+    /**
+     * KEYS: last_seen, owner, 预期归属用户 key；ARGV: deviceId, 预期 userId（可为空）。
+     */
+    private static final DefaultRedisScript<Long> REMOVE_SCRIPT = new DefaultRedisScript<>("""
+            local owner = redis.call('HGET', KEYS[2], ARGV[1]) or ''
+            if owner ~= ARGV[2] then
+                return 0
+            end
+            if owner ~= '' then
+                redis.call('ZREM', KEYS[3], ARGV[1])
+            end
+            redis.call('HDEL', KEYS[2], ARGV[1])
+            redis.call('ZREM', KEYS[1], ARGV[1])
+            return 1
+            """, Long.class);
+
+    /**
+     * KEYS: last_seen, owner, 第 i 台设备的预期归属用户 key（i = 1..n）；
+     * ARGV: cutoff, 然后依次为 deviceId_i, 预期 userId_i。
+     * 仍早于 cutoff 且归属未变的设备才移除（期间重新上报或换绑的设备保留，由下一轮处理）。
+     */
+    private static final DefaultRedisScript<Long> REMOVE_EXPIRED_SCRIPT = new DefaultRedisScript<>("""
+            local cutoff = tonumber(ARGV[1])
+            local removed = 0
+            for i = 1, #KEYS - 2 do
+                local id = ARGV[2 * i]
+                local expected = ARGV[2 * i + 1]
+                local score = redis.call('ZSCORE', KEYS[1], id)
+                local owner = redis.call('HGET', KEYS[2], id) or ''
+                if score and tonumber(score) < cutoff and owner == expected then
+                    if owner ~= '' then
+                        redis.call('ZREM', KEYS[2 + i], id)
+                    end
+                    redis.call('HDEL', KEYS[2], id)
+                    redis.call('ZREM', KEYS[1], id)
+                    removed = removed + 1
+                end
+            end
+            return removed
+            """, Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+
+    public RedisDevicePresenceRegistry(StringRedisTemplate redisTemplate) {
+        this.redisTemplate = redisTemplate;
+    }
+
+    @Override
+    public void touch(String deviceId, Long userId, LocalDateTime lastSeen) {
+        if (deviceId == null || lastSeen == null) {
+            return;
+        }
+        String newOwner = userId != null ? String.valueOf(userId) : "";
+        String millis = String.valueOf(toMillis(lastSeen));
+        // 绝大多数上报归属不变：先按“旧归属 = 新归属”执行，不一致时再读取实际归属重试
+        String expectedOwner = newOwner;
+        for (int attempt = 0; attempt < MAX_OWNER_RETRIES; attempt++) {
+            Long ok = redisTemplate.execute(TOUCH_SCRIPT,
+                    List.of(KEY_LAST_SEEN, KEY_OWNER, userKey(newOwner), userKey(expectedOwner)),
+                    deviceId, millis, newOwner, expectedOwner);
+            if (ok == null || ok != 0L) {
+                return;
+            }
+            expectedOwner = currentOwner(deviceId);
+        }
+        throw new IllegalStateException("Device presence owner kept changing for " + deviceId);
+    }
+
+    @Override
+    public void remove(String deviceId) {
+        if (deviceId == null) {
+            return;
+        }
+        for (int attempt = 0; attempt < MAX_OWNER_RETRIES; attempt++) {
+            String owner = currentOwner(deviceId);
+            Long ok = redisTemplate.execute(REMOVE_SCRIPT, List.of(KEY_LAST_SEEN, KEY_OWNER, userKey(owner)),
+                    deviceId, owner);
+            if (ok == null || ok != 0L) {
+                return;
+            }
+        }
+        throw new IllegalStateException("Device presence owner kept changing for " + deviceId);
+    }
+
+    @Override
+    public List<String> peekExpired(LocalDateTime cutoff, int limit) {
+        Set<String> ids = redisTemplate.opsForZSet().rangeByScore(KEY_LAST_SEEN,
+                Double.NEGATIVE_INFINITY, toMillis(cutoff) - 1, 0, Math.max(1, limit));
+        return ids != null ? new ArrayList<>(ids) : List.of();
+    }
+
+    @Override
+    public int removeExpired(Collection<String> deviceIds, LocalDateTime cutoff) {
+        if (deviceIds == null || deviceIds.isEmpty()) {
+            return 0;
+        }
+        List<String> ids = new ArrayList<>(deviceIds);
+        List<Object> owners = redisTemplate.opsForHash().multiGet(KEY_OWNER, new ArrayList<>(ids));
+        List<String> keys = new ArrayList<>(ids.size() + 2);
+        keys.add(KEY_LAST_SEEN);
+        keys.add(KEY_OWNER);
+        List<String> args = new ArrayList<>(ids.size() * 2 + 1);
+        args.add(String.valueOf(toMillis(cutoff)));
+        for (int i = 0; i < ids.size(); i++) {
+            Object owner = owners != null && i < owners.size() ? owners.get(i) : null;
+            String expected = owner != null ? owner.toString() : "";
+            keys.add(userKey(expected));
+            args.add(ids.get(i));
+            args.add(expected);
+        }
+        Long removed = redisTemplate.execute(REMOVE_EXPIRED_SCRIPT, keys, args.toArray());
+        return removed != null ? removed.intValue() : 0;
+    }
+
+    @Override
+    public long countOnline(LocalDateTime cutoff) {
+        Long count = redisTemplate.opsForZSet().count(KEY_LAST_SEEN, toMillis(cutoff), Double.POSITIVE_INFINITY);
+        return count != null ? count : 0L;
+    }
+
+    @Override
+    public long countOnlineByUser(Long userId, LocalDateTime cutoff) {
+        if (userId == null) {
+            return 0L;
+        }
+        Long count = redisTemplate.opsForZSet().count(USER_KEY_PREFIX + userId, toMillis(cutoff), Double.POSITIVE_INFINITY);
+        return count != null ? count : 0L;
+    }
+
+    @Override
+    public long size() {
+        Long size = redisTemplate.opsForZSet().zCard(KEY_LAST_SEEN);
+        return size != null ? size : 0L;
+    }
+
+    private String currentOwner(String deviceId) {
+        Object owner = redisTemplate.opsForHash().get(KEY_OWNER, deviceId);
+        return Objects.toString(owner, "");
+    }
+
+    /**
+     * 用户维度 key；无归属时给出占位 key（脚本不会访问，只为保持 KEYS 数量固定）。
+     */
+    private static String userKey(String userId) {
+        return USER_KEY_PREFIX + (userId.isEmpty() ? "none" : userId);
+    }
+
+    private static long toMillis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
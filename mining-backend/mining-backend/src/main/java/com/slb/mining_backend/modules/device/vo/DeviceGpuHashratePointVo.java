@@ -24,4 +24,16 @@ public class DeviceGpuHashratePointVo {
 
     @Schema(description = "GPU 按当前算力估算的每日收益（折合 CNY）", example = "12.34")
     private BigDecimal gpuDailyIncomeCny;
+
+    @Schema(description = "点的时间粒度（分钟）：1 / 15 / 60；汇总点的算力为桶内均值", example = "1")
+    private Integer resolutionMinutes;
+
+    @Schema(description = "桶内最大算力（MH/s，仅汇总点）", example = "46.10")
+    private BigDecimal hashrateMax;
+
+    @Schema(description = "桶内最小算力（MH/s，仅汇总点）", example = "44.80")
+    private BigDecimal hashrateMin;
+
+    @Schema(description = "桶内分钟样本数（仅汇总点）", example = "15")
+    private Integer sampleCount;
 }
@@ -33,6 +33,24 @@ public class DeviceHashratePointVo {
 
     @Schema(description = "GPU 按当前算力估算的每日收益（折合 CNY）", example = "9.13")
     private BigDecimal gpuDailyIncomeCny;
+
+    @Schema(description = "点的时间粒度（分钟）：1 / 15 / 60；汇总点的算力为桶内均值", example = "1")
+    private Integer resolutionMinutes;
+
+    @Schema(description = "桶内 CPU 最大算力（H/s，仅汇总点）", example = "5200000.00")
+    private BigDecimal cpuHashrateMax;
+
+    @Schema(description = "桶内 CPU 最小算力（H/s，仅汇总点）", example = "4800000.00")
+    private BigDecimal cpuHashrateMin;
+
+    @Schema(description = "桶内 GPU 最大算力（MH/s，仅汇总点）", example = "21.00")
+    private BigDecimal gpuHashrateMax;
+
+    @Schema(description = "桶内 GPU 最小算力（MH/s，仅汇总点）", example = "19.00")
+    private BigDecimal gpuHashrateMin;
+
+    @Schema(description = "桶内分钟样本数（仅汇总点）", example = "15")
+    private Integer sampleCount;
 }
 
 
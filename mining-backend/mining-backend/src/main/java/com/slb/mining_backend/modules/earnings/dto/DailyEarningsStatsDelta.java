@@ -0,0 +1,19 @@
+package com.slb.mining_backend.modules.earnings.dto;
+
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * daily_earnings_stats 的一次累加量（批量结算时按 user_id + stat_date 合并后一次写入）。
+ */
+@Data
+public class DailyEarningsStatsDelta {
+    private Long userId;
+    private LocalDate statDate;
+    private BigDecimal totalCalAmount = BigDecimal.ZERO;
+    private BigDecimal totalCnyAmount = BigDecimal.ZERO;
+    private BigDecimal cpuCalEarnings = BigDecimal.ZERO;
+    private BigDecimal gpuCalEarnings = BigDecimal.ZERO;
+}
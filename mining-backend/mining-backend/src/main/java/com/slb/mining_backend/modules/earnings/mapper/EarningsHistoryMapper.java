@@ -2,6 +2,9 @@ package com.slb.mining_backend.modules.earnings.mapper;
 
 import com.slb.mining_backend.modules.earnings.entity.EarningsHistory;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.List;
 
 @Mapper
 public interface EarningsHistoryMapper {
@@ -12,4 +15,9 @@ public interface EarningsHistoryMapper {
      * @param earningsHistory 收益历史对象
      */
     void insert(EarningsHistory earningsHistory);
+
+    /**
+     * 多行批量插入收益历史记录，自增ID按顺序回填到每个对象的 id 属性。
+     */
+    int batchInsert(@Param("histories") List<EarningsHistory> histories);
 }
\ No newline at end of file
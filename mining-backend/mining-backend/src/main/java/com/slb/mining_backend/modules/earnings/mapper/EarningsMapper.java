@@ -1,5 +1,6 @@
 package com.slb.mining_backend.modules.earnings.mapper;
 
+import com.slb.mining_backend.modules.earnings.dto.DailyEarningsStatsDelta;
 import com.slb.mining_backend.modules.earnings.vo.DailyStatsVo;
 import com.slb.mining_backend.modules.earnings.vo.EarningsHistoryItemVo;
 import com.slb.mining_backend.modules.earnings.vo.EarningsHistoryHourlyItemVo;
@@ -126,6 +127,11 @@ public interface EarningsMapper {
             @Param("type") String type
     );
 
+    /**
+     * 批量累加每日统计（每个 user_id + stat_date 一行，已在内存中按类型拆好 CPU/GPU 部分）
+     */
+    int batchUpsertDailyStats(@Param("stats") List<DailyEarningsStatsDelta> stats);
+
     /**
      * 累计 CPU 挖矿 CAL 收益（基于 daily_earnings_stats.cpu_cal_earnings 汇总）。
      */
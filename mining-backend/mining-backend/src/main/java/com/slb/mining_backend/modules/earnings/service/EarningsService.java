@@ -1,6 +1,7 @@
 package com.slb.mining_backend.modules.earnings.service;
 
 import com.slb.mining_backend.common.exception.BizException;
+import com.slb.mining_backend.common.job.ClusterJob;
 import com.slb.mining_backend.common.vo.PageVo;
 import com.slb.mining_backend.modules.earnings.entity.EarningsHistory;
 import com.slb.mining_backend.modules.earnings.mapper.EarningsHistoryMapper;
@@ -157,6 +158,7 @@ public class EarningsService {
      * [定时任务] 每30分钟清空一次排行榜缓存，强制下次请求重新计算
      */
     @Scheduled(cron = "0 */30 * * * ?", zone = "Asia/Shanghai")
+    @ClusterJob(scope = ClusterJob.Scope.NODE)
     @CacheEvict(cacheNames = {"leaderboardPageCache", "leaderboardMyRankCache"}, allEntries = true)
     public void evictLeaderboardCache() {
         // 这个方法体可以是空的，注解会自动完成缓存清理工作
@@ -2,6 +2,8 @@ package com.slb.mining_backend.modules.earnings.service;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.slb.mining_backend.common.event.MarketDataRefreshedEvent;
+import com.slb.mining_backend.common.job.ClusterJob;
 import com.slb.mining_backend.modules.device.mapper.DeviceMapper;
 import com.slb.mining_backend.modules.exchange.service.ExchangeRateService;
 import com.slb.mining_backend.modules.xmr.service.antpool.AntpoolClient;
@@ -9,6 +11,7 @@ import lombok.extern.slf4j.Slf4j;
 import com.jayway.jsonpath.JsonPath;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.context.event.EventListener;
 import org.springframework.http.HttpHeaders;
 import org.springframework.scheduling.annotation.Scheduled;
@@ -60,6 +63,7 @@ public class MarketDataService {
     private final WebClient.Builder webClientBuilder;
     private WebClient poolStatsClient;
     private final ObjectMapper objectMapper;
+    private final ApplicationEventPublisher eventPublisher;
     private final AtomicReference<BigDecimal> externalPoolHashrateHps = new AtomicReference<>(BigDecimal.ZERO);
     /**
      * c3pool /pool/stats 返回的 activePortProfit（若存在）：
@@ -196,12 +200,14 @@ public class MarketDataService {
                              DeviceMapper deviceMapper,
                              AntpoolClient antpoolClient,
                              WebClient.Builder webClientBuilder,
-                             ObjectMapper objectMapper) {
+                             ObjectMapper objectMapper,
+                             ApplicationEventPublisher eventPublisher) {
         this.exchangeRateService = exchangeRateService;
         this.deviceMapper = deviceMapper;
         this.antpoolClient = antpoolClient;
         this.webClientBuilder = webClientBuilder;
         this.objectMapper = objectMapper;
+        this.eventPublisher = eventPublisher;
     }
 
     @PostConstruct
@@ -356,6 +362,7 @@ public class MarketDataService {
      * 定时刷新外部矿池算力，避免每次请求都访问三方 API。
      */
     @Scheduled(initialDelay = 10_000, fixedDelayString = "${app.external-api.pool-stats-refresh-ms:300000}")
+    @ClusterJob(scope = ClusterJob.Scope.NODE)
     public void refreshExternalPoolHashrate() {
         if (!StringUtils.hasText(poolStatsUrl)) {
             return;
@@ -391,12 +398,14 @@ public class MarketDataService {
                     externalPoolActivePortProfitXmrPerHashDay.set(normalizedProfit.setScale(12, RoundingMode.HALF_UP));
                 }
             }
+            eventPublisher.publishEvent(new MarketDataRefreshedEvent("pool-stats"));
         } catch (Exception ex) {
             log.debug("Unable to refresh pool hashrate: {}", ex.getMessage());
         }
     }
 
     @Scheduled(initialDelay = 15_000, fixedDelayString = "${app.external-api.coin-stats-refresh-ms:300000}")
+    @ClusterJob(scope = ClusterJob.Scope.NODE)
     public void refreshCoinProfitability() {
         // 优先使用 Nanopool 获取 CFX 收益数据（倍率可配置）
         // 若 Nanopool 失败，再尝试 F2Pool，最后回退到 Conflux 官方 API
@@ -443,6 +452,7 @@ public class MarketDataService {
                     rvnBlockReward, resolveBlockTimeSeconds(rvnBlockTimeSeconds, rvnBlockTimeSecondsUrl, rvnBlockTimeSecondsPath),
                     rvnDailyCoinPerMh);
         }
+        eventPublisher.publishEvent(new MarketDataRefreshedEvent("coin-profitability"));
     }
 
     /**
@@ -0,0 +1,48 @@
+package com.slb.mining_backend.modules.exchange.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 汇率刷新（exchange_rates）配置。
+ *
+ * XMR / USDT / CFX / RVN 在一次 CoinGecko 请求中拉取，刷新在后台线程执行，读取方只读内存快照；
+ * 快照超过 stale-after-ms 未更新时由读取触发一次后台刷新（读取本身不等待）。
+ * 仅在价格变化超过阈值或距上次落库超过检查点间隔时写入 exchange_rates。
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "app.exchange.rates")
+public class ExchangeRateProperties {
+
+    /**
+     * 合并请求地址：需包含 monero、tether、conflux-token、ravencoin，计价币种需包含 cny、usd。
+     */
+    private String url = "https://api.coingecko.com/api/v3/simple/price?ids=monero,tether,conflux-token,ravencoin&vs_currencies=cny,usd";
+
+    /**
+     * 定时刷新间隔（毫秒）。
+     */
+    private long refreshIntervalMs = 300_000L;
+
+    /**
+     * 快照超过该时长（毫秒）未更新视为过期，读取时触发后台刷新。
+     */
+    private long staleAfterMs = 900_000L;
+
+    /**
+     * 单次请求超时（毫秒）。
+     */
+    private long requestTimeoutMs = 10_000L;
+
+    /**
+     * 相对上次落库价格的变化比例不超过该值时不写库（0 表示任何变化都写）。
+     */
+    private double minChangeRatio = 0.0005d;
+
+    /**
+     * 检查点间隔（分钟）：价格未变化时至少按该间隔写一条，保证按时间回溯的汇率（如 RVN/XMR）粒度。
+     */
+    private int checkpointMinutes = 60;
+}
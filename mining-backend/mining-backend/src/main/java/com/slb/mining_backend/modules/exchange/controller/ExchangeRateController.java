@@ -2,6 +2,7 @@ package com.slb.mining_backend.modules.exchange.controller;
 
 import com.slb.mining_backend.common.api.ApiResponse;
 import com.slb.mining_backend.modules.earnings.service.MarketDataService;
+import com.slb.mining_backend.modules.exchange.domain.ExchangeRateSnapshot;
 import com.slb.mining_backend.modules.exchange.service.ExchangeRateService;
 import com.slb.mining_backend.modules.exchange.vo.ExchangeRateVo;
 import io.swagger.v3.oas.annotations.Operation;
@@ -10,6 +11,8 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.math.BigDecimal;
+
 /**
  * 汇率信息接口
  * 用于展示各币种汇率，不需要认证
@@ -53,16 +56,18 @@ public class ExchangeRateController {
                     """
     )
     public ApiResponse<ExchangeRateVo> getAllExchangeRates() {
+        // 同一快照内读取，保证各汇率为同一时刻的值
+        ExchangeRateSnapshot snapshot = exchangeRateService.getSnapshot();
         ExchangeRateVo vo = ExchangeRateVo.builder()
-                .xmrToCny(exchangeRateService.getXmrToCnyRate())
-                .xmrToUsdt(exchangeRateService.getXmrToUsdtRate())
-                .usdtToCny(exchangeRateService.getUsdtToCnyRate())
+                .xmrToCny(snapshot.rateOrDefault("XMR/CNY", BigDecimal.ZERO))
+                .xmrToUsdt(snapshot.rateOrDefault("XMR/USDT", BigDecimal.ZERO))
+                .usdtToCny(snapshot.rateOrDefault("USDT/CNY", BigDecimal.ONE))
                 .calToCny(marketDataService.getCalToCnyRate())
-                .cfxToCny(exchangeRateService.getCfxToCnyRate())
-                .cfxToUsdt(exchangeRateService.getCfxToUsdtRate())
-                .cfxToXmr(exchangeRateService.getCfxToXmrRate())
+                .cfxToCny(snapshot.rateOrDefault("CFX/CNY", BigDecimal.ZERO))
+                .cfxToUsdt(snapshot.rateOrDefault("CFX/USDT", BigDecimal.ZERO))
+                .cfxToXmr(snapshot.rateOrDefault("CFX/XMR", BigDecimal.ZERO))
                 .source("CoinGecko")
-                .lastUpdatedTime(System.currentTimeMillis())
+                .lastUpdatedTime(snapshot.version() > 0 ? snapshot.asOf().toEpochMilli() : System.currentTimeMillis())
                 .build();
         return ApiResponse.ok(vo);
     }
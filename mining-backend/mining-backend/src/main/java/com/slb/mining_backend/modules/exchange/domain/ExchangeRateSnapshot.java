@@ -0,0 +1,33 @@
+package com.slb.mining_backend.modules.exchange.domain;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * 不可变的汇率快照：整体替换发布，读取方拿到的一组汇率总是同一时刻的值。
+ *
+ * @param version 版本号，汇率有变化时递增
+ * @param asOf    最近一次成功刷新（或从数据库加载）的时间
+ * @param rates   交易对 -> 价格，仅包含正数价格
+ */
+public record ExchangeRateSnapshot(long version, Instant asOf, Map<String, BigDecimal> rates) {
+
+    public static final ExchangeRateSnapshot EMPTY = new ExchangeRateSnapshot(0L, Instant.EPOCH, Map.of());
+
+    public ExchangeRateSnapshot {
+        rates = Map.copyOf(rates);
+    }
+
+    /**
+     * 获取交易对价格；缺失时返回 null。
+     */
+    public BigDecimal rate(String symbol) {
+        return symbol == null ? null : rates.get(symbol);
+    }
+
+    public BigDecimal rateOrDefault(String symbol, BigDecimal defaultValue) {
+        BigDecimal value = rate(symbol);
+        return value == null ? defaultValue : value;
+    }
+}
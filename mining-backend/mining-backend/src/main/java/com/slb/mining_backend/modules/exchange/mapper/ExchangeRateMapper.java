@@ -4,6 +4,8 @@ import com.slb.mining_backend.modules.exchange.entity.ExchangeRate;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 /**
@@ -17,11 +19,21 @@ public interface ExchangeRateMapper {
      */
     int insert(ExchangeRate rate);
 
+    /**
+     * 批量插入汇率快照（一次刷新的多个交易对）
+     */
+    int batchInsert(@Param("records") List<ExchangeRate> records);
+
     /**
      * 根据 symbol 查询最近一次的汇率记录
      */
     Optional<ExchangeRate> selectLatestBySymbol(@Param("symbol") String symbol);
 
+    /**
+     * 一次查询多个 symbol 各自最近一次的汇率记录
+     */
+    List<ExchangeRate> selectLatestBySymbols(@Param("symbols") Collection<String> symbols);
+
     /**
      * 查询指定时间点之前（含）最近的一条记录。
      *
@@ -1,166 +1,288 @@
 package com.slb.mining_backend.modules.exchange.service;
 
 import com.fasterxml.jackson.databind.JsonNode;
+import com.slb.mining_backend.common.event.MarketDataRefreshedEvent;
+import com.slb.mining_backend.common.job.ClusterJob;
+import com.slb.mining_backend.common.job.JobCoordinator;
+import com.slb.mining_backend.modules.exchange.config.ExchangeRateProperties;
+import com.slb.mining_backend.modules.exchange.domain.ExchangeRateSnapshot;
 import com.slb.mining_backend.modules.exchange.entity.ExchangeRate;
 import com.slb.mining_backend.modules.exchange.mapper.ExchangeRateMapper;
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.reactive.function.client.WebClientResponseException;
 import org.springframework.util.StringUtils;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.time.Duration;
 import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
-import java.util.concurrent.atomic.AtomicReference;
-import java.util.Map;
 
 /**
- * 服务：定时刷新并缓存 XMR、USDT 等汇率。
+ * 服务：定时刷新并缓存 XMR、USDT、CFX、RVN 等汇率。
  *
- * 本服务会周期性调用第三方公开 API 获取 XMR 对 CNY、USD 的价格，以及 USDT 对 CNY 的价格。
- * 如调用失败，将保留最近一次成功获取的值。每次刷新也会将最新汇率快照存入数据库。
+ * - 所有币种在一次 CoinGecko 请求中拉取，刷新在后台线程执行，定时任务线程与读取方都不等待外部 API；
+ * - 汇率以不可变快照（{@link ExchangeRateSnapshot}）整体发布，读取只读一个 volatile 引用，无锁；
+ * - 快照过期（超过 stale-after-ms 未刷新）时，读取方先拿到当前值，同时触发一次后台刷新（stale-while-revalidate）；
+ * - 启动时从数据库加载各交易对最近一次的值预热快照，重启后不再出现汇率为空、逐个回查数据库的窗口；
+ * - 仅在价格变化超过阈值或到达检查点间隔时写入 exchange_rates；
+ * - 多节点部署时只有持有租约的节点调用外部 API，其余节点从数据库加载最新快照。
  */
 @Service
 @Slf4j
 public class ExchangeRateService {
 
+    static final List<String> TRACKED_SYMBOLS = List.of(
+            "XMR/CNY", "XMR/USDT", "USDT/CNY", "CFX/CNY", "CFX/USDT", "CFX/XMR", "RVN/XMR");
+
+    private static final ZoneId BJT = ZoneId.of("Asia/Shanghai");
+    private static final String SOURCE_COINGECKO = "CoinGecko";
+    private static final String SOURCE_DERIVED_CNY = "Derived(CNY)";
+
     private final ExchangeRateMapper exchangeRateMapper;
+    private final ApplicationEventPublisher eventPublisher;
+    private final JobCoordinator jobCoordinator;
+    private final ExchangeRateProperties properties;
     private final WebClient webClient;
 
-    // 缓存的价格
-    private final AtomicReference<BigDecimal> xmrToCny = new AtomicReference<>(BigDecimal.ZERO);
-    private final AtomicReference<BigDecimal> xmrToUsdt = new AtomicReference<>(BigDecimal.ZERO);
-    private final AtomicReference<BigDecimal> usdtToCny = new AtomicReference<>(BigDecimal.ONE);
-    private final AtomicReference<BigDecimal> cfxToCny = new AtomicReference<>(BigDecimal.ZERO);
-    private final AtomicReference<BigDecimal> cfxToUsdt = new AtomicReference<>(BigDecimal.ZERO);
+    private volatile ExchangeRateSnapshot snapshot = ExchangeRateSnapshot.EMPTY;
+    private volatile long lastRevalidatedAt = 0L;
+    private final AtomicBoolean revalidating = new AtomicBoolean(false);
+    // 各交易对最近一次落库的记录（价格 + 时间），用于判断是否需要再次写库
+    private final Map<String, ExchangeRate> lastPersisted = new ConcurrentHashMap<>();
     private final AtomicLong coinGeckoCooldownUntil = new AtomicLong(0L);
     private final AtomicInteger coinGecko429Count = new AtomicInteger(0);
 
     private static final long COINGECKO_BASE_COOLDOWN_MS = 30_000L;
     private static final long COINGECKO_MAX_COOLDOWN_MS = 10 * 60_000L;
 
-    @Value("${app.external-api.cfx-rate-url:https://api.coingecko.com/api/v3/simple/price?ids=conflux-token&vs_currencies=cny,usd}")
-    private String cfxRateUrl;
-
-    public ExchangeRateService(ExchangeRateMapper exchangeRateMapper) {
+    public ExchangeRateService(ExchangeRateMapper exchangeRateMapper,
+                               ApplicationEventPublisher eventPublisher,
+                               JobCoordinator jobCoordinator,
+                               ExchangeRateProperties properties) {
         this.exchangeRateMapper = exchangeRateMapper;
+        this.eventPublisher = eventPublisher;
+        this.jobCoordinator = jobCoordinator;
+        this.properties = properties;
         this.webClient = WebClient.builder()
                 .defaultHeader("User-Agent", "MiningBackend/1.0")
                 .build();
     }
 
     /**
-     * 每 5 分钟刷新一次汇率。
+     * 启动预热：从数据库加载各交易对最近一次的值。数据库不可用时保持空快照，等待首次刷新。
+     */
+    @PostConstruct
+    void warmUp() {
+        try {
+            reloadStoredRates();
+            if (snapshot.version() > 0) {
+                lastRevalidatedAt = System.currentTimeMillis();
+            }
+            log.info("Exchange rate snapshot warmed from database (version={}, symbols={})",
+                    snapshot.version(), snapshot.rates().keySet());
+        } catch (RuntimeException ex) {
+            log.warn("Failed to warm exchange rate snapshot from database: {}", ex.getMessage());
+        }
+    }
+
+    /**
+     * 每 5 分钟触发一次后台刷新（不阻塞定时任务线程）。
      * 如果获取失败，则保持上一次的值。
+     * 汇率有变化时发布 MarketDataRefreshedEvent，依赖汇率的缓存据此失效。
+     * 每个节点都要更新内存中的汇率，因此按节点调度，只把外部 API 调用放在集群租约内。
      */
-    @Scheduled(fixedRate = 300000)
+    @Scheduled(fixedRateString = "${app.exchange.rates.refresh-interval-ms:300000}")
+    @ClusterJob(scope = ClusterJob.Scope.NODE)
     public void refreshRates() {
-        refreshXmrRates();
-        refreshUsdtRates();
-        refreshCfxRates();
+        revalidateAsync();
     }
 
-    private void refreshXmrRates() {
-        JsonNode node = fetchCoinGeckoJson(
-                "https://api.coingecko.com/api/v3/simple/price?ids=monero&vs_currencies=cny,usd",
-                "XMR");
-        if (node != null && node.has("monero")) {
-            JsonNode monero = node.get("monero");
-            if (monero.has("cny")) {
-                BigDecimal cny = new BigDecimal(monero.get("cny").asText());
-                xmrToCny.set(cny);
-                // 存入数据库
-                ExchangeRate rate = new ExchangeRate();
-                rate.setSymbol("XMR/CNY");
-                rate.setPx(cny);
-                rate.setSource("CoinGecko");
-                exchangeRateMapper.insert(rate);
-            }
-            if (monero.has("usd")) {
-                BigDecimal usd = new BigDecimal(monero.get("usd").asText());
-                // will compute xmr/usdt later after usdt/usd available
-                // temporarily store in atomic
-                // we compute xmrToUsdt in refreshUsdtRates where we know usdt/usd
-                xmrToUsdt.set(usd);
+    /**
+     * 在后台线程刷新一次；已有刷新在进行时直接返回（同一时刻最多一个刷新）。
+     */
+    void revalidateAsync() {
+        if (!revalidating.compareAndSet(false, true)) {
+            return;
+        }
+        Mono.fromRunnable(this::revalidate)
+                .subscribeOn(Schedulers.boundedElastic())
+                .doFinally(signal -> revalidating.set(false))
+                .subscribe(null, ex -> log.warn("Exchange rate refresh failed: {}", ex.getMessage()));
+    }
+
+    void revalidate() {
+        long version = snapshot.version();
+        try {
+            boolean fetched = jobCoordinator.runExclusive("ExchangeRateService.refreshRates", this::fetchRates);
+            if (!fetched) {
+                reloadStoredRates();
             }
+        } finally {
+            lastRevalidatedAt = System.currentTimeMillis();
+        }
+        if (snapshot.version() != version) {
+            eventPublisher.publishEvent(new MarketDataRefreshedEvent("exchange-rates"));
         }
     }
 
-    private void refreshUsdtRates() {
-        JsonNode node = fetchCoinGeckoJson(
-                "https://api.coingecko.com/api/v3/simple/price?ids=tether&vs_currencies=cny,usd",
-                "USDT");
-        if (node != null && node.has("tether")) {
-            JsonNode tether = node.get("tether");
-            BigDecimal cny = tether.has("cny") ? new BigDecimal(tether.get("cny").asText()) : BigDecimal.ZERO;
-            BigDecimal usd = tether.has("usd") ? new BigDecimal(tether.get("usd").asText()) : BigDecimal.ONE;
-            if (cny.compareTo(BigDecimal.ZERO) > 0) {
-                usdtToCny.set(cny);
-                ExchangeRate rate = new ExchangeRate();
-                rate.setSymbol("USDT/CNY");
-                rate.setPx(cny);
-                rate.setSource("CoinGecko");
-                exchangeRateMapper.insert(rate);
+    private void fetchRates() {
+        JsonNode node = fetchCoinGeckoJson(properties.getUrl(), "exchange");
+        if (node != null) {
+            applyQuotes(node);
+        }
+    }
+
+    /**
+     * 解析合并请求的响应：更新快照，并把变化的交易对写库。
+     */
+    void applyQuotes(JsonNode root) {
+        Map<String, BigDecimal> current = snapshot.rates();
+        Map<String, BigDecimal> fresh = new LinkedHashMap<>();
+
+        BigDecimal xmrCny = readPrice(root, "monero", "cny");
+        BigDecimal xmrUsd = readPrice(root, "monero", "usd");
+        BigDecimal usdtCny = readPrice(root, "tether", "cny");
+        BigDecimal usdtUsd = readPrice(root, "tether", "usd");
+        BigDecimal cfxCny = readPrice(root, "conflux-token", "cny");
+        if (cfxCny == null) {
+            cfxCny = readPrice(root, "conflux", "cny");
+        }
+        BigDecimal rvnUsd = readPrice(root, "ravencoin", "usd");
+
+        putIfPositive(fresh, "XMR/CNY", xmrCny);
+        putIfPositive(fresh, "USDT/CNY", usdtCny);
+        if (isPositive(xmrUsd)) {
+            // XMR/USDT = XMR/USD ÷ USDT/USD（缺少 USDT/USD 时按 1 计）
+            BigDecimal usdtUsdRate = isPositive(usdtUsd) ? usdtUsd : BigDecimal.ONE;
+            fresh.put("XMR/USDT", xmrUsd.divide(usdtUsdRate, 8, RoundingMode.HALF_UP));
+        }
+        if (isPositive(cfxCny)) {
+            fresh.put("CFX/CNY", cfxCny);
+            BigDecimal usdtCnyRate = isPositive(usdtCny) ? usdtCny : current.get("USDT/CNY");
+            if (isPositive(usdtCnyRate)) {
+                fresh.put("CFX/USDT", cfxCny.divide(usdtCnyRate, 8, RoundingMode.HALF_UP));
             }
-            // 计算 XMR/USDT：先获取之前缓存的 XMR/USD，再除以 USDT/USD
-            BigDecimal xmrUsd = xmrToUsdt.get();
-            if (xmrUsd != null && usd.compareTo(BigDecimal.ZERO) > 0) {
-                BigDecimal xmrUsdt = xmrUsd.divide(usd, 8, RoundingMode.HALF_UP);
-                xmrToUsdt.set(xmrUsdt);
-                ExchangeRate rate = new ExchangeRate();
-                rate.setSymbol("XMR/USDT");
-                rate.setPx(xmrUsdt);
-                rate.setSource("CoinGecko");
-                exchangeRateMapper.insert(rate);
+            BigDecimal xmrCnyRate = isPositive(xmrCny) ? xmrCny : current.get("XMR/CNY");
+            if (isPositive(xmrCnyRate)) {
+                fresh.put("CFX/XMR", cfxCny.divide(xmrCnyRate, 8, RoundingMode.HALF_UP));
             }
         }
+        if (isPositive(rvnUsd) && isPositive(xmrUsd)) {
+            fresh.put("RVN/XMR", rvnUsd.divide(xmrUsd, 12, RoundingMode.HALF_UP));
+        }
+        if (fresh.isEmpty()) {
+            log.warn("Exchange rate response contained no usable prices");
+            return;
+        }
+        publish(fresh, Instant.now());
+        persistChanged(fresh);
     }
 
-    private void refreshCfxRates() {
-        if (!StringUtils.hasText(cfxRateUrl)) {
-            return;
+    /**
+     * 其他节点本周期已拉取（或启动预热）：一次查询加载各交易对最近一次快照（缺失或非正数时保留当前值）。
+     */
+    private void reloadStoredRates() {
+        Map<String, ExchangeRate> latest = new HashMap<>();
+        for (ExchangeRate row : exchangeRateMapper.selectLatestBySymbols(TRACKED_SYMBOLS)) {
+            if (row == null || !isPositive(row.getPx())) {
+                continue;
+            }
+            latest.merge(row.getSymbol(), row, (a, b) -> compareId(a, b) >= 0 ? a : b);
         }
-        JsonNode node = fetchCoinGeckoJson(cfxRateUrl, "CFX");
-        JsonNode cfx = resolveCfxNode(node);
-        if (cfx == null) {
+        if (latest.isEmpty()) {
             return;
         }
-        if (cfx.has("cny")) {
-            BigDecimal cny = new BigDecimal(cfx.get("cny").asText());
-            cfxToCny.set(cny);
-            ExchangeRate rate = new ExchangeRate();
-            rate.setSymbol("CFX/CNY");
-            rate.setPx(cny);
-            rate.setSource("CoinGecko");
-            exchangeRateMapper.insert(rate);
-        }
-        BigDecimal cnyRate = cfxToCny.get();
-        BigDecimal usdtCny = usdtToCny.get();
-        if (isPositive(cnyRate) && isPositive(usdtCny)) {
-            BigDecimal cfxUsdt = cnyRate.divide(usdtCny, 8, RoundingMode.HALF_UP);
-            cfxToUsdt.set(cfxUsdt);
-            ExchangeRate rate = new ExchangeRate();
-            rate.setSymbol("CFX/USDT");
-            rate.setPx(cfxUsdt);
-            rate.setSource("CoinGecko");
-            exchangeRateMapper.insert(rate);
-        }
-        BigDecimal xmrCny = xmrToCny.get();
-        if (isPositive(cnyRate) && isPositive(xmrCny)) {
-            BigDecimal cfxXmr = cnyRate.divide(xmrCny, 8, RoundingMode.HALF_UP);
+        Map<String, BigDecimal> stored = new HashMap<>();
+        LocalDateTime newest = null;
+        for (ExchangeRate row : latest.values()) {
+            stored.put(row.getSymbol(), row.getPx());
+            lastPersisted.put(row.getSymbol(), row);
+            if (row.getCreatedTime() != null && (newest == null || row.getCreatedTime().isAfter(newest))) {
+                newest = row.getCreatedTime();
+            }
+        }
+        publish(stored, newest == null ? Instant.now() : newest.atZone(BJT).toInstant());
+    }
+
+    /**
+     * 合并到当前快照；只有价格确有变化时才递增版本并发布新快照。
+     */
+    private synchronized void publish(Map<String, BigDecimal> updates, Instant asOf) {
+        ExchangeRateSnapshot current = snapshot;
+        Map<String, BigDecimal> merged = new HashMap<>(current.rates());
+        boolean changed = false;
+        for (Map.Entry<String, BigDecimal> entry : updates.entrySet()) {
+            BigDecimal previous = merged.put(entry.getKey(), entry.getValue());
+            if (previous == null || previous.compareTo(entry.getValue()) != 0) {
+                changed = true;
+            }
+        }
+        long version = changed ? current.version() + 1 : current.version();
+        Instant latest = asOf.isAfter(current.asOf()) ? asOf : current.asOf();
+        snapshot = new ExchangeRateSnapshot(version, latest, merged);
+    }
+
+    private void persistChanged(Map<String, BigDecimal> fresh) {
+        LocalDateTime now = LocalDateTime.now(BJT);
+        List<ExchangeRate> records = new ArrayList<>();
+        for (Map.Entry<String, BigDecimal> entry : fresh.entrySet()) {
+            if (!shouldPersist(lastPersisted.get(entry.getKey()), entry.getValue(), now)) {
+                continue;
+            }
             ExchangeRate rate = new ExchangeRate();
-            rate.setSymbol("CFX/XMR");
-            rate.setPx(cfxXmr);
-            rate.setSource("Derived(CNY)");
-            exchangeRateMapper.insert(rate);
+            rate.setSymbol(entry.getKey());
+            rate.setPx(entry.getValue());
+            rate.setSource("CFX/XMR".equals(entry.getKey()) ? SOURCE_DERIVED_CNY : SOURCE_COINGECKO);
+            rate.setCreatedTime(now);
+            records.add(rate);
+        }
+        if (records.isEmpty()) {
+            return;
+        }
+        try {
+            exchangeRateMapper.batchInsert(records);
+            for (ExchangeRate record : records) {
+                lastPersisted.put(record.getSymbol(), record);
+            }
+        } catch (RuntimeException ex) {
+            log.warn("Failed to persist exchange rates {}: {}",
+                    records.stream().map(ExchangeRate::getSymbol).toList(), ex.getMessage());
+        }
+    }
+
+    private boolean shouldPersist(ExchangeRate last, BigDecimal px, LocalDateTime now) {
+        if (last == null || !isPositive(last.getPx()) || last.getCreatedTime() == null) {
+            return true;
+        }
+        if (!last.getCreatedTime().plusMinutes(Math.max(1, properties.getCheckpointMinutes())).isAfter(now)) {
+            return true;
+        }
+        if (properties.getMinChangeRatio() <= 0d) {
+            return px.compareTo(last.getPx()) != 0;
         }
+        BigDecimal ratio = px.subtract(last.getPx()).abs().divide(last.getPx(), 12, RoundingMode.HALF_UP);
+        return ratio.compareTo(BigDecimal.valueOf(properties.getMinChangeRatio())) > 0;
     }
 
     private JsonNode fetchCoinGeckoJson(String url, String label) {
@@ -178,6 +300,7 @@ public class ExchangeRateService {
                     .uri(url)
                     .retrieve()
                     .bodyToMono(JsonNode.class)
+                    .timeout(Duration.ofMillis(Math.max(1_000L, properties.getRequestTimeoutMs())))
                     .block();
             coinGecko429Count.set(0);
             return node;
@@ -227,62 +350,70 @@ public class ExchangeRateService {
         }
     }
 
-    private JsonNode resolveCfxNode(JsonNode root) {
+    private BigDecimal readPrice(JsonNode root, String coinId, String vs) {
         if (root == null || root.isMissingNode()) {
             return null;
         }
-        JsonNode node = root.get("conflux-token");
-        if (node != null && !node.isMissingNode()) {
-            return node;
+        JsonNode coin = root.get(coinId);
+        if (coin == null || coin.isMissingNode()) {
+            return null;
         }
-        node = root.get("conflux");
-        if (node != null && !node.isMissingNode()) {
-            return node;
+        JsonNode priceNode = coin.get(vs);
+        if (priceNode == null || priceNode.isMissingNode() || priceNode.isNull()) {
+            return null;
         }
-        java.util.Iterator<String> fields = root.fieldNames();
-        if (fields.hasNext()) {
-            String name = fields.next();
-            JsonNode fallback = root.get(name);
-            if (fallback != null && !fallback.isMissingNode()) {
-                return fallback;
-            }
+        try {
+            return new BigDecimal(priceNode.asText());
+        } catch (NumberFormatException ex) {
+            return null;
         }
-        return null;
+    }
+
+    /**
+     * 读取当前快照（无锁）；快照过期时触发后台刷新，本次仍返回当前值。
+     */
+    public ExchangeRateSnapshot getSnapshot() {
+        ExchangeRateSnapshot current = snapshot;
+        long staleAfterMs = Math.max(properties.getRefreshIntervalMs(), properties.getStaleAfterMs());
+        if (System.currentTimeMillis() - lastRevalidatedAt > staleAfterMs) {
+            revalidateAsync();
+        }
+        return current;
     }
 
     /**
      * 获取最新 XMR 对 CNY 的汇率
      */
     public BigDecimal getXmrToCnyRate() {
-        return xmrToCny.get();
+        return getSnapshot().rateOrDefault("XMR/CNY", BigDecimal.ZERO);
     }
 
     /**
      * 获取最新 XMR 对 USDT 的汇率
      */
     public BigDecimal getXmrToUsdtRate() {
-        return xmrToUsdt.get();
+        return getSnapshot().rateOrDefault("XMR/USDT", BigDecimal.ZERO);
     }
 
     /**
      * 获取最新 USDT 对 CNY 的汇率
      */
     public BigDecimal getUsdtToCnyRate() {
-        return usdtToCny.get();
+        return getSnapshot().rateOrDefault("USDT/CNY", BigDecimal.ONE);
     }
 
     /**
      * 获取最新 CFX 对 CNY 的汇率
      */
     public BigDecimal getCfxToCnyRate() {
-        return cfxToCny.get();
+        return getSnapshot().rateOrDefault("CFX/CNY", BigDecimal.ZERO);
     }
 
     /**
      * 获取最新 CFX 对 USDT 的汇率
      */
     public BigDecimal getCfxToUsdtRate() {
-        return cfxToUsdt.get();
+        return getSnapshot().rateOrDefault("CFX/USDT", BigDecimal.ZERO);
     }
 
     /**
@@ -294,6 +425,7 @@ public class ExchangeRateService {
 
     /**
      * 根据 symbol 获取最近一条汇率（实时口径）。
+     * 快照内维护的交易对只读内存；其他交易对回查数据库最近一条记录。
      *
      * @param symbol 比如 "XMR/CNY"
      */
@@ -301,21 +433,14 @@ public class ExchangeRateService {
         if (symbol == null || symbol.isBlank()) {
             return BigDecimal.ZERO;
         }
-        BigDecimal latest;
-        switch (symbol) {
-            case "XMR/CNY" -> latest = xmrToCny.get();
-            case "XMR/USDT" -> latest = xmrToUsdt.get();
-            case "USDT/CNY" -> latest = usdtToCny.get();
-            case "CFX/CNY" -> latest = cfxToCny.get();
-            case "CFX/USDT" -> latest = cfxToUsdt.get();
-            default -> latest = null;
-        }
-        BigDecimal cached = isPositive(latest) ? latest : null;
-        if (cached != null) {
+        BigDecimal cached = getSnapshot().rate(symbol);
+        if (isPositive(cached)) {
             return cached;
         }
-        java.util.Optional<com.slb.mining_backend.modules.exchange.entity.ExchangeRate> latestRecord =
-                exchangeRateMapper.selectLatestBySymbol(symbol);
+        if (TRACKED_SYMBOLS.contains(symbol)) {
+            return BigDecimal.ZERO;
+        }
+        Optional<ExchangeRate> latestRecord = exchangeRateMapper.selectLatestBySymbol(symbol);
         if (latestRecord.isPresent() && isPositive(latestRecord.get().getPx())) {
             return latestRecord.get().getPx();
         }
@@ -327,15 +452,28 @@ public class ExchangeRateService {
      * 用于展示页面，保证所有汇率在同一时刻被读取
      */
     public Map<String, BigDecimal> getAllExchangeRates() {
-        Map<String, BigDecimal> rates = new java.util.LinkedHashMap<>();
-        rates.put("XMR/CNY", xmrToCny.get());
-        rates.put("XMR/USDT", xmrToUsdt.get());
-        rates.put("USDT/CNY", usdtToCny.get());
-        rates.put("CFX/CNY", cfxToCny.get());
-        rates.put("CFX/USDT", cfxToUsdt.get());
+        ExchangeRateSnapshot current = getSnapshot();
+        Map<String, BigDecimal> rates = new LinkedHashMap<>();
+        rates.put("XMR/CNY", current.rateOrDefault("XMR/CNY", BigDecimal.ZERO));
+        rates.put("XMR/USDT", current.rateOrDefault("XMR/USDT", BigDecimal.ZERO));
+        rates.put("USDT/CNY", current.rateOrDefault("USDT/CNY", BigDecimal.ONE));
+        rates.put("CFX/CNY", current.rateOrDefault("CFX/CNY", BigDecimal.ZERO));
+        rates.put("CFX/USDT", current.rateOrDefault("CFX/USDT", BigDecimal.ZERO));
         return rates;
     }
 
+    private static void putIfPositive(Map<String, BigDecimal> target, String symbol, BigDecimal value) {
+        if (value != null && value.compareTo(BigDecimal.ZERO) > 0) {
+            target.put(symbol, value);
+        }
+    }
+
+    private static int compareId(ExchangeRate a, ExchangeRate b) {
+        long left = a.getId() == null ? 0L : a.getId();
+        long right = b.getId() == null ? 0L : b.getId();
+        return Long.compare(left, right);
+    }
+
     private boolean isPositive(BigDecimal value) {
         return value != null && value.compareTo(BigDecimal.ZERO) > 0;
     }
@@ -5,6 +5,7 @@ import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 
 import java.math.BigDecimal;
+import java.util.List;
 
 @Mapper
 public interface CommissionRecordMapper {
@@ -15,6 +16,11 @@ public interface CommissionRecordMapper {
      */
     void insert(CommissionRecord commissionRecord);
 
+    /**
+     * 多行批量插入邀请佣金记录。
+     */
+    int batchInsert(@Param("records") List<CommissionRecord> records);
+
     /**
      * 汇总指定用户作为邀请人获得的佣金总额（CAL）。
      */
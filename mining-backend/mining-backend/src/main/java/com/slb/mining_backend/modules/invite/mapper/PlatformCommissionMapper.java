@@ -5,11 +5,14 @@ import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 
 import java.math.BigDecimal;
+import java.util.List;
 
 @Mapper
 public interface PlatformCommissionMapper {
     void insert(PlatformCommission platformCommission);
 
+    int batchInsert(@Param("commissions") List<PlatformCommission> commissions);
+
     BigDecimal sumCommissionByDateRange(@Param("startTime") String startTime, @Param("endTime") String endTime);
 
     /**
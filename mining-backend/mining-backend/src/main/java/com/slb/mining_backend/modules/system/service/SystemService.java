@@ -3,6 +3,7 @@ package com.slb.mining_backend.modules.system.service;
 import com.slb.mining_backend.common.security.CustomUserDetails;
 import com.slb.mining_backend.common.vo.PageVo;
 import com.slb.mining_backend.modules.device.mapper.DeviceMapper;
+import com.slb.mining_backend.modules.device.service.DeviceService;
 import com.slb.mining_backend.modules.earnings.service.MarketDataService;
 import com.slb.mining_backend.modules.system.dto.FeedbackSubmitDto;
 import com.slb.mining_backend.modules.system.entity.Announcement;
@@ -23,13 +24,15 @@ public class SystemService {
     private final UserMapper userMapper;
     private final DeviceMapper deviceMapper;
     private final MarketDataService marketDataService;
+    private final DeviceService deviceService;
 
-    public SystemService(AnnouncementMapper announcementMapper, FeedbackMapper feedbackMapper, UserMapper userMapper, DeviceMapper deviceMapper, MarketDataService marketDataService) {
+    public SystemService(AnnouncementMapper announcementMapper, FeedbackMapper feedbackMapper, UserMapper userMapper, DeviceMapper deviceMapper, MarketDataService marketDataService, DeviceService deviceService) {
         this.announcementMapper = announcementMapper;
         this.feedbackMapper = feedbackMapper;
         this.userMapper = userMapper;
         this.deviceMapper = deviceMapper;
         this.marketDataService = marketDataService;
+        this.deviceService = deviceService;
     }
 
 
@@ -54,7 +57,7 @@ public class SystemService {
     public SystemStatusVo getSystemStatus() {
         return SystemStatusVo.builder()
                 .totalDevices(deviceMapper.countTotalDevices())
-                .onlineDevices(deviceMapper.countByUserIdAndStatus(null, 1))
+                .onlineDevices(deviceService.getOnlineDeviceCount())
                 .totalUsers(userMapper.countTotalUsers())
                 .activeUsers(userMapper.countActiveUsers())
                 .totalCpuHashrate(deviceMapper.sumTotalCpuHashrate())
@@ -0,0 +1,19 @@
+package com.slb.mining_backend.modules.users.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * 用户余额增量：calAmount 同时计入 cal_balance 与 total_earnings，cnyAmount 计入 cash_balance。
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserBalanceDelta {
+    private Long userId;
+    private BigDecimal calAmount;
+    private BigDecimal cnyAmount;
+}
@@ -1,11 +1,13 @@
 package com.slb.mining_backend.modules.users.mapper;
 
 import com.slb.mining_backend.modules.users.entity.User;
+import com.slb.mining_backend.modules.users.dto.UserBalanceDelta;
 import com.slb.mining_backend.modules.users.dto.WorkerUserBinding;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 
 import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -36,6 +38,11 @@ public interface UserMapper {
      */
     Optional<User> selectById(@Param("id") Long id);
 
+    /**
+     * 根据ID批量查找用户（不存在的ID不返回）
+     */
+    List<User> selectByIds(@Param("ids") Collection<Long> ids);
+
     /**
      * 插入一个新用户
      *
@@ -89,6 +96,12 @@ public interface UserMapper {
 
     void updateUserWallet(@Param("userId") Long userId, @Param("calAmount") BigDecimal calAmount);
 
+    /**
+     * 批量累加结算收益：每个用户一行，等价于对每个用户执行 updateUserWallet(calAmount) + updateCashBalances(cnyAmount)。
+     * 调用方按 userId 升序传入，保证并发事务的加锁顺序一致。
+     */
+    int batchAddSettlementBalances(@Param("deltas") List<UserBalanceDelta> deltas);
+
     /**
      * 仅更新 CAL 余额（不影响累计收益）。
      */
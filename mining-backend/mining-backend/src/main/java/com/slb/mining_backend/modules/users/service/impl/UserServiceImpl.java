@@ -2,6 +2,7 @@ package com.slb.mining_backend.modules.users.service.impl;
 
 import cn.hutool.core.lang.UUID;
 import com.slb.mining_backend.common.exception.BizException;
+import com.slb.mining_backend.common.security.AuthenticatedPrincipalCache;
 import com.slb.mining_backend.common.security.CustomUserDetails;
 import com.slb.mining_backend.common.util.JwtUtil;
 import com.slb.mining_backend.modules.exchange.service.ExchangeRateService;
@@ -27,6 +28,7 @@ import com.slb.mining_backend.modules.xmr.entity.XmrPoolStats;
 import com.slb.mining_backend.modules.xmr.entity.XmrUserAddress;
 import com.slb.mining_backend.modules.xmr.mapper.XmrPoolStatsMapper;
 import com.slb.mining_backend.modules.xmr.mapper.XmrUserAddressMapper;
+import com.slb.mining_backend.modules.xmr.service.WorkerWhitelistService;
 import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -62,6 +64,8 @@ public class UserServiceImpl implements UserService {
     private final XmrPoolStatsMapper xmrPoolStatsMapper;
     private final ExchangeRateService exchangeRateService;
     private final XmrWalletProperties xmrWalletProperties;
+    private final AuthenticatedPrincipalCache principalCache;
+    private final WorkerWhitelistService workerWhitelistService;
 
     @Value("${admin.reset-password-code}")
     private String adminResetCode;
@@ -77,7 +81,9 @@ public class UserServiceImpl implements UserService {
             XmrUserAddressMapper xmrUserAddressMapper,
             XmrPoolStatsMapper xmrPoolStatsMapper,
             ExchangeRateService exchangeRateService,
-            XmrWalletProperties xmrWalletProperties
+            XmrWalletProperties xmrWalletProperties,
+            AuthenticatedPrincipalCache principalCache,
+            WorkerWhitelistService workerWhitelistService
     ) {
         this.userMapper = userMapper;
         this.passwordEncoder = passwordEncoder;
@@ -90,6 +96,8 @@ public class UserServiceImpl implements UserService {
         this.xmrPoolStatsMapper = xmrPoolStatsMapper;
         this.exchangeRateService = exchangeRateService;
         this.xmrWalletProperties = xmrWalletProperties;
+        this.principalCache = principalCache;
+        this.workerWhitelistService = workerWhitelistService;
     }
 
     @Override
@@ -172,6 +180,8 @@ public class UserServiceImpl implements UserService {
         } catch (Exception e) {
             throw new BizException("创建用户子地址失败: " + e.getMessage());
         }
+        // 新 worker 即时进入白名单（提交后推送到各节点），无需等待下一次整体重建
+        workerWhitelistService.registerWorkerAfterCommit(user.getWorkerId());
 
         // 6) 注册成功后自动登录（email + password）
         return login(new UserLoginDTO(registerDTO.getEmail(), registerDTO.getUserPassword()), request);
@@ -298,6 +308,7 @@ public class UserServiceImpl implements UserService {
 
         if (isUpdated) {
             userMapper.update(user);
+            principalCache.invalidateAfterCommit(userId);
         }
     }
 
@@ -311,6 +322,7 @@ public class UserServiceImpl implements UserService {
                 .orElseThrow(() -> new BizException("用户不存在"));
         user.setPasswordHash(passwordEncoder.encode(resetDTO.getPassword()));
         userMapper.update(user);
+        principalCache.invalidateAfterCommit(user.getId());
     }
 
     @Override
@@ -406,6 +418,7 @@ public class UserServiceImpl implements UserService {
 
         user.setPasswordHash(passwordEncoder.encode(resetDTO.getNewPassword()));
         userMapper.update(user);
+        principalCache.invalidateAfterCommit(user.getId());
     }
 
     @Override
@@ -425,6 +438,7 @@ public class UserServiceImpl implements UserService {
         if (affected <= 0) {
             throw new BizException("更新结算偏好失败，请稍后重试");
         }
+        principalCache.invalidateAfterCommit(targetUserId);
     }
 
     @Override
@@ -450,6 +464,7 @@ public class UserServiceImpl implements UserService {
         user.setAlipayName(request.getAlipayName());
         user.setAlipayAccountUpdatedAt(LocalDateTime.now());
         userMapper.update(user);
+        principalCache.invalidateAfterCommit(userId);
     }
 
     private BigDecimal safe(BigDecimal value) {
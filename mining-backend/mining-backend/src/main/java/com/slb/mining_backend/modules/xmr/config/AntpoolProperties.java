@@ -21,6 +21,10 @@ public class AntpoolProperties {
     private long workerSyncIntervalMs = 60_000L;
     private long payoutSyncIntervalMs = 300_000L;
     private int workerPageSize = 50;
+    /**
+     * 第 1 页返回总页数后，剩余分页的并发拉取数上限（不超过 app.outbound.max-concurrent-per-provider）。
+     */
+    private int workerPageConcurrency = 4;
     private int payoutPageSize = 50;
     private Limits limits = new Limits();
     private Valuation valuation = new Valuation();
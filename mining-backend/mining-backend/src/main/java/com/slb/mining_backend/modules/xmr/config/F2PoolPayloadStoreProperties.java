@@ -0,0 +1,57 @@
+package com.slb.mining_backend.modules.xmr.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * F2Pool 原始响应存储（f2pool_raw_payload）配置。
+ *
+ * 响应按 SHA-256 指纹去重（本地 LRU 命中则不再写库），正文 gzip 压缩后由后台批量写入，不占用同步任务线程；
+ * 每日按保留期清理未被业务表引用的旧响应，并把历史明文行压缩。
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "app.f2pool.payload-store")
+public class F2PoolPayloadStoreProperties {
+
+    /**
+     * 是否异步写入；关闭时在调用线程同步写库（仍压缩）。
+     */
+    private boolean asyncEnabled = true;
+
+    /**
+     * 本地指纹 LRU 容量。
+     */
+    private int fingerprintCacheSize = 10000;
+
+    /**
+     * 后台刷写间隔（毫秒）。
+     */
+    private long flushIntervalMs = 2000L;
+
+    /**
+     * 单次批量写入的最大行数。
+     */
+    private int flushBatchSize = 100;
+
+    /**
+     * 待写入积压上限；超过后新响应回退为同步写库。
+     */
+    private int maxPending = 1000;
+
+    /**
+     * 保留天数：超过且未被 f2pool_worker_snapshot / account_overview / assets_balance / payout_daily 引用的响应会被删除。
+     */
+    private int retentionDays = 14;
+
+    /**
+     * 清理/压缩单批行数。
+     */
+    private int maintenanceBatchSize = 500;
+
+    /**
+     * 清理与压缩任务的 cron。
+     */
+    private String maintenanceCron = "0 50 2 * * ?";
+}
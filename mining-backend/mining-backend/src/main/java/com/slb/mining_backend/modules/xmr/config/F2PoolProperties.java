@@ -30,6 +30,15 @@ public class F2PoolProperties {
     private int payoutHistoryLookbackDays = 7;
     private int workersPageSize = 200;
     private int workersMaxPages = 10;
+    /**
+     * worker 同步时同时处理的账户数上限。
+     */
+    private int workerSyncConcurrency = 4;
+    /**
+     * 单账户第 1 页返回 total 后，剩余分页的并发拉取数上限；
+     * 账户并发 × 分页并发不超过 app.outbound.max-concurrent-per-provider，速率仍受 limits.per-host-qps 约束。
+     */
+    private int workerPageConcurrency = 4;
     /**
      * 是否纳入 value_last_day（未支付收益）作为结算来源。
      * 关闭后只使用 payout_history（已打款到钱包的记录）。
@@ -89,6 +98,10 @@ public class F2PoolProperties {
     @Data
     public static class V2 {
         private V2Mapping mapping = new V2Mapping();
+        /**
+         * worker 列表是否使用单遍流式解析（错误信封、列表与条数一次读出）；关闭时回退为 JsonNode 树解析。
+         */
+        private boolean streamingParse = true;
         private List<String> hashrateSupportedCoins = new ArrayList<>(List.of(
                 "bitcoin", "bitcoin-cash", "litecoin", "btc", "bch", "ltc"
         ));
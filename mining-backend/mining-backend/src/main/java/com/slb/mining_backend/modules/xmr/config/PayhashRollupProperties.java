@@ -0,0 +1,35 @@
+package com.slb.mining_backend.modules.xmr.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * payhash 小时/日汇总表配置（payhash_rollup_hourly / payhash_rollup_daily）。
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "app.payhash.rollup")
+public class PayhashRollupProperties {
+
+    /**
+     * 是否在写分钟桶时同步维护汇总表，并在窗口聚合时读取汇总表。
+     */
+    private boolean enabled = true;
+
+    /**
+     * 修复任务每次按分钟明细重算的小时数（覆盖迟到数据、写汇总失败等情况）。
+     */
+    private int repairLookbackHours = 3;
+
+    /**
+     * 回填的小时数：覆盖起点晚于 N 小时之前时，修复任务从覆盖起点向前逐小时回填（每小时一个事务）；
+     * 覆盖起点之前的窗口仍按分钟明细聚合。
+     */
+    private int backfillHours = 72;
+
+    /**
+     * 修复任务 cron。
+     */
+    private String repairCron = "0 7/15 * * * ?";
+}
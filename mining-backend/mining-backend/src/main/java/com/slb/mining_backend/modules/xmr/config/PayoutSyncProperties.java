@@ -0,0 +1,42 @@
+package com.slb.mining_backend.modules.xmr.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 入账（c3pool block_payments / F2Pool payout / Antpool payout）增量同步配置。
+ *
+ * 每个来源与地址持久化一个高水位（最大入账时间），每轮只翻页到高水位减去 overlap 为止；
+ * 窗口内的候选入账用一次 tx_hash IN (...) 去重，新行批量写入。
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "app.payout-sync")
+public class PayoutSyncProperties {
+
+    /**
+     * 是否按高水位增量同步；关闭时每轮按原有窗口全量拉取（仍批量去重写入）。
+     */
+    private boolean incremental = true;
+
+    /**
+     * 高水位回看分钟数：容忍上游延迟出现的入账与同秒入账，窗口内的重复行由批量去重过滤。
+     */
+    private int overlapMinutes = 180;
+
+    /**
+     * c3pool block_payments 每页条数（endpoint 模板包含 ${page}/${limit} 时生效）。
+     */
+    private int walletPageSize = 100;
+
+    /**
+     * 单轮最多翻页数（首次同步、无高水位时的上限）。
+     */
+    private int maxPages = 5;
+
+    /**
+     * 单条 IN 查询/批量插入的最大行数。
+     */
+    private int batchSize = 500;
+}
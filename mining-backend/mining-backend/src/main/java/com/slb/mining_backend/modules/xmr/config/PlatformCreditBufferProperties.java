@@ -0,0 +1,33 @@
+package com.slb.mining_backend.modules.xmr.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 平台账户（admin）与 unclaimed 账户入账的缓冲配置。
+ *
+ * 开启后，结算事务对这两个热点账户只追加一条待入账记录（settlement_platform_credits），
+ * 不再更新 users 行；待入账记录在每个结算窗口结束时（及定时兜底）合并为每个账户一次余额更新。
+ * 资产流水仍逐笔写入，审计口径不变；两次合并之间热点账户的余额会有短暂滞后。
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "app.settlement.platform-credit")
+public class PlatformCreditBufferProperties {
+
+    /**
+     * 是否缓冲平台/unclaimed 账户入账；关闭时在结算事务内直接更新余额（旧逻辑）。
+     */
+    private boolean enabled = true;
+
+    /**
+     * 兜底合并间隔（毫秒）：覆盖非整点结算入口（F2Pool/Antpool 小时结算、payhash 纠偏）写入的待入账记录。
+     */
+    private long flushIntervalMs = 60000L;
+
+    /**
+     * 单次合并最多认领的待入账记录数。
+     */
+    private int flushBatchSize = 5000;
+}
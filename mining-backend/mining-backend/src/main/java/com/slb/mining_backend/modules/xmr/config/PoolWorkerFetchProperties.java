@@ -0,0 +1,33 @@
+package com.slb.mining_backend.modules.xmr.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * PoolPayhashSyncService 并发拉取 worker 列表的配置。
+ *
+ * 各 subaddress 并发拉取（上限 concurrency），单个 subaddress 超过 address-deadline-ms 视为掉队，
+ * 使用最近一次 worker 快照兜底；整轮超过 sync-deadline-ms 时未完成的 subaddress 一律按掉队处理，保证分钟桶按时落库。
+ * 请求速率仍受 app.xmr.pool.providers[].limits.perHostReqPer15Min 约束（按 host 分配许可）。
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "app.payhash.pool-fetch")
+public class PoolWorkerFetchProperties {
+
+    /**
+     * 同时在途的 subaddress 请求数上限。
+     */
+    private int concurrency = 8;
+
+    /**
+     * 单个 subaddress 的截止时间（毫秒），包含等待限流许可的时间。
+     */
+    private long addressDeadlineMs = 20000L;
+
+    /**
+     * 整轮拉取的截止时间（毫秒）；须小于分钟桶周期。
+     */
+    private long syncDeadlineMs = 45000L;
+}
@@ -0,0 +1,38 @@
+package com.slb.mining_backend.modules.xmr.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 矿池 share 累积管线配置。
+ *
+ * 开启后，share 先在本节点内存中按（分钟桶, workerId）累加（LongAdder），
+ * 每隔 flush-interval-ms 用一次 Redis 管道把各桶增量 HINCRBY 到 pool:payhash:{bucket}；
+ * 白名单校验改用本地快照，不再逐条 SISMEMBER。
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "app.payhash.share-pipeline")
+public class SharePipelineProperties {
+
+    /**
+     * 是否启用内存累积 + 管道刷写；关闭时每条 share 直接写 Redis（旧逻辑）。
+     */
+    private boolean enabled = true;
+
+    /**
+     * 内存累积刷写到 Redis 的间隔（毫秒）；须明显小于 PayhashIngestionService 的分钟桶落库周期。
+     */
+    private long flushIntervalMs = 2000L;
+
+    /**
+     * 分钟桶 Redis key 的过期时间（分钟）。
+     */
+    private int bucketTtlMinutes = 60;
+
+    /**
+     * HTTP 批量上报单次最多条数。
+     */
+    private int maxBatchSize = 10000;
+}
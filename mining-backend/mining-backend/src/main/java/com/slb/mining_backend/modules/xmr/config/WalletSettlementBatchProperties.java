@@ -0,0 +1,43 @@
+package com.slb.mining_backend.modules.xmr.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 钱包入账小时结算的批量/分片配置。
+ *
+ * 开启后，同一小时窗口内的一批入账先在内存中算出每个用户的分账结果，
+ * 再按用户分片并行写库：每个分片一个事务，收益明细多行插入、每个用户一次余额更新、每个（用户, 日期）一次日统计累加。
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "app.settlement.batch")
+public class WalletSettlementBatchProperties {
+
+    /**
+     * 是否启用批量分片结算；关闭时逐笔入账单独事务结算（旧逻辑）。
+     * 开启前需先执行 db/migration/create_xmr_wallet_settlement_marks.sql。
+     */
+    private boolean enabled = false;
+
+    /**
+     * 逻辑分片数（按邀请人/用户ID取模）；完成标记按 (tx_hash, user_id) 记录，调整分片数或邀请人变化不影响重试。
+     */
+    private int shardCount = 8;
+
+    /**
+     * 并行执行分片的线程数。
+     */
+    private int parallelism = 4;
+
+    /**
+     * 单条多行 SQL 的最大行数（收益明细、佣金、流水、用户查询等）。
+     */
+    private int writeChunkSize = 500;
+
+    /**
+     * 分片事务遇到锁冲突（死锁/锁等待超时）时的最大尝试次数。
+     */
+    private int maxShardAttempts = 3;
+}
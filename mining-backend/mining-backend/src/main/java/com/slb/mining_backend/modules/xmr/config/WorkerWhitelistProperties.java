@@ -0,0 +1,34 @@
+package com.slb.mining_backend.modules.xmr.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * worker 白名单配置：Redis set（pool:valid_workers）的重建周期与各节点本地快照的刷新方式。
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "app.payhash.whitelist")
+public class WorkerWhitelistProperties {
+
+    /**
+     * 从数据库重建 Redis 白名单的间隔（毫秒），集群内只由持有租约的节点执行。
+     */
+    private long refreshIntervalMs = 300000L;
+
+    /**
+     * 各节点从数据库重新加载本地快照的兜底间隔（毫秒），覆盖丢失的 pub/sub 消息。
+     */
+    private long reloadIntervalMs = 300000L;
+
+    /**
+     * 是否通过 Redis pub/sub 推送白名单变更。
+     */
+    private boolean redisFanout = true;
+
+    /**
+     * 重建 Redis set 时单条 SADD 的最大成员数。
+     */
+    private int rebuildChunkSize = 1000;
+}
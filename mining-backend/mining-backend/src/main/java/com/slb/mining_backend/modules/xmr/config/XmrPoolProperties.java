@@ -73,6 +73,13 @@ public class XmrPoolProperties {
     @Data
     public static class Limits {
         private int perHostReqPer15Min = 60;
-        private int minRefreshSecPerAddress = 90;
+        /**
+         * 同一 (endpoint, address) 复用共享缓存的秒数；须短于 app.payhash.sync-interval-ms，超出时按采集周期的一半截断。
+         */
+        private int minRefreshSecPerAddress = 30;
+        /**
+         * 上游失败时允许返回的缓存响应最大年龄（秒）。
+         */
+        private int maxStaleSec = 120;
     }
 }
@@ -0,0 +1,72 @@
+package com.slb.mining_backend.modules.xmr.controller;
+
+import com.slb.mining_backend.common.api.ApiResponse;
+import com.slb.mining_backend.common.exception.BizException;
+import com.slb.mining_backend.config.InternalApiProperties;
+import com.slb.mining_backend.modules.xmr.config.SharePipelineProperties;
+import com.slb.mining_backend.modules.xmr.dto.PoolShareBatchReqDto;
+import com.slb.mining_backend.modules.xmr.service.ShareAggregatorService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.util.StringUtils;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+@RestController
+@Slf4j
+@RequestMapping("/api/v1/internal/pool")
+@Tag(name = "内部/矿池 share", description = "矿池网关批量上报 share（服务间调用，使用 X-Internal-Api-Key 鉴权）")
+public class PoolShareController {
+
+    private final ShareAggregatorService shareAggregatorService;
+    private final SharePipelineProperties properties;
+    private final byte[] apiKey;
+
+    public PoolShareController(ShareAggregatorService shareAggregatorService,
+                               SharePipelineProperties properties,
+                               InternalApiProperties internalApiProperties) {
+        this.shareAggregatorService = shareAggregatorService;
+        this.properties = properties;
+        if (internalApiProperties.isApiKeyConfigured()) {
+            this.apiKey = internalApiProperties.getApiKey().getBytes(StandardCharsets.UTF_8);
+        } else {
+            // 空密钥或占位密钥一律视为未配置，拒绝所有上报，避免使用示例配置上线后接口被任意调用
+            this.apiKey = new byte[0];
+            log.warn("app.internal.api-key is blank or the placeholder value, internal share reporting is disabled");
+        }
+    }
+
+    @PostMapping("/shares")
+    @Operation(
+            summary = "批量上报 share",
+            description = """
+                    矿池网关按批上报 share（workerId + difficulty），服务端在内存中按分钟桶累加，
+                    每隔几秒批量写入 Redis 分钟桶（pool:payhash:{bucket}），不在白名单内的 worker 直接丢弃。
+
+                    返回值为通过校验被累积的条数。
+                    """
+    )
+    public ApiResponse<Integer> reportShares(
+            @Parameter(description = "内部调用密钥（app.internal.api-key）", required = true)
+            @RequestHeader(value = "X-Internal-Api-Key", required = false) String key,
+            @Parameter(description = "share 批量上报请求体", required = true)
+            @Valid @RequestBody PoolShareBatchReqDto dto) {
+        if (apiKey.length == 0 || !StringUtils.hasText(key)
+                || !MessageDigest.isEqual(apiKey, key.getBytes(StandardCharsets.UTF_8))) {
+            throw new BizException(401, "无效的内部调用密钥");
+        }
+        if (dto.getShares().size() > Math.max(1, properties.getMaxBatchSize())) {
+            throw new BizException(400, "单次上报的 share 数量超过上限 " + properties.getMaxBatchSize());
+        }
+        return ApiResponse.ok(shareAggregatorService.accumulateShares(dto.getShares()));
+    }
+}
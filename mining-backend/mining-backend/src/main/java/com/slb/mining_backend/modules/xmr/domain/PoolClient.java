@@ -1,5 +1,9 @@
 package com.slb.mining_backend.modules.xmr.domain;
 
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
 import java.util.List;
 import java.util.Optional;
 
@@ -9,9 +13,25 @@ public interface PoolClient {
 
     List<WorkerHash> fetchWorkers(String address) throws PoolClientException;
 
+    /**
+     * 非阻塞拉取 worker 列表；默认实现把阻塞调用放到 boundedElastic 线程上执行。
+     *
+     * @param permitDeadline 等待限流许可的上限，预计超出时实现可直接以 TimeoutException 失败；null 表示不限
+     */
+    default Mono<List<WorkerHash>> fetchWorkersAsync(String address, Duration permitDeadline) {
+        return Mono.fromCallable(() -> fetchWorkers(address)).subscribeOn(Schedulers.boundedElastic());
+    }
+
     default List<PoolPayment> fetchPayments(String address) throws PoolClientException {
         return List.of();
     }
 
+    /**
+     * 分页拉取入账（page 从 0 开始，按时间倒序）；默认实现不支持分页，只返回第 0 页。
+     */
+    default List<PoolPayment> fetchPayments(String address, int page, int limit) throws PoolClientException {
+        return page == 0 ? fetchPayments(address) : List.of();
+    }
+
     String name();
 }
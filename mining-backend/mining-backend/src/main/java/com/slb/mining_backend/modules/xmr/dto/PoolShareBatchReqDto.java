@@ -0,0 +1,21 @@
+package com.slb.mining_backend.modules.xmr.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 矿池 share 批量上报请求。
+ */
+@Data
+@Schema(description = "矿池 share 批量上报请求体")
+public class PoolShareBatchReqDto {
+
+    @NotEmpty(message = "shares 不能为空")
+    @Valid
+    @Schema(description = "share 列表")
+    private List<PoolShareItemDto> shares;
+}
@@ -0,0 +1,26 @@
+package com.slb.mining_backend.modules.xmr.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Positive;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 单条 share：矿工 workerId 与本次提交的 difficulty。
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "单条矿池 share")
+public class PoolShareItemDto {
+
+    @NotBlank(message = "workerId 不能为空")
+    @Schema(description = "矿工 workerId", example = "USR-17")
+    private String workerId;
+
+    @Positive(message = "difficulty 必须大于 0")
+    @Schema(description = "share difficulty", example = "120000")
+    private long difficulty;
+}
@@ -14,7 +14,18 @@ public class F2PoolRawPayload implements Serializable {
     private String coin;
     private String endpoint;
     private String fingerprint;
+    /**
+     * 明文正文：仅历史行使用，新行写入 payloadGz（维护任务会把历史明文行压缩）。
+     */
     private String payload;
+    /**
+     * gzip 压缩后的正文。
+     */
+    private byte[] payloadGz;
+    /**
+     * 未压缩正文的字节数（UTF-8）。
+     */
+    private Integer payloadSize;
     private LocalDateTime fetchedAt;
     private LocalDateTime createdTime;
 }
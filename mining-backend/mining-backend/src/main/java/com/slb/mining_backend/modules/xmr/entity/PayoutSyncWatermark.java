@@ -0,0 +1,20 @@
+package com.slb.mining_backend.modules.xmr.entity;
+
+import lombok.Data;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * 入账增量同步高水位：某个来源（c3pool / f2pool / antpool）的某个地址已同步到的最大入账时间与区块高度。
+ */
+@Data
+public class PayoutSyncWatermark implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private String source;
+    private String address;
+    private LocalDateTime lastTs;
+    private Long lastHeight;
+    private LocalDateTime updatedTime;
+}
@@ -0,0 +1,20 @@
+package com.slb.mining_backend.modules.xmr.entity;
+
+import lombok.Data;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * 钱包入账分账完成标记：(tx_hash, user_id) 这份分账已在某个已提交的分片事务中入账。
+ * user_id 为 payhash 分摊出的原始用户（用户不存在被转入 unclaimed 时仍记原始用户）。
+ */
+@Data
+public class XmrWalletSettlementMark implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private String txHash;
+    private Long userId;
+    private Integer shardNo;
+    private LocalDateTime createdTime;
+}
@@ -0,0 +1,21 @@
+package com.slb.mining_backend.modules.xmr.entity;
+
+import lombok.Data;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * 钱包入账分摊记录：批量结算首次分摊时为 (tx_hash, user_id) 记录的 XMR 份额，重试时按它续结。
+ * user_id 为 payhash 分摊出的原始用户，与完成标记一致。
+ */
+@Data
+public class XmrWalletSettlementShare implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private String txHash;
+    private Long userId;
+    private BigDecimal portionXmr;
+    private LocalDateTime createdTime;
+}
@@ -4,6 +4,8 @@ import com.slb.mining_backend.modules.xmr.entity.F2PoolRawPayload;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 
 @Mapper
@@ -11,7 +13,23 @@ public interface F2PoolRawPayloadMapper {
 
     int insertIgnore(F2PoolRawPayload payload);
 
+    int batchInsertIgnore(@Param("records") List<F2PoolRawPayload> records);
+
     Optional<F2PoolRawPayload> selectByFingerprint(@Param("account") String account,
                                                    @Param("endpoint") String endpoint,
                                                    @Param("fingerprint") String fingerprint);
+
+    /**
+     * 历史明文行（payload 非空且未压缩），按 id 升序。
+     */
+    List<F2PoolRawPayload> selectUncompressed(@Param("afterId") long afterId, @Param("limit") int limit);
+
+    int updateCompressed(@Param("id") Long id,
+                         @Param("payloadGz") byte[] payloadGz,
+                         @Param("payloadSize") Integer payloadSize);
+
+    /**
+     * 删除早于 before 且未被任何业务表引用的响应。
+     */
+    int deleteExpiredUnreferenced(@Param("before") LocalDateTime before, @Param("limit") int limit);
 }
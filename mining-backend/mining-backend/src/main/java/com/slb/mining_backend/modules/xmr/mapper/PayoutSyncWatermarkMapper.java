@@ -0,0 +1,22 @@
+package com.slb.mining_backend.modules.xmr.mapper;
+
+import com.slb.mining_backend.modules.xmr.entity.PayoutSyncWatermark;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+@Mapper
+public interface PayoutSyncWatermarkMapper {
+
+    Optional<PayoutSyncWatermark> selectOne(@Param("source") String source, @Param("address") String address);
+
+    /**
+     * 推进高水位（只前进不后退）。
+     */
+    int advance(@Param("source") String source,
+                @Param("address") String address,
+                @Param("lastTs") LocalDateTime lastTs,
+                @Param("lastHeight") Long lastHeight);
+}
@@ -0,0 +1,31 @@
+package com.slb.mining_backend.modules.xmr.mapper;
+
+import com.slb.mining_backend.modules.users.dto.UserBalanceDelta;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.List;
+
+@Mapper
+public interface SettlementPlatformCreditMapper {
+
+    /**
+     * 追加待入账记录（只插入，不锁 users 行）。
+     */
+    int batchInsert(@Param("deltas") List<UserBalanceDelta> deltas, @Param("sourceRef") String sourceRef);
+
+    /**
+     * 按 id 顺序取第 limit 条未认领记录的 id（不足 limit 条时取最大 id），无待入账记录时返回 null。
+     */
+    Long selectPendingUpperId(@Param("limit") int limit);
+
+    /**
+     * 认领 id 不超过 maxId 的未认领记录；行锁保证同一条记录只会被一次合并认领。
+     */
+    int claimPending(@Param("maxId") long maxId, @Param("applyId") String applyId);
+
+    /**
+     * 按用户汇总某次合并认领的记录。
+     */
+    List<UserBalanceDelta> sumClaimed(@Param("applyId") String applyId);
+}
@@ -6,6 +6,7 @@ import org.apache.ibatis.annotations.Param;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -25,6 +26,16 @@ public interface XmrWalletIncomingMapper {
      */
     int insertIgnore(XmrWalletIncoming record);
 
+    /**
+     * 批量插入入账记录，tx_hash 已存在的行忽略；返回实际插入行数。
+     */
+    int batchInsertIgnore(@Param("records") List<XmrWalletIncoming> records);
+
+    /**
+     * 查询给定交易哈希中已入账的部分（一次 IN 查询替代逐条 selectByTxHash）。
+     */
+    List<String> selectExistingTxHashes(@Param("txHashes") Collection<String> txHashes);
+
     /**
      * 根据交易哈希查询入账记录。
      */
@@ -76,6 +87,11 @@ public interface XmrWalletIncomingMapper {
      */
     int markSettledByTxHash(@Param("txHash") String txHash);
 
+    /**
+     * 按交易哈希批量标记已结算（分片批量结算全部提交后调用）。
+     */
+    int markSettledByTxHashes(@Param("txHashes") List<String> txHashes);
+
     /**
      * 查询当前记录中的最高区块高度，用于增量同步。
      */
@@ -0,0 +1,33 @@
+package com.slb.mining_backend.modules.xmr.mapper;
+
+import com.slb.mining_backend.modules.xmr.entity.XmrWalletSettlementMark;
+import com.slb.mining_backend.modules.xmr.entity.XmrWalletSettlementShare;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.Collection;
+import java.util.List;
+
+@Mapper
+public interface XmrWalletSettlementMarkMapper {
+
+    /**
+     * 查询指定交易已入账的分账标记。
+     */
+    List<XmrWalletSettlementMark> selectByTxHashes(@Param("txHashes") Collection<String> txHashes);
+
+    /**
+     * 批量写入分账完成标记（主键冲突即说明该分账已被其他事务入账，调用方应回滚）。
+     */
+    int batchInsert(@Param("marks") List<XmrWalletSettlementMark> marks);
+
+    /**
+     * 查询指定交易首次分摊时记录的份额。
+     */
+    List<XmrWalletSettlementShare> selectSharesByTxHashes(@Param("txHashes") Collection<String> txHashes);
+
+    /**
+     * 批量写入分摊记录（主键冲突说明已有记录，调用方放弃本批，下一轮按已有记录续结）。
+     */
+    int batchInsertShares(@Param("shares") List<XmrWalletSettlementShare> shares);
+}
@@ -0,0 +1,108 @@
+package com.slb.mining_backend.modules.xmr.service;
+
+import com.slb.mining_backend.modules.xmr.config.PayoutSyncProperties;
+import com.slb.mining_backend.modules.xmr.entity.PayoutSyncWatermark;
+import com.slb.mining_backend.modules.xmr.entity.XmrWalletIncoming;
+import com.slb.mining_backend.modules.xmr.mapper.PayoutSyncWatermarkMapper;
+import com.slb.mining_backend.modules.xmr.mapper.XmrWalletIncomingMapper;
+import org.springframework.stereotype.Service;
+import org.springframework.util.CollectionUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 入账增量同步的公共部分：高水位读取与推进、批量 tx_hash 去重、批量写入 xmr_wallet_incoming。
+ *
+ * 调用方先用 {@link #lowerBound} 确定本轮需要处理的最早时间，收集候选后一次 {@link #findExisting} 去重，
+ * 只为新交易构建记录并 {@link #insertAll}，最后 {@link #advance} 推进高水位。
+ * 翻页型来源只有在翻到回看窗口或末页时才能推进；因最大页数截断时推进会跳过中间未拉到的打款。
+ */
+@Service
+public class IncomingPayoutWriter {
+
+    public static final String SOURCE_F2POOL = "f2pool";
+    public static final String SOURCE_ANTPOOL = "antpool";
+
+    private final XmrWalletIncomingMapper walletIncomingMapper;
+    private final PayoutSyncWatermarkMapper watermarkMapper;
+    private final PayoutSyncProperties properties;
+
+    public IncomingPayoutWriter(XmrWalletIncomingMapper walletIncomingMapper,
+                                PayoutSyncWatermarkMapper watermarkMapper,
+                                PayoutSyncProperties properties) {
+        this.walletIncomingMapper = walletIncomingMapper;
+        this.watermarkMapper = watermarkMapper;
+        this.properties = properties;
+    }
+
+    /**
+     * 本轮需要处理的最早入账时间（高水位减去 overlap）；未启用增量或尚无高水位时返回 null，表示不截断。
+     */
+    public LocalDateTime lowerBound(String source, String address) {
+        if (!properties.isIncremental()) {
+            return null;
+        }
+        return watermarkMapper.selectOne(source, address)
+                .map(PayoutSyncWatermark::getLastTs)
+                .map(ts -> ts.minusMinutes(Math.max(0, properties.getOverlapMinutes())))
+                .orElse(null);
+    }
+
+    /**
+     * 返回给定交易哈希中已入账的部分（按 batchSize 分批 IN 查询）。
+     */
+    public Set<String> findExisting(Collection<String> txHashes) {
+        if (CollectionUtils.isEmpty(txHashes)) {
+            return Set.of();
+        }
+        Set<String> existing = new HashSet<>();
+        for (List<String> chunk : chunks(new ArrayList<>(new HashSet<>(txHashes)))) {
+            existing.addAll(walletIncomingMapper.selectExistingTxHashes(chunk));
+        }
+        return existing;
+    }
+
+    /**
+     * 批量写入（批内按 tx_hash 去重，已存在的行由 INSERT IGNORE 忽略）；返回实际插入行数。
+     */
+    public int insertAll(List<XmrWalletIncoming> records) {
+        if (CollectionUtils.isEmpty(records)) {
+            return 0;
+        }
+        Map<String, XmrWalletIncoming> unique = new LinkedHashMap<>();
+        for (XmrWalletIncoming record : records) {
+            unique.putIfAbsent(record.getTxHash(), record);
+        }
+        int inserted = 0;
+        for (List<XmrWalletIncoming> chunk : chunks(new ArrayList<>(unique.values()))) {
+            inserted += walletIncomingMapper.batchInsertIgnore(chunk);
+        }
+        return inserted;
+    }
+
+    /**
+     * 推进高水位（数据库侧只前进不后退）；maxTs 与 maxHeight 都为空时不写。
+     */
+    public void advance(String source, String address, LocalDateTime maxTs, Long maxHeight) {
+        if (maxTs == null && maxHeight == null) {
+            return;
+        }
+        watermarkMapper.advance(source, address, maxTs, maxHeight);
+    }
+
+    private <T> List<List<T>> chunks(List<T> values) {
+        int size = Math.max(1, properties.getBatchSize());
+        List<List<T>> chunks = new ArrayList<>();
+        for (int i = 0; i < values.size(); i += size) {
+            chunks.add(values.subList(i, Math.min(values.size(), i + size)));
+        }
+        return chunks;
+    }
+}
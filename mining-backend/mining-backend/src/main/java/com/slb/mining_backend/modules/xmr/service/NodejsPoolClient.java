@@ -1,8 +1,9 @@
 package com.slb.mining_backend.modules.xmr.service;
 
-import com.google.common.util.concurrent.RateLimiter;
 import com.jayway.jsonpath.DocumentContext;
 import com.jayway.jsonpath.JsonPath;
+import com.slb.mining_backend.common.http.OutboundCallGovernor;
+import com.slb.mining_backend.common.http.OutboundCallRejectedException;
 import com.slb.mining_backend.modules.xmr.config.XmrPoolProperties;
 import com.slb.mining_backend.modules.xmr.domain.PoolClient;
 import com.slb.mining_backend.modules.xmr.domain.PoolClientException;
@@ -16,6 +17,7 @@ import org.springframework.stereotype.Component;
 import org.springframework.util.StringUtils;
 import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
 import reactor.util.retry.Retry;
 
 import java.math.BigDecimal;
@@ -36,9 +38,15 @@ import java.util.stream.Collectors;
 @Slf4j
 public class NodejsPoolClient implements PoolClient {
 
+    /**
+     * 模板含 ${limit} 且调用方未指定分页时使用的条数（与原固定模板 limit=500 一致）。
+     */
+    private static final int DEFAULT_PAYMENTS_LIMIT = 500;
+
     private final XmrPoolProperties.Provider provider;
     private final WebClient http;
-    private final RateLimiter limiter;
+    private final OutboundCallGovernor.Channel outbound;
+    private final PoolResponseCache responseCache;
     private final Duration requestTimeout;
     private final int requestMaxRetries;
     private final long retryBackoffMs;
@@ -47,17 +55,22 @@ public class NodejsPoolClient implements PoolClient {
     public NodejsPoolClient(
             WebClient.Builder builder,
             XmrPoolProperties properties,
+            OutboundCallGovernor governor,
             @Value("${app.external-api.pool-stats-timeout-ms:5000}") long poolStatsTimeoutMs,
             @Value("${app.xmr.pool.request-max-retries:2}") int requestMaxRetries,
             @Value("${app.xmr.pool.request-retry-backoff-ms:200}") long retryBackoffMs,
-            @Value("${app.xmr.pool.request-retry-max-backoff-ms:3000}") long retryMaxBackoffMs
+            @Value("${app.xmr.pool.request-retry-max-backoff-ms:3000}") long retryMaxBackoffMs,
+            @Value("${app.payhash.sync-interval-ms:60000}") long payhashSyncIntervalMs
     ) {
         this.provider = properties.getDefaultProvider();
         this.http = builder
                 .defaultHeader(HttpHeaders.USER_AGENT, "MiningBackend/NodejsPoolClient")
                 .build();
         double permitsPerSecond = Math.max(0.1d, provider.getLimits().getPerHostReqPer15Min() / 900.0d);
-        this.limiter = RateLimiter.create(permitsPerSecond);
+        this.outbound = governor.channel(provider.getId(), permitsPerSecond);
+        this.responseCache = new PoolResponseCache(
+                freshSeconds(provider.getLimits().getMinRefreshSecPerAddress(), payhashSyncIntervalMs),
+                provider.getLimits().getMaxStaleSec());
         this.requestTimeout = Duration.ofMillis(Math.max(1000L, poolStatsTimeoutMs));
         this.requestMaxRetries = Math.max(0, requestMaxRetries);
         this.retryBackoffMs = Math.max(50L, retryBackoffMs);
@@ -70,7 +83,8 @@ public class NodejsPoolClient implements PoolClient {
         if (!StringUtils.hasText(endpoint)) {
             throw new PoolClientException("Stats endpoint not configured for provider " + provider.getId());
         }
-        String json = execute(endpoint, address);
+        PoolResponseCache.Response response = execute(endpoint, address);
+        String json = response.body();
         if (!StringUtils.hasText(json)) {
             return Optional.empty();
         }
@@ -79,7 +93,7 @@ public class NodejsPoolClient implements PoolClient {
             Long unpaid = readLong(ctx, provider.getMapping().getUnpaidAtomic());
             Long paid = readLong(ctx, provider.getMapping().getPaidTotalAtomic());
             Double hash = readDouble(ctx, provider.getMapping().getHashrateHps());
-            Instant ts = readInstant(ctx, provider.getMapping().getTimestamp()).orElse(Instant.now());
+            Instant ts = readInstant(ctx, provider.getMapping().getTimestamp()).orElse(response.fetchedAt());
             if (unpaid == null || paid == null) {
                 return Optional.empty();
             }
@@ -95,7 +109,22 @@ public class NodejsPoolClient implements PoolClient {
         if (!StringUtils.hasText(endpoint)) {
             return Collections.emptyList();
         }
-        String json = execute(endpoint, address);
+        return parseWorkers(address, execute(endpoint, address));
+    }
+
+    @Override
+    public Mono<List<WorkerHash>> fetchWorkersAsync(String address, Duration permitDeadline) {
+        String endpoint = provider.getEndpoints().getWorkers();
+        if (!StringUtils.hasText(endpoint)) {
+            return Mono.just(Collections.emptyList());
+        }
+        return executeAsync(endpoint, address, permitDeadline)
+                .map(response -> parseWorkers(address, response))
+                .defaultIfEmpty(Collections.emptyList());
+    }
+
+    private List<WorkerHash> parseWorkers(String address, PoolResponseCache.Response response) {
+        String json = response.body();
         if (!StringUtils.hasText(json)) {
             return Collections.emptyList();
         }
@@ -117,7 +146,7 @@ public class NodejsPoolClient implements PoolClient {
             // C3Pool: allWorkers 返回结构通常是 { activeWorkers: {...}, inactiveWorkers: {...} }
             // 只采 activeWorkers 会在“全部暂时 inactive”时导致 0 样本，从而引发 payhash 断档与结算 MISSING_PAYHASH。
             // 因此这里把 inactiveWorkers 一并合并（按 workerId 去重，取 fetchedAt 更新的那条）。
-            List<WorkerHash> workers = new ArrayList<>(parseWorkersRaw(address, raw));
+            List<WorkerHash> workers = new ArrayList<>(parseWorkersRaw(address, raw, response.fetchedAt()));
             Object rawInactive = null;
             try {
                 rawInactive = ctx.read("$.inactiveWorkers");
@@ -125,7 +154,7 @@ public class NodejsPoolClient implements PoolClient {
                 // ignore
             }
             if (rawInactive != null) {
-                workers.addAll(parseWorkersRaw(address, rawInactive));
+                workers.addAll(parseWorkersRaw(address, rawInactive, response.fetchedAt()));
             }
             return dedupeWorkersByIdKeepLatest(workers);
         } catch (Exception ex) {
@@ -133,13 +162,13 @@ public class NodejsPoolClient implements PoolClient {
         }
     }
 
-    private List<WorkerHash> parseWorkersRaw(String address, Object raw) {
+    private List<WorkerHash> parseWorkersRaw(String address, Object raw, Instant fetchedAt) {
         if (raw instanceof List<?> list) {
             if (list.isEmpty()) {
                 return Collections.emptyList();
             }
             return list.stream()
-                    .map(node -> mapWorker(address, node, null))
+                    .map(node -> mapWorker(address, node, null, fetchedAt))
                     .flatMap(Optional::stream)
                     .collect(Collectors.toList());
         } else if (raw instanceof Map<?, ?> map) {
@@ -148,7 +177,8 @@ public class NodejsPoolClient implements PoolClient {
             }
             // C3Pool/MoneroOcean: workerId 往往在 Map 的 key 上，而 value 里不一定有显式的 id/name 字段
             return map.entrySet().stream()
-                    .map(entry -> mapWorker(address, entry.getValue(), entry.getKey() != null ? entry.getKey().toString() : null))
+                    .map(entry -> mapWorker(address, entry.getValue(),
+                            entry.getKey() != null ? entry.getKey().toString() : null, fetchedAt))
                     .flatMap(Optional::stream)
                     .collect(Collectors.toList());
         }
@@ -175,11 +205,27 @@ public class NodejsPoolClient implements PoolClient {
 
     @Override
     public List<PoolPayment> fetchPayments(String address) throws PoolClientException {
+        return fetchPayments(address, 0, DEFAULT_PAYMENTS_LIMIT);
+    }
+
+    /**
+     * payments 模板可包含 ${page} / ${limit} 占位符；不含 ${page} 时模板本身只代表一页，page > 0 返回空。
+     */
+    @Override
+    public List<PoolPayment> fetchPayments(String address, int page, int limit) throws PoolClientException {
         String endpoint = provider.getEndpoints().getPayments();
         if (!StringUtils.hasText(endpoint)) {
             return Collections.emptyList();
         }
-        String json = execute(endpoint, address);
+        if (page > 0 && !endpoint.contains("${page}")) {
+            return Collections.emptyList();
+        }
+        String template = endpoint
+                .replace("${page}", String.valueOf(Math.max(0, page)))
+                .replace("${limit}", String.valueOf(Math.max(1, limit)));
+        // 缓存键按页区分；指标 endpoint 标签用原始模板，避免每个 page/limit 组合各占一个时间序列
+        PoolResponseCache.Response response = execute(endpoint, template, address);
+        String json = response.body();
         if (!StringUtils.hasText(json)) {
             return Collections.emptyList();
         }
@@ -201,7 +247,7 @@ public class NodejsPoolClient implements PoolClient {
                 nodes = List.of(raw);
             }
             return nodes.stream()
-                    .map(node -> mapPayment(address, node))
+                    .map(node -> mapPayment(address, node, response.fetchedAt()))
                     .flatMap(Optional::stream)
                     .collect(Collectors.toList());
         } catch (Exception ex) {
@@ -214,7 +260,10 @@ public class NodejsPoolClient implements PoolClient {
         return provider.getId();
     }
 
-    private Optional<WorkerHash> mapWorker(String address, Object node, String fallbackWorkerId) {
+    /**
+     * @param fetchedAt 响应的实际获取时间；节点不带时间戳时以此为准（缓存/旧响应不会被当作刚获取的数据）
+     */
+    private Optional<WorkerHash> mapWorker(String address, Object node, String fallbackWorkerId, Instant fetchedAt) {
         try {
             DocumentContext ctx = JsonPath.parse(node);
             String workerId = readString(ctx, provider.getMapping().getWorkerId());
@@ -226,7 +275,7 @@ public class NodejsPoolClient implements PoolClient {
             }
             double hashNow = Optional.ofNullable(readDouble(ctx, provider.getMapping().getWorkerHashNowHps())).orElse(0d);
             double hashAvg = Optional.ofNullable(readDouble(ctx, provider.getMapping().getWorkerHashAvgHps())).orElse(0d);
-            Instant ts = readInstant(ctx, provider.getMapping().getWorkerTimestamp()).orElse(Instant.now());
+            Instant ts = readInstant(ctx, provider.getMapping().getWorkerTimestamp()).orElse(fetchedAt);
             return Optional.of(new WorkerHash(address, workerId, hashNow, hashAvg, ts));
         } catch (Exception ex) {
             log.debug("Failed to parse worker node for address {}: {}", address, ex.getMessage());
@@ -234,7 +283,7 @@ public class NodejsPoolClient implements PoolClient {
         }
     }
 
-    private Optional<PoolPayment> mapPayment(String address, Object node) {
+    private Optional<PoolPayment> mapPayment(String address, Object node, Instant fetchedAt) {
         try {
             DocumentContext ctx = JsonPath.parse(node);
             Long amountAtomic = readLong(ctx, provider.getMapping().getPaymentAmount());
@@ -249,7 +298,7 @@ public class NodejsPoolClient implements PoolClient {
                 return Optional.empty();
             }
             Long height = readLong(ctx, provider.getMapping().getPaymentHeight());
-            Instant ts = readInstant(ctx, provider.getMapping().getPaymentTimestamp()).orElse(Instant.now());
+            Instant ts = readInstant(ctx, provider.getMapping().getPaymentTimestamp()).orElse(fetchedAt);
             return Optional.of(new PoolPayment(address, amountAtomic, txHash, height, ts));
         } catch (Exception ex) {
             log.debug("Failed to parse payment node for address {}: {}", address, ex.getMessage());
@@ -257,33 +306,76 @@ public class NodejsPoolClient implements PoolClient {
         }
     }
 
-    private String execute(String template, String address) {
-        limiter.acquire();
-        String url = resolveUrl(template, address);
-        Retry retry = Retry.backoff(requestMaxRetries, Duration.ofMillis(retryBackoffMs))
-                .maxBackoff(Duration.ofMillis(retryMaxBackoffMs))
-                .filter(this::isRetryable);
+    private PoolResponseCache.Response execute(String template, String address) {
+        return execute(template, template, address);
+    }
+
+    /**
+     * @param endpoint 指标与拒绝异常里使用的 endpoint 标签（未展开的模板）
+     * @param template 已展开 page/limit 的请求模板，同时用作缓存键
+     */
+    private PoolResponseCache.Response execute(String endpoint, String template, String address) {
         try {
-            return http.get()
-                    .uri(url)
-                    .retrieve()
-                    .bodyToMono(String.class)
-                    .timeout(requestTimeout)
-                    .retryWhen(retry)
-                    // 关键：不要吞掉异常，否则上游会把“请求失败”误判为“矿池无 worker”，最终导致 payhash 断档。
-                    .doOnError(err -> logPoolRequestError(url, err))
-                    .onErrorMap(err -> (err instanceof PoolClientException)
-                            ? err
-                            : new PoolClientException("Pool request failed: " + url, err))
-                    .block();
+            return executeAsync(endpoint, template, address, null).block();
         } catch (PoolClientException ex) {
             throw ex;
         } catch (Exception ex) {
-            throw new PoolClientException("Failed to call pool endpoint " + url, ex);
+            throw new PoolClientException("Failed to call pool endpoint " + resolveUrl(template, address), ex);
+        }
+    }
+
+    /**
+     * 非阻塞请求：经共享响应缓存（minRefreshSecPerAddress 内复用、并发合并、失败时回退旧响应），
+     * 缓存未命中时经 OutboundCallGovernor 发起带重试的 HTTP 调用（按 host 自适应限流、熔断，Mono.delay 等待许可，不占线程）。
+     *
+     * @param permitDeadline 等待许可的上限；预计等待更久时以 RATE_LIMITED 拒绝，不消耗许可。null 表示不限
+     */
+    private Mono<PoolResponseCache.Response> executeAsync(String template, String address, Duration permitDeadline) {
+        return executeAsync(template, template, address, permitDeadline);
+    }
+
+    private Mono<PoolResponseCache.Response> executeAsync(String endpoint, String template, String address,
+                                                          Duration permitDeadline) {
+        return responseCache.get(PoolResponseCache.key(provider.getId(), template, address), permitDeadline != null,
+                () -> request(endpoint, template, address, permitDeadline));
+    }
+
+    /**
+     * 共享缓存的新鲜窗口须短于 payhash 采集周期，否则相邻两轮会读到同一份响应，把同一批样本重复计入 payhash；
+     * 超出时取采集周期的一半。
+     */
+    private long freshSeconds(int minRefreshSecPerAddress, long payhashSyncIntervalMs) {
+        long limit = Math.max(0L, payhashSyncIntervalMs / 1000L / 2L);
+        if (minRefreshSecPerAddress > limit) {
+            log.warn("minRefreshSecPerAddress={} is not shorter than the payhash sync interval ({} ms), capping to {}s (provider={})",
+                    minRefreshSecPerAddress, payhashSyncIntervalMs, limit, provider.getId());
+            return limit;
         }
+        return Math.max(0, minRefreshSecPerAddress);
+    }
+
+    private Mono<String> request(String endpoint, String template, String address, Duration permitDeadline) {
+        String url = resolveUrl(template, address);
+        Retry retry = Retry.backoff(requestMaxRetries, Duration.ofMillis(retryBackoffMs))
+                .maxBackoff(Duration.ofMillis(retryMaxBackoffMs))
+                .filter(this::isRetryable);
+        return outbound.execute(endpoint, url, permitDeadline, () -> http.get()
+                        .uri(url)
+                        .retrieve()
+                        .bodyToMono(String.class)
+                        .timeout(requestTimeout))
+                .retryWhen(retry)
+                // 关键：不要吞掉异常，否则上游会把“请求失败”误判为“矿池无 worker”，最终导致 payhash 断档。
+                .doOnError(err -> logPoolRequestError(url, err))
+                .onErrorMap(err -> (err instanceof PoolClientException)
+                        ? err
+                        : new PoolClientException("Pool request failed: " + url, err));
     }
 
     private boolean isRetryable(Throwable err) {
+        if (err instanceof OutboundCallRejectedException) {
+            return false;
+        }
         if (err instanceof WebClientResponseException wcre) {
             int status = wcre.getStatusCode().value();
             return status >= 500 || status == 429;
@@ -297,6 +389,11 @@ public class NodejsPoolClient implements PoolClient {
     }
 
     private void logPoolRequestError(String url, Throwable err) {
+        if (err instanceof OutboundCallRejectedException) {
+            // 熔断/限流拒绝：未真正发出请求，不打栈避免刷屏
+            log.warn("NodejsPoolClient request rejected (provider={}, url={}, message={})", provider.getId(), url, err.getMessage());
+            return;
+        }
         Integer statusCode = null;
         if (err instanceof WebClientResponseException wcre) {
             statusCode = wcre.getStatusCode().value();
@@ -0,0 +1,47 @@
+package com.slb.mining_backend.modules.xmr.service;
+
+/**
+ * 矿池 share 分钟桶在 Redis 中的 key 约定（写入方 ShareAggregatorService 与落库方 PayhashIngestionService 共用）。
+ *
+ * - pool:payhash:{bucketMillis}：分钟桶哈希（workerId -> difficulty 累加值）；
+ * - pool:payhash:index：待落库分钟桶索引（ZSET，score/member 均为 bucketMillis），写入方每次 HINCRBY 后 ZADD；
+ * - pool:payhash:flushing:{bucketMillis}:{token}：已认领、正在落库的桶（由分钟桶 RENAME 而来）；
+ * - pool:payhash:flushing：落库中桶索引（ZSET，member 为 flushing key，score 为最早可落库时间：认领时为 bucketMillis，
+ *   落库失败后推迟），崩溃后据此重试；
+ * - pool:payhash:lost：已登记但 key 缺失的 flushing key（ZSET，score 为发现时间），留待排查。
+ */
+final class PayhashBucketKeys {
+
+    static final String BUCKET_PREFIX = "pool:payhash:";
+    static final String INDEX = "pool:payhash:index";
+    static final String FLUSHING_PREFIX = "pool:payhash:flushing:";
+    static final String FLUSHING_INDEX = "pool:payhash:flushing";
+    static final String LOST_INDEX = "pool:payhash:lost";
+
+    private PayhashBucketKeys() {
+    }
+
+    static String bucket(long bucketMillis) {
+        return BUCKET_PREFIX + bucketMillis;
+    }
+
+    static String flushing(long bucketMillis, String token) {
+        return FLUSHING_PREFIX + bucketMillis + ":" + token;
+    }
+
+    /**
+     * 从 flushing key 中解析分钟桶时间；格式不符时返回 null。
+     */
+    static Long bucketOfFlushingKey(String flushingKey) {
+        if (flushingKey == null || !flushingKey.startsWith(FLUSHING_PREFIX)) {
+            return null;
+        }
+        String rest = flushingKey.substring(FLUSHING_PREFIX.length());
+        int sep = rest.indexOf(':');
+        try {
+            return Long.parseLong(sep >= 0 ? rest.substring(0, sep) : rest);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
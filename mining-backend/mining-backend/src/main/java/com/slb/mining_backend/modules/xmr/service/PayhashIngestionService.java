@@ -1,71 +1,223 @@
 package com.slb.mining_backend.modules.xmr.service;
 
 import com.slb.mining_backend.modules.xmr.config.PayhashTimeseriesProperties;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * 周期性地把 Redis 中已完成的分钟桶写入 MySQL 分区表。
+ *
+ * 规则：
+ * - 写入方把每个分钟桶登记到 pool:payhash:index，落库时按索引取已结束的桶，不再逐个 hasKey 探测；
+ * - 认领（Lua 原子执行，涉及的 key 全部经 KEYS 传入）：RENAME 分钟桶为 flushing key、去掉随 RENAME 带过来的 TTL，
+ *   并登记到 pool:payhash:flushing，此后到达的增量写入新的分钟桶，下一轮再落库，读与删之间不会丢失增量；
+ * - 所有待落库的 flushing key 用一次管道 HGETALL 读取；每个 flushing key 在一个事务内写分钟明细、汇总增量，
+ *   并以 flushing key 为主键写入 payhash_ingest_flushes，事务提交后再删除 flushing key；
+ * - 提交后、删除前崩溃：重启后按 flushing 索引重试，payhash_ingest_flushes 已有记录则只删除 key，不会重复累加；
+ * - 落库失败的 flushing key 推迟 RETRY_BACKOFF_MILLIS 再试（flushing 索引的 score 为最早可重试时间），不占用后续桶的处理窗口；
+ * - 已登记但 key 不存在（或 key 格式异常）说明该桶数据已丢失：记 ERROR 与 slb.payhash.ingest.flushing.lost 指标，
+ *   并把 key 移入 pool:payhash:lost 留待排查，不静默丢弃。
  */
 @Service
 @Slf4j
 public class PayhashIngestionService {
 
-    private static final String KEY_TEMPLATE = "pool:payhash:%d";
     private static final int MAX_BUCKET_LOOKBACK = 10;
+    private static final int MAX_BUCKETS_PER_RUN = 120;
+    private static final long PURGE_INTERVAL_MILLIS = 3_600_000L;
+    private static final long RETRY_BACKOFF_MILLIS = 300_000L;
+
+    /**
+     * 认领已结束的分钟桶：KEYS[1]=待落库索引, KEYS[2]=落库中索引, KEYS[2i+1]/KEYS[2i+2]=第 i 个桶的分钟桶 key/flushing key；
+     * ARGV[i]=第 i 个桶的 bucketMillis。
+     */
+    private static final DefaultRedisScript<Long> CLAIM_SCRIPT = new DefaultRedisScript<>("""
+            local claimed = 0
+            for i, bucket in ipairs(ARGV) do
+                local src = KEYS[2 * i + 1]
+                local dst = KEYS[2 * i + 2]
+                if redis.call('EXISTS', src) == 1 then
+                    redis.call('RENAME', src, dst)
+                    -- RENAME 会带上分钟桶的 TTL；认领后由落库方删除，不能在落库前过期
+                    redis.call('PERSIST', dst)
+                    redis.call('ZADD', KEYS[2], bucket, dst)
+                    claimed = claimed + 1
+                end
+                redis.call('ZREM', KEYS[1], bucket)
+            end
+            return claimed
+            """, Long.class);
 
     private final StringRedisTemplate redisTemplate;
     private final NamedParameterJdbcTemplate jdbcTemplate;
     private final PayhashTimeseriesProperties properties;
+    private final PayhashRollupService rollupService;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+    private final AtomicBoolean indexSeeded = new AtomicBoolean(false);
+    private volatile long lastPurgeMillis = 0L;
 
     public PayhashIngestionService(StringRedisTemplate redisTemplate,
                                    NamedParameterJdbcTemplate jdbcTemplate,
-                                   PayhashTimeseriesProperties properties) {
+                                   PayhashTimeseriesProperties properties,
+                                   PayhashRollupService rollupService,
+                                   TransactionTemplate transactionTemplate,
+                                   MeterRegistry meterRegistry) {
         this.redisTemplate = redisTemplate;
         this.jdbcTemplate = jdbcTemplate;
         this.properties = properties;
+        this.rollupService = rollupService;
+        this.transactionTemplate = transactionTemplate;
+        this.meterRegistry = meterRegistry;
     }
 
     /**
-     * 每 30 秒尝试冲刷上一分钟的数据，避免与正在写入的当前分钟冲突。
+     * 每 30 秒冲刷已结束的分钟桶（含上次未完成的 flushing 桶），避免与正在写入的当前分钟冲突。
      */
     @Scheduled(fixedDelay = 30_000)
     public void flushPastBuckets() {
         long currentBucket = (System.currentTimeMillis() / 60_000) * 60_000;
-        for (int i = 1; i <= MAX_BUCKET_LOOKBACK; i++) {
-            long targetBucket = currentBucket - (i * 60_000L);
-            if (targetBucket <= 0) {
-                continue;
+        if (indexSeeded.compareAndSet(false, true)) {
+            seedIndex(currentBucket);
+        }
+        claimEndedBuckets(currentBucket);
+
+        long now = System.currentTimeMillis();
+        Set<ZSetOperations.TypedTuple<String>> flushing = redisTemplate.opsForZSet()
+                .rangeByScoreWithScores(PayhashBucketKeys.FLUSHING_INDEX, Double.NEGATIVE_INFINITY, now,
+                        0, MAX_BUCKETS_PER_RUN);
+        if (flushing == null || flushing.isEmpty()) {
+            return;
+        }
+        List<String> flushingKeys = new ArrayList<>(flushing.size());
+        for (ZSetOperations.TypedTuple<String> tuple : flushing) {
+            flushingKeys.add(tuple.getValue());
+        }
+        List<Object> contents = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection redis = (StringRedisConnection) connection;
+            for (String key : flushingKeys) {
+                redis.hGetAll(key);
             }
-            String redisKey = KEY_TEMPLATE.formatted(targetBucket);
-            if (Boolean.TRUE.equals(redisTemplate.hasKey(redisKey))) {
-                flushSingleBucket(targetBucket, redisKey);
+            return null;
+        });
+
+        List<String> done = new ArrayList<>(flushingKeys.size());
+        List<String> retry = new ArrayList<>();
+        List<String> lost = new ArrayList<>();
+        for (int i = 0; i < flushingKeys.size(); i++) {
+            String flushingKey = flushingKeys.get(i);
+            Long bucketMillis = PayhashBucketKeys.bucketOfFlushingKey(flushingKey);
+            @SuppressWarnings("unchecked")
+            Map<String, String> entries = i < contents.size() && contents.get(i) instanceof Map<?, ?> map
+                    ? (Map<String, String>) map
+                    : Map.of();
+            if (bucketMillis == null || entries.isEmpty()) {
+                // 认领后的 key 不会过期，也不会是空哈希：key 缺失说明该桶数据已丢失
+                log.error("Payhash flushing key {} is indexed but missing or malformed; the bucket's shares are lost, "
+                        + "moving it to {}", flushingKey, PayhashBucketKeys.LOST_INDEX);
+                meterRegistry.counter("slb.payhash.ingest.flushing.lost").increment();
+                lost.add(flushingKey);
+            } else if (persistBucket(flushingKey, bucketMillis, entries)) {
+                done.add(flushingKey);
+            } else {
+                meterRegistry.counter("slb.payhash.ingest.flushing.retries").increment();
+                retry.add(flushingKey);
             }
         }
+        double retryAt = now + RETRY_BACKOFF_MILLIS;
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection redis = (StringRedisConnection) connection;
+            if (!done.isEmpty()) {
+                redis.del(done.toArray(String[]::new));
+                redis.zRem(PayhashBucketKeys.FLUSHING_INDEX, done.toArray(String[]::new));
+            }
+            for (String key : retry) {
+                redis.zAdd(PayhashBucketKeys.FLUSHING_INDEX, retryAt, key);
+            }
+            for (String key : lost) {
+                redis.zAdd(PayhashBucketKeys.LOST_INDEX, now, key);
+            }
+            if (!lost.isEmpty()) {
+                redis.zRem(PayhashBucketKeys.FLUSHING_INDEX, lost.toArray(String[]::new));
+            }
+            return null;
+        });
+        purgeFlushLog();
     }
 
-    private void flushSingleBucket(long bucketMillis, String redisKey) {
-        Map<Object, Object> entries = redisTemplate.opsForHash().entries(redisKey);
-        if (entries.isEmpty()) {
-            redisTemplate.delete(redisKey);
+    /**
+     * 按索引取已结束的分钟桶并原子认领；分钟桶与 flushing key 全部作为 KEYS 传给脚本。
+     */
+    private void claimEndedBuckets(long currentBucket) {
+        Set<String> ended = redisTemplate.opsForZSet()
+                .rangeByScore(PayhashBucketKeys.INDEX, Double.NEGATIVE_INFINITY, currentBucket - 1, 0, MAX_BUCKETS_PER_RUN);
+        if (ended == null || ended.isEmpty()) {
             return;
         }
-        List<MapSqlParameterSource> batch = entries.entrySet().stream()
-                .map(entry -> new MapSqlParameterSource()
-                        .addValue("bucketTime", new Timestamp(bucketMillis))
-                        .addValue("workerId", entry.getKey().toString())
-                        .addValue("payhash", Long.parseLong(entry.getValue().toString())))
-                .collect(Collectors.toList());
+        String token = UUID.randomUUID().toString();
+        List<String> keys = new ArrayList<>(2 + ended.size() * 2);
+        keys.add(PayhashBucketKeys.INDEX);
+        keys.add(PayhashBucketKeys.FLUSHING_INDEX);
+        List<String> buckets = new ArrayList<>(ended.size());
+        for (String bucket : ended) {
+            long bucketMillis;
+            try {
+                bucketMillis = Long.parseLong(bucket);
+            } catch (NumberFormatException e) {
+                log.warn("Skip malformed payhash index member {}", bucket);
+                continue;
+            }
+            keys.add(PayhashBucketKeys.bucket(bucketMillis));
+            keys.add(PayhashBucketKeys.flushing(bucketMillis, token));
+            buckets.add(bucket);
+        }
+        if (!buckets.isEmpty()) {
+            redisTemplate.execute(CLAIM_SCRIPT, keys, buckets.toArray());
+        }
+    }
+
+    /**
+     * 在一个事务内写入分钟明细与汇总增量；flushing key 已落库过时跳过写入。返回 true 表示可以删除 flushing key。
+     */
+    private boolean persistBucket(String flushingKey, long bucketMillis, Map<String, String> entries) {
+        Timestamp bucketTime = new Timestamp(bucketMillis);
+        List<MapSqlParameterSource> batch = new ArrayList<>(entries.size());
+        Map<String, Long> deltas = new LinkedHashMap<>();
+        for (Map.Entry<String, String> entry : entries.entrySet()) {
+            long payhash;
+            try {
+                payhash = Long.parseLong(entry.getValue());
+            } catch (NumberFormatException e) {
+                log.warn("Skip malformed payhash {}={} in {}", entry.getKey(), entry.getValue(), flushingKey);
+                continue;
+            }
+            batch.add(new MapSqlParameterSource()
+                    .addValue("bucketTime", bucketTime)
+                    .addValue("workerId", entry.getKey())
+                    .addValue("payhash", payhash));
+            // 分钟明细为累加写，汇总表直接累加同一增量
+            deltas.merge(entry.getKey(), payhash, Long::sum);
+        }
 
         String sql = """
                 INSERT INTO %s (%s, %s, %s)
@@ -81,11 +233,77 @@ public class PayhashIngestionService {
                 properties.getPayhashColumn());
 
         try {
-            jdbcTemplate.batchUpdate(sql, batch.toArray(MapSqlParameterSource[]::new));
-            redisTemplate.delete(redisKey);
-            log.debug("Flushed [{}] miner stats records to DB for time {}", batch.size(), new Timestamp(bucketMillis));
+            Boolean applied = transactionTemplate.execute(status -> {
+                rollupService.fenceWriters(PayhashRollupService.SOURCE_POOL);
+                int marked = jdbcTemplate.update("""
+                        INSERT IGNORE INTO payhash_ingest_flushes (flush_key, bucket_time, worker_count, created_time)
+                        VALUES (:flushKey, :bucketTime, :workerCount, NOW())
+                        """, new MapSqlParameterSource()
+                        .addValue("flushKey", flushingKey)
+                        .addValue("bucketTime", bucketTime)
+                        .addValue("workerCount", batch.size()));
+                if (marked == 0) {
+                    return false;
+                }
+                jdbcTemplate.batchUpdate(sql, batch.toArray(MapSqlParameterSource[]::new));
+                rollupService.addDeltas(PayhashRollupService.SOURCE_POOL, null, null, bucketTime.toLocalDateTime(), deltas);
+                return true;
+            });
+            if (Boolean.TRUE.equals(applied)) {
+                log.debug("Flushed [{}] miner stats records to DB for time {}", batch.size(), bucketTime);
+            } else {
+                log.info("Payhash bucket {} ({}) was already persisted; dropping flushing key", bucketTime, flushingKey);
+            }
+            return true;
         } catch (DataAccessException ex) {
             log.warn("Failed to persist payhash bucket {}: {}", bucketMillis, ex.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * 升级过渡：把索引上线前写入、尚未落库的最近分钟桶登记到索引（仅首次执行，一次管道 EXISTS）。
+     */
+    private void seedIndex(long currentBucket) {
+        List<Long> candidates = new ArrayList<>(MAX_BUCKET_LOOKBACK);
+        for (int i = 1; i <= MAX_BUCKET_LOOKBACK; i++) {
+            long bucket = currentBucket - (i * 60_000L);
+            if (bucket > 0) {
+                candidates.add(bucket);
+            }
+        }
+        List<Object> exists = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection redis = (StringRedisConnection) connection;
+            for (Long bucket : candidates) {
+                redis.exists(PayhashBucketKeys.bucket(bucket));
+            }
+            return null;
+        });
+        for (int i = 0; i < candidates.size() && i < exists.size(); i++) {
+            if (Boolean.TRUE.equals(exists.get(i))) {
+                Long bucket = candidates.get(i);
+                redisTemplate.opsForZSet().add(PayhashBucketKeys.INDEX, String.valueOf(bucket), bucket);
+            }
+        }
+    }
+
+    /**
+     * 落库记录只用于崩溃重试去重，flushing key 最长存活一个桶 TTL；每小时清理两天前的记录。
+     */
+    private void purgeFlushLog() {
+        long now = System.currentTimeMillis();
+        if (now - lastPurgeMillis < PURGE_INTERVAL_MILLIS) {
+            return;
+        }
+        lastPurgeMillis = now;
+        try {
+            jdbcTemplate.update("""
+                    DELETE FROM payhash_ingest_flushes
+                    WHERE created_time < NOW() - INTERVAL 2 DAY
+                    LIMIT 10000
+                    """, new MapSqlParameterSource());
+        } catch (DataAccessException ex) {
+            log.warn("Failed to purge payhash ingest flush log: {}", ex.getMessage());
         }
     }
 }
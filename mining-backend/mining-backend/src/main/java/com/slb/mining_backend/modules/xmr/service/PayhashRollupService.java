@@ -0,0 +1,527 @@
+package com.slb.mining_backend.modules.xmr.service;
+
+import com.slb.mining_backend.common.job.JobLease;
+import com.slb.mining_backend.modules.xmr.config.F2PoolPayhashTimeseriesProperties;
+import com.slb.mining_backend.modules.xmr.config.PayhashRollupProperties;
+import com.slb.mining_backend.modules.xmr.config.PayhashTimeseriesProperties;
+import com.slb.mining_backend.modules.xmr.dto.WorkerPayhashScore;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * payhash 小时/日汇总表：写分钟桶时按增量同步维护，窗口聚合时整小时/整日直接按 worker 点查。
+ *
+ * 规则：
+ * - 写入方在同一事务内写分钟明细并调用 {@link #addDeltas}（覆盖写的写入方传入新旧值之差）；
+ * - 写入方事务开始时对 payhash_rollup_coverage 中该 source 的行加共享锁（{@link #fenceWriters}），
+ *   修复任务对同一行加排他锁后再 DELETE + INSERT…SELECT 重算：重算期间没有进行中的写入方，
+ *   重算读到的分钟明细与已累加的增量一致，不会出现增量丢失或重复；
+ * - 修复任务定期按分钟明细重算最近若干小时（迟到数据、写汇总失败等），首次运行时记录覆盖起点；
+ *   之后从覆盖起点向前逐小时回填到 backfill-hours，每小时一个事务，提交后覆盖起点前移并释放排他锁；
+ * - 聚合只对覆盖起点之后的整小时/整日读取汇总表，窗口首尾不足一小时的部分及覆盖起点之前仍按分钟明细聚合；
+ * - 汇总表读取失败时整窗回退到分钟明细聚合。
+ */
+@Service
+@Slf4j
+public class PayhashRollupService {
+
+    public static final String SOURCE_POOL = "POOL";
+    public static final String SOURCE_F2POOL = "F2POOL";
+
+    private static final ZoneId BJT = ZoneId.of("Asia/Shanghai");
+    private static final long COVERAGE_CACHE_MILLIS = 60_000L;
+
+    /**
+     * 按分钟明细聚合一个时间段（由各窗口得分服务提供原有查询）。
+     */
+    @FunctionalInterface
+    public interface MinuteScan {
+        List<WorkerPayhashScore> scan(LocalDateTime start, LocalDateTime end);
+    }
+
+    enum Grain {
+        MINUTE, HOUR, DAY
+    }
+
+    record Range(Grain grain, LocalDateTime start, LocalDateTime end) {
+    }
+
+    /**
+     * 分钟明细表的列映射；POOL 表没有 account/coin 列，汇总表中记为空串。
+     */
+    private record MinuteTable(String source, String table, String accountColumn, String coinColumn,
+                               String timeColumn, String workerColumn, String payhashColumn) {
+    }
+
+    private record Coverage(LocalDateTime coveredFrom, long loadedAtMillis) {
+    }
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final PayhashRollupProperties properties;
+    private final List<MinuteTable> minuteTables;
+    private final Map<String, Coverage> coverageCache = new ConcurrentHashMap<>();
+    private final Set<String> fenceRows = ConcurrentHashMap.newKeySet();
+
+    public PayhashRollupService(NamedParameterJdbcTemplate jdbcTemplate,
+                                TransactionTemplate transactionTemplate,
+                                PayhashRollupProperties properties,
+                                PayhashTimeseriesProperties poolProperties,
+                                F2PoolPayhashTimeseriesProperties f2poolProperties) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.properties = properties;
+        this.minuteTables = List.of(
+                new MinuteTable(SOURCE_POOL, poolProperties.getTable(), null, null,
+                        poolProperties.getTimeColumn(), poolProperties.getWorkerColumn(), poolProperties.getPayhashColumn()),
+                new MinuteTable(SOURCE_F2POOL, f2poolProperties.getTable(),
+                        f2poolProperties.getAccountColumn(), f2poolProperties.getCoinColumn(),
+                        f2poolProperties.getTimeColumn(), f2poolProperties.getWorkerColumn(), f2poolProperties.getPayhashColumn()));
+    }
+
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    /**
+     * 写入方栅栏：对该 source 的覆盖行加共享锁，须在写分钟明细之前、与之处于同一事务内调用。
+     * 写入方之间互不阻塞；修复任务重算期间（持有排他锁）写入方等待，修复提交后继续。
+     */
+    public void fenceWriters(String source) {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        ensureFenceRow(source);
+        jdbcTemplate.queryForList(
+                "SELECT source FROM payhash_rollup_coverage WHERE source = :source LOCK IN SHARE MODE",
+                new MapSqlParameterSource("source", source), String.class);
+    }
+
+    /**
+     * 把一个分钟桶的增量累加到小时/日汇总；须与分钟明细写入处于同一事务，且事务开始时已调用 {@link #fenceWriters}。
+     */
+    public void addDeltas(String source, String account, String coin, LocalDateTime bucketTime, Map<String, Long> deltas) {
+        if (!properties.isEnabled() || bucketTime == null || deltas == null || deltas.isEmpty()) {
+            return;
+        }
+        LocalDateTime hourStart = bucketTime.truncatedTo(ChronoUnit.HOURS);
+        LocalDate day = bucketTime.toLocalDate();
+        List<MapSqlParameterSource> hourly = new ArrayList<>(deltas.size());
+        List<MapSqlParameterSource> daily = new ArrayList<>(deltas.size());
+        for (Map.Entry<String, Long> entry : deltas.entrySet()) {
+            if (!StringUtils.hasText(entry.getKey()) || entry.getValue() == null || entry.getValue() == 0L) {
+                continue;
+            }
+            hourly.add(new MapSqlParameterSource()
+                    .addValue("source", source)
+                    .addValue("account", nullToEmpty(account))
+                    .addValue("coin", nullToEmpty(coin))
+                    .addValue("hourStart", Timestamp.valueOf(hourStart))
+                    .addValue("workerId", entry.getKey())
+                    .addValue("payhash", entry.getValue()));
+            daily.add(new MapSqlParameterSource()
+                    .addValue("source", source)
+                    .addValue("account", nullToEmpty(account))
+                    .addValue("coin", nullToEmpty(coin))
+                    .addValue("dayStart", Date.valueOf(day))
+                    .addValue("workerId", entry.getKey())
+                    .addValue("payhash", entry.getValue()));
+        }
+        if (hourly.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate("""
+                INSERT INTO payhash_rollup_hourly (source, account, coin, hour_start, worker_id, payhash, updated_time)
+                VALUES (:source, :account, :coin, :hourStart, :workerId, :payhash, NOW())
+                ON DUPLICATE KEY UPDATE payhash = payhash + VALUES(payhash), updated_time = NOW()
+                """, hourly.toArray(MapSqlParameterSource[]::new));
+        jdbcTemplate.batchUpdate("""
+                INSERT INTO payhash_rollup_daily (source, account, coin, day_start, worker_id, payhash, updated_time)
+                VALUES (:source, :account, :coin, :dayStart, :workerId, :payhash, NOW())
+                ON DUPLICATE KEY UPDATE payhash = payhash + VALUES(payhash), updated_time = NOW()
+                """, daily.toArray(MapSqlParameterSource[]::new));
+    }
+
+    /**
+     * 覆盖写的增量：after - before；includeRemoved 为 true 时 before 中有而 after 中没有的 worker 记为负增量（整桶覆盖）。
+     */
+    public static Map<String, Long> diff(Map<String, Long> before, Map<String, Long> after, boolean includeRemoved) {
+        Map<String, Long> deltas = new LinkedHashMap<>();
+        for (Map.Entry<String, Long> entry : after.entrySet()) {
+            long previous = before.getOrDefault(entry.getKey(), 0L);
+            long current = entry.getValue() != null ? entry.getValue() : 0L;
+            if (current != previous) {
+                deltas.put(entry.getKey(), current - previous);
+            }
+        }
+        if (includeRemoved) {
+            for (Map.Entry<String, Long> entry : before.entrySet()) {
+                if (!after.containsKey(entry.getKey()) && entry.getValue() != null && entry.getValue() != 0L) {
+                    deltas.put(entry.getKey(), -entry.getValue());
+                }
+            }
+        }
+        return deltas;
+    }
+
+    /**
+     * 窗口 [start, end) 内按 worker 汇总 payhash。
+     */
+    public List<WorkerPayhashScore> aggregate(String source,
+                                              String account,
+                                              String coin,
+                                              LocalDateTime start,
+                                              LocalDateTime end,
+                                              MinuteScan minuteScan) {
+        if (!properties.isEnabled()) {
+            return minuteScan.scan(start, end);
+        }
+        List<Range> ranges;
+        try {
+            ranges = plan(start, end, coveredFrom(source));
+        } catch (DataAccessException ex) {
+            log.warn("Failed to read payhash rollup coverage (source={}): {}", source, ex.getMessage());
+            return minuteScan.scan(start, end);
+        }
+        if (ranges.size() == 1 && ranges.get(0).grain() == Grain.MINUTE) {
+            return minuteScan.scan(start, end);
+        }
+        Map<String, BigDecimal> totals = new LinkedHashMap<>();
+        try {
+            for (Range range : ranges) {
+                List<WorkerPayhashScore> scores = switch (range.grain()) {
+                    case MINUTE -> minuteScan.scan(range.start(), range.end());
+                    case HOUR -> queryRollup("payhash_rollup_hourly", "hour_start", source, account, coin,
+                            Timestamp.valueOf(range.start()), Timestamp.valueOf(range.end()));
+                    case DAY -> queryRollup("payhash_rollup_daily", "day_start", source, account, coin,
+                            Date.valueOf(range.start().toLocalDate()), Date.valueOf(range.end().toLocalDate()));
+                };
+                for (WorkerPayhashScore score : scores) {
+                    if (score.workerId() != null && score.payhash() != null) {
+                        totals.merge(score.workerId(), score.payhash(), BigDecimal::add);
+                    }
+                }
+            }
+        } catch (DataAccessException ex) {
+            log.warn("Failed to aggregate payhash rollup (source={}, window={}~{}), fallback to minute rows: {}",
+                    source, start, end, ex.getMessage());
+            return minuteScan.scan(start, end);
+        }
+        List<WorkerPayhashScore> result = new ArrayList<>(totals.size());
+        for (Map.Entry<String, BigDecimal> entry : totals.entrySet()) {
+            if (entry.getValue().signum() > 0) {
+                result.add(new WorkerPayhashScore(entry.getKey(), entry.getValue()));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 拆分窗口：覆盖起点之后的整日读日汇总、整小时读小时汇总，其余部分读分钟明细。
+     */
+    static List<Range> plan(LocalDateTime start, LocalDateTime end, LocalDateTime coveredFrom) {
+        List<Range> ranges = new ArrayList<>();
+        if (start == null || end == null || !start.isBefore(end)) {
+            return ranges;
+        }
+        LocalDateTime rollupFrom = ceilHour(start);
+        if (coveredFrom == null) {
+            rollupFrom = end;
+        } else if (rollupFrom.isBefore(coveredFrom)) {
+            rollupFrom = ceilHour(coveredFrom);
+        }
+        LocalDateTime rollupTo = end.truncatedTo(ChronoUnit.HOURS);
+        if (!rollupFrom.isBefore(rollupTo)) {
+            ranges.add(new Range(Grain.MINUTE, start, end));
+            return ranges;
+        }
+        if (start.isBefore(rollupFrom)) {
+            ranges.add(new Range(Grain.MINUTE, start, rollupFrom));
+        }
+        LocalDateTime dayFrom = ceilDay(rollupFrom);
+        LocalDateTime dayTo = rollupTo.truncatedTo(ChronoUnit.DAYS);
+        if (dayFrom.isBefore(dayTo)) {
+            if (rollupFrom.isBefore(dayFrom)) {
+                ranges.add(new Range(Grain.HOUR, rollupFrom, dayFrom));
+            }
+            ranges.add(new Range(Grain.DAY, dayFrom, dayTo));
+            if (dayTo.isBefore(rollupTo)) {
+                ranges.add(new Range(Grain.HOUR, dayTo, rollupTo));
+            }
+        } else {
+            ranges.add(new Range(Grain.HOUR, rollupFrom, rollupTo));
+        }
+        if (rollupTo.isBefore(end)) {
+            ranges.add(new Range(Grain.MINUTE, rollupTo, end));
+        }
+        return ranges;
+    }
+
+    /**
+     * 修复任务：按分钟明细重算最近 repair-lookback-hours 个已结束的小时；覆盖起点晚于 backfill-hours 之前时逐小时回填。
+     */
+    @Scheduled(cron = "${app.payhash.rollup.repair-cron:0 7/15 * * * ?}", zone = "Asia/Shanghai")
+    public void repairRecent() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        LocalDateTime currentHour = LocalDateTime.now(BJT).truncatedTo(ChronoUnit.HOURS);
+        for (MinuteTable table : minuteTables) {
+            if (JobLease.currentLost()) {
+                log.warn("Payhash rollup repair lost its job lease; stop before source {}", table.source());
+                break;
+            }
+            try {
+                ensureFenceRow(table.source());
+                LocalDateTime coveredFrom = transactionTemplate.execute(status -> repairWindow(table, currentHour));
+                coverageCache.remove(table.source());
+                backfill(table, coveredFrom, currentHour.minusHours(Math.max(1, properties.getBackfillHours())));
+            } catch (DataAccessException ex) {
+                log.warn("Failed to repair payhash rollup (source={}): {}", table.source(), ex.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 在排他锁下重算最近的修复窗口，返回覆盖起点；覆盖起点为空（首次运行）时以窗口起点作为覆盖起点。
+     */
+    private LocalDateTime repairWindow(MinuteTable table, LocalDateTime currentHour) {
+        // 排他锁：等待进行中的写入方提交，并阻止新的写入方直到重算提交
+        LocalDateTime coveredFrom = lockCoveredFrom(table.source());
+        // 常规修复只重算已结束的小时（当前小时由增量维护，缩短写入方等待）；
+        // 首次运行须包含当前小时：上线前已写入的分钟没有对应的增量
+        LocalDateTime to = coveredFrom == null ? currentHour.plusHours(1) : currentHour;
+        LocalDateTime from = currentHour.minusHours(Math.max(1, properties.getRepairLookbackHours()));
+        recomputeHourly(table, from, to);
+        recomputeDaily(table.source(), from.truncatedTo(ChronoUnit.DAYS), ceilDay(to));
+        if (coveredFrom != null) {
+            return coveredFrom;
+        }
+        saveCoveredFrom(table.source(), from);
+        return from;
+    }
+
+    /**
+     * 从覆盖起点向前逐小时回填到 backfillFrom：每小时一个事务，提交后覆盖起点前移一小时，
+     * 写入方只在单个小时的重算期间等待排他锁。中途失败或租约丢失时已回填的小时仍然有效，下次运行从覆盖起点继续。
+     */
+    private void backfill(MinuteTable table, LocalDateTime coveredFrom, LocalDateTime backfillFrom) {
+        LocalDateTime next = coveredFrom;
+        if (next == null || !next.isAfter(backfillFrom)) {
+            return;
+        }
+        while (next != null && next.isAfter(backfillFrom)) {
+            if (JobLease.currentLost()) {
+                log.warn("Payhash rollup backfill lost its job lease (source={}, coveredFrom={})", table.source(), next);
+                return;
+            }
+            LocalDateTime hourStart = ceilHour(next).minusHours(1);
+            next = transactionTemplate.execute(status -> backfillHour(table, hourStart));
+            coverageCache.remove(table.source());
+        }
+        log.info("Payhash rollup backfilled (source={}, from={}, to={})", table.source(), next, coveredFrom);
+    }
+
+    private LocalDateTime backfillHour(MinuteTable table, LocalDateTime hourStart) {
+        LocalDateTime coveredFrom = lockCoveredFrom(table.source());
+        if (coveredFrom == null || !coveredFrom.isAfter(hourStart)) {
+            return coveredFrom;
+        }
+        recomputeHourly(table, hourStart, hourStart.plusHours(1));
+        // 日汇总只在整日都已回填（回填到 0 点）时重算；部分回填的日期早于覆盖起点，聚合不会按日读取
+        if (hourStart.getHour() == 0) {
+            recomputeDaily(table.source(), hourStart, hourStart.plusDays(1));
+        }
+        saveCoveredFrom(table.source(), hourStart);
+        return hourStart;
+    }
+
+    private void recomputeHourly(MinuteTable table, LocalDateTime from, LocalDateTime to) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("source", table.source())
+                .addValue("from", Timestamp.valueOf(from))
+                .addValue("to", Timestamp.valueOf(to));
+        jdbcTemplate.update("""
+                DELETE FROM payhash_rollup_hourly
+                WHERE source = :source AND hour_start >= :from AND hour_start < :to
+                """, params);
+        String accountExpr = table.accountColumn() != null ? table.accountColumn() : "''";
+        String coinExpr = table.coinColumn() != null ? table.coinColumn() : "''";
+        String hourExpr = "DATE_FORMAT(%s, '%%Y-%%m-%%d %%H:00:00')".formatted(table.timeColumn());
+        String sql = """
+                INSERT INTO payhash_rollup_hourly (source, account, coin, hour_start, worker_id, payhash, updated_time)
+                SELECT :source, %s, %s, %s, %s, SUM(%s), NOW()
+                FROM %s
+                WHERE %s >= :from AND %s < :to
+                GROUP BY %s, %s, %s, %s
+                """.formatted(
+                accountExpr, coinExpr, hourExpr, table.workerColumn(), table.payhashColumn(),
+                table.table(),
+                table.timeColumn(), table.timeColumn(),
+                accountExpr, coinExpr, hourExpr, table.workerColumn());
+        jdbcTemplate.update(sql, params);
+    }
+
+    private void recomputeDaily(String source, LocalDateTime fromDay, LocalDateTime toDay) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("source", source)
+                .addValue("fromDay", Date.valueOf(fromDay.toLocalDate()))
+                .addValue("toDay", Date.valueOf(toDay.toLocalDate()))
+                .addValue("from", Timestamp.valueOf(fromDay))
+                .addValue("to", Timestamp.valueOf(toDay));
+        jdbcTemplate.update("""
+                DELETE FROM payhash_rollup_daily
+                WHERE source = :source AND day_start >= :fromDay AND day_start < :toDay
+                """, params);
+        jdbcTemplate.update("""
+                INSERT INTO payhash_rollup_daily (source, account, coin, day_start, worker_id, payhash, updated_time)
+                SELECT source, account, coin, DATE(hour_start), worker_id, SUM(payhash), NOW()
+                FROM payhash_rollup_hourly
+                WHERE source = :source AND hour_start >= :from AND hour_start < :to
+                GROUP BY source, account, coin, DATE(hour_start), worker_id
+                """, params);
+    }
+
+    private List<WorkerPayhashScore> queryRollup(String table, String timeColumn, String source, String account, String coin,
+                                                 Object from, Object to) {
+        String sql = """
+                SELECT worker_id, SUM(payhash) AS total_payhash
+                FROM %s
+                WHERE source = :source AND account = :account AND coin = :coin
+                  AND %s >= :from AND %s < :to
+                GROUP BY worker_id
+                """.formatted(table, timeColumn, timeColumn);
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("source", source)
+                .addValue("account", nullToEmpty(account))
+                .addValue("coin", nullToEmpty(coin))
+                .addValue("from", from)
+                .addValue("to", to);
+        return jdbcTemplate.query(sql, params, (rs, rowNum) ->
+                new WorkerPayhashScore(rs.getString("worker_id"), rs.getBigDecimal("total_payhash")));
+    }
+
+    private LocalDateTime coveredFrom(String source) {
+        long now = System.currentTimeMillis();
+        Coverage cached = coverageCache.get(source);
+        if (cached != null && now - cached.loadedAtMillis() < COVERAGE_CACHE_MILLIS) {
+            return cached.coveredFrom();
+        }
+        LocalDateTime coveredFrom = loadCoveredFrom(source);
+        coverageCache.put(source, new Coverage(coveredFrom, now));
+        return coveredFrom;
+    }
+
+    private LocalDateTime loadCoveredFrom(String source) {
+        List<Timestamp> rows = jdbcTemplate.queryForList(
+                "SELECT covered_from FROM payhash_rollup_coverage WHERE source = :source",
+                new MapSqlParameterSource("source", source), Timestamp.class);
+        return rows.isEmpty() || rows.get(0) == null ? null : rows.get(0).toLocalDateTime();
+    }
+
+    private LocalDateTime lockCoveredFrom(String source) {
+        List<Timestamp> rows = jdbcTemplate.queryForList(
+                "SELECT covered_from FROM payhash_rollup_coverage WHERE source = :source FOR UPDATE",
+                new MapSqlParameterSource("source", source), Timestamp.class);
+        return rows.isEmpty() || rows.get(0) == null ? null : rows.get(0).toLocalDateTime();
+    }
+
+    /**
+     * 栅栏行须先存在（covered_from 为 NULL 表示尚未回填），否则共享锁与排他锁锁不到同一行。
+     */
+    private void ensureFenceRow(String source) {
+        if (fenceRows.contains(source)) {
+            return;
+        }
+        jdbcTemplate.update("""
+                INSERT IGNORE INTO payhash_rollup_coverage (source, covered_from, updated_time)
+                VALUES (:source, NULL, NOW())
+                """, new MapSqlParameterSource("source", source));
+        fenceRows.add(source);
+    }
+
+    private void saveCoveredFrom(String source, LocalDateTime coveredFrom) {
+        jdbcTemplate.update("""
+                INSERT INTO payhash_rollup_coverage (source, covered_from, updated_time)
+                VALUES (:source, :coveredFrom, NOW())
+                ON DUPLICATE KEY UPDATE covered_from = LEAST(COALESCE(covered_from, VALUES(covered_from)), VALUES(covered_from)),
+                                        updated_time = NOW()
+                """, new MapSqlParameterSource()
+                .addValue("source", source)
+                .addValue("coveredFrom", Timestamp.valueOf(coveredFrom)));
+    }
+
+    /**
+     * 读取覆盖写之前的分钟桶（加锁，保证新旧值之差与随后的覆盖写一致）；account/coin 为空时读取 POOL 表整桶。
+     * 先进入写入方栅栏（{@link #fenceWriters}），覆盖写的写入方无需另行调用。
+     */
+    public Map<String, Long> lockBucket(String source, String account, String coin, LocalDateTime bucketTime, Set<String> workerIds) {
+        MinuteTable table = minuteTable(source);
+        fenceWriters(source);
+        StringBuilder sql = new StringBuilder("SELECT %s AS worker_id, %s AS payhash FROM %s WHERE %s = :bucketTime"
+                .formatted(table.workerColumn(), table.payhashColumn(), table.table(), table.timeColumn()));
+        MapSqlParameterSource params = new MapSqlParameterSource("bucketTime", Timestamp.valueOf(bucketTime));
+        if (table.accountColumn() != null) {
+            sql.append(" AND ").append(table.accountColumn()).append(" = :account AND ")
+                    .append(table.coinColumn()).append(" = :coin");
+            params.addValue("account", account).addValue("coin", coin);
+        }
+        if (workerIds != null) {
+            if (workerIds.isEmpty()) {
+                return new LinkedHashMap<>();
+            }
+            sql.append(" AND ").append(table.workerColumn()).append(" IN (:workerIds)");
+            params.addValue("workerIds", new HashSet<>(workerIds));
+        }
+        sql.append(" FOR UPDATE");
+        Map<String, Long> existing = new LinkedHashMap<>();
+        jdbcTemplate.query(sql.toString(), params, rs -> {
+            existing.merge(rs.getString("worker_id"), rs.getLong("payhash"), Long::sum);
+        });
+        return existing;
+    }
+
+    private MinuteTable minuteTable(String source) {
+        for (MinuteTable table : minuteTables) {
+            if (table.source().equals(source)) {
+                return table;
+            }
+        }
+        throw new IllegalArgumentException("Unknown payhash rollup source: " + source);
+    }
+
+    private static LocalDateTime ceilHour(LocalDateTime time) {
+        LocalDateTime floor = time.truncatedTo(ChronoUnit.HOURS);
+        return floor.equals(time) ? floor : floor.plusHours(1);
+    }
+
+    private static LocalDateTime ceilDay(LocalDateTime time) {
+        LocalDateTime floor = time.truncatedTo(ChronoUnit.DAYS);
+        return floor.equals(time) ? floor : floor.plusDays(1);
+    }
+
+    private static String nullToEmpty(String value) {
+        return value != null ? value : "";
+    }
+}
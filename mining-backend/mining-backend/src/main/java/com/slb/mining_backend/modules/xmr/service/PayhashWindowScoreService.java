@@ -15,6 +15,7 @@ import java.util.List;
 
 /**
  * 从时间序列数据库聚合 payhash，并按 worker 维度返回窗口期得分。
+ * 整小时/整日部分读取 payhash 汇总表（见 {@link PayhashRollupService}），其余部分按分钟明细聚合。
  */
 @Service
 @Slf4j
@@ -22,17 +23,25 @@ public class PayhashWindowScoreService {
 
     private final NamedParameterJdbcTemplate jdbcTemplate;
     private final PayhashTimeseriesProperties properties;
+    private final PayhashRollupService rollupService;
 
     public PayhashWindowScoreService(NamedParameterJdbcTemplate jdbcTemplate,
-                                     PayhashTimeseriesProperties properties) {
+                                     PayhashTimeseriesProperties properties,
+                                     PayhashRollupService rollupService) {
         this.jdbcTemplate = jdbcTemplate;
         this.properties = properties;
+        this.rollupService = rollupService;
     }
 
     public List<WorkerPayhashScore> aggregate(LocalDateTime windowStart, LocalDateTime windowEnd) {
         if (windowStart == null || windowEnd == null || !windowStart.isBefore(windowEnd)) {
             return Collections.emptyList();
         }
+        return rollupService.aggregate(PayhashRollupService.SOURCE_POOL, null, null,
+                windowStart, windowEnd, this::aggregateMinutes);
+    }
+
+    private List<WorkerPayhashScore> aggregateMinutes(LocalDateTime windowStart, LocalDateTime windowEnd) {
         String sql = """
                 SELECT %s AS worker_id, SUM(%s) AS total_payhash
                 FROM %s
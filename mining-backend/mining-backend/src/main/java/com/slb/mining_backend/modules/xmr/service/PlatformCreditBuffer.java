@@ -0,0 +1,185 @@
+package com.slb.mining_backend.modules.xmr.service;
+
+import com.slb.mining_backend.modules.users.dto.UserBalanceDelta;
+import com.slb.mining_backend.modules.users.mapper.UserMapper;
+import com.slb.mining_backend.modules.xmr.config.PlatformCreditBufferProperties;
+import com.slb.mining_backend.modules.xmr.mapper.SettlementPlatformCreditMapper;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.BadSqlGrammarException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * 平台账户（admin）与 unclaimed 账户的入账缓冲，消除并行结算在这两行 users 上的锁竞争。
+ *
+ * 规则：
+ * - 结算事务内对热点账户只追加 settlement_platform_credits 记录，与其他写操作同事务提交/回滚；
+ * - flush 在独立事务中按 id 上界认领未认领记录，汇总后每个账户一次 batchAddSettlementBalances；
+ *   认领（UPDATE ... WHERE apply_id IS NULL）持有行锁，并发 flush 不会重复入账；
+ * - 资产流水由调用方照常逐笔写入，余额只是延迟合并：小时结算在每个窗口及整轮结束时 flush，
+ *   其他入口（F2Pool/Antpool 小时结算、payhash 纠偏）依赖定时 flush，热点账户余额最多滞后 flush-interval-ms；
+ * - settlement_platform_credits 不存在（未执行 db/migration/create_settlement_platform_credits.sql）时
+ *   记录 ERROR 并退回到结算事务内直接更新余额。
+ */
+@Service
+@Slf4j
+public class PlatformCreditBuffer {
+
+    private final SettlementPlatformCreditMapper creditMapper;
+    private final UserMapper userMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final PlatformCreditBufferProperties properties;
+    private final long adminUserId;
+    private final long unclaimedUserId;
+    private volatile boolean tableAvailable = true;
+
+    public PlatformCreditBuffer(SettlementPlatformCreditMapper creditMapper,
+                                UserMapper userMapper,
+                                TransactionTemplate transactionTemplate,
+                                PlatformCreditBufferProperties properties,
+                                @Value("${app.settlement.admin-user-id:1}") long adminUserId,
+                                @Value("${app.settlement.unclaimed-user-id:1}") long unclaimedUserId) {
+        this.creditMapper = creditMapper;
+        this.userMapper = userMapper;
+        this.transactionTemplate = transactionTemplate;
+        this.properties = properties;
+        this.adminUserId = adminUserId;
+        this.unclaimedUserId = unclaimedUserId;
+    }
+
+    @PostConstruct
+    public void checkTable() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        try {
+            creditMapper.selectPendingUpperId(1);
+        } catch (BadSqlGrammarException e) {
+            markTableMissing(e);
+        } catch (DataAccessException e) {
+            // 数据库暂不可用：保持缓冲开启，由结算事务自身的失败/重试兜底
+            log.warn("Failed to check settlement_platform_credits: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 该用户的入账是否走缓冲（仅 admin 与 unclaimed 两个热点账户；缓冲表缺失时不缓冲）。
+     */
+    public boolean isBuffered(Long userId) {
+        if (!properties.isEnabled() || !tableAvailable || userId == null) {
+            return false;
+        }
+        return userId == adminUserId || (unclaimedUserId > 0 && userId == unclaimedUserId);
+    }
+
+    /**
+     * 追加待入账记录；须在结算事务内调用，随结算事务一起提交。
+     */
+    public void append(Collection<UserBalanceDelta> deltas, String sourceRef) {
+        if (deltas == null || deltas.isEmpty()) {
+            return;
+        }
+        List<UserBalanceDelta> rows = new ArrayList<>(deltas.size());
+        for (UserBalanceDelta delta : deltas) {
+            BigDecimal cal = delta.getCalAmount() != null ? delta.getCalAmount() : BigDecimal.ZERO;
+            BigDecimal cny = delta.getCnyAmount() != null ? delta.getCnyAmount() : BigDecimal.ZERO;
+            if (cal.signum() == 0 && cny.signum() == 0) {
+                continue;
+            }
+            rows.add(new UserBalanceDelta(delta.getUserId(), cal, cny));
+        }
+        if (rows.isEmpty()) {
+            return;
+        }
+        if (tableAvailable) {
+            try {
+                creditMapper.batchInsert(rows, sourceRef);
+                return;
+            } catch (BadSqlGrammarException e) {
+                markTableMissing(e);
+            }
+        }
+        userMapper.batchAddSettlementBalances(rows);
+    }
+
+    public void appendCal(Long userId, BigDecimal calAmount, String sourceRef) {
+        append(List.of(new UserBalanceDelta(userId, calAmount, BigDecimal.ZERO)), sourceRef);
+    }
+
+    public void appendCny(Long userId, BigDecimal cnyAmount, String sourceRef) {
+        append(List.of(new UserBalanceDelta(userId, BigDecimal.ZERO, cnyAmount)), sourceRef);
+    }
+
+    /**
+     * 把已提交的待入账记录合并进 users 余额，返回本次认领的记录数。
+     * 调用方无需处于事务中；失败时记录保持未认领，留给下一次 flush。
+     */
+    public int flush() {
+        if (!tableAvailable) {
+            return 0;
+        }
+        int total = 0;
+        int batchSize = Math.max(1, properties.getFlushBatchSize());
+        try {
+            while (true) {
+                Integer claimed = transactionTemplate.execute(status -> applyOnce(batchSize));
+                if (claimed == null || claimed <= 0) {
+                    break;
+                }
+                total += claimed;
+                if (claimed < batchSize) {
+                    break;
+                }
+            }
+        } catch (Exception e) {
+            log.warn("Failed to flush buffered platform credits: {}", e.getMessage());
+        }
+        return total;
+    }
+
+    @Scheduled(fixedDelayString = "${app.settlement.platform-credit.flush-interval-ms:60000}")
+    public void scheduledFlush() {
+        // 关闭缓冲后仍继续合并历史遗留的待入账记录
+        int claimed = flush();
+        if (claimed > 0) {
+            log.info("Flushed {} buffered platform credit rows", claimed);
+        }
+    }
+
+    private void markTableMissing(BadSqlGrammarException e) {
+        if (tableAvailable) {
+            tableAvailable = false;
+            log.error("settlement_platform_credits is unavailable, crediting platform/unclaimed balances directly "
+                    + "(apply db/migration/create_settlement_platform_credits.sql and restart to re-enable buffering): {}",
+                    e.getMessage());
+        }
+    }
+
+    private int applyOnce(int batchSize) {
+        Long upperId = creditMapper.selectPendingUpperId(batchSize);
+        if (upperId == null) {
+            return 0;
+        }
+        String applyId = UUID.randomUUID().toString();
+        int claimed = creditMapper.claimPending(upperId, applyId);
+        if (claimed <= 0) {
+            return 0;
+        }
+        List<UserBalanceDelta> sums = creditMapper.sumClaimed(applyId);
+        if (!sums.isEmpty()) {
+            userMapper.batchAddSettlementBalances(sums);
+        }
+        log.debug("Applied {} buffered platform credit rows to {} users (applyId={})", claimed, sums.size(), applyId);
+        return claimed;
+    }
+}
@@ -1,33 +1,46 @@
 package com.slb.mining_backend.modules.xmr.service;
 
+import com.slb.mining_backend.common.http.OutboundCallRejectedException;
 import com.slb.mining_backend.modules.xmr.config.PayhashTimeseriesProperties;
+import com.slb.mining_backend.modules.xmr.config.PoolWorkerFetchProperties;
 import com.slb.mining_backend.modules.xmr.domain.PoolClient;
-import com.slb.mining_backend.modules.xmr.domain.PoolClientException;
 import com.slb.mining_backend.modules.xmr.domain.WorkerHash;
 import com.slb.mining_backend.modules.xmr.entity.XmrPoolStats;
 import com.slb.mining_backend.modules.xmr.mapper.XmrPoolStatsMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.util.CollectionUtils;
 import org.springframework.util.StringUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 import java.sql.Timestamp;
 import java.time.Duration;
 import java.time.Instant;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.LinkedHashMap;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * 直接从矿池 API 采集 worker hashrate，并推断 payhash 写入时间序列表。
+ *
+ * 各 subaddress 并发、非阻塞地拉取（见 PoolWorkerFetchProperties），单个 subaddress 超时或失败时用最近快照兜底，
+ * 分钟桶不再被个别慢地址拖延；耗时与断档数通过 slb.payhash.pool.sync.* 指标导出。
  */
 @Service
 @Slf4j
@@ -37,6 +50,8 @@ public class PoolPayhashSyncService {
     private final XmrPoolStatsMapper poolStatsMapper;
     private final NamedParameterJdbcTemplate jdbcTemplate;
     private final PayhashTimeseriesProperties properties;
+    private final PayhashRollupService rollupService;
+    private final TransactionTemplate transactionTemplate;
     private final int deriveSeconds;
     private final WorkerWhitelistService workerWhitelistService;
     /**
@@ -79,8 +94,17 @@ public class PoolPayhashSyncService {
      */
     private final int workerCacheTtlSeconds;
     private final Map<String, CachedWorkers> workerCache = new ConcurrentHashMap<>();
+    private final PoolWorkerFetchProperties fetchProperties;
+    private final MeterRegistry meterRegistry;
+    private final Timer syncTimer;
+    private final Counter emptyBuckets;
 
-    private record FetchWorkersResult(List<WorkerHash> workers, boolean upstreamFailed, boolean usedCache, long cacheAgeSeconds) {
+    /**
+     * 单个 subaddress 的拉取结果。
+     *
+     * @param failure null 表示拉取成功；否则为 UPSTREAM_FAILED / TIMEOUT，或治理器拒绝原因（RATE_LIMITED / CIRCUIT_OPEN / BULKHEAD_FULL）
+     */
+    private record FetchWorkersResult(String subaddress, List<WorkerHash> workers, String failure, boolean usedCache, long cacheAgeSeconds) {
     }
 
     private record CachedWorkers(List<WorkerHash> workers, Instant fetchedAt) {
@@ -91,6 +115,10 @@ public class PoolPayhashSyncService {
                                   NamedParameterJdbcTemplate jdbcTemplate,
                                   PayhashTimeseriesProperties properties,
                                   WorkerWhitelistService workerWhitelistService,
+                                  PayhashRollupService rollupService,
+                                  TransactionTemplate transactionTemplate,
+                                  PoolWorkerFetchProperties fetchProperties,
+                                  MeterRegistry meterRegistry,
                                   @Value("${app.payhash.derive-seconds:60}") int deriveSeconds,
                                   @Value("${app.payhash.allow-synthetic-usr-from-raw-worker-id:false}") boolean allowSyntheticUsrFromRawWorkerId,
                                   @Value("${app.payhash.prefer-hash-now-for-payhash:true}") boolean preferHashNowForPayhash,
@@ -100,16 +128,36 @@ public class PoolPayhashSyncService {
         this.poolStatsMapper = poolStatsMapper;
         this.jdbcTemplate = jdbcTemplate;
         this.properties = properties;
+        this.rollupService = rollupService;
+        this.transactionTemplate = transactionTemplate;
         this.deriveSeconds = Math.max(1, deriveSeconds);
         this.workerWhitelistService = workerWhitelistService;
         this.allowSyntheticUsrFromRawWorkerId = allowSyntheticUsrFromRawWorkerId;
         this.preferHashNowForPayhash = preferHashNowForPayhash;
         this.workerStaleSeconds = Math.max(0, workerStaleSeconds);
         this.workerCacheTtlSeconds = Math.max(0, workerCacheTtlSeconds);
+        this.fetchProperties = fetchProperties;
+        this.meterRegistry = meterRegistry;
+        this.syncTimer = Timer.builder("slb.payhash.pool.sync")
+                .description("矿池 payhash 单轮采集耗时（含并发拉取与落库）")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        this.emptyBuckets = Counter.builder("slb.payhash.pool.sync.empty.buckets")
+                .description("采集到 0 样本、未写入的分钟桶数量")
+                .register(meterRegistry);
     }
 
     @Scheduled(fixedDelayString = "${app.payhash.sync-interval-ms:60000}")
     public void syncFromPool() {
+        long startNanos = System.nanoTime();
+        try {
+            syncOnce();
+        } finally {
+            syncTimer.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void syncOnce() {
         Instant now = Instant.now();
         List<XmrPoolStats> poolStats = poolStatsMapper.selectAll();
         if (CollectionUtils.isEmpty(poolStats)) {
@@ -156,20 +204,23 @@ public class PoolPayhashSyncService {
         Map<String, Long> aggregatedAll = new HashMap<>();
         List<MapSqlParameterSource> rows = new ArrayList<>();
         int emptyWorkersSubaddresses = 0;
+        Map<String, FetchWorkersResult> fetchedBySubaddress = fetchAll(uniqueStats, now);
         for (XmrPoolStats stats : uniqueStats) {
-            FetchWorkersResult fetched = fetchWorkers(stats, now);
+            FetchWorkersResult fetched = fetchedBySubaddress.get(stats.getSubaddress());
             List<WorkerHash> workers = fetched.workers();
             if (fetched.usedCache()) {
-                log.warn("PoolPayhashSyncService: fallback to cached workers (subaddress={}, provider={}, cacheAgeSec={})",
-                        stats != null ? stats.getSubaddress() : null, poolClient.name(), fetched.cacheAgeSeconds());
+                meterRegistry.counter("slb.payhash.pool.sync.cache.fallbacks", "reason", fetched.failure()).increment();
+                log.warn("PoolPayhashSyncService: fallback to cached workers (subaddress={}, provider={}, reason={}, cacheAgeSec={})",
+                        stats.getSubaddress(), poolClient.name(), fetched.failure(), fetched.cacheAgeSeconds());
             }
             if (workers.isEmpty()) {
                 emptyWorkersSubaddresses++;
-                // 关键：区分“矿池真没 worker”（EMPTY_RESPONSE） vs “上游请求失败被吞/网络异常”（UPSTREAM_FAILED）
+                // 关键：区分“矿池真没 worker”（EMPTY_RESPONSE） vs “上游请求失败被吞/网络异常”（UPSTREAM_FAILED） vs “超过截止时间”（TIMEOUT）
                 // 这里用 WARN，方便你在生产用 grep 直接定位具体 subaddress 的失败模式。
-                String subaddress = (stats != null ? stats.getSubaddress() : null);
+                String reason = fetched.failure() != null ? fetched.failure() : "EMPTY_RESPONSE";
+                meterRegistry.counter("slb.payhash.pool.sync.gaps", "reason", reason).increment();
                 log.warn("PoolPayhashSyncService: collected 0 worker samples (subaddress={}, provider={}, reason={})",
-                        subaddress, poolClient.name(), fetched.upstreamFailed() ? "UPSTREAM_FAILED" : "EMPTY_RESPONSE");
+                        stats.getSubaddress(), poolClient.name(), reason);
                 continue;
             }
             for (WorkerHash worker : workers) {
@@ -205,6 +256,7 @@ public class PoolPayhashSyncService {
                     .addValue("payhash", e.getValue()));
         }
         if (rows.isEmpty()) {
+            emptyBuckets.increment();
             int n = consecutiveEmptyRuns.incrementAndGet();
             if (n == 1 || n % 60 == 0) {
                 log.warn("PoolPayhashSyncService: collected 0 worker samples for bucket {} (subaddresses={}, emptyWorkersSubaddresses={}, consecutiveEmptyRuns={}). " +
@@ -215,7 +267,6 @@ public class PoolPayhashSyncService {
         }
         consecutiveEmptyRuns.set(0);
 
-        overwriteBucket(bucketTime);
         String sql = """
                 INSERT INTO %s (%s, %s, %s)
                 VALUES (:bucketTime, :workerId, :payhash)
@@ -227,32 +278,90 @@ public class PoolPayhashSyncService {
                 properties.getPayhashColumn(),
                 properties.getPayhashColumn(),
                 properties.getPayhashColumn());
-        jdbcTemplate.batchUpdate(sql, rows.toArray(MapSqlParameterSource[]::new));
+        MapSqlParameterSource[] batch = rows.toArray(MapSqlParameterSource[]::new);
+        if (!rollupService.isEnabled()) {
+            overwriteBucket(bucketTime);
+            jdbcTemplate.batchUpdate(sql, batch);
+        } else {
+            // 整桶覆盖：锁定旧值后重写，汇总表累加新旧值之差（含本次不再出现的 worker）
+            Map<String, Long> written = new HashMap<>();
+            for (MapSqlParameterSource row : rows) {
+                written.put((String) row.getValue("workerId"), (Long) row.getValue("payhash"));
+            }
+            LocalDateTime bucket = bucketTime.toLocalDateTime();
+            transactionTemplate.executeWithoutResult(status -> {
+                Map<String, Long> before = rollupService.lockBucket(PayhashRollupService.SOURCE_POOL, null, null, bucket, null);
+                overwriteBucket(bucketTime);
+                jdbcTemplate.batchUpdate(sql, batch);
+                rollupService.addDeltas(PayhashRollupService.SOURCE_POOL, null, null, bucket,
+                        PayhashRollupService.diff(before, written, true));
+            });
+        }
         log.debug("Synced {} worker payhash samples for bucket {} (subaddresses={}, emptyWorkersSubaddresses={})",
                 rows.size(), bucketTime, uniqueStats.size(), emptyWorkersSubaddresses);
     }
 
-    private FetchWorkersResult fetchWorkers(XmrPoolStats stats, Instant now) {
-        if (stats == null || !StringUtils.hasText(stats.getSubaddress())) {
-            return new FetchWorkersResult(List.of(), false, false, -1L);
-        }
+    /**
+     * 并发拉取全部 subaddress 的 worker 列表：在途请求数受 concurrency 限制，单个 subaddress 受 address-deadline-ms 限制，
+     * 整轮到达 sync-deadline-ms 时取消剩余请求；失败、超时与掉队的 subaddress 都回退到缓存快照。
+     */
+    private Map<String, FetchWorkersResult> fetchAll(List<XmrPoolStats> uniqueStats, Instant now) {
+        Duration addressDeadline = Duration.ofMillis(Math.max(1000L, fetchProperties.getAddressDeadlineMs()));
+        Duration syncDeadline = Duration.ofMillis(Math.max(1000L, fetchProperties.getSyncDeadlineMs()));
+        Map<String, FetchWorkersResult> results = new ConcurrentHashMap<>();
         try {
-            List<WorkerHash> workers = poolClient.fetchWorkers(stats.getSubaddress());
-            List<WorkerHash> resolved = workers != null ? workers : List.of();
-            if (!resolved.isEmpty()) {
-                cacheWorkers(stats.getSubaddress(), resolved, now);
-            }
-            return new FetchWorkersResult(resolved, false, false, -1L);
-        } catch (PoolClientException ex) {
-            // 这里不重复打 ERROR 栈：NodejsPoolClient 已经会记录 url/status/message + stacktrace
-            // 在此仅标记“上游失败”，让 syncFromPool 能把 0 样本归因到 UPSTREAM_FAILED。
-            CachedWorkers cached = resolveCachedWorkers(stats.getSubaddress(), now);
-            if (cached != null && cached.workers() != null && !cached.workers().isEmpty()) {
-                long ageSec = Math.max(0, Duration.between(cached.fetchedAt(), now).getSeconds());
-                return new FetchWorkersResult(cached.workers(), true, true, ageSec);
-            }
-            return new FetchWorkersResult(List.of(), true, false, -1L);
+            Flux.fromIterable(uniqueStats)
+                    .flatMap(stats -> fetchWorkersAsync(stats.getSubaddress(), now, addressDeadline),
+                            Math.max(1, fetchProperties.getConcurrency()))
+                    .doOnNext(result -> results.put(result.subaddress(), result))
+                    .take(syncDeadline)
+                    .then()
+                    .block();
+        } catch (RuntimeException ex) {
+            log.warn("PoolPayhashSyncService: worker fan-out aborted (provider={}, completed={}/{}, message={})",
+                    poolClient.name(), results.size(), uniqueStats.size(), ex.getMessage());
+        }
+        for (XmrPoolStats stats : uniqueStats) {
+            // 整轮截止时仍未返回：按超时掉队处理
+            results.computeIfAbsent(stats.getSubaddress(), subaddress -> fallbackToCache(subaddress, now, "TIMEOUT"));
+        }
+        return results;
+    }
+
+    private Mono<FetchWorkersResult> fetchWorkersAsync(String subaddress, Instant now, Duration deadline) {
+        // 等待限流许可最多占用一半截止时间，留出请求本身的时间；拿不到许可（或已熔断）的 subaddress 立即回退缓存，不占用并发名额
+        return Mono.defer(() -> poolClient.fetchWorkersAsync(subaddress, deadline.dividedBy(2)))
+                .timeout(deadline)
+                .map(workers -> {
+                    List<WorkerHash> resolved = workers != null ? workers : List.<WorkerHash>of();
+                    if (!resolved.isEmpty()) {
+                        cacheWorkers(subaddress, resolved, now);
+                    }
+                    return new FetchWorkersResult(subaddress, resolved, null, false, -1L);
+                })
+                .defaultIfEmpty(new FetchWorkersResult(subaddress, List.of(), null, false, -1L))
+                // 这里不重复打 ERROR 栈：NodejsPoolClient 已经会记录 url/status/message + stacktrace
+                // 在此仅标记失败原因，让 syncFromPool 能把 0 样本归因到 UPSTREAM_FAILED / TIMEOUT / 治理器拒绝。
+                .onErrorResume(ex -> Mono.just(fallbackToCache(subaddress, now, failureReason(ex))));
+    }
+
+    private static String failureReason(Throwable ex) {
+        if (ex instanceof TimeoutException) {
+            return "TIMEOUT";
+        }
+        if (ex.getCause() instanceof OutboundCallRejectedException rejected) {
+            return rejected.getReason().name();
+        }
+        return "UPSTREAM_FAILED";
+    }
+
+    private FetchWorkersResult fallbackToCache(String subaddress, Instant now, String failure) {
+        CachedWorkers cached = resolveCachedWorkers(subaddress, now);
+        if (cached != null && cached.workers() != null && !cached.workers().isEmpty()) {
+            long ageSec = Math.max(0, Duration.between(cached.fetchedAt(), now).getSeconds());
+            return new FetchWorkersResult(subaddress, cached.workers(), failure, true, ageSec);
         }
+        return new FetchWorkersResult(subaddress, List.of(), failure, false, -1L);
     }
 
     private void cacheWorkers(String subaddress, List<WorkerHash> workers, Instant now) {
@@ -0,0 +1,89 @@
+package com.slb.mining_backend.modules.xmr.service;
+
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * 矿池接口响应的共享缓存，位于 PoolClient 之下，按（provider, endpoint, address）缓存原始响应体。
+ *
+ * - minRefreshSecPerAddress 内重复请求直接返回缓存，不占用 perHostReqPer15Min 配额；
+ * - 同一 key、同一等待方式的并发调用合并为一次在途请求（single-flight），调用方共享同一结果；
+ *   带许可截止时间的调用（可能以 RATE_LIMITED 快速失败）与无限等待许可的阻塞调用分属不同的在途请求，互不牵连；
+ * - 上游失败（含限流许可不足）时，若缓存未超过 maxStaleSec，返回旧响应（stale-while-revalidate），下次调用继续尝试刷新；
+ * - 返回值带响应的实际获取时间，解析方据此判断数据新旧，而不是把缓存/旧响应当作刚获取的数据。
+ */
+@Slf4j
+final class PoolResponseCache {
+
+    /**
+     * 缓存的响应体及其从上游获取的时间。
+     */
+    record Response(String body, Instant fetchedAt) {
+    }
+
+    private record Entry(Response response, long fetchedAtNanos) {
+    }
+
+    private final long freshNanos;
+    private final long staleNanos;
+    private final LongSupplier clock;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final Map<String, Mono<Response>> inflight = new ConcurrentHashMap<>();
+
+    PoolResponseCache(long freshSeconds, long staleSeconds) {
+        this(freshSeconds, staleSeconds, System::nanoTime);
+    }
+
+    PoolResponseCache(long freshSeconds, long staleSeconds, LongSupplier clock) {
+        this.freshNanos = Math.max(0L, freshSeconds) * 1_000_000_000L;
+        this.staleNanos = Math.max(this.freshNanos, Math.max(0L, staleSeconds) * 1_000_000_000L);
+        this.clock = clock;
+    }
+
+    static String key(String provider, String endpoint, String address) {
+        return provider + '|' + endpoint + '|' + address;
+    }
+
+    /**
+     * 读取缓存（阻塞调用，无限等待许可）。
+     */
+    Mono<Response> get(String key, Supplier<Mono<String>> loader) {
+        return get(key, false, loader);
+    }
+
+    /**
+     * 读取缓存；缓存过期时通过 loader 刷新，并与同 key、同等待方式的在途请求合并。
+     *
+     * @param permitBounded loader 是否带许可截止时间（可能以 RATE_LIMITED 快速失败）
+     */
+    Mono<Response> get(String key, boolean permitBounded, Supplier<Mono<String>> loader) {
+        Entry cached = entries.get(key);
+        if (cached != null && clock.getAsLong() - cached.fetchedAtNanos() < freshNanos) {
+            return Mono.just(cached.response());
+        }
+        String flightKey = key + (permitBounded ? "|bounded" : "|blocking");
+        return inflight.computeIfAbsent(flightKey, k -> Mono.defer(loader)
+                .map(body -> {
+                    Response response = new Response(body, Instant.now());
+                    entries.put(key, new Entry(response, clock.getAsLong()));
+                    return response;
+                })
+                .onErrorResume(err -> {
+                    Entry stale = entries.get(key);
+                    if (stale == null || clock.getAsLong() - stale.fetchedAtNanos() >= staleNanos) {
+                        return Mono.error(err);
+                    }
+                    log.warn("Pool upstream failed, serving stale response (key={}, ageSec={}, message={})",
+                            key, (clock.getAsLong() - stale.fetchedAtNanos()) / 1_000_000_000L, err.getMessage());
+                    return Mono.just(stale.response());
+                })
+                .doFinally(signal -> inflight.remove(k))
+                .cache());
+    }
+}
@@ -0,0 +1,216 @@
+package com.slb.mining_backend.modules.xmr.service;
+
+import com.slb.mining_backend.modules.asset.entity.AssetLedger;
+import com.slb.mining_backend.modules.asset.service.AssetLedgerService;
+import com.slb.mining_backend.modules.earnings.dto.DailyEarningsStatsDelta;
+import com.slb.mining_backend.modules.earnings.entity.EarningsHistory;
+import com.slb.mining_backend.modules.earnings.mapper.EarningsHistoryMapper;
+import com.slb.mining_backend.modules.earnings.mapper.EarningsMapper;
+import com.slb.mining_backend.modules.invite.entity.CommissionRecord;
+import com.slb.mining_backend.modules.invite.entity.PlatformCommission;
+import com.slb.mining_backend.modules.invite.mapper.CommissionRecordMapper;
+import com.slb.mining_backend.modules.invite.mapper.PlatformCommissionMapper;
+import com.slb.mining_backend.modules.users.dto.UserBalanceDelta;
+import com.slb.mining_backend.modules.users.mapper.UserMapper;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+
+/**
+ * 分片结算的写缓冲：分账过程中只在内存中收集写操作，分片结束时按依赖顺序批量落库。
+ *
+ * 规则：
+ * - 收益明细多行插入，自增ID回填后再写引用它的平台佣金、邀请佣金与资产流水；
+ * - 余额按用户合并，每个用户一行（按 userId 升序，保证并发分片的加锁顺序一致）；
+ * - 平台/unclaimed 账户的余额不更新 users 行，改为追加到 PlatformCreditBuffer，窗口结束时统一合并；
+ * - 日统计按（用户, 日期）合并，CPU/GPU 归类与 upsertDailyStats 的 SQL 口径一致。
+ */
+final class SettlementWriteBatch {
+
+    private static final Set<String> CPU_STAT_TYPES = Set.of("CPU", "POOL", "AUTO");
+
+    private record DailyStatKey(Long userId, LocalDate statDate) {
+    }
+
+    /**
+     * 引用收益明细主键的待写行：source 的 id 在收益明细落库后才可用。
+     */
+    private record Pending<T>(T row, EarningsHistory source) {
+    }
+
+    private final EarningsHistoryMapper earningsHistoryMapper;
+    private final EarningsMapper earningsMapper;
+    private final UserMapper userMapper;
+    private final PlatformCommissionMapper platformCommissionMapper;
+    private final CommissionRecordMapper commissionRecordMapper;
+    private final AssetLedgerService assetLedgerService;
+    private final PlatformCreditBuffer creditBuffer;
+    private final String sourceRef;
+    private final int chunkSize;
+
+    private final Map<Long, UserBalanceDelta> balances = new TreeMap<>();
+    private final Map<DailyStatKey, DailyEarningsStatsDelta> dailyStats = new HashMap<>();
+    private final List<EarningsHistory> histories = new ArrayList<>();
+    private final List<Pending<PlatformCommission>> platformCommissions = new ArrayList<>();
+    private final List<Pending<CommissionRecord>> commissionRecords = new ArrayList<>();
+    private final List<Pending<AssetLedger>> ledgers = new ArrayList<>();
+
+    SettlementWriteBatch(EarningsHistoryMapper earningsHistoryMapper,
+                         EarningsMapper earningsMapper,
+                         UserMapper userMapper,
+                         PlatformCommissionMapper platformCommissionMapper,
+                         CommissionRecordMapper commissionRecordMapper,
+                         AssetLedgerService assetLedgerService,
+                         PlatformCreditBuffer creditBuffer,
+                         String sourceRef,
+                         int chunkSize) {
+        this.earningsHistoryMapper = earningsHistoryMapper;
+        this.earningsMapper = earningsMapper;
+        this.userMapper = userMapper;
+        this.platformCommissionMapper = platformCommissionMapper;
+        this.commissionRecordMapper = commissionRecordMapper;
+        this.assetLedgerService = assetLedgerService;
+        this.creditBuffer = creditBuffer;
+        this.sourceRef = sourceRef;
+        this.chunkSize = Math.max(1, chunkSize);
+    }
+
+    /**
+     * 等价于 userMapper.updateUserWallet：同时累加 cal_balance 与 total_earnings。
+     */
+    void addCal(Long userId, BigDecimal calAmount) {
+        if (userId == null || calAmount == null) {
+            return;
+        }
+        UserBalanceDelta delta = balance(userId);
+        delta.setCalAmount(delta.getCalAmount().add(calAmount));
+    }
+
+    /**
+     * 等价于 userMapper.updateCashBalances(userId, cnyAmount, 0, 0)。
+     */
+    void addCny(Long userId, BigDecimal cnyAmount) {
+        if (userId == null || cnyAmount == null) {
+            return;
+        }
+        UserBalanceDelta delta = balance(userId);
+        delta.setCnyAmount(delta.getCnyAmount().add(cnyAmount));
+    }
+
+    /**
+     * 收益明细 + 对应的日统计累加（statType 为 upsertDailyStats 的 type 参数）。
+     */
+    void addHistory(EarningsHistory history, String statType) {
+        histories.add(history);
+        LocalDateTime earningTime = history.getEarningTime();
+        LocalDate statDate = earningTime != null ? earningTime.toLocalDate() : LocalDate.now();
+        DailyEarningsStatsDelta stat = dailyStats.computeIfAbsent(new DailyStatKey(history.getUserId(), statDate), key -> {
+            DailyEarningsStatsDelta created = new DailyEarningsStatsDelta();
+            created.setUserId(key.userId());
+            created.setStatDate(key.statDate());
+            return created;
+        });
+        BigDecimal cal = history.getAmountCal() != null ? history.getAmountCal() : BigDecimal.ZERO;
+        BigDecimal cny = history.getAmountCny() != null ? history.getAmountCny() : BigDecimal.ZERO;
+        stat.setTotalCalAmount(stat.getTotalCalAmount().add(cal));
+        stat.setTotalCnyAmount(stat.getTotalCnyAmount().add(cny));
+        String type = statType != null ? statType.trim().toUpperCase(Locale.ROOT) : "";
+        if (CPU_STAT_TYPES.contains(type)) {
+            stat.setCpuCalEarnings(stat.getCpuCalEarnings().add(cal));
+        } else if (type.startsWith("GPU")) {
+            stat.setGpuCalEarnings(stat.getGpuCalEarnings().add(cal));
+        }
+    }
+
+    void addPlatformCommission(PlatformCommission commission, EarningsHistory source) {
+        platformCommissions.add(new Pending<>(commission, source));
+    }
+
+    void addCommissionRecord(CommissionRecord record, EarningsHistory source) {
+        commissionRecords.add(new Pending<>(record, source));
+    }
+
+    /**
+     * source 为空时沿用 ledger 上已有的 refId。
+     */
+    void addLedger(AssetLedger ledger, EarningsHistory source) {
+        ledgers.add(new Pending<>(ledger, source));
+    }
+
+    int historyCount() {
+        return histories.size();
+    }
+
+    int balanceCount() {
+        return balances.size();
+    }
+
+    /**
+     * 按依赖顺序落库；须在事务内调用。
+     */
+    void flush() {
+        // 多行 INSERT 的自增ID由驱动按顺序回填（simple insert 在 InnoDB 下分配连续ID）
+        forEachChunk(histories, earningsHistoryMapper::batchInsert);
+
+        List<PlatformCommission> commissions = new ArrayList<>(platformCommissions.size());
+        for (Pending<PlatformCommission> pending : platformCommissions) {
+            pending.row().setSourceEarningId(pending.source().getId());
+            commissions.add(pending.row());
+        }
+        forEachChunk(commissions, platformCommissionMapper::batchInsert);
+
+        List<CommissionRecord> records = new ArrayList<>(commissionRecords.size());
+        for (Pending<CommissionRecord> pending : commissionRecords) {
+            pending.row().setSourceEarningId(pending.source().getId());
+            records.add(pending.row());
+        }
+        forEachChunk(records, commissionRecordMapper::batchInsert);
+
+        List<AssetLedger> ledgerRows = new ArrayList<>(ledgers.size());
+        for (Pending<AssetLedger> pending : ledgers) {
+            if (pending.source() != null) {
+                pending.row().setRefId(pending.source().getId());
+            }
+            ledgerRows.add(pending.row());
+        }
+        forEachChunk(ledgerRows, assetLedgerService::recordMiningPayouts);
+
+        List<DailyEarningsStatsDelta> stats = new ArrayList<>(dailyStats.values());
+        stats.sort(Comparator.comparing(DailyEarningsStatsDelta::getUserId)
+                .thenComparing(DailyEarningsStatsDelta::getStatDate));
+        forEachChunk(stats, earningsMapper::batchUpsertDailyStats);
+
+        List<UserBalanceDelta> direct = new ArrayList<>(balances.size());
+        List<UserBalanceDelta> buffered = new ArrayList<>();
+        for (UserBalanceDelta delta : balances.values()) {
+            if (creditBuffer.isBuffered(delta.getUserId())) {
+                buffered.add(delta);
+            } else {
+                direct.add(delta);
+            }
+        }
+        creditBuffer.append(buffered, sourceRef);
+        // 余额最后更新：行锁持有时间最短（TreeMap 已按 userId 升序）
+        forEachChunk(direct, userMapper::batchAddSettlementBalances);
+    }
+
+    private UserBalanceDelta balance(Long userId) {
+        return balances.computeIfAbsent(userId, id -> new UserBalanceDelta(id, BigDecimal.ZERO, BigDecimal.ZERO));
+    }
+
+    private <T> void forEachChunk(List<T> rows, Consumer<List<T>> writer) {
+        for (int from = 0; from < rows.size(); from += chunkSize) {
+            writer.accept(rows.subList(from, Math.min(rows.size(), from + chunkSize)));
+        }
+    }
+}
@@ -1,42 +1,203 @@
 package com.slb.mining_backend.modules.xmr.service;
 
-import lombok.RequiredArgsConstructor;
+import com.slb.mining_backend.common.job.ClusterJob;
+import com.slb.mining_backend.modules.xmr.config.SharePipelineProperties;
+import com.slb.mining_backend.modules.xmr.dto.PoolShareItemDto;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 
 import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * 将矿工上报的 difficulty 累积到 Redis，按分钟分桶，作为写入数据库之前的缓冲层。
+ *
+ * 规则（app.payhash.share-pipeline.enabled=true）：
+ * - share 在本节点内存中按（分钟桶, workerId）累加到 LongAdder，白名单校验读本地快照，单条 share 不产生网络往返；
+ * - 每隔 flush-interval-ms 取走各计数器的增量（sumThenReset），用一次 Redis 管道写入所有 HINCRBY、
+ *   每桶一次 EXPIRE，并把桶登记到待落库索引（pool:payhash:index）；
+ * - 刷写失败时把增量加回计数器，下次重试；已结束的分钟桶从内存移除，并在下一次刷写时再排空一次，
+ *   带走移除前已取得计数器引用的线程稍后写入的增量；
+ * - 迟到的增量会重新出现在已落库的桶 key 中，PayhashIngestionService 按累加语义再次落库，不会丢失或重复。
  */
 @Service
-@RequiredArgsConstructor
 @Slf4j
 public class ShareAggregatorService {
 
-    private static final String KEY_TEMPLATE = "pool:payhash:%d";
-    private static final Duration BUCKET_TTL = Duration.ofHours(1);
+    private static final long BUCKET_MILLIS = 60_000L;
 
     private final StringRedisTemplate redisTemplate;
     private final WorkerWhitelistService whitelistService;
+    private final SharePipelineProperties properties;
+
+    private final Map<Long, Map<String, LongAdder>> buckets = new ConcurrentHashMap<>();
+    /**
+     * 上一次刷写时移除的已结束桶（只由持有 flushLock 的线程读写）。
+     */
+    private Map<Long, Map<String, LongAdder>> retired = new HashMap<>();
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    public ShareAggregatorService(StringRedisTemplate redisTemplate,
+                                  WorkerWhitelistService whitelistService,
+                                  SharePipelineProperties properties) {
+        this.redisTemplate = redisTemplate;
+        this.whitelistService = whitelistService;
+        this.properties = properties;
+    }
 
     /**
      * 把单次 share 累积到当前分钟的哈希桶中。
      */
     public void accumulateShare(String workerId, long difficulty) {
+        accumulateShare(workerId, difficulty, System.currentTimeMillis());
+    }
+
+    /**
+     * 批量累积 share（HTTP 批量入口），返回通过校验被累积的条数。
+     */
+    public int accumulateShares(Collection<PoolShareItemDto> shares) {
+        if (shares == null || shares.isEmpty()) {
+            return 0;
+        }
+        long now = System.currentTimeMillis();
+        int accepted = 0;
+        for (PoolShareItemDto share : shares) {
+            if (share != null && accumulateShare(share.getWorkerId(), share.getDifficulty(), now)) {
+                accepted++;
+            }
+        }
+        return accepted;
+    }
+
+    @Scheduled(fixedDelayString = "${app.payhash.share-pipeline.flush-interval-ms:2000}")
+    @ClusterJob(scope = ClusterJob.Scope.NODE)
+    public void scheduledFlush() {
+        flush();
+    }
+
+    /**
+     * 应用关闭时把内存中的增量写入 Redis。
+     */
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    /**
+     * 把内存中累积的增量写入 Redis，返回本次写入的（桶, worker）条数。
+     */
+    public int flush() {
+        if (!flushLock.tryLock()) {
+            return 0;
+        }
+        try {
+            long currentBucket = bucketOf(System.currentTimeMillis());
+            Map<Long, Map<String, Long>> drained = new HashMap<>();
+            for (Map.Entry<Long, Map<String, LongAdder>> bucket : retired.entrySet()) {
+                drainInto(drained, bucket.getKey(), bucket.getValue());
+            }
+            Map<Long, Map<String, LongAdder>> nowRetired = new HashMap<>();
+            for (Map.Entry<Long, Map<String, LongAdder>> bucket : buckets.entrySet()) {
+                // 已结束的桶先移出再排空，新的写入（极少见的迟到 share）会重新建桶
+                if (bucket.getKey() < currentBucket && buckets.remove(bucket.getKey(), bucket.getValue())) {
+                    nowRetired.put(bucket.getKey(), bucket.getValue());
+                }
+                drainInto(drained, bucket.getKey(), bucket.getValue());
+            }
+            retired = nowRetired;
+            if (drained.isEmpty()) {
+                return 0;
+            }
+            try {
+                writePipelined(drained);
+            } catch (DataAccessException e) {
+                log.warn("Failed to flush accumulated shares to Redis, will retry: {}", e.getMessage());
+                restore(drained);
+                return 0;
+            }
+            int written = drained.values().stream().mapToInt(Map::size).sum();
+            log.debug("Flushed {} accumulated share counters in {} buckets", written, drained.size());
+            return written;
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private boolean accumulateShare(String workerId, long difficulty, long nowMillis) {
         if (!StringUtils.hasText(workerId) || difficulty <= 0) {
-            return;
+            return false;
         }
         if (!whitelistService.isValid(workerId)) {
             log.debug("Drop share from invalid worker {}", workerId);
-            return;
+            return false;
         }
-        long bucketMillis = (System.currentTimeMillis() / 60_000) * 60_000;
-        String key = KEY_TEMPLATE.formatted(bucketMillis);
-        redisTemplate.opsForHash().increment(key, workerId, difficulty);
-        redisTemplate.expire(key, BUCKET_TTL);
+        long bucketMillis = bucketOf(nowMillis);
+        if (!properties.isEnabled()) {
+            String key = PayhashBucketKeys.bucket(bucketMillis);
+            redisTemplate.opsForHash().increment(key, workerId, difficulty);
+            redisTemplate.expire(key, bucketTtl());
+            redisTemplate.opsForZSet().add(PayhashBucketKeys.INDEX, String.valueOf(bucketMillis), bucketMillis);
+            return true;
+        }
+        buckets.computeIfAbsent(bucketMillis, key -> new ConcurrentHashMap<>())
+                .computeIfAbsent(workerId, key -> new LongAdder())
+                .add(difficulty);
+        return true;
     }
-}
 
+    private void writePipelined(Map<Long, Map<String, Long>> drained) {
+        long ttlSeconds = bucketTtl().toSeconds();
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection redis = (StringRedisConnection) connection;
+            for (Map.Entry<Long, Map<String, Long>> bucket : drained.entrySet()) {
+                String key = PayhashBucketKeys.bucket(bucket.getKey());
+                for (Map.Entry<String, Long> entry : bucket.getValue().entrySet()) {
+                    redis.hIncrBy(key, entry.getKey(), entry.getValue());
+                }
+                redis.expire(key, ttlSeconds);
+                // 索引须在 HINCRBY 之后写入：落库方移除索引后到达的增量会重新登记
+                redis.zAdd(PayhashBucketKeys.INDEX, bucket.getKey(), String.valueOf(bucket.getKey()));
+            }
+            return null;
+        });
+    }
+
+    private void drainInto(Map<Long, Map<String, Long>> drained, Long bucketMillis, Map<String, LongAdder> counters) {
+        for (Map.Entry<String, LongAdder> counter : counters.entrySet()) {
+            long value = counter.getValue().sumThenReset();
+            if (value != 0) {
+                drained.computeIfAbsent(bucketMillis, key -> new HashMap<>())
+                        .merge(counter.getKey(), value, Long::sum);
+            }
+        }
+    }
+
+    private void restore(Map<Long, Map<String, Long>> drained) {
+        for (Map.Entry<Long, Map<String, Long>> bucket : drained.entrySet()) {
+            Map<String, LongAdder> counters = buckets.computeIfAbsent(bucket.getKey(), key -> new ConcurrentHashMap<>());
+            for (Map.Entry<String, Long> entry : bucket.getValue().entrySet()) {
+                counters.computeIfAbsent(entry.getKey(), key -> new LongAdder()).add(entry.getValue());
+            }
+        }
+    }
+
+    private Duration bucketTtl() {
+        return Duration.ofMinutes(Math.max(1, properties.getBucketTtlMinutes()));
+    }
+
+    private static long bucketOf(long millis) {
+        return (millis / BUCKET_MILLIS) * BUCKET_MILLIS;
+    }
+}
@@ -1,50 +1,264 @@
 package com.slb.mining_backend.modules.xmr.service;
 
+import com.slb.mining_backend.common.job.ClusterJob;
 import com.slb.mining_backend.modules.users.mapper.UserMapper;
+import com.slb.mining_backend.modules.xmr.config.WorkerWhitelistProperties;
 import jakarta.annotation.PostConstruct;
-import lombok.RequiredArgsConstructor;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
 import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import org.springframework.util.CollectionUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.util.StringUtils;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
 
 /**
  * 将数据库中的有效 workerId 刷新到 Redis set，供 Share 写入校验使用。
+ *
+ * 规则：
+ * - Redis set 在临时 key 上重建，完成后 RENAME 覆盖 pool:valid_workers，重建期间旧集合始终完整可读；
+ * - 每个节点在内存中保留一份不可变的白名单快照，刷新时整体替换（volatile 引用），校验不产生网络往返；
+ * - 变更通过 Redis pub/sub 推送：整体重建后广播 "*"，各节点在后台线程从数据库重新加载（不占用 Redis 监听线程，
+ *   连续多条只排一次）；新注册的 worker 广播 "+workerId"，各节点增量加入；
+ * - 快照的替换与增量加入在同一把锁下进行；加载开始后才加入的 worker 会并入新快照，不会被并发的重新加载覆盖；
+ * - 快照尚未加载成功时回退到 Redis SISMEMBER；pub/sub 消息丢失时由 reload-interval-ms 兜底。
  */
 @Service
-@RequiredArgsConstructor
 @Slf4j
-public class WorkerWhitelistService {
+public class WorkerWhitelistService implements MessageListener {
 
     private static final String KEY_VALID_WORKERS = "pool:valid_workers";
+    private static final String KEY_REBUILD_PREFIX = "pool:valid_workers:rebuild:";
+    private static final String CHANNEL = "pool:valid_workers:changed";
+    private static final String MESSAGE_RELOAD = "*";
+    private static final String MESSAGE_ADD_PREFIX = "+";
+    /**
+     * 重建中的临时 key 的过期时间：进程在 RENAME 前崩溃时自动清理。
+     */
+    private static final Duration REBUILD_KEY_TTL = Duration.ofMinutes(10);
 
     private final UserMapper userMapper;
     private final StringRedisTemplate redisTemplate;
+    private final RedisMessageListenerContainer listenerContainer;
+    private final WorkerWhitelistProperties properties;
+
+    private volatile Set<String> localSnapshot;
+    /**
+     * 增量加入的 workerId 及加入时间（System.nanoTime），由 this 锁保护；早于某次加载开始的记录已包含在该次加载结果中。
+     */
+    private final Map<String, Long> recentAdds = new HashMap<>();
+    private final AtomicBoolean reloadQueued = new AtomicBoolean();
+    private final ExecutorService reloadExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "worker-whitelist-reload");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public WorkerWhitelistService(UserMapper userMapper,
+                                  StringRedisTemplate redisTemplate,
+                                  RedisMessageListenerContainer listenerContainer,
+                                  WorkerWhitelistProperties properties) {
+        this.userMapper = userMapper;
+        this.redisTemplate = redisTemplate;
+        this.listenerContainer = listenerContainer;
+        this.properties = properties;
+    }
 
     @PostConstruct
     public void init() {
+        if (properties.isRedisFanout()) {
+            listenerContainer.addMessageListener(this, new ChannelTopic(CHANNEL));
+        }
         log.info("System startup: synchronizing worker whitelist...");
         refreshWhitelist();
     }
 
-    @Scheduled(fixedDelayString = "PT5M")
+    @PreDestroy
+    public void shutdown() {
+        reloadExecutor.shutdownNow();
+    }
+
+    @Scheduled(fixedDelayString = "${app.payhash.whitelist.refresh-interval-ms:300000}")
     public void refreshWhitelist() {
+        long loadStarted = System.nanoTime();
         List<String> workerIds = userMapper.selectActiveWorkerIds();
-        redisTemplate.delete(KEY_VALID_WORKERS);
-        if (!CollectionUtils.isEmpty(workerIds)) {
-            redisTemplate.opsForSet().add(KEY_VALID_WORKERS, workerIds.toArray(String[]::new));
+        Set<String> snapshot = toSnapshot(workerIds);
+        rebuildRedisSet(snapshot);
+        replaceSnapshot(snapshot, loadStarted);
+        publish(MESSAGE_RELOAD);
+        log.info("Refreshed worker whitelist, size={}", snapshot.size());
+    }
+
+    /**
+     * 各节点独立从数据库重新加载本地快照（pub/sub 消息丢失时的兜底）。
+     */
+    @Scheduled(fixedDelayString = "${app.payhash.whitelist.reload-interval-ms:300000}",
+            initialDelayString = "${app.payhash.whitelist.reload-interval-ms:300000}")
+    @ClusterJob(scope = ClusterJob.Scope.NODE)
+    public void reloadLocalSnapshot() {
+        long loadStarted = System.nanoTime();
+        try {
+            replaceSnapshot(toSnapshot(userMapper.selectActiveWorkerIds()), loadStarted);
+        } catch (DataAccessException e) {
+            log.warn("Failed to reload local worker whitelist, keep previous snapshot: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 新 worker 已写入数据库：在当前事务提交后加入 Redis 白名单与本地快照，并推送给其他节点；无事务时立即执行。
+     */
+    public void registerWorkerAfterCommit(String workerId) {
+        if (!StringUtils.hasText(workerId)) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    registerWorker(workerId);
+                }
+            });
+            return;
         }
-        log.info("Refreshed worker whitelist, size={}", workerIds.size());
+        registerWorker(workerId);
     }
 
     public boolean isValid(String workerId) {
         if (!StringUtils.hasText(workerId)) {
             return false;
         }
+        Set<String> snapshot = localSnapshot;
+        if (snapshot != null) {
+            return snapshot.contains(workerId);
+        }
         return Boolean.TRUE.equals(redisTemplate.opsForSet().isMember(KEY_VALID_WORKERS, workerId));
     }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        if (body.startsWith(MESSAGE_ADD_PREFIX)) {
+            addLocal(body.substring(MESSAGE_ADD_PREFIX.length()));
+        } else if (MESSAGE_RELOAD.equals(body)) {
+            scheduleReload();
+        }
+    }
+
+    /**
+     * 在后台线程重新加载本地快照；已有排队中的加载时直接合并。
+     */
+    private void scheduleReload() {
+        if (!reloadQueued.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            reloadExecutor.execute(() -> {
+                reloadQueued.set(false);
+                reloadLocalSnapshot();
+            });
+        } catch (RejectedExecutionException e) {
+            reloadQueued.set(false);
+            log.debug("Worker whitelist reload executor is shut down, skip reload");
+        }
+    }
+
+    private void registerWorker(String workerId) {
+        addLocal(workerId);
+        try {
+            redisTemplate.opsForSet().add(KEY_VALID_WORKERS, workerId);
+        } catch (Exception e) {
+            log.warn("Failed to add worker {} to Redis whitelist: {}", workerId, e.getMessage());
+        }
+        publish(MESSAGE_ADD_PREFIX + workerId);
+    }
+
+    /**
+     * 写时复制：注册频率远低于校验频率，整体替换可保持读路径无锁。
+     */
+    private synchronized void addLocal(String workerId) {
+        if (!StringUtils.hasText(workerId)) {
+            return;
+        }
+        recentAdds.put(workerId, System.nanoTime());
+        Set<String> current = localSnapshot;
+        if (current == null || current.contains(workerId)) {
+            return;
+        }
+        Set<String> next = new HashSet<>(current);
+        next.add(workerId);
+        localSnapshot = Set.copyOf(next);
+    }
+
+    /**
+     * 用加载结果替换本地快照，并补回加载开始之后才增量加入的 worker。
+     */
+    private synchronized void replaceSnapshot(Set<String> loaded, long loadStarted) {
+        recentAdds.values().removeIf(addedAt -> addedAt - loadStarted < 0);
+        if (recentAdds.isEmpty() || loaded.containsAll(recentAdds.keySet())) {
+            localSnapshot = loaded;
+            return;
+        }
+        Set<String> merged = new HashSet<>(loaded);
+        merged.addAll(recentAdds.keySet());
+        localSnapshot = Set.copyOf(merged);
+    }
+
+    private void rebuildRedisSet(Set<String> workerIds) {
+        if (workerIds.isEmpty()) {
+            redisTemplate.delete(KEY_VALID_WORKERS);
+            return;
+        }
+        String rebuildKey = KEY_REBUILD_PREFIX + UUID.randomUUID();
+        String[] members = workerIds.toArray(String[]::new);
+        int chunkSize = Math.max(1, properties.getRebuildChunkSize());
+        for (int from = 0; from < members.length; from += chunkSize) {
+            String[] chunk = Arrays.copyOfRange(members, from, Math.min(members.length, from + chunkSize));
+            redisTemplate.opsForSet().add(rebuildKey, chunk);
+            if (from == 0) {
+                redisTemplate.expire(rebuildKey, REBUILD_KEY_TTL);
+            }
+        }
+        // RENAME 原子替换旧集合；临时 key 的过期时间会随 RENAME 带过来，需去掉
+        redisTemplate.rename(rebuildKey, KEY_VALID_WORKERS);
+        redisTemplate.persist(KEY_VALID_WORKERS);
+    }
+
+    private void publish(String message) {
+        if (!properties.isRedisFanout()) {
+            return;
+        }
+        try {
+            redisTemplate.convertAndSend(CHANNEL, message);
+        } catch (Exception e) {
+            log.warn("Failed to publish worker whitelist change: {}", e.getMessage());
+        }
+    }
+
+    private static Set<String> toSnapshot(List<String> workerIds) {
+        if (workerIds == null) {
+            return Set.of();
+        }
+        return workerIds.stream().filter(StringUtils::hasText).collect(Collectors.toUnmodifiableSet());
+    }
 }
@@ -1,6 +1,8 @@
 package com.slb.mining_backend.modules.xmr.service;
 
 import com.slb.mining_backend.common.exception.BizException;
+import com.slb.mining_backend.common.job.ClusterJob;
+import com.slb.mining_backend.common.job.JobShard;
 import com.slb.mining_backend.modules.exchange.service.ExchangeRateService;
 import com.slb.mining_backend.modules.users.entity.User;
 import com.slb.mining_backend.modules.users.mapper.UserMapper;
@@ -75,13 +77,14 @@ public class XmrPoolStatsService {
     }
 
     @Scheduled(fixedRate = 90_000)
+    @ClusterJob(shards = 8)
     @Transactional
     public void refreshPoolStats() {
         List<XmrPoolStats> records = statsMapper.selectAll();
         // 同一母地址只处理一次，避免重复分配
         Map<String, XmrPoolStats> uniqueBySubaddress = new HashMap<>();
         for (XmrPoolStats record : records) {
-            if (record.getSubaddress() == null) {
+            if (record.getSubaddress() == null || !JobShard.owns(record.getSubaddress())) {
                 continue;
             }
             uniqueBySubaddress.putIfAbsent(record.getSubaddress(), record);
@@ -1,5 +1,6 @@
 package com.slb.mining_backend.modules.xmr.service;
 
+import com.slb.mining_backend.common.job.JobLease;
 import com.slb.mining_backend.modules.exchange.service.ExchangeRateService;
 import com.slb.mining_backend.modules.users.entity.User;
 import com.slb.mining_backend.modules.users.mapper.UserMapper;
@@ -47,6 +48,10 @@ public class XmrValuationScheduler {
         }
         LocalDate today = LocalDate.now();
         for (User user : users) {
+            if (JobLease.currentLost()) {
+                log.warn("Daily valuation snapshot lost its job lease; stop before user {}", user.getId());
+                break;
+            }
             XmrDailyValuation record = new XmrDailyValuation();
             record.setUserId(user.getId());
             record.setWorkerId(user.getWorkerId());
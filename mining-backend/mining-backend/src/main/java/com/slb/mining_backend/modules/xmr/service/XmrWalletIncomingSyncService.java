@@ -1,12 +1,12 @@
 package com.slb.mining_backend.modules.xmr.service;
 
+import com.slb.mining_backend.modules.xmr.config.PayoutSyncProperties;
 import com.slb.mining_backend.modules.xmr.config.XmrPoolProperties;
 import com.slb.mining_backend.modules.xmr.config.XmrWalletProperties;
 import com.slb.mining_backend.modules.xmr.domain.PoolClient;
 import com.slb.mining_backend.modules.xmr.domain.PoolClientException;
 import com.slb.mining_backend.modules.xmr.domain.PoolPayment;
 import com.slb.mining_backend.modules.xmr.entity.XmrWalletIncoming;
-import com.slb.mining_backend.modules.xmr.mapper.XmrWalletIncomingMapper;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
@@ -18,27 +18,40 @@ import java.math.RoundingMode;
 import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
+/**
+ * 主钱包入账同步（矿池 block_payments）。
+ *
+ * 按 (provider, 主地址) 的高水位增量翻页，到达高水位回看窗口即停止；窗口内的候选入账用一次 tx_hash IN (...)
+ * 去重（同时检查带前缀与历史未带前缀的哈希），新入账一次批量写入，随后推进高水位。
+ */
 @Service
 @Slf4j
 public class XmrWalletIncomingSyncService {
 
     private static final ZoneId BJT = ZoneId.of("Asia/Shanghai");
     private final PoolClient poolClient;
-    private final XmrWalletIncomingMapper walletIncomingMapper;
+    private final IncomingPayoutWriter payoutWriter;
     private final XmrWalletProperties walletProperties;
+    private final PayoutSyncProperties syncProperties;
     private final long atomicPerXmr;
 
     public XmrWalletIncomingSyncService(PoolClient poolClient,
-                                        XmrWalletIncomingMapper walletIncomingMapper,
+                                        IncomingPayoutWriter payoutWriter,
                                         XmrPoolProperties poolProperties,
-                                        XmrWalletProperties walletProperties) {
+                                        XmrWalletProperties walletProperties,
+                                        PayoutSyncProperties syncProperties) {
         this.poolClient = poolClient;
-        this.walletIncomingMapper = walletIncomingMapper;
+        this.payoutWriter = payoutWriter;
         this.walletProperties = walletProperties;
+        this.syncProperties = syncProperties;
         this.atomicPerXmr = poolProperties.getDefaultProvider().getUnit().getAtomicPerXmr();
     }
 
@@ -54,20 +67,26 @@ public class XmrWalletIncomingSyncService {
             log.warn("Master wallet address is not configured; skip payment sync");
             return;
         }
-        List<PoolPayment> payments;
+        String source = watermarkSource();
+        LocalDateTime lowerBound = payoutWriter.lowerBound(source, masterAddress);
+        FetchResult fetched;
         try {
-            payments = poolClient.fetchPayments(masterAddress);
+            fetched = fetchSince(masterAddress, lowerBound);
         } catch (PoolClientException ex) {
             log.warn("Failed to fetch pool payments for {}: {}", masterAddress, ex.getMessage());
             return;
         }
+        List<PoolPayment> payments = fetched.payments();
         if (payments.isEmpty()) {
             log.info("No block payments returned for master address {}", masterAddress);
             return;
         }
 
-        int inserted = 0;
-        Set<String> seenTx = new HashSet<>();
+        // 本批次按规范化 tx_hash 去重，避免上游重复返回同一笔
+        Map<String, PoolPayment> candidates = new LinkedHashMap<>();
+        Map<String, String> legacyHashes = new HashMap<>();
+        LocalDateTime maxTs = null;
+        Long maxHeight = null;
         for (PoolPayment payment : payments) {
             if (payment == null || payment.amountAtomic() <= 0 || !StringUtils.hasText(payment.txHash())) {
                 continue;
@@ -77,30 +96,83 @@ public class XmrWalletIncomingSyncService {
             if (!StringUtils.hasText(normalizedTxHash)) {
                 continue;
             }
-            // 本批次去重，避免上游重复返回同一个 tx_hash
-            if (!seenTx.add(normalizedTxHash)) {
-                continue;
+            LocalDateTime ts = toLocalDateTime(payment.timestamp());
+            if (maxTs == null || ts.isAfter(maxTs)) {
+                maxTs = ts;
             }
-            // DB 去重（兼容并发/历史重复）
-            if (walletIncomingMapper.selectByTxHash(normalizedTxHash).isPresent()) {
-                continue;
+            if (payment.blockHeight() != null && (maxHeight == null || payment.blockHeight() > maxHeight)) {
+                maxHeight = payment.blockHeight();
             }
-            if (!normalizedTxHash.equals(rawTxHash) && walletIncomingMapper.selectByTxHash(rawTxHash).isPresent()) {
+            if (lowerBound != null && ts.isBefore(lowerBound)) {
                 continue;
             }
-            boolean saved = persistPaymentIgnore(payment, masterAddress, normalizedTxHash);
-            if (saved) {
-            inserted++;
+            if (candidates.putIfAbsent(normalizedTxHash, payment) == null && !normalizedTxHash.equals(rawTxHash)) {
+                legacyHashes.put(normalizedTxHash, rawTxHash);
+            }
+        }
+
+        // DB 去重（兼容并发/历史重复，以及历史上未加 provider 前缀的哈希）：一次 IN 查询
+        Set<String> lookup = new HashSet<>(candidates.keySet());
+        lookup.addAll(legacyHashes.values());
+        Set<String> existing = payoutWriter.findExisting(lookup);
+        List<XmrWalletIncoming> records = new ArrayList<>();
+        for (Map.Entry<String, PoolPayment> entry : candidates.entrySet()) {
+            String normalizedTxHash = entry.getKey();
+            String legacy = legacyHashes.get(normalizedTxHash);
+            if (existing.contains(normalizedTxHash) || (legacy != null && existing.contains(legacy))) {
+                continue;
             }
+            records.add(toRecord(entry.getValue(), masterAddress, normalizedTxHash));
+        }
+        int inserted = payoutWriter.insertAll(records);
+        if (fetched.complete()) {
+            payoutWriter.advance(source, masterAddress, maxTs, maxHeight);
+        } else {
+            // 翻到最大页数仍未触达回看窗口：中间可能有未拉到的打款，高水位不前进，下轮从原位置重新翻页
+            log.warn("Payment sync for {} stopped at max-pages={} before reaching the watermark (since={}); watermark not advanced",
+                    masterAddress, syncProperties.getMaxPages(), lowerBound);
         }
         if (inserted > 0) {
             log.info("Synced {} new block payments from master address {}", inserted, masterAddress);
         } else {
-            log.info("Fetched {} payments from {} but none were persisted (likely duplicates or zero amount)", payments.size(), masterAddress);
+            log.info("Fetched {} payments from {} but none were persisted (likely duplicates or zero amount, since={})",
+                    payments.size(), masterAddress, lowerBound);
+        }
+    }
+
+    /**
+     * 按时间倒序翻页，直到不足一页、到达高水位回看窗口或达到最大页数；只有前两种情况视为翻页完整。
+     */
+    private FetchResult fetchSince(String address, LocalDateTime lowerBound) {
+        int pageSize = Math.max(1, syncProperties.getWalletPageSize());
+        int maxPages = Math.max(1, syncProperties.getMaxPages());
+        List<PoolPayment> payments = new ArrayList<>();
+        for (int page = 0; page < maxPages; page++) {
+            List<PoolPayment> batch = poolClient.fetchPayments(address, page, pageSize);
+            payments.addAll(batch);
+            if (batch.size() < pageSize || reachedBound(batch, lowerBound)) {
+                return new FetchResult(payments, true);
+            }
         }
+        return new FetchResult(payments, false);
     }
 
-    private boolean persistPaymentIgnore(PoolPayment payment, String masterAddress, String normalizedTxHash) {
+    private record FetchResult(List<PoolPayment> payments, boolean complete) {
+    }
+
+    private boolean reachedBound(List<PoolPayment> batch, LocalDateTime lowerBound) {
+        if (lowerBound == null) {
+            return false;
+        }
+        for (PoolPayment payment : batch) {
+            if (payment != null && payment.timestamp() != null && toLocalDateTime(payment.timestamp()).isBefore(lowerBound)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private XmrWalletIncoming toRecord(PoolPayment payment, String masterAddress, String normalizedTxHash) {
         XmrWalletIncoming record = new XmrWalletIncoming();
         record.setUserId(walletProperties.getMasterOwnerUserId());
         record.setSubaddress(masterAddress);
@@ -109,8 +181,12 @@ public class XmrWalletIncomingSyncService {
         record.setBlockHeight(payment.blockHeight());
         record.setTs(toLocalDateTime(payment.timestamp()));
         record.setSettled(Boolean.FALSE);
-        int affected = walletIncomingMapper.insertIgnore(record);
-        return affected > 0;
+        return record;
+    }
+
+    private String watermarkSource() {
+        String provider = normalizeProviderName(poolClient.name());
+        return StringUtils.hasText(provider) ? provider : "pool";
     }
 
     private String normalizeTxHash(String raw) {
@@ -1,11 +1,14 @@
 package com.slb.mining_backend.modules.xmr.service;
 
+import com.slb.mining_backend.common.job.JobLease;
+import com.slb.mining_backend.modules.asset.entity.AssetLedger;
 import com.slb.mining_backend.modules.asset.service.AssetLedgerService;
 import com.slb.mining_backend.modules.earnings.entity.EarningsHistory;
 import com.slb.mining_backend.modules.earnings.mapper.EarningsHistoryMapper;
 import com.slb.mining_backend.modules.earnings.service.MarketDataService;
 import com.slb.mining_backend.modules.exchange.service.ExchangeRateService;
 import com.slb.mining_backend.modules.invite.config.InviteProperties;
+import com.slb.mining_backend.modules.invite.entity.CommissionRecord;
 import com.slb.mining_backend.modules.invite.entity.PlatformCommission;
 import com.slb.mining_backend.modules.invite.mapper.PlatformCommissionMapper;
 import com.slb.mining_backend.modules.invite.mapper.CommissionRecordMapper;
@@ -19,13 +22,20 @@ import com.slb.mining_backend.modules.users.entity.User;
 import com.slb.mining_backend.modules.users.enums.SettlementCurrency;
 import com.slb.mining_backend.modules.users.mapper.UserMapper;
 import com.slb.mining_backend.modules.xmr.config.F2PoolProperties;
+import com.slb.mining_backend.modules.xmr.config.WalletSettlementBatchProperties;
 import com.slb.mining_backend.modules.xmr.dto.WorkerPayhashScore;
 import com.slb.mining_backend.modules.xmr.entity.XmrWalletIncoming;
+import com.slb.mining_backend.modules.xmr.entity.XmrWalletSettlementMark;
+import com.slb.mining_backend.modules.xmr.entity.XmrWalletSettlementShare;
 import com.slb.mining_backend.modules.xmr.mapper.XmrWalletIncomingMapper;
+import com.slb.mining_backend.modules.xmr.mapper.XmrWalletSettlementMarkMapper;
 import com.slb.mining_backend.modules.xmr.service.antpool.AntpoolPayhashWindowScoreService;
 import com.slb.mining_backend.modules.xmr.service.f2pool.F2PoolPayhashWindowScoreService;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.jdbc.BadSqlGrammarException;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.support.TransactionTemplate;
@@ -38,8 +48,13 @@ import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 @Service
@@ -81,6 +96,14 @@ public class XmrWalletSettlementService {
     private final InviteService inviteService;
     private final InviteProperties inviteProperties;
     private final TransactionTemplate transactionTemplate;
+    private final WalletSettlementBatchProperties batchProperties;
+    private final XmrWalletSettlementMarkMapper settlementMarkMapper;
+    private final PlatformCreditBuffer creditBuffer;
+    private final ExecutorService shardExecutor;
+    /**
+     * 当前线程正在执行的结算分片；为空时所有写操作立即落库（逐笔结算/对外接口的旧行为）。
+     */
+    private final ThreadLocal<ShardContext> shardContext = new ThreadLocal<>();
     private final long adminUserId;
     private final int batchSize;
     private final int maxItemsPerRun;
@@ -154,6 +177,46 @@ public class XmrWalletSettlementService {
                                 BigDecimal unmappedPayhash) {
     }
 
+    /**
+     * 已在内存中完成分摊、等待分片批量入账的一笔入账。
+     * recorded 为 true 表示 shareMap 来自此前写入的分摊记录，无需再次写入。
+     */
+    private record BatchIncome(XmrWalletIncoming income,
+                               Map<Long, BigDecimal> shareMap,
+                               EarningSplitContext splitCtx,
+                               boolean recorded) {
+    }
+
+    /**
+     * 分片内的一份分账：某笔入账分给某个用户的 XMR。
+     * shareUserId 为 payhash 分摊出的原始用户（完成标记按它记录），userId 为实际入账用户（不存在时为 unclaimed）。
+     */
+    private record ShareTask(BatchIncome source, Long shareUserId, Long userId, BigDecimal portion) {
+    }
+
+    private record InviterMonth(Long inviterId, LocalDateTime monthStart) {
+    }
+
+    /**
+     * 分片执行期间的线程内状态：写缓冲 + 预加载用户 + 本分片内可复用的查询结果。
+     */
+    private static final class ShardContext {
+        final SettlementWriteBatch writes;
+        final Map<Long, User> users;
+        final Map<Long, CpuGpuRatio> cpuGpuRatios = new HashMap<>();
+        final Map<Long, List<GpuAlgorithmRatio>> gpuAlgorithmRatios = new HashMap<>();
+        final Map<Long, BigDecimal> inviterRates = new HashMap<>();
+        // 激活是单向的：一旦查到/写入激活标记，本分片内不再重复查询
+        final Set<Long> activatedInvitees = new HashSet<>();
+        // 邀请人当月已发佣金：首次读库，之后累加本分片新增（同一邀请人的被邀请者都在同一分片）
+        final Map<InviterMonth, BigDecimal> inviterMonthUsed = new HashMap<>();
+
+        private ShardContext(SettlementWriteBatch writes, Map<Long, User> users) {
+            this.writes = writes;
+            this.users = users;
+        }
+    }
+
     public XmrWalletSettlementService(XmrWalletIncomingMapper walletIncomingMapper,
                                       PayhashWindowScoreService payhashWindowScoreService,
                                       AntpoolPayhashWindowScoreService antpoolPayhashWindowScoreService,
@@ -172,6 +235,9 @@ public class XmrWalletSettlementService {
                                       InviteService inviteService,
                                       InviteProperties inviteProperties,
                                       TransactionTemplate transactionTemplate,
+                                      WalletSettlementBatchProperties batchProperties,
+                                      XmrWalletSettlementMarkMapper settlementMarkMapper,
+                                      PlatformCreditBuffer creditBuffer,
                                       @Value("${app.settlement.admin-user-id:1}") long adminUserId,
                                       @Value("${app.settlement.batch-size:300}") int batchSize,
                                       @Value("${app.settlement.max-items-per-run:5000}") int maxItemsPerRun,
@@ -199,6 +265,15 @@ public class XmrWalletSettlementService {
         this.inviteService = inviteService;
         this.inviteProperties = inviteProperties;
         this.transactionTemplate = transactionTemplate;
+        this.batchProperties = batchProperties;
+        this.settlementMarkMapper = settlementMarkMapper;
+        this.creditBuffer = creditBuffer;
+        AtomicInteger threadSeq = new AtomicInteger();
+        this.shardExecutor = Executors.newFixedThreadPool(Math.max(1, batchProperties.getParallelism()), runnable -> {
+            Thread thread = new Thread(runnable, "wallet-settlement-shard-" + threadSeq.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
         this.adminUserId = adminUserId;
         this.batchSize = batchSize;
         this.maxItemsPerRun = Math.max(1, maxItemsPerRun);
@@ -210,13 +285,19 @@ public class XmrWalletSettlementService {
         this.unclaimedUserId = unclaimedUserId > 0 ? unclaimedUserId : null;
     }
 
+    @PreDestroy
+    public void shutdown() {
+        shardExecutor.shutdown();
+    }
+
     /**
      * 按小时整点结算：只处理“上一小时 [hourStart, hourEnd) 内入账”的记录。
      *
      * 说明：
      * - 以 xmr_wallet_incoming.ts（到账时间）为准分桶；
      * - 本轮只结算上一小时的入账，并将 earnings_history.earning_time 写为该入账 ts，便于前端按“到账时间小时”展示；
-     * - 受预算限制（maxItemsPerRun/maxRunMs），若上一小时入账量极大可能需要下一轮继续处理（极端场景）。
+     * - 受预算限制（maxItemsPerRun/maxRunMs），若上一小时入账量极大可能需要下一轮继续处理（极端场景）；
+     * - 开启 app.settlement.batch 时，可正常分摊的入账按批分片并行入账（见 settleBatch），兜底/跳过类入账仍逐笔处理。
      */
     @Scheduled(cron = "${app.settlement.job-cron:0 0 * * * ?}", zone = "Asia/Shanghai")
     public void settleWalletIncomingHourly() {
@@ -251,8 +332,10 @@ public class XmrWalletSettlementService {
                         break;
                     }
                     boolean anyAttempted = false;
+                    Map<String, Map<Long, BigDecimal>> recordedShares = loadRecordedShares(records);
+                    List<BatchIncome> batch = new ArrayList<>();
                     for (XmrWalletIncoming income : records) {
-                        if (processed >= maxItemsPerRun || isTimeBudgetExceeded(startedAt)) {
+                        if (processed + batch.size() >= maxItemsPerRun || isTimeBudgetExceeded(startedAt)) {
                             break;
                         }
                         if (income == null || !StringUtils.hasText(income.getTxHash())) {
@@ -267,7 +350,19 @@ public class XmrWalletSettlementService {
                         }
                         anyAttempted = true;
                         try {
+                            // 已有分摊记录（此前批量结算部分分片已提交或中途崩溃）：不论批量开关与当前 payhash 快照，
+                            // 一律按首次分摊经批量路径续结，跳过已有完成标记的分账，避免逐笔结算重复入账
+                            Map<Long, BigDecimal> recorded = recordedShares.get(income.getTxHash());
+                            if (recorded != null) {
+                                batch.add(new BatchIncome(income, recorded, resolveEarningSplitContext(income, algorithmCache), true));
+                                continue;
+                            }
                             PayhashSnapshot snapshot = resolvePayhashSnapshot(income, window.start, window.end, payhashCache, algorithmCache);
+                            BatchIncome planned = planBatchIncome(income, snapshot, algorithmCache);
+                            if (planned != null) {
+                                batch.add(planned);
+                                continue;
+                            }
                             Boolean settled = transactionTemplate.execute(status ->
                                     processIncomeInHourWindow(income, window.start, window.end, snapshot, xmrToCny, calToCny, algorithmCache));
                             if (Boolean.TRUE.equals(settled)) {
@@ -278,12 +373,26 @@ public class XmrWalletSettlementService {
                             log.warn("Failed to settle wallet income {}: {}", income.getTxHash(), ex.getMessage());
                         }
                     }
+                    if (!batch.isEmpty()) {
+                        int settled = settleBatch(batch, xmrToCny, calToCny);
+                        processed += settled;
+                        if (settled > 0) {
+                            anySettledInWindow = true;
+                        }
+                        // 批量入账失败：本批保持未结算，留给下一轮（已提交的分片有完成标记，不会重复入账）
+                        if (settled < batch.size()) {
+                            break;
+                        }
+                    }
                     // 如果本批次完全没有尝试（都在冷却期），避免 while 热循环
                     if (!anyAttempted) {
                         break;
                     }
                 }
 
+                // 平台/unclaimed 账户的待入账记录每个窗口合并一次（批量结算失败时已提交的分片也可能写入了待入账记录）
+                creditBuffer.flush();
+
                 // 若该窗口没有任何记录被结算（可能 payhash 缺失导致全部 SKIP），避免在同一轮任务里反复卡在这个窗口
                 if (!anySettledInWindow) {
                     break;
@@ -293,10 +402,273 @@ public class XmrWalletSettlementService {
             long cost = System.currentTimeMillis() - startedAt;
             log.info("Hourly settlement finished (processed={}, costMs={})", processed, cost);
         } finally {
+            // 本轮中途异常退出时也合并已提交的待入账记录，避免热点账户余额滞后到下一次定时合并
+            creditBuffer.flush();
             running.set(false);
         }
     }
 
+    /**
+     * 可走批量分片入账的入账：金额有效、有到账时间、非跳过的矿池 payout，且 payhash 分摊结果非空。
+     * 其余情况（兜底、跳过、异常数据）返回 null，由 processIncomeInHourWindow 逐笔处理。
+     */
+    private BatchIncome planBatchIncome(XmrWalletIncoming income,
+                                        PayhashSnapshot snapshot,
+                                        Map<Long, String> algorithmCache) {
+        if (!batchProperties.isEnabled() || snapshot == null) {
+            return null;
+        }
+        if (income.getAmountXmr() == null || income.getAmountXmr().compareTo(BigDecimal.ZERO) <= 0
+                || income.getTs() == null || shouldSkipPoolPayout(income)) {
+            return null;
+        }
+        BigDecimal totalScore = snapshot.totalScore();
+        if (snapshot.userScores() == null || snapshot.userScores().isEmpty()
+                || totalScore == null || totalScore.compareTo(BigDecimal.ZERO) <= 0) {
+            return null;
+        }
+        Map<Long, BigDecimal> shareMap = allocateByRatio(income.getAmountXmr(), totalScore, snapshot.userScores());
+        if (shareMap.isEmpty()) {
+            return null;
+        }
+        if (unclaimedUserId != null) {
+            BigDecimal unclaimedPortion = shareMap.get(unclaimedUserId);
+            if (unclaimedPortion != null && unclaimedPortion.compareTo(BigDecimal.ZERO) > 0) {
+                log.info("Unclaimed hashrate portion {} XMR assigned to user {} for tx {}",
+                        unclaimedPortion, unclaimedUserId, income.getTxHash());
+            }
+        }
+        return new BatchIncome(income, shareMap, resolveEarningSplitContext(income, algorithmCache), false);
+    }
+
+    /**
+     * 读取本批入账中已有分摊记录的部分（tx_hash → 原始用户 → 份额）。
+     * 未开启批量结算且尚未执行分摊记录表迁移时，不可能存在分摊记录，按空处理。
+     */
+    private Map<String, Map<Long, BigDecimal>> loadRecordedShares(List<XmrWalletIncoming> records) {
+        List<String> txHashes = records.stream()
+                .filter(income -> income != null && StringUtils.hasText(income.getTxHash()))
+                .map(XmrWalletIncoming::getTxHash)
+                .distinct()
+                .toList();
+        Map<String, Map<Long, BigDecimal>> recorded = new HashMap<>();
+        int chunkSize = Math.max(1, batchProperties.getWriteChunkSize());
+        try {
+            for (int from = 0; from < txHashes.size(); from += chunkSize) {
+                for (XmrWalletSettlementShare share : settlementMarkMapper.selectSharesByTxHashes(
+                        txHashes.subList(from, Math.min(txHashes.size(), from + chunkSize)))) {
+                    recorded.computeIfAbsent(share.getTxHash(), k -> new LinkedHashMap<>())
+                            .put(share.getUserId(), share.getPortionXmr());
+                }
+            }
+        } catch (BadSqlGrammarException e) {
+            if (batchProperties.isEnabled()) {
+                throw e;
+            }
+            logWarnThrottled("settlement-shares-missing",
+                    "xmr_wallet_settlement_shares is not available, treating all incomes as unplanned: {}", e.getMessage());
+            return Collections.emptyMap();
+        }
+        return recorded;
+    }
+
+    /**
+     * 批量分片入账：
+     * - 按邀请人（无邀请人时按用户本人）取模分片，同一邀请人的月度封顶只在一个分片内累计；
+     * - 各分片并行，每个分片一个事务，写操作先进入 SettlementWriteBatch，结束时批量落库并为每份分账写入 (tx_hash, user_id) 完成标记；
+     * - 分片开始前先在独立事务中写入每笔入账的完整分摊记录，之后的重试（含关闭批量开关后的轮次）都按这份记录续结；
+     * - 全部分片成功后才把入账置为已结算；任一分片失败时本批保持未结算，重试时跳过已有完成标记的分账。
+     *   标记按分账而非分片编号记录：重试时按当前邀请人重新分片，即使邀请人已变化也不会重复入账。
+     *
+     * @return 本批成功结算的入账数（全部成功时为 batch.size()，否则为 0）
+     */
+    private int settleBatch(List<BatchIncome> batch, BigDecimal xmrToCny, BigDecimal calToCny) {
+        long startedAt = System.currentTimeMillis();
+        int chunkSize = Math.max(1, batchProperties.getWriteChunkSize());
+        List<String> txHashes = batch.stream().map(item -> item.income().getTxHash()).toList();
+        try {
+            recordShares(batch, chunkSize);
+            Map<String, Set<Long>> appliedShares = new HashMap<>();
+            for (int from = 0; from < txHashes.size(); from += chunkSize) {
+                List<XmrWalletSettlementMark> marks = settlementMarkMapper.selectByTxHashes(
+                        txHashes.subList(from, Math.min(txHashes.size(), from + chunkSize)));
+                for (XmrWalletSettlementMark mark : marks) {
+                    appliedShares.computeIfAbsent(mark.getTxHash(), k -> new HashSet<>()).add(mark.getUserId());
+                }
+            }
+
+            Set<Long> userIds = new HashSet<>();
+            for (BatchIncome item : batch) {
+                userIds.addAll(item.shareMap().keySet());
+            }
+            if (unclaimedUserId != null) {
+                userIds.add(unclaimedUserId);
+            }
+            Map<Long, User> users = loadUsers(userIds, chunkSize);
+
+            int shardCount = Math.max(1, batchProperties.getShardCount());
+            Map<Integer, List<ShareTask>> shards = new TreeMap<>();
+            int shares = 0;
+            for (BatchIncome item : batch) {
+                String txHash = item.income().getTxHash();
+                Set<Long> applied = appliedShares.getOrDefault(txHash, Collections.emptySet());
+                for (Map.Entry<Long, BigDecimal> entry : item.shareMap().entrySet()) {
+                    Long shareUserId = entry.getKey();
+                    Long userId = shareUserId;
+                    BigDecimal portion = entry.getValue();
+                    if (portion == null || portion.compareTo(BigDecimal.ZERO) <= 0 || applied.contains(shareUserId)) {
+                        continue;
+                    }
+                    // 与逐笔结算一致：payhash 解析出的用户不存在时归入 unclaimed
+                    if (!users.containsKey(userId)) {
+                        if (unclaimedUserId == null) {
+                            log.warn("User {} not found and unclaimed-user-id not configured, skipping portion {} XMR for tx {}",
+                                    userId, portion, txHash);
+                            continue;
+                        }
+                        log.warn("User {} not found, redirecting portion {} XMR to unclaimed user {} for tx {}",
+                                userId, portion, unclaimedUserId, txHash);
+                        userId = unclaimedUserId;
+                    }
+                    User user = users.get(userId);
+                    long shardKey = user != null && user.getInviterId() != null ? user.getInviterId() : userId;
+                    int shardNo = (int) Math.floorMod(shardKey, (long) shardCount);
+                    shards.computeIfAbsent(shardNo, k -> new ArrayList<>())
+                            .add(new ShareTask(item, shareUserId, userId, portion));
+                    shares++;
+                }
+            }
+
+            List<Future<?>> futures = new ArrayList<>(shards.size());
+            for (Map.Entry<Integer, List<ShareTask>> shard : shards.entrySet()) {
+                futures.add(shardExecutor.submit(() ->
+                        runShard(shard.getKey(), shard.getValue(), users, xmrToCny, calToCny)));
+            }
+            boolean allApplied = true;
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    allApplied = false;
+                    Throwable cause = e.getCause() != null ? e.getCause() : e;
+                    log.warn("Wallet settlement shard failed, batch of {} incomes stays unsettled: {}",
+                            batch.size(), cause.getMessage());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    allApplied = false;
+                }
+            }
+            if (!allApplied) {
+                return 0;
+            }
+            for (int from = 0; from < txHashes.size(); from += chunkSize) {
+                walletIncomingMapper.markSettledByTxHashes(txHashes.subList(from, Math.min(txHashes.size(), from + chunkSize)));
+            }
+            log.info("Batch settled {} wallet incomes ({} shares in {} shards, costMs={})",
+                    batch.size(), shares, shards.size(), System.currentTimeMillis() - startedAt);
+            return batch.size();
+        } catch (Exception ex) {
+            log.warn("Failed to batch settle {} wallet incomes: {}", batch.size(), ex.getMessage());
+            return 0;
+        }
+    }
+
+    /**
+     * 为尚无分摊记录的入账写入完整分摊（独立事务，先于任何分片提交）。
+     */
+    private void recordShares(List<BatchIncome> batch, int chunkSize) {
+        List<XmrWalletSettlementShare> shares = new ArrayList<>();
+        for (BatchIncome item : batch) {
+            if (item.recorded()) {
+                continue;
+            }
+            for (Map.Entry<Long, BigDecimal> entry : item.shareMap().entrySet()) {
+                XmrWalletSettlementShare share = new XmrWalletSettlementShare();
+                share.setTxHash(item.income().getTxHash());
+                share.setUserId(entry.getKey());
+                share.setPortionXmr(entry.getValue());
+                shares.add(share);
+            }
+        }
+        if (shares.isEmpty()) {
+            return;
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            for (int from = 0; from < shares.size(); from += chunkSize) {
+                settlementMarkMapper.batchInsertShares(shares.subList(from, Math.min(shares.size(), from + chunkSize)));
+            }
+        });
+    }
+
+    /**
+     * 在独立事务中执行一个分片；锁冲突（死锁/锁等待超时）时整片重试。
+     */
+    private void runShard(int shardNo,
+                          List<ShareTask> tasks,
+                          Map<Long, User> users,
+                          BigDecimal xmrToCny,
+                          BigDecimal calToCny) {
+        int maxAttempts = Math.max(1, batchProperties.getMaxShardAttempts());
+        for (int attempt = 1; ; attempt++) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> applyShard(shardNo, tasks, users, xmrToCny, calToCny));
+                return;
+            } catch (PessimisticLockingFailureException e) {
+                if (attempt >= maxAttempts) {
+                    throw e;
+                }
+                log.warn("Wallet settlement shard {} hit lock conflict (attempt {}/{}): {}",
+                        shardNo, attempt, maxAttempts, e.getMessage());
+            }
+        }
+    }
+
+    private void applyShard(int shardNo,
+                            List<ShareTask> tasks,
+                            Map<Long, User> users,
+                            BigDecimal xmrToCny,
+                            BigDecimal calToCny) {
+        SettlementWriteBatch writes = new SettlementWriteBatch(earningsHistoryMapper, earningsMapper, userMapper,
+                platformCommissionMapper, commissionRecordMapper, assetLedgerService, creditBuffer,
+                "wallet-shard-" + shardNo, batchProperties.getWriteChunkSize());
+        List<XmrWalletSettlementMark> marks = new ArrayList<>(tasks.size());
+        shardContext.set(new ShardContext(writes, users));
+        try {
+            for (ShareTask task : tasks) {
+                XmrWalletIncoming income = task.source().income();
+                EarningSplitContext splitCtx = task.source().splitCtx();
+                distributeToUser(task.userId(), task.portion(), income.getTxHash(), xmrToCny, calToCny, null,
+                        splitCtx.gpuEarningTypeOverride(), splitCtx.forceGpuWhenOverride(), splitCtx.forceCpuOnly(), income.getTs());
+                XmrWalletSettlementMark mark = new XmrWalletSettlementMark();
+                mark.setTxHash(income.getTxHash());
+                mark.setUserId(task.shareUserId());
+                mark.setShardNo(shardNo);
+                marks.add(mark);
+            }
+            writes.flush();
+            // 主键 (tx_hash, user_id) 冲突说明该分账已被其他事务入账：异常回滚本分片
+            int chunkSize = Math.max(1, batchProperties.getWriteChunkSize());
+            for (int from = 0; from < marks.size(); from += chunkSize) {
+                settlementMarkMapper.batchInsert(marks.subList(from, Math.min(marks.size(), from + chunkSize)));
+            }
+            log.debug("Wallet settlement shard {} applied ({} shares, {} histories, {} balances)",
+                    shardNo, tasks.size(), writes.historyCount(), writes.balanceCount());
+        } finally {
+            shardContext.remove();
+        }
+    }
+
+    private Map<Long, User> loadUsers(Collection<Long> userIds, int chunkSize) {
+        List<Long> ids = new ArrayList<>(userIds);
+        Map<Long, User> users = new HashMap<>(ids.size() * 2);
+        for (int from = 0; from < ids.size(); from += chunkSize) {
+            for (User user : userMapper.selectByIds(ids.subList(from, Math.min(ids.size(), from + chunkSize)))) {
+                users.put(user.getId(), user);
+            }
+        }
+        return users;
+    }
+
     private static final class HourWindow {
         private final LocalDateTime start;
         private final LocalDateTime end;
@@ -330,7 +702,14 @@ public class XmrWalletSettlementService {
         return new HourWindow(start, end);
     }
 
+    /**
+     * 超出单次运行时长，或集群租约已丢失（其他节点可能已接管）时停止本轮。
+     */
     private boolean isTimeBudgetExceeded(long startedAt) {
+        if (JobLease.currentLost()) {
+            log.warn("Wallet settlement job lease lost; stop current run");
+            return true;
+        }
         return (System.currentTimeMillis() - startedAt) >= maxRunMs;
     }
 
@@ -1070,8 +1449,7 @@ public class XmrWalletSettlementService {
                                   boolean forceGpuWhenOverride,
                                   boolean forceCpuOnly,
                                   LocalDateTime earningTime) {
-        User user = userMapper.selectById(userId)
-                .orElseThrow(() -> new IllegalStateException("User not found: " + userId));
+        User user = loadUser(userId);
         SettlementCurrency preference = SettlementCurrency.fromCode(user.getSettlementCurrency());
 
         // 结算拆分顺序（按你的新口径）：
@@ -1089,18 +1467,18 @@ public class XmrWalletSettlementService {
         LocalDateTime now = LocalDateTime.now(BJT);
 
         // 1) 激活门槛：被邀请者达到阈值后，邀请者才开始计佣（激活标记持久化到 asset_ledger）
-        boolean activated = inviterId != null && assetLedgerService.hasRefTypeWithRemarkPrefix(
-                user.getId(), LEDGER_REF_TYPE_BONUS, LEDGER_REMARK_INVITEE_ACTIVATION);
+        boolean activated = inviterId != null && isInviteeActivated(user.getId());
         BigDecimal threshold = inviteProperties != null ? safe(inviteProperties.getActivationThresholdXmr()) : BigDecimal.ZERO;
         if (inviterId != null && !activated && threshold.compareTo(BigDecimal.ZERO) > 0 && shareXmr.compareTo(threshold) >= 0) {
             assetLedgerService.recordInviteeActivation(user.getId(), txHash);
+            markInviteeActivated(user.getId());
             activated = true;
         }
 
         // 2) 邀请者佣金：按现有阶梯，且要求激活；基于“用户 70%（不含折扣）”计算；从平台份额中支付；并做每月封顶
         BigDecimal inviteXmrPortion = BigDecimal.ZERO;
         if (inviterId != null && activated) {
-            BigDecimal inviterRate = inviteService.getCommissionRateForUser(inviterId);
+            BigDecimal inviterRate = commissionRateOf(inviterId);
             if (inviterRate != null && inviterRate.compareTo(BigDecimal.ZERO) > 0) {
                 BigDecimal commissionBaseXmr = userXmrBase; // 70% 基数（折扣之前）
                 BigDecimal wantedXmr = commissionBaseXmr.multiply(inviterRate).setScale(XMR_SCALE, RoundingMode.HALF_UP);
@@ -1108,10 +1486,7 @@ public class XmrWalletSettlementService {
 
                 BigDecimal monthlyCap = inviteProperties != null ? safe(inviteProperties.getInviterMonthlyCapCal()) : BigDecimal.ZERO;
                 if (monthlyCap.compareTo(BigDecimal.ZERO) > 0) {
-                    LocalDate today = now.toLocalDate();
-                    LocalDateTime monthStart = today.withDayOfMonth(1).atStartOfDay();
-                    LocalDateTime nextMonthStart = monthStart.plusMonths(1);
-                    BigDecimal monthUsed = safe(commissionRecordMapper.sumCommissionByUserIdAndDateRange(inviterId, monthStart.format(DT), nextMonthStart.format(DT)));
+                    BigDecimal monthUsed = inviterMonthUsed(inviterId, monthStartOf(now));
                     BigDecimal capRemaining = monthlyCap.subtract(monthUsed);
                     if (capRemaining.compareTo(BigDecimal.ZERO) <= 0) {
                         wantedCal = BigDecimal.ZERO;
@@ -1259,9 +1634,9 @@ public class XmrWalletSettlementService {
             }
             BigDecimal userCny = userXmrBase.multiply(xmrToCny).setScale(CNY_SCALE, RoundingMode.HALF_UP);
             BigDecimal platformCny = platformXmrPortion.multiply(xmrToCny).setScale(CNY_SCALE, RoundingMode.HALF_UP);
-            userMapper.updateCashBalances(user.getId(), userCny, BigDecimal.ZERO, BigDecimal.ZERO);
+            creditCny(user.getId(), userCny, txHash);
             if (platformCny.compareTo(BigDecimal.ZERO) != 0) {
-                userMapper.updateCashBalances(adminUserId, platformCny, BigDecimal.ZERO, BigDecimal.ZERO);
+                creditCny(adminUserId, platformCny, txHash);
             }
             insertCompensationEarningsHistory(user, userCalBase, userCny, earningTime);
             assetLedgerService.recordMiningPayout(
@@ -1293,9 +1668,9 @@ public class XmrWalletSettlementService {
         BigDecimal platformCny = (calToCny != null && calToCny.compareTo(BigDecimal.ZERO) > 0)
                 ? platformCal.multiply(calToCny).setScale(CNY_SCALE, RoundingMode.HALF_UP)
                 : null;
-        userMapper.updateUserWallet(user.getId(), userCalBase);
+        creditCal(user.getId(), userCalBase, txHash);
         if (platformCal.compareTo(BigDecimal.ZERO) != 0) {
-            userMapper.updateUserWallet(adminUserId, platformCal);
+            creditCal(adminUserId, platformCal, txHash);
         }
         insertCompensationEarningsHistory(user, userCalBase, userCny, earningTime);
         assetLedgerService.recordMiningPayout(
@@ -1389,30 +1764,30 @@ public class XmrWalletSettlementService {
         BigDecimal platformCny = platformXmr.multiply(xmrToCny).setScale(CNY_SCALE, RoundingMode.HALF_UP);
         BigDecimal inviteCny = inviteXmr.multiply(xmrToCny).setScale(CNY_SCALE, RoundingMode.HALF_UP);
 
-        userMapper.updateCashBalances(user.getId(), userCny, BigDecimal.ZERO, BigDecimal.ZERO);
+        creditCny(user.getId(), userCny, txHash);
         if (platformCny.compareTo(BigDecimal.ZERO) > 0) {
-            userMapper.updateCashBalances(adminUserId, platformCny, BigDecimal.ZERO, BigDecimal.ZERO);
+            creditCny(adminUserId, platformCny, txHash);
         }
         // 先写入收益历史拿到主键，用于佣金记录的 source_earning_id（DB 约束不可为 NULL）
         // 记录时仍然保留本次用户应得的 XMR 数量，避免金额过小时 CNY 进位到 0 后丢失明细
         BigDecimal userCalEqBase = xmrToCal(userXmrBase).setScale(CAL_SCALE, RoundingMode.HALF_UP);
         MiningHistorySplitResult split = recordMiningEarningsHistorySplitCpuGpu(
                 user, userCnyBase, userCalEqBase, gpuEarningTypeOverride, forceGpuWhenOverride, forceCpuOnly, earningTime);
-        Long historyId = split.primaryId;
+        EarningsHistory primary = split.primary;
         // 平台佣金池监控以 CAL 等值口径更稳：这里统一把 platform_commissions.*amount 写为 CAL 等值，
         // currency 字段仅表示“本次结算分支”（CAL/CNY），供前端展示用。
         BigDecimal platformCalEq = xmrToCal(platformXmr).setScale(CAL_SCALE, RoundingMode.HALF_UP);
         BigDecimal inviteCalEq = xmrToCal(inviteXmr).setScale(CAL_SCALE, RoundingMode.HALF_UP);
         BigDecimal bonusCalEq = (inviteeBonusCal != null ? inviteeBonusCal : BigDecimal.ZERO).setScale(CAL_SCALE, RoundingMode.HALF_UP);
         BigDecimal originalCalEq = userCalEqBase.add(bonusCalEq).add(platformCalEq).add(inviteCalEq).setScale(CAL_SCALE, RoundingMode.HALF_UP);
-        recordPlatformCommission(historyId, user, originalCalEq, platformCalEq, "CNY");
+        recordPlatformCommission(primary, user, originalCalEq, platformCalEq, "CNY");
         // 给拆分出的“另一条”写入 0 金额的币种标记，避免 settleCurrency 推断错误
         recordSettlementCurrencyMarkerIfNeeded(split, user, "CNY");
 
         if (inviteXmr.compareTo(BigDecimal.ZERO) > 0 && inviterId != null) {
             // 邀请佣金以 CAL 入账（1 CAL = 0.001 XMR）
             BigDecimal inviteCal = xmrToCal(inviteXmr).setScale(CAL_SCALE, RoundingMode.HALF_UP);
-            userMapper.updateUserWallet(inviterId, inviteCal);
+            creditCal(inviterId, inviteCal, txHash);
             recordInvitationCommission(user, inviterId, split, inviteCal, inviteCny, txHash, earningTime);
         }
 
@@ -1426,23 +1801,23 @@ public class XmrWalletSettlementService {
                 : (unclaimedUserId != null && Objects.equals(user.getId(), unclaimedUserId))
                 ? LEDGER_REMARK_UNCLAIMED_HASHRATE
                 : "猫池结算（CNY）";
-        assetLedgerService.recordMiningPayout(
+        recordPayout(
                 user.getId(),
                 "CNY",
                 userXmrBase.add(inviteeBonusXmr != null ? inviteeBonusXmr : BigDecimal.ZERO),
                 null,
                 userCny,
-                historyId,
+                primary,
                 txHash,
                 userRemark,
                 earningTime);
-        assetLedgerService.recordMiningPayout(
+        recordPayout(
                 adminUserId,
                 "CNY",
                 platformXmr,
                 null,
                 platformCny,
-                historyId,
+                primary,
                 txHash,
                 "猫池结算抽成",
                 earningTime);
@@ -1467,9 +1842,9 @@ public class XmrWalletSettlementService {
         BigDecimal userCal = userCalBase.add(bonusCal).setScale(CAL_SCALE, RoundingMode.HALF_UP);
         BigDecimal platformCal = xmrToCal(platformXmr).setScale(CAL_SCALE, RoundingMode.HALF_UP);
         BigDecimal inviteCal = xmrToCal(inviteXmr).setScale(CAL_SCALE, RoundingMode.HALF_UP);
-        userMapper.updateUserWallet(user.getId(), userCal);
+        creditCal(user.getId(), userCal, txHash);
         if (platformCal.compareTo(BigDecimal.ZERO) > 0) {
-            userMapper.updateUserWallet(adminUserId, platformCal);
+            creditCal(adminUserId, platformCal, txHash);
         }
         BigDecimal userCalCnyBase = calToCny != null ? userCalBase.multiply(calToCny).setScale(CNY_SCALE, RoundingMode.HALF_UP) : null;
         BigDecimal bonusCalCny = calToCny != null ? bonusCal.multiply(calToCny).setScale(CNY_SCALE, RoundingMode.HALF_UP) : null;
@@ -1479,12 +1854,12 @@ public class XmrWalletSettlementService {
 
         MiningHistorySplitResult split = recordMiningEarningsHistorySplitCpuGpu(
                 user, userCalCnyBase, userCalBase, gpuEarningTypeOverride, forceGpuWhenOverride, forceCpuOnly, earningTime);
-        Long historyId = split.primaryId;
-        recordPlatformCommission(historyId, user, userCal.add(platformCal).add(inviteCal), platformCal, "CAL");
+        EarningsHistory primary = split.primary;
+        recordPlatformCommission(primary, user, userCal.add(platformCal).add(inviteCal), platformCal, "CAL");
         recordSettlementCurrencyMarkerIfNeeded(split, user, "CAL");
 
         if (inviteCal.compareTo(BigDecimal.ZERO) > 0 && inviterId != null) {
-            userMapper.updateUserWallet(inviterId, inviteCal);
+            creditCal(inviterId, inviteCal, txHash);
             recordInvitationCommission(user, inviterId, split, inviteCal, inviteCalCny, txHash, earningTime);
         }
 
@@ -1498,29 +1873,29 @@ public class XmrWalletSettlementService {
                 : (unclaimedUserId != null && Objects.equals(user.getId(), unclaimedUserId))
                 ? LEDGER_REMARK_UNCLAIMED_HASHRATE
                 : "猫池结算（CAL）";
-        assetLedgerService.recordMiningPayout(
+        recordPayout(
                 user.getId(),
                 "CAL",
                 userXmrBase.add(inviteeBonusXmr != null ? inviteeBonusXmr : BigDecimal.ZERO),
                 userCal,
                 userCalCny,
-                historyId,
+                primary,
                 txHash,
                 userRemark,
                 earningTime);
-        assetLedgerService.recordMiningPayout(
+        recordPayout(
                 adminUserId,
                 "CAL",
                 platformXmr,
                 platformCal,
                 platformCalCny,
-                historyId,
+                primary,
                 txHash,
                 "猫池结算抽成",
                 earningTime);
     }
 
-    private Long recordEarningsHistory(User user, BigDecimal amountCny, BigDecimal amountCal, String earningType, LocalDateTime earningTime) {
+    private EarningsHistory recordEarningsHistory(User user, BigDecimal amountCny, BigDecimal amountCal, String earningType, LocalDateTime earningTime) {
         EarningsHistory history = new EarningsHistory();
         history.setUserId(user.getId());
         // 结算来源于矿池整体，不绑定具体设备，使用用户 workerId 或 'POOL' 兜底避免 NULL 约束
@@ -1534,19 +1909,9 @@ public class XmrWalletSettlementService {
         String normalizedType = (earningType == null || earningType.isBlank()) ? "CPU" : earningType.trim().toUpperCase();
         history.setEarningType(normalizedType);
         history.setEarningTime(earningTime);
-        earningsHistoryMapper.insert(history);
-
         // Also update daily stats
-        LocalDate statDate = earningTime != null ? earningTime.toLocalDate() : java.time.LocalDate.now();
-        earningsMapper.upsertDailyStats(
-                user.getId(),
-                statDate,
-                amountCal,
-                amountCny,
-                earningType
-        );
-
-        return history.getId();
+        insertHistory(history, earningType);
+        return history;
     }
 
     /**
@@ -1555,7 +1920,7 @@ public class XmrWalletSettlementService {
      * - 该金额不并入 CPU/GPU 明细，避免“挖矿收益”与“被邀请奖励”重复计入；
      * - 仍会写入 daily_earnings_stats.total_*，以便总收益能正确汇总。
      */
-    private Long insertInvitedBonusEarningsHistory(User user, BigDecimal amountCal, BigDecimal amountCny, LocalDateTime earningTime) {
+    private EarningsHistory insertInvitedBonusEarningsHistory(User user, BigDecimal amountCal, BigDecimal amountCny, LocalDateTime earningTime) {
         if (user == null) return null;
         if (amountCal == null || amountCal.compareTo(BigDecimal.ZERO) <= 0) return null;
         EarningsHistory h = new EarningsHistory();
@@ -1566,11 +1931,8 @@ public class XmrWalletSettlementService {
         h.setAmountCny(amountCny != null ? amountCny : BigDecimal.ZERO);
         h.setEarningType("INVITED");
         h.setEarningTime(earningTime);
-        earningsHistoryMapper.insert(h);
-
-        LocalDate statDate = earningTime != null ? earningTime.toLocalDate() : java.time.LocalDate.now();
-        earningsMapper.upsertDailyStats(user.getId(), statDate, amountCal, amountCny, "INVITED");
-        return h.getId();
+        insertHistory(h, "INVITED");
+        return h;
     }
 
     /**
@@ -1607,18 +1969,18 @@ public class XmrWalletSettlementService {
      * - 若 forceGpuWhenOverride=true，则不看设备算力，全部记为 GPU（用于矿池算力口径）；
      * - 若 forceCpuOnly=true，则不看设备算力，全部记为 CPU（用于 C3pool 口径）；
      * - 否则若无法获取算力占比（总算力=0），则全部记为 CPU；
-     * - 为保证 platform_commissions / commission_records 的外键引用一致，这里返回“源记录ID”：
-     *   优先返回 CPU 那条（若 CPU 为 0 则返回 GPU）。
+     * - 为保证 platform_commissions / commission_records 的外键引用一致，这里返回“源记录”：
+     *   优先返回 CPU 那条（若 CPU 为 0 则返回 GPU）；批量结算时主键在分片落库后才回填，引用方按对象关联。
      */
     private static class MiningHistorySplitResult {
-        final Long primaryId;
-        final Long cpuId;
-        final List<Long> gpuIds;
+        final EarningsHistory primary;
+        final EarningsHistory cpu;
+        final List<EarningsHistory> gpus;
 
-        private MiningHistorySplitResult(Long primaryId, Long cpuId, List<Long> gpuIds) {
-            this.primaryId = primaryId;
-            this.cpuId = cpuId;
-            this.gpuIds = gpuIds != null ? gpuIds : Collections.emptyList();
+        private MiningHistorySplitResult(EarningsHistory primary, EarningsHistory cpu, List<EarningsHistory> gpus) {
+            this.primary = primary;
+            this.cpu = cpu;
+            this.gpus = gpus != null ? gpus : Collections.emptyList();
         }
     }
 
@@ -1663,25 +2025,19 @@ public class XmrWalletSettlementService {
         BigDecimal cpuCny = totalCny.multiply(ratio.cpuRatio).setScale(CNY_SCALE, RoundingMode.HALF_UP);
         BigDecimal gpuCny = totalCny.multiply(ratio.gpuRatio).setScale(CNY_SCALE, RoundingMode.HALF_UP);
 
-        Long cpuId = null;
-        List<Long> gpuIds = new ArrayList<>();
+        EarningsHistory cpu = null;
+        List<EarningsHistory> gpus = new ArrayList<>();
 
         if (cpuCal.compareTo(BigDecimal.ZERO) > 0 || cpuCny.compareTo(BigDecimal.ZERO) > 0) {
-            cpuId = recordEarningsHistory(user, cpuCny, cpuCal, "CPU", earningTime);
+            cpu = recordEarningsHistory(user, cpuCny, cpuCal, "CPU", earningTime);
         }
         if (gpuCal.compareTo(BigDecimal.ZERO) > 0 || gpuCny.compareTo(BigDecimal.ZERO) > 0) {
             if (StringUtils.hasText(gpuEarningTypeOverride)) {
-                Long id = recordEarningsHistory(user, gpuCny, gpuCal, gpuEarningTypeOverride, earningTime);
-                if (id != null) {
-                    gpuIds.add(id);
-                }
+                gpus.add(recordEarningsHistory(user, gpuCny, gpuCal, gpuEarningTypeOverride, earningTime));
             } else {
                 List<GpuAlgorithmRatio> ratios = resolveGpuAlgorithmRatios(user.getId());
                 if (ratios.isEmpty()) {
-                    Long id = recordEarningsHistory(user, gpuCny, gpuCal, "GPU", earningTime);
-                    if (id != null) {
-                        gpuIds.add(id);
-                    }
+                    gpus.add(recordEarningsHistory(user, gpuCny, gpuCal, "GPU", earningTime));
                 } else {
                     BigDecimal remainCal = gpuCal;
                     BigDecimal remainCny = gpuCny;
@@ -1694,22 +2050,19 @@ public class XmrWalletSettlementService {
                         remainCny = remainCny.subtract(partCny);
                         String normalized = normalizeAlgorithm(r.algorithm);
                         String earningType = StringUtils.hasText(normalized) ? "GPU_" + normalized : "GPU";
-                        Long id = recordEarningsHistory(user, partCny, partCal, earningType, earningTime);
-                        if (id != null) {
-                            gpuIds.add(id);
-                        }
+                        gpus.add(recordEarningsHistory(user, partCny, partCal, earningType, earningTime));
                     }
                 }
             }
         }
 
         // 极端兜底：如果由于舍入导致两边都为 0，则把原金额全记为 CPU
-        if (cpuId == null && gpuIds.isEmpty()) {
-            Long id = recordEarningsHistory(user, totalCny, totalCal, "CPU", earningTime);
-            return new MiningHistorySplitResult(id, id, null);
+        if (cpu == null && gpus.isEmpty()) {
+            EarningsHistory history = recordEarningsHistory(user, totalCny, totalCal, "CPU", earningTime);
+            return new MiningHistorySplitResult(history, history, null);
         }
-        Long primary = cpuId != null ? cpuId : gpuIds.get(0);
-        return new MiningHistorySplitResult(primary, cpuId, gpuIds);
+        EarningsHistory primary = cpu != null ? cpu : gpus.get(0);
+        return new MiningHistorySplitResult(primary, cpu, gpus);
     }
 
     private static class CpuGpuRatio {
@@ -1733,6 +2086,14 @@ public class XmrWalletSettlementService {
         if (forceGpuWhenOverride) {
             return new CpuGpuRatio(BigDecimal.ZERO, BigDecimal.ONE);
         }
+        ShardContext ctx = shardContext.get();
+        if (ctx != null) {
+            return ctx.cpuGpuRatios.computeIfAbsent(userId, this::loadCpuGpuRatio);
+        }
+        return loadCpuGpuRatio(userId);
+    }
+
+    private CpuGpuRatio loadCpuGpuRatio(Long userId) {
         BigDecimal cpuHps = safeHashrate(deviceMapper.sumCpuHashrateByUserId(userId));
         BigDecimal gpuMh = safeHashrate(deviceMapper.sumGpuHashrateByUserId(userId));
         BigDecimal cpuMh = toMhFromHps(cpuHps);
@@ -1770,6 +2131,14 @@ public class XmrWalletSettlementService {
         if (userId == null) {
             return List.of();
         }
+        ShardContext ctx = shardContext.get();
+        if (ctx != null) {
+            return ctx.gpuAlgorithmRatios.computeIfAbsent(userId, this::loadGpuAlgorithmRatios);
+        }
+        return loadGpuAlgorithmRatios(userId);
+    }
+
+    private List<GpuAlgorithmRatio> loadGpuAlgorithmRatios(Long userId) {
         LocalDateTime cutoffTime = LocalDateTime.now().minusMinutes(deviceOfflineThresholdMinutes);
         List<GpuAlgorithmHashrateVo> stats =
                 deviceGpuHashrateReportMapper.sumLatestHashrateByAlgorithm(userId, cutoffTime);
@@ -1819,30 +2188,29 @@ public class XmrWalletSettlementService {
      */
     private void recordSettlementCurrencyMarkerIfNeeded(MiningHistorySplitResult split, User user, String currency) {
         if (split == null || user == null) return;
-        List<Long> markers = new ArrayList<>();
-        if (split.cpuId != null && !split.cpuId.equals(split.primaryId)) {
-            markers.add(split.cpuId);
-        }
-        if (split.gpuIds != null) {
-            for (Long id : split.gpuIds) {
-                if (id != null && !id.equals(split.primaryId)) {
-                    markers.add(id);
+        List<EarningsHistory> markers = new ArrayList<>();
+        if (split.cpu != null && split.cpu != split.primary) {
+            markers.add(split.cpu);
+        }
+        if (split.gpus != null) {
+            for (EarningsHistory history : split.gpus) {
+                if (history != null && history != split.primary) {
+                    markers.add(history);
                 }
             }
         }
         if (markers.isEmpty()) return;
-        for (Long other : markers) {
+        for (EarningsHistory other : markers) {
             recordPlatformCommission(other, user, BigDecimal.ZERO, BigDecimal.ZERO, currency);
         }
     }
 
-    private void recordPlatformCommission(Long sourceEarningId,
+    private void recordPlatformCommission(EarningsHistory source,
                                           User user,
                                           BigDecimal originalAmount,
                                           BigDecimal platformAmount,
                                           String currency) {
         PlatformCommission commission = new PlatformCommission();
-        commission.setSourceEarningId(sourceEarningId);
         commission.setUserId(user.getId());
         // 兜底填充 device_id，避免 NULL 约束
         commission.setDeviceId(Optional.ofNullable(user.getWorkerId()).orElse("POOL"));
@@ -1850,6 +2218,12 @@ public class XmrWalletSettlementService {
         commission.setPlatformRate(PLATFORM_RATE);
         commission.setPlatformCommissionAmount(platformAmount);
         commission.setCurrency(currency);
+        ShardContext ctx = shardContext.get();
+        if (ctx != null) {
+            ctx.writes.addPlatformCommission(commission, source);
+            return;
+        }
+        commission.setSourceEarningId(source.getId());
         platformCommissionMapper.insert(commission);
     }
 
@@ -1866,31 +2240,29 @@ public class XmrWalletSettlementService {
         if (inviteAmountCal == null || inviteAmountCal.compareTo(BigDecimal.ZERO) <= 0) {
             return;
         }
-        BigDecimal inviterRate = inviteService.getCommissionRateForUser(inviterId);
+        BigDecimal inviterRate = commissionRateOf(inviterId);
         if (inviterRate == null) {
             inviterRate = BigDecimal.ZERO;
         }
         // 需求变更：邀请返佣暂不区分 CPU/GPU（避免未来 GPU 币种切换导致拆分口径漂移）。
         // 返佣统一按“CAL 等值”记一条 earnings_history（earning_type=INVITE），并写一条 commission_records。
-        Long sourceEarningId = (sourceSplit != null) ? sourceSplit.primaryId : null;
-        if (sourceEarningId == null) {
+        EarningsHistory sourceEarning = (sourceSplit != null) ? sourceSplit.primary : null;
+        if (sourceEarning == null) {
             // 极端兜底：没有源收益 ID 时不写 commission_records（避免脏数据），但仍允许写收益明细用于对账。
             // 这里保持静默，避免影响主结算链路；如需排障可再加日志。
         } else {
-            insertCommissionRecord(inviterId, earningUser.getId(), sourceEarningId, null, inviteAmountCal, inviterRate);
+            insertCommissionRecord(inviterId, earningUser.getId(), sourceEarning, null, inviteAmountCal, inviterRate);
         }
 
         BigDecimal cny = inviteAmountCny != null ? inviteAmountCny : BigDecimal.ZERO;
-        Long inviteHistoryId = insertInviteEarningsHistory(inviterId, inviteAmountCal, cny, "INVITE", earningTime);
-        LocalDate statDate = earningTime != null ? earningTime.toLocalDate() : java.time.LocalDate.now();
-        earningsMapper.upsertDailyStats(inviterId, statDate, inviteAmountCal, cny, "INVITE");
-        assetLedgerService.recordMiningPayout(
+        EarningsHistory inviteHistory = insertInviteEarningsHistory(inviterId, inviteAmountCal, cny, "INVITE", earningTime);
+        recordPayout(
                 inviterId,
                 "CAL",
                 calToXmr(inviteAmountCal),
                 inviteAmountCal,
                 inviteAmountCny,
-                inviteHistoryId,
+                inviteHistory,
                 txHash,
                 "邀请佣金入账",
                 earningTime
@@ -1899,24 +2271,32 @@ public class XmrWalletSettlementService {
 
     private void insertCommissionRecord(Long inviterId,
                                         Long inviteeId,
-                                        Long sourceEarningId,
+                                        EarningsHistory sourceEarning,
                                         String sourceEarningType,
                                         BigDecimal commissionCal,
                                         BigDecimal commissionRate) {
         if (inviterId == null || inviteeId == null) return;
         if (commissionCal == null || commissionCal.compareTo(BigDecimal.ZERO) <= 0) return;
-        if (sourceEarningId == null) return;
-        com.slb.mining_backend.modules.invite.entity.CommissionRecord cr = new com.slb.mining_backend.modules.invite.entity.CommissionRecord();
+        if (sourceEarning == null) return;
+        CommissionRecord cr = new CommissionRecord();
         cr.setUserId(inviterId);
         cr.setInviteeId(inviteeId);
-        cr.setSourceEarningId(sourceEarningId);
         cr.setSourceEarningType(sourceEarningType);
         cr.setCommissionAmount(commissionCal);
         cr.setCommissionRate(commissionRate != null ? commissionRate : BigDecimal.ZERO);
+        ShardContext ctx = shardContext.get();
+        if (ctx != null) {
+            ctx.writes.addCommissionRecord(cr, sourceEarning);
+            // 当月已发佣金随之累加，后续封顶计算无需回读数据库
+            ctx.inviterMonthUsed.computeIfPresent(new InviterMonth(inviterId, monthStartOf(LocalDateTime.now(BJT))),
+                    (key, used) -> used.add(commissionCal));
+            return;
+        }
+        cr.setSourceEarningId(sourceEarning.getId());
         commissionRecordMapper.insert(cr);
     }
 
-    private Long insertInviteEarningsHistory(Long inviterId,
+    private EarningsHistory insertInviteEarningsHistory(Long inviterId,
                                              BigDecimal amountCal,
                                              BigDecimal amountCny,
                                              String earningType,
@@ -1937,7 +2317,132 @@ public class XmrWalletSettlementService {
         }
         inviteHistory.setEarningType(normalized);
         inviteHistory.setEarningTime(earningTime);
-        earningsHistoryMapper.insert(inviteHistory);
-        return inviteHistory.getId();
+        insertHistory(inviteHistory, normalized);
+        return inviteHistory;
+    }
+
+    /**
+     * 写入一条收益明细并累加当日统计；分片执行中先进入写缓冲，分片结束时批量落库。
+     */
+    private void insertHistory(EarningsHistory history, String statType) {
+        ShardContext ctx = shardContext.get();
+        if (ctx != null) {
+            ctx.writes.addHistory(history, statType);
+            return;
+        }
+        earningsHistoryMapper.insert(history);
+        LocalDate statDate = history.getEarningTime() != null ? history.getEarningTime().toLocalDate() : LocalDate.now();
+        earningsMapper.upsertDailyStats(history.getUserId(), statDate, history.getAmountCal(), history.getAmountCny(), statType);
+    }
+
+    /**
+     * 累加 CAL 余额与累计收益（等价于 updateUserWallet）；分片执行中按用户合并，分片结束时每个用户一次更新。
+     * 平台/unclaimed 账户不直接更新 users 行，追加到 PlatformCreditBuffer 后按窗口合并。
+     */
+    private void creditCal(Long userId, BigDecimal calAmount, String txHash) {
+        ShardContext ctx = shardContext.get();
+        if (ctx != null) {
+            ctx.writes.addCal(userId, calAmount);
+            return;
+        }
+        if (creditBuffer.isBuffered(userId)) {
+            creditBuffer.appendCal(userId, calAmount, txHash);
+            return;
+        }
+        userMapper.updateUserWallet(userId, calAmount);
+    }
+
+    /**
+     * 累加现金余额（等价于 updateCashBalances(userId, cny, 0, 0)）；分片执行中按用户合并。
+     */
+    private void creditCny(Long userId, BigDecimal cnyAmount, String txHash) {
+        ShardContext ctx = shardContext.get();
+        if (ctx != null) {
+            ctx.writes.addCny(userId, cnyAmount);
+            return;
+        }
+        if (creditBuffer.isBuffered(userId)) {
+            creditBuffer.appendCny(userId, cnyAmount, txHash);
+            return;
+        }
+        userMapper.updateCashBalances(userId, cnyAmount, BigDecimal.ZERO, BigDecimal.ZERO);
+    }
+
+    /**
+     * 记录矿池结算流水，ref 为关联的收益明细（批量结算时其主键在落库后回填）。
+     */
+    private void recordPayout(Long userId,
+                              String currency,
+                              BigDecimal amountXmr,
+                              BigDecimal amountCal,
+                              BigDecimal amountCny,
+                              EarningsHistory ref,
+                              String txHash,
+                              String remark,
+                              LocalDateTime earningTime) {
+        ShardContext ctx = shardContext.get();
+        if (ctx != null) {
+            ctx.writes.addLedger(assetLedgerService.buildMiningPayout(
+                    userId, currency, amountXmr, amountCal, amountCny, null, txHash, remark, earningTime), ref);
+            return;
+        }
+        assetLedgerService.recordMiningPayout(
+                userId, currency, amountXmr, amountCal, amountCny, ref != null ? ref.getId() : null, txHash, remark, earningTime);
+    }
+
+    private User loadUser(Long userId) {
+        ShardContext ctx = shardContext.get();
+        User preloaded = ctx != null ? ctx.users.get(userId) : null;
+        if (preloaded != null) {
+            return preloaded;
+        }
+        return userMapper.selectById(userId)
+                .orElseThrow(() -> new IllegalStateException("User not found: " + userId));
+    }
+
+    private boolean isInviteeActivated(Long userId) {
+        ShardContext ctx = shardContext.get();
+        if (ctx != null && ctx.activatedInvitees.contains(userId)) {
+            return true;
+        }
+        boolean activated = assetLedgerService.hasRefTypeWithRemarkPrefix(
+                userId, LEDGER_REF_TYPE_BONUS, LEDGER_REMARK_INVITEE_ACTIVATION);
+        if (activated) {
+            markInviteeActivated(userId);
+        }
+        return activated;
+    }
+
+    private void markInviteeActivated(Long userId) {
+        ShardContext ctx = shardContext.get();
+        if (ctx != null) {
+            ctx.activatedInvitees.add(userId);
+        }
+    }
+
+    private BigDecimal commissionRateOf(Long inviterId) {
+        ShardContext ctx = shardContext.get();
+        if (ctx == null) {
+            return inviteService.getCommissionRateForUser(inviterId);
+        }
+        return ctx.inviterRates.computeIfAbsent(inviterId, inviteService::getCommissionRateForUser);
+    }
+
+    private BigDecimal inviterMonthUsed(Long inviterId, LocalDateTime monthStart) {
+        ShardContext ctx = shardContext.get();
+        if (ctx == null) {
+            return loadInviterMonthUsed(inviterId, monthStart);
+        }
+        return ctx.inviterMonthUsed.computeIfAbsent(new InviterMonth(inviterId, monthStart),
+                key -> loadInviterMonthUsed(inviterId, monthStart));
+    }
+
+    private BigDecimal loadInviterMonthUsed(Long inviterId, LocalDateTime monthStart) {
+        LocalDateTime nextMonthStart = monthStart.plusMonths(1);
+        return safe(commissionRecordMapper.sumCommissionByUserIdAndDateRange(inviterId, monthStart.format(DT), nextMonthStart.format(DT)));
+    }
+
+    private LocalDateTime monthStartOf(LocalDateTime time) {
+        return time.toLocalDate().withDayOfMonth(1).atStartOfDay();
     }
 }
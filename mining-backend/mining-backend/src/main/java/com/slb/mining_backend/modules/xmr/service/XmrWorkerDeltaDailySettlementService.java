@@ -1,5 +1,6 @@
 package com.slb.mining_backend.modules.xmr.service;
 
+import com.slb.mining_backend.common.job.JobLease;
 import com.slb.mining_backend.modules.xmr.config.XmrPoolProperties;
 import com.slb.mining_backend.modules.xmr.mapper.XmrWorkerEarningDeltaMapper;
 import lombok.extern.slf4j.Slf4j;
@@ -86,6 +87,10 @@ public class XmrWorkerDeltaDailySettlementService {
             int days = 0;
             LocalDate day = startDay;
             while (!day.isAfter(yesterdayBjt) && days < maxDaysPerRun) {
+                if (JobLease.currentLost()) {
+                    log.warn("Worker-delta daily settlement lost its job lease; stop before businessDayBjt={}", day);
+                    break;
+                }
                 LocalDate processingDay = day;
                 try {
                     txService.settleOneBusinessDay(processingDay);
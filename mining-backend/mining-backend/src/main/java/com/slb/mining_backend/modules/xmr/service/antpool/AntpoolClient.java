@@ -1,6 +1,7 @@
 package com.slb.mining_backend.modules.xmr.service.antpool;
 
-import com.google.common.util.concurrent.RateLimiter;
+import com.slb.mining_backend.common.http.OutboundCallGovernor;
+import com.slb.mining_backend.common.http.OutboundCallRejectedException;
 import com.slb.mining_backend.modules.xmr.config.AntpoolProperties;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpHeaders;
@@ -29,15 +30,15 @@ public class AntpoolClient {
 
     private final AntpoolProperties properties;
     private final WebClient http;
-    private final RateLimiter limiter;
+    private final OutboundCallGovernor.Channel outbound;
 
-    public AntpoolClient(WebClient.Builder builder, AntpoolProperties properties) {
+    public AntpoolClient(WebClient.Builder builder, AntpoolProperties properties, OutboundCallGovernor governor) {
         this.properties = properties;
         this.http = builder
                 .defaultHeader(HttpHeaders.USER_AGENT, "MiningBackend/AntpoolClient")
                 .build();
         double permitsPerSecond = Math.max(0.1d, properties.getLimits().getPerHostQps());
-        this.limiter = RateLimiter.create(permitsPerSecond);
+        this.outbound = governor.channel("antpool", permitsPerSecond);
     }
 
     public AntpoolRawResponse fetchWorkers(int page, int pageSize) {
@@ -97,7 +98,6 @@ public class AntpoolClient {
                 || !StringUtils.hasText(properties.getApiSecret())) {
             return AntpoolRawResponse.empty();
         }
-        limiter.acquire();
         String base = StringUtils.hasText(properties.getBaseUrl()) ? properties.getBaseUrl().trim() : "";
         String normalizedBase = base.endsWith("/") ? base.substring(0, base.length() - 1) : base;
         String normalizedEndpoint = endpoint.startsWith("/") ? endpoint : "/" + endpoint;
@@ -116,13 +116,13 @@ public class AntpoolClient {
             if (extraParams != null && !extraParams.isEmpty()) {
                 extraParams.forEach(form::add);
             }
-            String body = http.post()
-                    .uri(url)
-                    .contentType(MediaType.APPLICATION_FORM_URLENCODED)
-                    .body(BodyInserters.fromFormData(form))
-                    .retrieve()
-                    .bodyToMono(String.class)
-                    .timeout(Duration.ofMillis(Math.max(1000L, properties.getLimits().getTimeoutMs())))
+            String body = outbound.execute(endpoint, url, null, () -> http.post()
+                            .uri(url)
+                            .contentType(MediaType.APPLICATION_FORM_URLENCODED)
+                            .body(BodyInserters.fromFormData(form))
+                            .retrieve()
+                            .bodyToMono(String.class)
+                            .timeout(Duration.ofMillis(Math.max(1000L, properties.getLimits().getTimeoutMs()))))
                     .retryWhen(retry)
                     .doOnError(err -> logRequestError(endpoint, err))
                     .onErrorResume(err -> Mono.empty())
@@ -142,7 +142,6 @@ public class AntpoolClient {
                 || !StringUtils.hasText(properties.getApiSecret())) {
             return AntpoolRawResponse.empty();
         }
-        limiter.acquire();
         String base = StringUtils.hasText(properties.getBaseUrl()) ? properties.getBaseUrl().trim() : "";
         String normalizedBase = base.endsWith("/") ? base.substring(0, base.length() - 1) : base;
         String normalizedEndpoint = endpoint.startsWith("/") ? endpoint : "/" + endpoint;
@@ -161,13 +160,13 @@ public class AntpoolClient {
             if (params != null && !params.isEmpty()) {
                 params.forEach(form::add);
             }
-            String body = http.post()
-                    .uri(url)
-                    .contentType(MediaType.APPLICATION_FORM_URLENCODED)
-                    .body(BodyInserters.fromFormData(form))
-                    .retrieve()
-                    .bodyToMono(String.class)
-                    .timeout(Duration.ofMillis(Math.max(1000L, properties.getLimits().getTimeoutMs())))
+            String body = outbound.execute(endpoint, url, null, () -> http.post()
+                            .uri(url)
+                            .contentType(MediaType.APPLICATION_FORM_URLENCODED)
+                            .body(BodyInserters.fromFormData(form))
+                            .retrieve()
+                            .bodyToMono(String.class)
+                            .timeout(Duration.ofMillis(Math.max(1000L, properties.getLimits().getTimeoutMs()))))
                     .retryWhen(retry)
                     .doOnError(err -> logRequestError(endpoint, err))
                     .onErrorResume(err -> Mono.empty())
@@ -183,6 +182,9 @@ public class AntpoolClient {
     }
 
     private boolean isRetryable(Throwable err) {
+        if (err instanceof OutboundCallRejectedException) {
+            return false;
+        }
         if (err instanceof WebClientResponseException wcre) {
             int status = wcre.getRawStatusCode();
             return status >= 500 || status == 429;
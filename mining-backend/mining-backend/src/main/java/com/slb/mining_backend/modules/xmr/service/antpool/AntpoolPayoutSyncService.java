@@ -1,10 +1,12 @@
 package com.slb.mining_backend.modules.xmr.service.antpool;
 
+import com.slb.mining_backend.common.job.JobLease;
 import com.slb.mining_backend.modules.exchange.entity.ExchangeRate;
 import com.slb.mining_backend.modules.exchange.mapper.ExchangeRateMapper;
 import com.slb.mining_backend.modules.xmr.config.AntpoolProperties;
+import com.slb.mining_backend.modules.xmr.config.PayoutSyncProperties;
 import com.slb.mining_backend.modules.xmr.entity.XmrWalletIncoming;
-import com.slb.mining_backend.modules.xmr.mapper.XmrWalletIncomingMapper;
+import com.slb.mining_backend.modules.xmr.service.IncomingPayoutWriter;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
@@ -18,12 +20,18 @@ import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
-import java.util.HashSet;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 
+/**
+ * Antpool 打款同步：按高水位增量翻页（按时间倒序，某页出现早于回看窗口的打款即停止），
+ * 候选打款一次 tx_hash IN (...) 去重，只为新打款查询汇率并批量写入 xmr_wallet_incoming。
+ */
 @Service
 @Slf4j
 public class AntpoolPayoutSyncService {
@@ -44,20 +52,26 @@ public class AntpoolPayoutSyncService {
     private final AntpoolClient client;
     private final AntpoolParser parser;
     private final ExchangeRateMapper exchangeRateMapper;
-    private final XmrWalletIncomingMapper walletIncomingMapper;
+    private final IncomingPayoutWriter payoutWriter;
+    private final PayoutSyncProperties syncProperties;
     private final long adminUserId;
 
+    private record Candidate(String txHash, BigDecimal amountRvn, LocalDateTime payoutTs) {
+    }
+
     public AntpoolPayoutSyncService(AntpoolProperties properties,
                                     AntpoolClient client,
                                     AntpoolParser parser,
                                     ExchangeRateMapper exchangeRateMapper,
-                                    XmrWalletIncomingMapper walletIncomingMapper,
+                                    IncomingPayoutWriter payoutWriter,
+                                    PayoutSyncProperties syncProperties,
                                     @Value("${app.settlement.admin-user-id:1}") long adminUserId) {
         this.properties = properties;
         this.client = client;
         this.parser = parser;
         this.exchangeRateMapper = exchangeRateMapper;
-        this.walletIncomingMapper = walletIncomingMapper;
+        this.payoutWriter = payoutWriter;
+        this.syncProperties = syncProperties;
         this.adminUserId = adminUserId;
     }
 
@@ -66,11 +80,19 @@ public class AntpoolPayoutSyncService {
         if (!properties.isEnabled()) {
             return;
         }
-        int page = 1;
+        String subaddress = buildSubaddress();
+        LocalDateTime lowerBound = payoutWriter.lowerBound(IncomingPayoutWriter.SOURCE_ANTPOOL, subaddress);
         int pageSize = Math.max(1, properties.getPayoutPageSize());
-        int inserted = 0;
-        Set<String> seen = new HashSet<>();
-        while (true) {
+        // 有高水位时翻到回看窗口即停；首次同步（无高水位）保持原来的“翻到不足一页为止”
+        int maxPages = lowerBound != null ? Math.max(1, syncProperties.getMaxPages()) : Integer.MAX_VALUE;
+        Map<String, Candidate> candidates = new LinkedHashMap<>();
+        LocalDateTime maxTs = null;
+        boolean complete = false;
+        for (int page = 1; page <= maxPages; page++) {
+            if (JobLease.currentLost()) {
+                log.warn("Antpool payout sync lost its job lease; stop before page {}", page);
+                return;
+            }
             AntpoolClient.AntpoolRawResponse response = client.fetchPayouts(page, pageSize);
             if (!StringUtils.hasText(response.body())) {
                 log.warn("Antpool payout empty response (page={})", page);
@@ -78,16 +100,15 @@ public class AntpoolPayoutSyncService {
             }
             List<AntpoolParser.PayoutItem> items = parser.parsePayouts(response.body());
             if (items.isEmpty()) {
+                complete = true;
                 break;
             }
+            boolean reachedBound = false;
             for (AntpoolParser.PayoutItem item : items) {
                 if (item == null || !StringUtils.hasText(item.txId())) {
                     continue;
                 }
                 String txHash = normalizeTxHash(item.txId());
-                if (!seen.add(txHash)) {
-                    continue;
-                }
                 BigDecimal amountRvn = normalizeAmount(item.amount());
                 if (amountRvn == null || amountRvn.compareTo(BigDecimal.ZERO) <= 0) {
                     continue;
@@ -97,29 +118,59 @@ public class AntpoolPayoutSyncService {
                     log.warn("Antpool payout timestamp invalid (txHash={}, rawTs={})", txHash, item.timestamp());
                     continue;
                 }
-                BigDecimal rate = resolveRate(payoutTs);
-                if (rate == null || rate.compareTo(BigDecimal.ZERO) <= 0) {
-                    log.warn("Antpool payout skipped due to missing RVN/XMR rate (txHash={}, payoutTs={})", txHash, payoutTs);
-                    continue;
+                if (maxTs == null || payoutTs.isAfter(maxTs)) {
+                    maxTs = payoutTs;
                 }
-                BigDecimal amountXmr = amountRvn.multiply(rate)
-                        .setScale(XMR_SCALE, RoundingMode.HALF_UP);
-                XmrWalletIncoming record = new XmrWalletIncoming();
-                record.setUserId(adminUserId);
-                record.setSubaddress(buildSubaddress());
-                record.setTxHash(txHash);
-                record.setAmountXmr(amountXmr);
-                record.setTs(payoutTs);
-                record.setSettled(Boolean.FALSE);
-                int affected = walletIncomingMapper.insertIgnore(record);
-                if (affected > 0) {
-                    inserted++;
+                if (lowerBound != null && payoutTs.isBefore(lowerBound)) {
+                    reachedBound = true;
+                    continue;
                 }
+                candidates.putIfAbsent(txHash, new Candidate(txHash, amountRvn, payoutTs));
             }
-            if (items.size() < pageSize) {
+            if (reachedBound || items.size() < pageSize) {
+                complete = true;
                 break;
             }
-            page++;
+        }
+
+        Set<String> existing = payoutWriter.findExisting(candidates.keySet());
+        List<XmrWalletIncoming> records = new ArrayList<>();
+        LocalDateTime earliestPending = null;
+        for (Candidate candidate : candidates.values()) {
+            if (existing.contains(candidate.txHash())) {
+                continue;
+            }
+            BigDecimal rate = resolveRate(candidate.payoutTs());
+            if (rate == null || rate.compareTo(BigDecimal.ZERO) <= 0) {
+                log.warn("Antpool payout skipped due to missing RVN/XMR rate (txHash={}, payoutTs={})",
+                        candidate.txHash(), candidate.payoutTs());
+                // 缺汇率的打款下轮重试：高水位不越过它
+                if (earliestPending == null || candidate.payoutTs().isBefore(earliestPending)) {
+                    earliestPending = candidate.payoutTs();
+                }
+                continue;
+            }
+            BigDecimal amountXmr = candidate.amountRvn().multiply(rate)
+                    .setScale(XMR_SCALE, RoundingMode.HALF_UP);
+            XmrWalletIncoming record = new XmrWalletIncoming();
+            record.setUserId(adminUserId);
+            record.setSubaddress(subaddress);
+            record.setTxHash(candidate.txHash());
+            record.setAmountXmr(amountXmr);
+            record.setTs(candidate.payoutTs());
+            record.setSettled(Boolean.FALSE);
+            records.add(record);
+        }
+        int inserted = payoutWriter.insertAll(records);
+        if (earliestPending != null && maxTs != null && earliestPending.isBefore(maxTs)) {
+            maxTs = earliestPending;
+        }
+        if (complete) {
+            payoutWriter.advance(IncomingPayoutWriter.SOURCE_ANTPOOL, subaddress, maxTs, null);
+        } else {
+            // 空响应或翻到最大页数仍未触达回看窗口：中间可能有未拉到的打款，高水位不前进
+            log.warn("Antpool payout sync stopped before reaching the watermark (since={}, maxPages={}); watermark not advanced",
+                    lowerBound, maxPages);
         }
         if (inserted > 0) {
             log.info("Antpool payout sync inserted {} records", inserted);
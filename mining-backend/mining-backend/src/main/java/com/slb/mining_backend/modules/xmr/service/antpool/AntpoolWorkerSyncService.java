@@ -1,5 +1,7 @@
 package com.slb.mining_backend.modules.xmr.service.antpool;
 
+import com.slb.mining_backend.common.job.JobLease;
+import com.slb.mining_backend.config.OutboundCallProperties;
 import com.slb.mining_backend.modules.users.dto.WorkerUserBinding;
 import com.slb.mining_backend.modules.users.mapper.UserMapper;
 import com.slb.mining_backend.modules.xmr.config.AntpoolProperties;
@@ -7,6 +9,8 @@ import com.slb.mining_backend.modules.xmr.config.AntpoolPayhashTimeseriesPropert
 import com.slb.mining_backend.modules.xmr.entity.XmrWorkerHashSnapshot;
 import com.slb.mining_backend.modules.xmr.mapper.XmrWorkerHashSnapshotMapper;
 import com.slb.mining_backend.modules.xmr.service.WorkerIdNormalizationHelper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
@@ -15,6 +19,9 @@ import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.util.CollectionUtils;
 import org.springframework.util.StringUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
 import java.math.BigDecimal;
 import java.sql.Timestamp;
@@ -23,8 +30,15 @@ import java.time.ZoneId;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Antpool worker 同步：第 1 页返回总页数后剩余分页并发拉取（上限 worker-page-concurrency），
+ * 合并后一次解析归属、一次写入快照与 payhash；单轮耗时导出为 slb.pool.worker.sync。
+ * 并发线程上没有调度线程的 JobLease，租约在派发前捕获并随调用传递，租约丢失后不再拉取分页、不再落库。
+ */
 @Service
 @Slf4j
 public class AntpoolWorkerSyncService {
@@ -42,6 +56,14 @@ public class AntpoolWorkerSyncService {
     private final AntpoolPayhashTimeseriesProperties payhashProperties;
     private final int deriveSeconds;
     private final AntpoolSyncStatus syncStatus;
+    private final OutboundCallProperties outboundProperties;
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * 单页拉取结果；apiEmpty 表示响应为空，items 为空且非 apiEmpty 表示解析不到 worker。
+     */
+    private record PageFetch(int page, List<AntpoolParser.WorkerItem> items, int totalPages, boolean apiEmpty) {
+    }
 
     public AntpoolWorkerSyncService(AntpoolProperties properties,
                                     AntpoolClient client,
@@ -52,6 +74,8 @@ public class AntpoolWorkerSyncService {
                                     NamedParameterJdbcTemplate jdbcTemplate,
                                     AntpoolPayhashTimeseriesProperties payhashProperties,
                                     AntpoolSyncStatus syncStatus,
+                                    OutboundCallProperties outboundProperties,
+                                    MeterRegistry meterRegistry,
                                     @Value("${app.payhash.derive-seconds:60}") int deriveSeconds) {
         this.properties = properties;
         this.client = client;
@@ -62,6 +86,8 @@ public class AntpoolWorkerSyncService {
         this.jdbcTemplate = jdbcTemplate;
         this.payhashProperties = payhashProperties;
         this.syncStatus = syncStatus;
+        this.outboundProperties = outboundProperties;
+        this.meterRegistry = meterRegistry;
         this.deriveSeconds = Math.max(1, deriveSeconds);
     }
 
@@ -70,73 +96,80 @@ public class AntpoolWorkerSyncService {
         if (!properties.isEnabled()) {
             return;
         }
+        long startNanos = System.nanoTime();
+        String outcome = "error";
+        try {
+            outcome = syncOnce().toLowerCase(Locale.ROOT);
+        } finally {
+            Timer.builder("slb.pool.worker.sync")
+                    .description("矿池 worker 单账户同步耗时（含分页拉取、解析与落库）")
+                    .tags("provider", "antpool", "account", String.valueOf(properties.getUserId()), "outcome", outcome)
+                    .register(meterRegistry)
+                    .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private String syncOnce() {
         LocalDateTime bucketTime = floorToFiveMinutes(LocalDateTime.now(BJT));
-        int page = 1;
-        int totalPages = Integer.MAX_VALUE;
         List<XmrWorkerHashSnapshot> snapshots = new ArrayList<>();
         List<MapSqlParameterSource> payhashRows = new ArrayList<>();
-        Map<String, Long> ownerByWorkerId = new HashMap<>();
         boolean apiEmptyResponse = false;
         boolean parsedEmpty = false;
 
-        while (page <= totalPages) {
-            AntpoolClient.AntpoolRawResponse response = client.fetchWorkers(page, properties.getWorkerPageSize());
-            if (!StringUtils.hasText(response.body())) {
-                log.warn("Antpool workers empty response (page={})", page);
+        List<AntpoolParser.WorkerItem> items = new ArrayList<>();
+        for (PageFetch fetch : fetchPages(JobLease.current())) {
+            if (fetch.apiEmpty()) {
                 apiEmptyResponse = true;
                 break;
             }
-            AntpoolParser.ParsedWorkers parsed = parser.parseWorkers(response.body());
-            if (parsed == null) {
+            if (fetch.items().isEmpty()) {
                 parsedEmpty = true;
                 break;
             }
-            List<AntpoolParser.WorkerItem> items = parsed.items();
-            if (items.isEmpty()) {
-                parsedEmpty = true;
-                break;
+            items.addAll(fetch.items());
+        }
+        if (JobLease.currentLost()) {
+            log.warn("Antpool worker sync aborted: job lease lost");
+            return "LOST";
+        }
+        Map<String, Long> ownerByWorkerId = loadOwners(items);
+        LocalDateTime reportedAt = LocalDateTime.now(BJT);
+        for (AntpoolParser.WorkerItem item : items) {
+            if (item == null || !StringUtils.hasText(item.workerId())) {
+                continue;
             }
-            if (parsed.totalPages() > 0) {
-                totalPages = parsed.totalPages();
+            String normalized = normalizationHelper.stripPlatformPrefix(item.workerId());
+            if (!StringUtils.hasText(normalized)) {
+                log.warn("Antpool workerId normalized empty (rawWorkerId={})", item.workerId());
+                continue;
             }
-            if (ownerByWorkerId.isEmpty()) {
-                ownerByWorkerId = loadOwners(items);
+            normalized = truncate(normalized, MAX_WORKER_ID_LEN);
+            BigDecimal hashrateMhs = toMhs(item.last10m());
+            if (hashrateMhs == null || hashrateMhs.compareTo(BigDecimal.ZERO) <= 0) {
+                continue;
             }
-            LocalDateTime reportedAt = LocalDateTime.now(BJT);
-            for (AntpoolParser.WorkerItem item : items) {
-                if (item == null || !StringUtils.hasText(item.workerId())) {
-                    continue;
-                }
-                String normalized = normalizationHelper.stripPlatformPrefix(item.workerId());
-                if (!StringUtils.hasText(normalized)) {
-                    log.warn("Antpool workerId normalized empty (rawWorkerId={})", item.workerId());
-                    continue;
-                }
-                normalized = truncate(normalized, MAX_WORKER_ID_LEN);
-                BigDecimal hashrateMhs = toMhs(item.last10m());
-                if (hashrateMhs == null || hashrateMhs.compareTo(BigDecimal.ZERO) <= 0) {
-                    continue;
-                }
-                long payhash = Math.round(hashrateMhs.doubleValue() * deriveSeconds);
-                if (payhash <= 0) {
-                    continue;
-                }
-                payhashRows.add(new MapSqlParameterSource()
-                        .addValue("bucketTime", Timestamp.valueOf(bucketTime))
-                        .addValue("workerId", normalized)
-                        .addValue("payhash", payhash));
-
-                XmrWorkerHashSnapshot snapshot = new XmrWorkerHashSnapshot();
-                snapshot.setUserId(ownerByWorkerId.get(normalized));
-                snapshot.setWorkerId(normalized);
-                snapshot.setHashNowHps(hashrateMhs);
-                snapshot.setHashAvgHps(hashrateMhs);
-                snapshot.setReportedAt(reportedAt);
-                snapshots.add(snapshot);
+            long payhash = Math.round(hashrateMhs.doubleValue() * deriveSeconds);
+            if (payhash <= 0) {
+                continue;
             }
-            page++;
+            payhashRows.add(new MapSqlParameterSource()
+                    .addValue("bucketTime", Timestamp.valueOf(bucketTime))
+                    .addValue("workerId", normalized)
+                    .addValue("payhash", payhash));
+
+            XmrWorkerHashSnapshot snapshot = new XmrWorkerHashSnapshot();
+            snapshot.setUserId(ownerByWorkerId.get(normalized));
+            snapshot.setWorkerId(normalized);
+            snapshot.setHashNowHps(hashrateMhs);
+            snapshot.setHashAvgHps(hashrateMhs);
+            snapshot.setReportedAt(reportedAt);
+            snapshots.add(snapshot);
         }
 
+        if (JobLease.currentLost()) {
+            log.warn("Antpool worker sync aborted: job lease lost");
+            return "LOST";
+        }
         if (!snapshots.isEmpty()) {
             snapshotMapper.insertBatch(snapshots);
         }
@@ -155,20 +188,78 @@ public class AntpoolWorkerSyncService {
             jdbcTemplate.batchUpdate(sql, payhashRows.toArray(MapSqlParameterSource[]::new));
         }
 
+        String status;
+        if (!snapshots.isEmpty() || !payhashRows.isEmpty()) {
+            status = "OK";
+        } else if (apiEmptyResponse) {
+            status = "API_EMPTY_RESPONSE";
+        } else if (parsedEmpty) {
+            status = "NO_WORKERS";
+        } else {
+            status = "NO_DATA";
+        }
         if (syncStatus != null) {
-            String status;
             String detail = "snapshots=" + snapshots.size() + ", payhashRows=" + payhashRows.size();
-            if (!snapshots.isEmpty() || !payhashRows.isEmpty()) {
-                status = "OK";
-            } else if (apiEmptyResponse) {
-                status = "API_EMPTY_RESPONSE";
-            } else if (parsedEmpty) {
-                status = "NO_WORKERS";
-            } else {
-                status = "NO_DATA";
-            }
             syncStatus.recordWorkerSync(status, detail);
         }
+        return status;
+    }
+
+    /**
+     * 拉取全部分页：第 1 页给出总页数时剩余分页并发拉取（按页序返回），否则逐页拉取直到空页。
+     * lease 为调度线程上捕获的任务租约（null 表示不在协调器内执行）。
+     */
+    private List<PageFetch> fetchPages(JobLease lease) {
+        int pageSize = properties.getWorkerPageSize();
+        PageFetch first = fetchPage(lease, 1, pageSize);
+        List<PageFetch> pages = new ArrayList<>();
+        pages.add(first);
+        if (first.items().isEmpty()) {
+            return pages;
+        }
+        if (first.totalPages() > 0) {
+            if (first.totalPages() > 1) {
+                List<PageFetch> rest = Flux.range(2, first.totalPages() - 1)
+                        .flatMapSequential(page -> Mono.fromCallable(() -> fetchPage(lease, page, pageSize))
+                                .subscribeOn(Schedulers.boundedElastic())
+                                .onErrorResume(ex -> {
+                                    log.warn("Antpool workers page fetch failed (page={}, error={})", page, ex.getMessage());
+                                    return Mono.just(new PageFetch(page, List.of(), 0, true));
+                                }), pageConcurrency())
+                        .collectList()
+                        .block();
+                if (rest != null) {
+                    pages.addAll(rest);
+                }
+            }
+            return pages;
+        }
+        PageFetch current = first;
+        for (int page = 2; !current.items().isEmpty(); page++) {
+            current = fetchPage(lease, page, pageSize);
+            pages.add(current);
+        }
+        return pages;
+    }
+
+    private PageFetch fetchPage(JobLease lease, int page, int pageSize) {
+        if (lease != null && lease.isLost()) {
+            return new PageFetch(page, List.of(), 0, false);
+        }
+        AntpoolClient.AntpoolRawResponse response = client.fetchWorkers(page, pageSize);
+        if (!StringUtils.hasText(response.body())) {
+            log.warn("Antpool workers empty response (page={})", page);
+            return new PageFetch(page, List.of(), 0, true);
+        }
+        AntpoolParser.ParsedWorkers parsed = parser.parseWorkers(response.body());
+        if (parsed == null) {
+            return new PageFetch(page, List.of(), 0, false);
+        }
+        return new PageFetch(page, parsed.items(), parsed.totalPages(), false);
+    }
+
+    private int pageConcurrency() {
+        return Math.max(1, Math.min(properties.getWorkerPageConcurrency(), outboundProperties.getMaxConcurrentPerProvider()));
     }
 
     private Map<String, Long> loadOwners(List<AntpoolParser.WorkerItem> items) {
@@ -1,5 +1,7 @@
 package com.slb.mining_backend.modules.xmr.service.f2pool;
 
+import com.slb.mining_backend.common.job.ClusterJob;
+import com.slb.mining_backend.common.job.JobShard;
 import com.slb.mining_backend.modules.xmr.config.F2PoolProperties;
 import com.slb.mining_backend.modules.xmr.entity.F2PoolAccountOverview;
 import com.slb.mining_backend.modules.xmr.mapper.F2PoolAccountOverviewMapper;
@@ -54,11 +56,13 @@ public class F2PoolAccountSyncService {
     }
 
     @Scheduled(fixedDelayString = "${app.f2pool.account-sync-interval-ms:90000}")
+    @ClusterJob(shards = 8)
     public void syncAccountOverview() {
         syncAccountOverviewInternal();
     }
 
     @Scheduled(cron = "${app.f2pool.account-sync-cron:0 0 * * * ?}", zone = "Asia/Shanghai")
+    @ClusterJob(shards = 8)
     public void syncAccountOverviewHourlySnapshot() {
         if (!accountSyncCronEnabled) {
             return;
@@ -74,6 +78,9 @@ public class F2PoolAccountSyncService {
             if (account == null || !StringUtils.hasText(account.getName()) || !StringUtils.hasText(account.getCoin())) {
                 continue;
             }
+            if (!JobShard.owns(account.getName())) {
+                continue;
+            }
             F2PoolClient.F2PoolRawResponse response = client.fetchAccountOverview(account);
             if (handleHttpError(account, response, "account")) {
                 continue;
@@ -112,7 +119,8 @@ public class F2PoolAccountSyncService {
             overview.setActiveWorkers(parsed.activeWorkers() == null ? 0 : parsed.activeWorkers());
             overview.setFixedValue(parsed.fixedValue() == null ? BigDecimal.ZERO : parsed.fixedValue());
             overview.setFetchedAt(LocalDateTime.now(BJT));
-            overview.setPayloadFingerprint(fingerprint);
+            overview.setPayloadFingerprint(
+                    payloadService.ensureStored(account.getName(), "account_overview", fingerprint) ? fingerprint : null);
             overview.setCreatedTime(LocalDateTime.now(BJT));
             overviewMapper.insert(overview);
             reconcileService.reconcileHashrate(account.getName(), account.getCoin(), parsed.hashrateHps());
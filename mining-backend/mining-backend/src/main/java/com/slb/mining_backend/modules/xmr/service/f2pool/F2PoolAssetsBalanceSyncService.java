@@ -1,5 +1,7 @@
 package com.slb.mining_backend.modules.xmr.service.f2pool;
 
+import com.slb.mining_backend.common.job.ClusterJob;
+import com.slb.mining_backend.common.job.JobShard;
 import com.slb.mining_backend.modules.xmr.config.F2PoolProperties;
 import com.slb.mining_backend.modules.xmr.entity.F2PoolAssetsBalance;
 import com.slb.mining_backend.modules.xmr.mapper.F2PoolAssetsBalanceMapper;
@@ -78,6 +80,7 @@ public class F2PoolAssetsBalanceSyncService {
     }
 
     @Scheduled(fixedDelayString = "${app.f2pool.assets-balance.sync-interval-ms:300000}")
+    @ClusterJob(shards = 8)
     public void syncAssetsBalance() {
         if (!enabled || properties == null || !properties.isEnabled()) {
             return;
@@ -93,11 +96,15 @@ public class F2PoolAssetsBalanceSyncService {
             if (account == null || !StringUtils.hasText(account.getName()) || !StringUtils.hasText(account.getCoin())) {
                 continue;
             }
+            if (!JobShard.owns(account.getName())) {
+                continue;
+            }
             syncAccountBalance(account);
         }
     }
 
     @Scheduled(cron = "${app.f2pool.assets-balance.pre-reset-cron:0 59 7 * * ?}", zone = "Asia/Shanghai")
+    @ClusterJob(shards = 8)
     public void syncAssetsBalancePreResetSnapshot() {
         if (!preResetSnapshotEnabled) {
             return;
@@ -116,7 +123,7 @@ public class F2PoolAssetsBalanceSyncService {
             if (account == null || !StringUtils.hasText(account.getName()) || !StringUtils.hasText(account.getCoin())) {
                 continue;
             }
-            if (!isConflux(normalizeCoin(account.getCoin()))) {
+            if (!isConflux(normalizeCoin(account.getCoin())) || !JobShard.owns(account.getName())) {
                 continue;
             }
             syncAccountBalance(account);
@@ -186,7 +193,8 @@ public class F2PoolAssetsBalanceSyncService {
         }
         record.setEstimatedTodayIncomeRaw(estimatedRaw);
         record.setEstimatedTodayIncome(estimatedNormalized);
-        record.setPayloadFingerprint(fingerprint);
+        record.setPayloadFingerprint(
+                payloadService.ensureStored(account.getName(), "assets_balance", fingerprint) ? fingerprint : null);
         record.setFetchedAt(fetchedAt);
         record.setCreatedTime(LocalDateTime.now(BJT));
 
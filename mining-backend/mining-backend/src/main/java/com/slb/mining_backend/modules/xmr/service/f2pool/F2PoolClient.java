@@ -1,6 +1,7 @@
 package com.slb.mining_backend.modules.xmr.service.f2pool;
 
-import com.google.common.util.concurrent.RateLimiter;
+import com.slb.mining_backend.common.http.OutboundCallGovernor;
+import com.slb.mining_backend.common.http.OutboundCallRejectedException;
 import com.slb.mining_backend.modules.xmr.config.F2PoolProperties;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpHeaders;
@@ -22,16 +23,16 @@ public class F2PoolClient {
 
     private final F2PoolProperties properties;
     private final WebClient http;
-    private final RateLimiter limiter;
+    private final OutboundCallGovernor.Channel outbound;
     private static final int ERROR_BODY_MAX = 300;
 
-    public F2PoolClient(WebClient.Builder builder, F2PoolProperties properties) {
+    public F2PoolClient(WebClient.Builder builder, F2PoolProperties properties, OutboundCallGovernor governor) {
         this.properties = properties;
         this.http = builder
                 .defaultHeader(HttpHeaders.USER_AGENT, "MiningBackend/F2PoolClient")
                 .build();
         double permitsPerSecond = Math.max(0.1d, properties.getLimits().getPerHostQps());
-        this.limiter = RateLimiter.create(permitsPerSecond);
+        this.outbound = governor.channel("f2pool", permitsPerSecond);
     }
 
     public F2PoolRawResponse fetchWorkers(F2PoolProperties.Account account) {
@@ -66,19 +67,18 @@ public class F2PoolClient {
         if (account == null || !StringUtils.hasText(account.getName()) || !StringUtils.hasText(endpointTemplate)) {
             return F2PoolRawResponse.empty();
         }
-        limiter.acquire();
         URI uri = buildUri(account, endpointTemplate);
         Duration timeout = Duration.ofMillis(Math.max(1000L, properties.getLimits().getTimeoutMs()));
         Retry retry = Retry.backoff(Math.max(0, properties.getLimits().getMaxRetries()), Duration.ofMillis(200))
                 .maxBackoff(Duration.ofSeconds(3))
                 .filter(this::isRetryable);
         try {
-            String body = http.get()
-                    .uri(uri)
-                    .headers(headers -> applyAuthHeaders(headers, account))
-                    .retrieve()
-                    .bodyToMono(String.class)
-                    .timeout(timeout)
+            String body = outbound.execute(endpointTemplate, uri.toString(), null, () -> http.get()
+                            .uri(uri)
+                            .headers(headers -> applyAuthHeaders(headers, account))
+                            .retrieve()
+                            .bodyToMono(String.class)
+                            .timeout(timeout))
                     .retryWhen(retry)
                     .block();
             return F2PoolRawResponse.success(body, Instant.now());
@@ -95,23 +95,22 @@ public class F2PoolClient {
         if (account == null || !StringUtils.hasText(account.getName()) || !StringUtils.hasText(endpointTemplate)) {
             return F2PoolRawResponse.empty();
         }
-        limiter.acquire();
         URI uri = buildUri(account, endpointTemplate);
         Duration timeout = Duration.ofMillis(Math.max(1000L, properties.getLimits().getTimeoutMs()));
         Retry retry = Retry.backoff(Math.max(0, properties.getLimits().getMaxRetries()), Duration.ofMillis(200))
                 .maxBackoff(Duration.ofSeconds(3))
                 .filter(this::isRetryable);
         try {
-            String body = http.post()
-                    .uri(uri)
-                    .headers(headers -> {
-                        applyAuthHeaders(headers, account);
-                        headers.setContentType(MediaType.APPLICATION_JSON);
-                    })
-                    .bodyValue(payload == null ? Map.of() : payload)
-                    .retrieve()
-                    .bodyToMono(String.class)
-                    .timeout(timeout)
+            String body = outbound.execute(endpointTemplate, uri.toString(), null, () -> http.post()
+                            .uri(uri)
+                            .headers(headers -> {
+                                applyAuthHeaders(headers, account);
+                                headers.setContentType(MediaType.APPLICATION_JSON);
+                            })
+                            .bodyValue(payload == null ? Map.of() : payload)
+                            .retrieve()
+                            .bodyToMono(String.class)
+                            .timeout(timeout))
                     .retryWhen(retry)
                     .block();
             return F2PoolRawResponse.success(body, Instant.now());
@@ -188,6 +187,9 @@ public class F2PoolClient {
     }
 
     private boolean isRetryable(Throwable err) {
+        if (err instanceof OutboundCallRejectedException) {
+            return false;
+        }
         if (err instanceof WebClientResponseException wcre) {
             int status = wcre.getStatusCode().value();
             return status >= 500 || status == 429;
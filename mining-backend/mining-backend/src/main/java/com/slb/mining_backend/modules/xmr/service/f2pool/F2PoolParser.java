@@ -38,10 +38,12 @@ public class F2PoolParser {
 
     private final ObjectMapper objectMapper;
     private final F2PoolProperties properties;
+    private final F2PoolWorkerPageStreamParser workerPageStreamParser;
 
     public F2PoolParser(ObjectMapper objectMapper, F2PoolProperties properties) {
         this.objectMapper = objectMapper;
         this.properties = properties;
+        this.workerPageStreamParser = new F2PoolWorkerPageStreamParser(objectMapper.getFactory());
     }
 
     public List<F2PoolWorkerSample> parseWorkers(String json, F2PoolProperties.Account account) {
@@ -63,10 +65,17 @@ public class F2PoolParser {
         try {
             JsonNode root = objectMapper.readTree(json);
             JsonNode data = root.has("data") ? root.get("data") : root;
-            JsonNode list = resolveWorkerListNode(data);
-            if (list == null || !list.isArray()) {
-                return Collections.emptyList();
-            }
+            return parseWorkerListV2(resolveWorkerListNode(data), account);
+        } catch (Exception ex) {
+            return Collections.emptyList();
+        }
+    }
+
+    private List<F2PoolWorkerSample> parseWorkerListV2(JsonNode list, F2PoolProperties.Account account) {
+        if (list == null || !list.isArray()) {
+            return Collections.emptyList();
+        }
+        try {
             List<F2PoolWorkerSample> workers = new ArrayList<>();
             for (JsonNode node : list) {
                 F2PoolWorkerSample sample = parseWorkerV2Item(node, account);
@@ -80,6 +89,49 @@ public class F2PoolParser {
         }
     }
 
+    /**
+     * v2 worker 列表单页解析：一次读出错误信封、worker 样本与列表条数。
+     * 结果与 detectV2Error + parseWorkersV2 + resolveWorkersCountV2 组合一致（算力在 double 精度内一致），
+     * 流式模式下整页只遍历一次且不构建 JsonNode 树；树模式下整页也只构建一次 JsonNode 树。
+     */
+    public WorkerPageV2 parseWorkerPageV2(String json, F2PoolProperties.Account account) {
+        if (!StringUtils.hasText(json) || account == null) {
+            return WorkerPageV2.EMPTY;
+        }
+        if (properties.getV2() != null && properties.getV2().isStreamingParse()) {
+            try {
+                return workerPageStreamParser.parse(json, account);
+            } catch (Exception ex) {
+                return WorkerPageV2.EMPTY;
+            }
+        }
+        JsonNode root;
+        try {
+            root = objectMapper.readTree(json);
+        } catch (Exception ex) {
+            return WorkerPageV2.EMPTY;
+        }
+        Optional<V2Error> error = detectV2Error(root);
+        if (error.isPresent()) {
+            return new WorkerPageV2(error.get(), Collections.emptyList(), OptionalInt.empty(), OptionalInt.empty());
+        }
+        JsonNode data = root.has("data") ? root.get("data") : root;
+        JsonNode list = resolveWorkerListNode(data);
+        OptionalInt listSize = list != null && list.isArray() ? OptionalInt.of(list.size()) : OptionalInt.empty();
+        return new WorkerPageV2(null, parseWorkerListV2(list, account), listSize, resolveWorkersTotalV2(data));
+    }
+
+    /**
+     * 分页响应中的 worker 总数（data.total）；不带总数时为空。
+     */
+    private OptionalInt resolveWorkersTotalV2(JsonNode data) {
+        JsonNode total = data != null ? data.get("total") : null;
+        if (total == null || !total.isNumber()) {
+            return OptionalInt.empty();
+        }
+        return OptionalInt.of(total.asInt());
+    }
+
     /**
      * F2Pool 账户总览接口里的 workers 字段解析（兼容 array 结构）。
      * 用于 v2 不支持币种时的兜底 worker 列表解析。
@@ -172,18 +224,21 @@ public class F2PoolParser {
             return Optional.empty();
         }
         try {
-            JsonNode root = objectMapper.readTree(json);
-            JsonNode codeNode = root.get("code");
-            JsonNode msgNode = root.get("msg");
-            if (codeNode != null && codeNode.isNumber() && msgNode != null && msgNode.isTextual()) {
-                int code = codeNode.asInt();
-                if (code != 0) {
-                    return Optional.of(new V2Error(code, msgNode.asText()));
-                }
-            }
+            return detectV2Error(objectMapper.readTree(json));
         } catch (Exception ignored) {
             return Optional.empty();
         }
+    }
+
+    private Optional<V2Error> detectV2Error(JsonNode root) {
+        JsonNode codeNode = root != null ? root.get("code") : null;
+        JsonNode msgNode = root != null ? root.get("msg") : null;
+        if (codeNode != null && codeNode.isNumber() && msgNode != null && msgNode.isTextual()) {
+            int code = codeNode.asInt();
+            if (code != 0) {
+                return Optional.of(new V2Error(code, msgNode.asText()));
+            }
+        }
         return Optional.empty();
     }
 
@@ -845,6 +900,13 @@ public class F2PoolParser {
     public record V2Error(int code, String msg) {
     }
 
+    /**
+     * v2 worker 列表单页解析结果；error 非空时 workers 为空。listSize 为本页列表条数，total 为分页响应声明的 worker 总数。
+     */
+    public record WorkerPageV2(V2Error error, List<F2PoolWorkerSample> workers, OptionalInt listSize, OptionalInt total) {
+        static final WorkerPageV2 EMPTY = new WorkerPageV2(null, Collections.emptyList(), OptionalInt.empty(), OptionalInt.empty());
+    }
+
     private F2PoolProperties.Mapping v1Mapping() {
         F2PoolProperties.V1 v1 = properties.getV1();
         if (v1 == null || v1.getMapping() == null) {
@@ -1,5 +1,6 @@
 package com.slb.mining_backend.modules.xmr.service.f2pool;
 
+import com.slb.mining_backend.common.job.JobLease;
 import com.slb.mining_backend.modules.earnings.service.MarketDataService;
 import com.slb.mining_backend.modules.users.dto.WorkerUserBinding;
 import com.slb.mining_backend.modules.users.mapper.UserMapper;
@@ -108,6 +109,10 @@ public class F2PoolPayhashHourlySettlementService {
             LocalDateTime windowEnd = truncateToHour(now);
             LocalDateTime windowStart = windowEnd.minusHours(1);
             for (F2PoolProperties.Account account : properties.getAccounts()) {
+                if (JobLease.currentLost()) {
+                    log.warn("F2Pool hourly payhash settlement lost its job lease; stop before account {}", account != null ? account.getName() : null);
+                    break;
+                }
                 if (account == null || !StringUtils.hasText(account.getName()) || !StringUtils.hasText(account.getCoin())) {
                     continue;
                 }
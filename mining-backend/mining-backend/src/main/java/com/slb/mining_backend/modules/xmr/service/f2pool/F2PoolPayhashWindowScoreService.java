@@ -2,6 +2,7 @@ package com.slb.mining_backend.modules.xmr.service.f2pool;
 
 import com.slb.mining_backend.modules.xmr.config.F2PoolPayhashTimeseriesProperties;
 import com.slb.mining_backend.modules.xmr.dto.WorkerPayhashScore;
+import com.slb.mining_backend.modules.xmr.service.PayhashRollupService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.dao.DataAccessException;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
@@ -19,11 +20,14 @@ public class F2PoolPayhashWindowScoreService {
 
     private final NamedParameterJdbcTemplate jdbcTemplate;
     private final F2PoolPayhashTimeseriesProperties properties;
+    private final PayhashRollupService rollupService;
 
     public F2PoolPayhashWindowScoreService(NamedParameterJdbcTemplate jdbcTemplate,
-                                           F2PoolPayhashTimeseriesProperties properties) {
+                                           F2PoolPayhashTimeseriesProperties properties,
+                                           PayhashRollupService rollupService) {
         this.jdbcTemplate = jdbcTemplate;
         this.properties = properties;
+        this.rollupService = rollupService;
     }
 
     public List<WorkerPayhashScore> aggregate(String account,
@@ -33,6 +37,14 @@ public class F2PoolPayhashWindowScoreService {
         if (windowStart == null || windowEnd == null || !windowStart.isBefore(windowEnd)) {
             return Collections.emptyList();
         }
+        return rollupService.aggregate(PayhashRollupService.SOURCE_F2POOL, account, coin, windowStart, windowEnd,
+                (start, end) -> aggregateMinutes(account, coin, start, end));
+    }
+
+    private List<WorkerPayhashScore> aggregateMinutes(String account,
+                                                      String coin,
+                                                      LocalDateTime windowStart,
+                                                      LocalDateTime windowEnd) {
         String sql = """
                 SELECT %s AS worker_id, SUM(%s) AS total_payhash
                 FROM %s
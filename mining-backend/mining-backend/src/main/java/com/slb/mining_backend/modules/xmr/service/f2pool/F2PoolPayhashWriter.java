@@ -1,15 +1,18 @@
 package com.slb.mining_backend.modules.xmr.service.f2pool;
 
 import com.slb.mining_backend.modules.xmr.config.F2PoolPayhashTimeseriesProperties;
+import com.slb.mining_backend.modules.xmr.service.PayhashRollupService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.util.StringUtils;
 
 import java.sql.Timestamp;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -19,11 +22,17 @@ public class F2PoolPayhashWriter {
 
     private final NamedParameterJdbcTemplate jdbcTemplate;
     private final F2PoolPayhashTimeseriesProperties properties;
+    private final PayhashRollupService rollupService;
+    private final TransactionTemplate transactionTemplate;
 
     public F2PoolPayhashWriter(NamedParameterJdbcTemplate jdbcTemplate,
-                               F2PoolPayhashTimeseriesProperties properties) {
+                               F2PoolPayhashTimeseriesProperties properties,
+                               PayhashRollupService rollupService,
+                               TransactionTemplate transactionTemplate) {
         this.jdbcTemplate = jdbcTemplate;
         this.properties = properties;
+        this.rollupService = rollupService;
+        this.transactionTemplate = transactionTemplate;
     }
 
     public void writeBucket(String account, String coin, LocalDateTime bucketTime, Map<String, Long> payhashByWorker) {
@@ -32,6 +41,7 @@ public class F2PoolPayhashWriter {
             return;
         }
         List<MapSqlParameterSource> rows = new ArrayList<>();
+        Map<String, Long> written = new LinkedHashMap<>();
         for (Map.Entry<String, Long> entry : payhashByWorker.entrySet()) {
             if (!StringUtils.hasText(entry.getKey()) || entry.getValue() == null || entry.getValue() <= 0) {
                 continue;
@@ -42,6 +52,7 @@ public class F2PoolPayhashWriter {
                     .addValue("bucketTime", Timestamp.valueOf(bucketTime))
                     .addValue("workerId", entry.getKey())
                     .addValue("payhash", entry.getValue()));
+            written.put(entry.getKey(), entry.getValue());
         }
         if (rows.isEmpty()) {
             return;
@@ -59,7 +70,19 @@ public class F2PoolPayhashWriter {
                 properties.getPayhashColumn(),
                 properties.getPayhashColumn(),
                 properties.getPayhashColumn());
-        jdbcTemplate.batchUpdate(sql, rows.toArray(MapSqlParameterSource[]::new));
+        MapSqlParameterSource[] batch = rows.toArray(MapSqlParameterSource[]::new);
+        if (!rollupService.isEnabled()) {
+            jdbcTemplate.batchUpdate(sql, batch);
+        } else {
+            // 覆盖写：先锁定旧值，汇总表累加新旧值之差
+            transactionTemplate.executeWithoutResult(status -> {
+                Map<String, Long> before = rollupService.lockBucket(
+                        PayhashRollupService.SOURCE_F2POOL, account, coin, bucketTime, written.keySet());
+                jdbcTemplate.batchUpdate(sql, batch);
+                rollupService.addDeltas(PayhashRollupService.SOURCE_F2POOL, account, coin, bucketTime,
+                        PayhashRollupService.diff(before, written, false));
+            });
+        }
         log.debug("F2Pool payhash persisted: account={}, coin={}, bucket={}, samples={}",
                 account, coin, bucketTime, rows.size());
     }
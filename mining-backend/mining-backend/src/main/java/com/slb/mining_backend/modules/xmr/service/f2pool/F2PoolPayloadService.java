@@ -1,24 +1,65 @@
 package com.slb.mining_backend.modules.xmr.service.f2pool;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.slb.mining_backend.common.job.ClusterJob;
+import com.slb.mining_backend.modules.xmr.config.F2PoolPayloadStoreProperties;
 import com.slb.mining_backend.modules.xmr.entity.F2PoolRawPayload;
 import com.slb.mining_backend.modules.xmr.mapper.F2PoolRawPayloadMapper;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
 import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
+/**
+ * F2Pool 原始响应存储（按内容指纹寻址）。
+ *
+ * - 指纹为正文 SHA-256，同一 (account, endpoint, fingerprint) 只写一次：本地 LRU 命中时直接返回，不再访问数据库；
+ * - 同步任务线程只计算指纹并入队，压缩（gzip）与批量 INSERT IGNORE 由后台刷写完成；积压超限或关闭中回退为同步写库；
+ * - 业务行引用指纹前须调用 ensureStored：仍在队列中的正文立即同步写库，进程崩溃时不会留下引用不存在正文的业务行；
+ * - 对账等场景通过 findPayload 按指纹取回正文（兼容历史明文行与尚未落库的待写入行）；
+ * - 每日清理超过保留期且未被业务表引用的响应（清理后清空指纹 LRU，避免再次出现的正文被误判为已存储），并把历史明文行压缩。
+ */
 @Service
+@Slf4j
 public class F2PoolPayloadService {
 
     private static final ZoneId BJT = ZoneId.of("Asia/Shanghai");
     private final F2PoolRawPayloadMapper rawPayloadMapper;
+    private final F2PoolPayloadStoreProperties properties;
+    private final Cache<String, Boolean> storedFingerprints;
+    private final Map<String, F2PoolRawPayload> pending = new ConcurrentHashMap<>();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private volatile boolean closed = false;
 
-    public F2PoolPayloadService(F2PoolRawPayloadMapper rawPayloadMapper) {
+    public F2PoolPayloadService(F2PoolRawPayloadMapper rawPayloadMapper,
+                                F2PoolPayloadStoreProperties properties) {
         this.rawPayloadMapper = rawPayloadMapper;
+        this.properties = properties;
+        this.storedFingerprints = CacheBuilder.newBuilder()
+                .maximumSize(Math.max(1, properties.getFingerprintCacheSize()))
+                .build();
     }
 
     public String persistPayload(String account, String coin, String endpoint, String payload, Instant fetchedAt) {
@@ -26,6 +67,10 @@ public class F2PoolPayloadService {
             return null;
         }
         String fingerprint = sha256Hex(payload);
+        String key = key(account, endpoint, fingerprint);
+        if (storedFingerprints.getIfPresent(key) != null || pending.containsKey(key)) {
+            return fingerprint;
+        }
         F2PoolRawPayload record = new F2PoolRawPayload();
         record.setAccount(account);
         record.setCoin(coin);
@@ -34,10 +79,175 @@ public class F2PoolPayloadService {
         record.setPayload(payload);
         record.setFetchedAt(toLocalDateTime(fetchedAt));
         record.setCreatedTime(LocalDateTime.now(BJT));
-        rawPayloadMapper.insertIgnore(record);
+        if (!properties.isAsyncEnabled() || closed || pending.size() >= Math.max(1, properties.getMaxPending())) {
+            write(List.of(record));
+        } else {
+            pending.putIfAbsent(key, record);
+        }
         return fingerprint;
     }
 
+    /**
+     * 引用该指纹的业务行写入前调用：正文仍在待写入队列时立即同步写库。
+     * 返回 false 表示正文写库失败，调用方不应再引用该指纹。
+     */
+    public boolean ensureStored(String account, String endpoint, String fingerprint) {
+        if (!StringUtils.hasText(fingerprint)) {
+            return true;
+        }
+        String key = key(account, endpoint, fingerprint);
+        F2PoolRawPayload queued = pending.get(key);
+        if (queued == null) {
+            // 不在队列中：已写库（后台刷写成功后才移出队列）
+            return true;
+        }
+        try {
+            write(List.of(queued));
+        } catch (RuntimeException ex) {
+            log.warn("Failed to store F2Pool raw payload before referencing it (account={}, endpoint={}, fingerprint={}): {}",
+                    account, endpoint, fingerprint, ex.getMessage());
+            return false;
+        }
+        pending.remove(key, queued);
+        return true;
+    }
+
+    /**
+     * 按指纹取回原始响应正文。
+     */
+    public Optional<String> findPayload(String account, String endpoint, String fingerprint) {
+        if (!StringUtils.hasText(fingerprint)) {
+            return Optional.empty();
+        }
+        F2PoolRawPayload queued = pending.get(key(account, endpoint, fingerprint));
+        if (queued != null) {
+            return Optional.ofNullable(queued.getPayload());
+        }
+        return rawPayloadMapper.selectByFingerprint(account, endpoint, fingerprint).map(F2PoolPayloadService::decode);
+    }
+
+    @Scheduled(fixedDelayString = "${app.f2pool.payload-store.flush-interval-ms:2000}")
+    @ClusterJob(scope = ClusterJob.Scope.NODE)
+    public void scheduledFlush() {
+        flush();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        closed = true;
+        flush();
+    }
+
+    void flush() {
+        if (pending.isEmpty() || !flushLock.tryLock()) {
+            return;
+        }
+        try {
+            int batchSize = Math.max(1, properties.getFlushBatchSize());
+            while (!pending.isEmpty()) {
+                List<F2PoolRawPayload> batch = new ArrayList<>(batchSize);
+                Iterator<F2PoolRawPayload> it = pending.values().iterator();
+                while (it.hasNext() && batch.size() < batchSize) {
+                    batch.add(it.next());
+                }
+                try {
+                    write(batch);
+                } catch (RuntimeException ex) {
+                    // 保留在待写入队列，下次刷写重试
+                    log.warn("Failed to flush F2Pool raw payloads (batch={}, pending={}): {}",
+                            batch.size(), pending.size(), ex.getMessage());
+                    return;
+                }
+                for (F2PoolRawPayload record : batch) {
+                    pending.remove(key(record.getAccount(), record.getEndpoint(), record.getFingerprint()), record);
+                }
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * 清理超过保留期且未被引用的响应，并压缩历史明文行。
+     */
+    @Scheduled(cron = "${app.f2pool.payload-store.maintenance-cron:0 50 2 * * ?}")
+    public void maintain() {
+        int batchSize = Math.max(1, properties.getMaintenanceBatchSize());
+        LocalDateTime before = LocalDateTime.now(BJT).minusDays(Math.max(1, properties.getRetentionDays()));
+        long purged = 0;
+        int deleted;
+        do {
+            deleted = rawPayloadMapper.deleteExpiredUnreferenced(before, batchSize);
+            purged += deleted;
+        } while (deleted >= batchSize);
+        if (purged > 0) {
+            storedFingerprints.invalidateAll();
+        }
+
+        long compacted = 0;
+        long afterId = 0L;
+        List<F2PoolRawPayload> rows;
+        do {
+            rows = rawPayloadMapper.selectUncompressed(afterId, batchSize);
+            for (F2PoolRawPayload row : rows) {
+                byte[] body = row.getPayload().getBytes(StandardCharsets.UTF_8);
+                compacted += rawPayloadMapper.updateCompressed(row.getId(), gzip(body), body.length);
+                afterId = row.getId();
+            }
+        } while (rows.size() >= batchSize);
+        log.info("F2Pool raw payload maintenance finished (purged={}, compacted={}, before={})", purged, compacted, before);
+    }
+
+    private void write(List<F2PoolRawPayload> records) {
+        List<F2PoolRawPayload> rows = new ArrayList<>(records.size());
+        for (F2PoolRawPayload record : records) {
+            byte[] body = record.getPayload().getBytes(StandardCharsets.UTF_8);
+            F2PoolRawPayload row = new F2PoolRawPayload();
+            row.setAccount(record.getAccount());
+            row.setCoin(record.getCoin());
+            row.setEndpoint(record.getEndpoint());
+            row.setFingerprint(record.getFingerprint());
+            row.setPayloadGz(gzip(body));
+            row.setPayloadSize(body.length);
+            row.setFetchedAt(record.getFetchedAt());
+            row.setCreatedTime(record.getCreatedTime());
+            rows.add(row);
+        }
+        rawPayloadMapper.batchInsertIgnore(rows);
+        for (F2PoolRawPayload record : records) {
+            storedFingerprints.put(key(record.getAccount(), record.getEndpoint(), record.getFingerprint()), Boolean.TRUE);
+        }
+    }
+
+    private static String decode(F2PoolRawPayload row) {
+        if (row.getPayloadGz() != null) {
+            return new String(gunzip(row.getPayloadGz()), StandardCharsets.UTF_8);
+        }
+        return row.getPayload();
+    }
+
+    static byte[] gzip(byte[] body) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, body.length / 4));
+        try (GZIPOutputStream gz = new GZIPOutputStream(out)) {
+            gz.write(body);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Failed to compress payload", ex);
+        }
+        return out.toByteArray();
+    }
+
+    static byte[] gunzip(byte[] compressed) {
+        try (GZIPInputStream gz = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+            return gz.readAllBytes();
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Failed to decompress payload", ex);
+        }
+    }
+
+    private static String key(String account, String endpoint, String fingerprint) {
+        return account + '|' + endpoint + '|' + fingerprint;
+    }
+
     private LocalDateTime toLocalDateTime(Instant instant) {
         if (instant == null) {
             return LocalDateTime.now(BJT);
@@ -48,12 +258,7 @@ public class F2PoolPayloadService {
     private static String sha256Hex(String text) {
         try {
             MessageDigest md = MessageDigest.getInstance("SHA-256");
-            byte[] digest = md.digest(text.getBytes(StandardCharsets.UTF_8));
-            StringBuilder sb = new StringBuilder(digest.length * 2);
-            for (byte b : digest) {
-                sb.append(String.format("%02x", b));
-            }
-            return sb.toString();
+            return HexFormat.of().formatHex(md.digest(text.getBytes(StandardCharsets.UTF_8)));
         } catch (Exception ex) {
             throw new IllegalStateException("Failed to hash payload", ex);
         }
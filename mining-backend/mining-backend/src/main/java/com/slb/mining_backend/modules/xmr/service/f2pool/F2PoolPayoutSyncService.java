@@ -1,9 +1,12 @@
 package com.slb.mining_backend.modules.xmr.service.f2pool;
 
+import com.slb.mining_backend.common.job.ClusterJob;
+import com.slb.mining_backend.common.job.JobShard;
 import com.slb.mining_backend.modules.xmr.config.F2PoolProperties;
 import com.slb.mining_backend.modules.earnings.service.MarketDataService;
 import com.slb.mining_backend.modules.xmr.entity.XmrWalletIncoming;
 import com.slb.mining_backend.modules.xmr.mapper.XmrWalletIncomingMapper;
+import com.slb.mining_backend.modules.xmr.service.IncomingPayoutWriter;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
@@ -16,11 +19,18 @@ import java.time.Duration;
 import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
 
+/**
+ * F2Pool 打款同步：按账户高水位缩小查询窗口（start_time 取 lookback 与高水位回看窗口的较晚者），
+ * 候选打款一次 tx_hash IN (...) 去重，只为新打款换算金额并批量写入 xmr_wallet_incoming。
+ */
 @Service
 @Slf4j
 public class F2PoolPayoutSyncService {
@@ -36,6 +46,7 @@ public class F2PoolPayoutSyncService {
     private final F2PoolValuationService valuationService;
     private final MarketDataService marketDataService;
     private final XmrWalletIncomingMapper walletIncomingMapper;
+    private final IncomingPayoutWriter payoutWriter;
     private final long adminUserId;
 
     public F2PoolPayoutSyncService(F2PoolProperties properties,
@@ -46,6 +57,7 @@ public class F2PoolPayoutSyncService {
                                    F2PoolValuationService valuationService,
                                    MarketDataService marketDataService,
                                    XmrWalletIncomingMapper walletIncomingMapper,
+                                   IncomingPayoutWriter payoutWriter,
                                    @Value("${app.settlement.admin-user-id:1}") long adminUserId) {
         this.properties = properties;
         this.client = client;
@@ -55,10 +67,12 @@ public class F2PoolPayoutSyncService {
         this.valuationService = valuationService;
         this.marketDataService = marketDataService;
         this.walletIncomingMapper = walletIncomingMapper;
+        this.payoutWriter = payoutWriter;
         this.adminUserId = adminUserId;
     }
 
     @Scheduled(fixedDelayString = "${app.f2pool.payout-sync-interval-ms:300000}")
+    @ClusterJob(shards = 8)
     public void syncPayouts() {
         if (!properties.isEnabled() || CollectionUtils.isEmpty(properties.getAccounts())) {
             return;
@@ -71,6 +85,9 @@ public class F2PoolPayoutSyncService {
             if (account == null || !StringUtils.hasText(account.getName()) || !StringUtils.hasText(account.getCoin())) {
                 continue;
             }
+            if (!JobShard.owns(account.getName())) {
+                continue;
+            }
             syncPayoutHistory(account);
             if (properties.isIncludeValueLastDay()) {
                 log.warn("F2Pool includeValueLastDay enabled; unpaid revenue will be treated as incoming payouts");
@@ -81,8 +98,13 @@ public class F2PoolPayoutSyncService {
 
     private void syncPayoutHistory(F2PoolProperties.Account account) {
         int lookbackDays = Math.max(1, properties.getPayoutHistoryLookbackDays());
+        String subaddress = buildSubaddress(account);
+        LocalDateTime lowerBound = payoutWriter.lowerBound(IncomingPayoutWriter.SOURCE_F2POOL, subaddress);
         Instant end = Instant.now();
         Instant start = end.minus(Duration.ofDays(lookbackDays));
+        if (lowerBound != null && lowerBound.atZone(BJT).toInstant().isAfter(start)) {
+            start = lowerBound.atZone(BJT).toInstant();
+        }
         Map<String, Object> payload = new HashMap<>();
         payload.put("currency", account.getCoin());
         payload.put("mining_user_name", account.getName());
@@ -124,31 +146,61 @@ public class F2PoolPayoutSyncService {
                     "PARSE_FAILED", "WARN", "transactions_list", "no payout items parsed");
             return;
         }
-        BigDecimal ratio = safePositive(marketDataService.getCalXmrRatio());
+        Map<String, F2PoolParser.PayoutItem> candidates = new LinkedHashMap<>();
+        LocalDateTime maxTs = null;
         for (F2PoolParser.PayoutItem item : items) {
             if (item == null || item.amount() == null || item.amount().compareTo(BigDecimal.ZERO) <= 0) {
                 continue;
             }
-            BigDecimal amountXmr = toXmrAmount(account, item.amount(), ratio);
-            if (amountXmr == null || amountXmr.compareTo(BigDecimal.ZERO) <= 0) {
-                log.warn("F2Pool payout skipped due to missing rate (account={}, coin={})",
-                        account.getName(), account.getCoin());
-                continue;
-            }
             String txHash = normalizeTxHash(account, item.txId(), item);
             if (!StringUtils.hasText(txHash)) {
                 log.warn("F2Pool payout skipped due to missing txId (account={}, coin={})",
                         account.getName(), account.getCoin());
                 continue;
             }
+            LocalDateTime ts = resolveTimestamp(item);
+            if (maxTs == null || ts.isAfter(maxTs)) {
+                maxTs = ts;
+            }
+            candidates.putIfAbsent(txHash, item);
+        }
+        Set<String> existing = payoutWriter.findExisting(candidates.keySet());
+        BigDecimal ratio = safePositive(marketDataService.getCalXmrRatio());
+        List<XmrWalletIncoming> records = new ArrayList<>();
+        LocalDateTime earliestPending = null;
+        for (Map.Entry<String, F2PoolParser.PayoutItem> entry : candidates.entrySet()) {
+            if (existing.contains(entry.getKey())) {
+                continue;
+            }
+            F2PoolParser.PayoutItem item = entry.getValue();
+            LocalDateTime ts = resolveTimestamp(item);
+            BigDecimal amountXmr = toXmrAmount(account, item.amount(), ratio);
+            if (amountXmr == null || amountXmr.compareTo(BigDecimal.ZERO) <= 0) {
+                log.warn("F2Pool payout skipped due to missing rate (account={}, coin={})",
+                        account.getName(), account.getCoin());
+                // 缺汇率的打款下轮重试：高水位不越过它
+                if (earliestPending == null || ts.isBefore(earliestPending)) {
+                    earliestPending = ts;
+                }
+                continue;
+            }
             XmrWalletIncoming record = new XmrWalletIncoming();
             record.setUserId(adminUserId);
-            record.setSubaddress(buildSubaddress(account));
-            record.setTxHash(txHash);
+            record.setSubaddress(subaddress);
+            record.setTxHash(entry.getKey());
             record.setAmountXmr(amountXmr);
-            record.setTs(resolveTimestamp(item));
+            record.setTs(ts);
             record.setSettled(Boolean.FALSE);
-            walletIncomingMapper.insertIgnore(record);
+            records.add(record);
+        }
+        int inserted = payoutWriter.insertAll(records);
+        if (earliestPending != null && maxTs != null && earliestPending.isBefore(maxTs)) {
+            maxTs = earliestPending;
+        }
+        payoutWriter.advance(IncomingPayoutWriter.SOURCE_F2POOL, subaddress, maxTs, null);
+        if (inserted > 0) {
+            log.info("F2Pool payout sync inserted {} records (account={}, coin={})",
+                    inserted, account.getName(), account.getCoin());
         }
     }
 
@@ -1,5 +1,6 @@
 package com.slb.mining_backend.modules.xmr.service.f2pool;
 
+import com.slb.mining_backend.common.job.JobLease;
 import com.slb.mining_backend.modules.xmr.config.F2PoolProperties;
 import com.slb.mining_backend.modules.xmr.dto.WorkerPayhashScore;
 import com.slb.mining_backend.modules.xmr.entity.F2PoolPayoutDaily;
@@ -77,6 +78,10 @@ public class F2PoolSettlementService {
             return;
         }
         for (F2PoolProperties.Account account : properties.getAccounts()) {
+            if (JobLease.currentLost()) {
+                log.warn("F2Pool daily settlement lost its job lease; stop before account {}", account != null ? account.getName() : null);
+                break;
+            }
             if (account == null || !StringUtils.hasText(account.getName()) || !StringUtils.hasText(account.getCoin())) {
                 continue;
             }
@@ -0,0 +1,383 @@
+package com.slb.mining_backend.modules.xmr.service.f2pool;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.slb.mining_backend.modules.xmr.config.F2PoolProperties;
+import com.slb.mining_backend.modules.xmr.domain.F2PoolWorkerSample;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.OptionalInt;
+
+/**
+ * F2Pool v2 worker 列表的单遍流式解析（Jackson JsonParser），不构建 DOM。
+ *
+ * 一次遍历同时完成：错误信封（code/msg）识别、worker 列表定位（data / data.list|rows|workers|worker_list）、
+ * 列表长度与分页总数（total）统计、F2PoolWorkerSample 生成；字段回退顺序与 F2PoolParser 的树解析保持一致。
+ * 算力按 double 直接换算到 MH/s，不再经 BigDecimal，结果与树解析在 double 精度内一致。
+ */
+final class F2PoolWorkerPageStreamParser {
+
+    private static final int RANK_NON_ARRAY = -1;
+
+    private final JsonFactory jsonFactory;
+
+    F2PoolWorkerPageStreamParser(JsonFactory jsonFactory) {
+        this.jsonFactory = jsonFactory;
+    }
+
+    /**
+     * 某个候选列表 key 的解析结果；size == RANK_NON_ARRAY 表示该 key 存在但不是数组。
+     */
+    private record ListResult(List<F2PoolWorkerSample> workers, int size) {
+        static final ListResult NON_ARRAY = new ListResult(Collections.emptyList(), RANK_NON_ARRAY);
+    }
+
+    F2PoolParser.WorkerPageV2 parse(String json, F2PoolProperties.Account account) throws IOException {
+        try (JsonParser p = jsonFactory.createParser(json)) {
+            JsonToken first = p.nextToken();
+            if (first == JsonToken.START_ARRAY) {
+                return page(readList(p, account), null);
+            }
+            if (first != JsonToken.START_OBJECT) {
+                return F2PoolParser.WorkerPageV2.EMPTY;
+            }
+            Integer code = null;
+            String msg = null;
+            boolean hasData = false;
+            ListResult dataArray = null;
+            Integer dataTotal = null;
+            Integer rootTotal = null;
+            ListResult[] dataCandidates = new ListResult[4];
+            ListResult[] rootCandidates = new ListResult[4];
+            while (p.nextToken() == JsonToken.FIELD_NAME) {
+                String name = p.getCurrentName();
+                JsonToken token = p.nextToken();
+                switch (name) {
+                    case "code" -> code = token.isNumeric() ? p.getNumberValue().intValue() : null;
+                    case "msg" -> msg = token == JsonToken.VALUE_STRING ? p.getText() : null;
+                    case "data" -> {
+                        hasData = true;
+                        dataArray = null;
+                        dataTotal = null;
+                        dataCandidates = new ListResult[4];
+                        if (token == JsonToken.START_ARRAY) {
+                            dataArray = readList(p, account);
+                        } else if (token == JsonToken.START_OBJECT) {
+                            dataTotal = readCandidates(p, account, dataCandidates);
+                        } else {
+                            p.skipChildren();
+                        }
+                    }
+                    case "total" -> rootTotal = total(p, token);
+                    default -> {
+                        int rank = listKeyRank(name);
+                        if (rank >= 0) {
+                            rootCandidates[rank] = readCandidate(p, token, account);
+                        } else {
+                            p.skipChildren();
+                        }
+                    }
+                }
+                if (code != null && code != 0 && msg != null) {
+                    // 错误信封：调用方只关心错误本身，剩余部分无需再读
+                    return new F2PoolParser.WorkerPageV2(new F2PoolParser.V2Error(code, msg),
+                            Collections.emptyList(), OptionalInt.empty(), OptionalInt.empty());
+                }
+            }
+            if (!hasData) {
+                return page(select(rootCandidates), rootTotal);
+            }
+            return page(dataArray != null ? dataArray : select(dataCandidates), dataTotal);
+        }
+    }
+
+    private static F2PoolParser.WorkerPageV2 page(ListResult list, Integer total) {
+        OptionalInt declaredTotal = total != null ? OptionalInt.of(total) : OptionalInt.empty();
+        if (list == null || list.size() == RANK_NON_ARRAY) {
+            return new F2PoolParser.WorkerPageV2(null, Collections.emptyList(), OptionalInt.empty(), declaredTotal);
+        }
+        return new F2PoolParser.WorkerPageV2(null, list.workers(), OptionalInt.of(list.size()), declaredTotal);
+    }
+
+    private static ListResult select(ListResult[] candidates) {
+        for (ListResult candidate : candidates) {
+            if (candidate != null) {
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    private static int listKeyRank(String name) {
+        return switch (name) {
+            case "list" -> 0;
+            case "rows" -> 1;
+            case "workers" -> 2;
+            case "worker_list" -> 3;
+            default -> -1;
+        };
+    }
+
+    /**
+     * 读取 data 对象内的候选列表，返回其中的 total（没有时为 null）。
+     */
+    private Integer readCandidates(JsonParser p, F2PoolProperties.Account account, ListResult[] candidates) throws IOException {
+        Integer total = null;
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String name = p.getCurrentName();
+            int rank = listKeyRank(name);
+            JsonToken token = p.nextToken();
+            if (rank >= 0) {
+                candidates[rank] = readCandidate(p, token, account);
+            } else if ("total".equals(name)) {
+                total = total(p, token);
+            } else {
+                p.skipChildren();
+            }
+        }
+        return total;
+    }
+
+    private static Integer total(JsonParser p, JsonToken token) throws IOException {
+        if (token.isNumeric()) {
+            return p.getNumberValue().intValue();
+        }
+        p.skipChildren();
+        return null;
+    }
+
+    private ListResult readCandidate(JsonParser p, JsonToken token, F2PoolProperties.Account account) throws IOException {
+        if (token == JsonToken.START_ARRAY) {
+            return readList(p, account);
+        }
+        p.skipChildren();
+        return ListResult.NON_ARRAY;
+    }
+
+    private ListResult readList(JsonParser p, F2PoolProperties.Account account) throws IOException {
+        List<F2PoolWorkerSample> workers = new ArrayList<>();
+        int size = 0;
+        JsonToken token;
+        while ((token = p.nextToken()) != JsonToken.END_ARRAY && token != null) {
+            size++;
+            if (token == JsonToken.START_OBJECT) {
+                F2PoolWorkerSample sample = readWorker(p, account);
+                if (sample != null) {
+                    workers.add(sample);
+                }
+            } else {
+                p.skipChildren();
+            }
+        }
+        return new ListResult(workers, size);
+    }
+
+    private F2PoolWorkerSample readWorker(JsonParser p, F2PoolProperties.Account account) throws IOException {
+        String workerName = null;
+        String workerIdField = null;
+        String nameField = null;
+        String infoName = null;
+        boolean hasInfo = false;
+        double hashrate = Double.NaN;
+        double hashRate = Double.NaN;
+        double curHashrate = Double.NaN;
+        double infoHashRate = Double.NaN;
+        double hashrateAvg = Double.NaN;
+        double avgHashrate = Double.NaN;
+        double infoH1 = Double.NaN;
+        double infoH24 = Double.NaN;
+        String hashrateUnit = null;
+        String hashRateUnit = null;
+        String unitField = null;
+        Instant lastShareTime = null;
+        Instant lastShare = null;
+        Instant lastShareAt = null;
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.getCurrentName();
+            JsonToken token = p.nextToken();
+            switch (field) {
+                case "worker_name" -> workerName = text(p, token);
+                case "worker_id" -> workerIdField = text(p, token);
+                case "name" -> nameField = text(p, token);
+                case "hashrate" -> hashrate = decimal(p, token);
+                case "hash_rate" -> hashRate = decimal(p, token);
+                case "cur_hashrate" -> curHashrate = decimal(p, token);
+                case "hashrate_unit" -> hashrateUnit = text(p, token);
+                case "hash_rate_unit" -> hashRateUnit = text(p, token);
+                case "unit" -> unitField = text(p, token);
+                case "hashrate_avg" -> hashrateAvg = decimal(p, token);
+                case "avg_hashrate" -> avgHashrate = decimal(p, token);
+                case "last_share_time" -> lastShareTime = instant(p, token);
+                case "last_share" -> lastShare = instant(p, token);
+                case "last_share_at" -> lastShareAt = instant(p, token);
+                case "hash_rate_info" -> {
+                    hasInfo = true;
+                    infoName = null;
+                    infoHashRate = Double.NaN;
+                    infoH1 = Double.NaN;
+                    infoH24 = Double.NaN;
+                    if (token != JsonToken.START_OBJECT) {
+                        p.skipChildren();
+                        break;
+                    }
+                    while (p.nextToken() == JsonToken.FIELD_NAME) {
+                        String infoField = p.getCurrentName();
+                        JsonToken infoToken = p.nextToken();
+                        switch (infoField) {
+                            case "name" -> infoName = text(p, infoToken);
+                            case "hash_rate" -> infoHashRate = decimal(p, infoToken);
+                            case "h1_hash_rate" -> infoH1 = decimal(p, infoToken);
+                            case "h24_hash_rate" -> infoH24 = decimal(p, infoToken);
+                            default -> p.skipChildren();
+                        }
+                    }
+                }
+                default -> p.skipChildren();
+            }
+        }
+        String workerId = firstText(workerName, workerIdField, nameField, hasInfo ? infoName : null);
+        if (workerId == null) {
+            return null;
+        }
+        double now = firstNumber(hashrate, hashRate, curHashrate, hasInfo ? infoHashRate : Double.NaN);
+        String unit = firstText(hashrateUnit, hashRateUnit, unitField, null);
+        if (unit == null && hasInfo) {
+            // v2 的 hash_rate_info 通常不带单位，按 H/s 处理以便转换成 MH/s
+            unit = "H/S";
+        }
+        double avg = firstNumber(hashrateAvg, avgHashrate,
+                hasInfo ? infoH1 : Double.NaN, hasInfo ? infoH24 : Double.NaN);
+        Instant lastShareInstant = lastShareTime != null ? lastShareTime
+                : lastShare != null ? lastShare
+                : lastShareAt != null ? lastShareAt
+                : Instant.now();
+        double hashNow = Double.isNaN(now) ? 0d : toMhs(now, unit);
+        double hashAvg = Double.isNaN(avg) ? hashNow : toMhs(avg, unit);
+        return new F2PoolWorkerSample(account.getName(), account.getCoin(), workerId, hashNow, hashAvg, lastShareInstant);
+    }
+
+    /**
+     * 与 JsonNode#asText 一致：标量取文本，容器返回空串，null 返回 null。
+     */
+    private static String text(JsonParser p, JsonToken token) throws IOException {
+        return switch (token) {
+            case VALUE_STRING, VALUE_NUMBER_INT, VALUE_TRUE, VALUE_FALSE -> p.getText();
+            case VALUE_NUMBER_FLOAT -> String.valueOf(p.getDoubleValue());
+            case VALUE_NULL -> null;
+            default -> {
+                p.skipChildren();
+                yield "";
+            }
+        };
+    }
+
+    /**
+     * 数值字段；缺失或无法解析时返回 NaN。
+     */
+    private static double decimal(JsonParser p, JsonToken token) throws IOException {
+        if (token.isNumeric()) {
+            return p.getDoubleValue();
+        }
+        if (token == JsonToken.VALUE_STRING) {
+            String t = p.getText();
+            if (!StringUtils.hasText(t)) {
+                return Double.NaN;
+            }
+            try {
+                return new BigDecimal(t.trim()).doubleValue();
+            } catch (NumberFormatException ignored) {
+                return Double.NaN;
+            }
+        }
+        p.skipChildren();
+        return Double.NaN;
+    }
+
+    private static Instant instant(JsonParser p, JsonToken token) throws IOException {
+        if (token == JsonToken.VALUE_NUMBER_INT) {
+            return epoch(p.getLongValue());
+        }
+        if (token == JsonToken.VALUE_NUMBER_FLOAT) {
+            return epoch((long) p.getDoubleValue());
+        }
+        if (token == JsonToken.VALUE_STRING) {
+            String t = p.getText();
+            if (!StringUtils.hasText(t)) {
+                return null;
+            }
+            String trimmed = t.trim();
+            try {
+                return epoch(Long.parseLong(trimmed));
+            } catch (NumberFormatException ignored) {
+                // fall through
+            }
+            try {
+                return Instant.parse(trimmed);
+            } catch (Exception ignored) {
+                return null;
+            }
+        }
+        p.skipChildren();
+        return null;
+    }
+
+    private static Instant epoch(long epoch) {
+        if (Math.abs(epoch) > 10_000_000_000L) {
+            return Instant.ofEpochMilli(epoch);
+        }
+        return Instant.ofEpochSecond(epoch);
+    }
+
+    private static String firstText(String a, String b, String c, String d) {
+        if (StringUtils.hasText(a)) {
+            return a;
+        }
+        if (StringUtils.hasText(b)) {
+            return b;
+        }
+        if (StringUtils.hasText(c)) {
+            return c;
+        }
+        return StringUtils.hasText(d) ? d : null;
+    }
+
+    private static double firstNumber(double a, double b, double c, double d) {
+        if (!Double.isNaN(a)) {
+            return a;
+        }
+        if (!Double.isNaN(b)) {
+            return b;
+        }
+        return !Double.isNaN(c) ? c : d;
+    }
+
+    /**
+     * 统一换算到 MH/s；未知单位保持原值（与 F2PoolParser#toMhs 一致）。
+     */
+    private static double toMhs(double hashrate, String unit) {
+        if (unit == null) {
+            return hashrate;
+        }
+        String u = unit.trim();
+        if (u.equalsIgnoreCase("TH/S")) {
+            return hashrate * 1_000_000d;
+        }
+        if (u.equalsIgnoreCase("GH/S")) {
+            return hashrate * 1_000d;
+        }
+        if (u.equalsIgnoreCase("KH/S")) {
+            return hashrate / 1_000d;
+        }
+        if (u.equalsIgnoreCase("H/S")) {
+            return hashrate / 1_000_000d;
+        }
+        return hashrate;
+    }
+}
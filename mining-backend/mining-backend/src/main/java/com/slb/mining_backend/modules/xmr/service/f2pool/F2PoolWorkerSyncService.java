@@ -1,9 +1,14 @@
 package com.slb.mining_backend.modules.xmr.service.f2pool;
 
+import com.slb.mining_backend.common.job.ClusterJob;
+import com.slb.mining_backend.common.job.JobShard;
+import com.slb.mining_backend.config.OutboundCallProperties;
 import com.slb.mining_backend.modules.xmr.config.F2PoolProperties;
 import com.slb.mining_backend.modules.xmr.domain.F2PoolWorkerSample;
 import com.slb.mining_backend.modules.xmr.entity.F2PoolWorkerSnapshot;
 import com.slb.mining_backend.modules.xmr.mapper.F2PoolWorkerSnapshotMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.dao.DataAccessException;
 import org.springframework.beans.factory.annotation.Value;
@@ -11,6 +16,9 @@ import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.util.CollectionUtils;
 import org.springframework.util.StringUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
 import java.math.BigDecimal;
 import java.time.Duration;
@@ -18,7 +26,13 @@ import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * F2Pool worker 同步：各账户并发同步（上限 worker-sync-concurrency），单账户第 1 页返回 total 后剩余分页并发拉取，
+ * 所有分页合并后每个账户只写一次快照与 payhash 分钟桶；单账户耗时导出为 slb.pool.worker.sync。
+ * 并发线程上没有调度线程的 JobShard，分片在派发前捕获并随调用传递，每次拉取分页、落库前重新检查归属。
+ */
 @Service
 @Slf4j
 public class F2PoolWorkerSyncService {
@@ -34,10 +48,21 @@ public class F2PoolWorkerSyncService {
     private final F2PoolWorkerSnapshotMapper snapshotMapper;
     private final F2PoolPayhashWriter payhashWriter;
     private final F2PoolAlertService alertService;
+    private final OutboundCallProperties outboundProperties;
+    private final MeterRegistry meterRegistry;
     private final int deriveSeconds;
     private final boolean preferHashNowForPayhash;
 
-    private record WorkerFetchResult(List<F2PoolWorkerSample> workers, String fingerprint) {
+    private record WorkerFetchResult(List<F2PoolWorkerSample> workers, String endpoint, String fingerprint) {
+    }
+
+    /**
+     * 单页拉取结果；more 表示按顺序翻页时是否还应继续拉取下一页。
+     */
+    private record PageFetch(int page, List<F2PoolWorkerSample> workers, String fingerprint, OptionalInt total, boolean more) {
+        static PageFetch stop(int page, String fingerprint) {
+            return new PageFetch(page, Collections.emptyList(), fingerprint, OptionalInt.empty(), false);
+        }
     }
 
     public F2PoolWorkerSyncService(F2PoolProperties properties,
@@ -48,6 +73,8 @@ public class F2PoolWorkerSyncService {
                                    F2PoolWorkerSnapshotMapper snapshotMapper,
                                    F2PoolPayhashWriter payhashWriter,
                                    F2PoolAlertService alertService,
+                                   OutboundCallProperties outboundProperties,
+                                   MeterRegistry meterRegistry,
                                    @Value("${app.f2pool.payhash.derive-seconds:${app.payhash.derive-seconds:60}}") int deriveSeconds,
                                    @Value("${app.f2pool.payhash.prefer-hash-now-for-payhash:${app.payhash.prefer-hash-now-for-payhash:true}}") boolean preferHashNowForPayhash) {
         this.properties = properties;
@@ -58,11 +85,14 @@ public class F2PoolWorkerSyncService {
         this.snapshotMapper = snapshotMapper;
         this.payhashWriter = payhashWriter;
         this.alertService = alertService;
+        this.outboundProperties = outboundProperties;
+        this.meterRegistry = meterRegistry;
         this.deriveSeconds = Math.max(1, deriveSeconds);
         this.preferHashNowForPayhash = preferHashNowForPayhash;
     }
 
     @Scheduled(fixedDelayString = "${app.f2pool.worker-sync-interval-ms:60000}")
+    @ClusterJob(shards = 8)
     public void syncWorkers() {
         if (!properties.isEnabled()) {
             return;
@@ -76,161 +106,274 @@ public class F2PoolWorkerSyncService {
         }
         LocalDateTime bucketTime = floorToMinute(LocalDateTime.now(BJT));
         Instant now = Instant.now();
+        // JobShard 绑定在调度线程上，捕获后传给并发线程，分片租约丢失后已派发的账户与分页随即停止
+        JobShard shard = JobShard.current();
+        List<F2PoolProperties.Account> owned = new ArrayList<>();
         for (F2PoolProperties.Account account : properties.getAccounts()) {
             if (account == null || !StringUtils.hasText(account.getName()) || !StringUtils.hasText(account.getCoin())) {
                 continue;
             }
-            WorkerFetchResult fetched;
-            if (!properties.isHashrateCoinSupported(account.getCoin())) {
-                log.info("F2Pool worker sync fallback: coin not supported for v2 hashrate, use account overview workers (account={}, coin={})",
-                        account.getName(), account.getCoin());
-                fetched = fetchWorkersFromAccountOverview(account);
-            } else {
-                fetched = fetchWorkersV2(account);
-            }
-            if (fetched == null || fetched.workers() == null || fetched.workers().isEmpty()) {
-                continue;
+            if (JobShard.owns(shard, account.getName())) {
+                owned.add(account);
             }
-            List<F2PoolWorkerSample> workers = fetched.workers();
-            String fingerprint = fetched.fingerprint();
+        }
+        if (owned.isEmpty()) {
+            return;
+        }
+        Flux.fromIterable(owned)
+                .flatMap(account -> Mono.fromRunnable(() -> syncAccountTimed(account, shard, bucketTime, now))
+                        .subscribeOn(Schedulers.boundedElastic())
+                        .onErrorResume(ex -> {
+                            log.warn("F2Pool worker sync failed (account={}, coin={}, error={})",
+                                    account.getName(), account.getCoin(), ex.getMessage());
+                            return Mono.empty();
+                        }), accountConcurrency())
+                .then()
+                .block();
+    }
 
-            Set<String> workerIds = new HashSet<>();
-            for (F2PoolWorkerSample sample : workers) {
-                if (sample != null && StringUtils.hasText(sample.workerId())) {
-                    workerIds.add(sample.workerId().trim());
-                }
+    private void syncAccountTimed(F2PoolProperties.Account account, JobShard shard, LocalDateTime bucketTime, Instant now) {
+        long startNanos = System.nanoTime();
+        String outcome = "error";
+        try {
+            outcome = syncAccount(account, shard, bucketTime, now);
+        } finally {
+            Timer.builder("slb.pool.worker.sync")
+                    .description("矿池 worker 单账户同步耗时（含分页拉取、解析与落库）")
+                    .tags("provider", "f2pool", "account", account.getName(), "outcome", outcome)
+                    .register(meterRegistry)
+                    .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private String syncAccount(F2PoolProperties.Account account, JobShard shard, LocalDateTime bucketTime, Instant now) {
+        WorkerFetchResult fetched;
+        if (!properties.isHashrateCoinSupported(account.getCoin())) {
+            log.info("F2Pool worker sync fallback: coin not supported for v2 hashrate, use account overview workers (account={}, coin={})",
+                    account.getName(), account.getCoin());
+            fetched = fetchWorkersFromAccountOverview(account, shard);
+        } else {
+            fetched = fetchWorkersV2(account, shard);
+        }
+        if (!JobShard.owns(shard, account.getName())) {
+            return lostShard(account);
+        }
+        if (fetched == null || fetched.workers() == null || fetched.workers().isEmpty()) {
+            return "empty";
+        }
+        List<F2PoolWorkerSample> workers = fetched.workers();
+        String fingerprint = payloadService.ensureStored(account.getName(), fetched.endpoint(), fetched.fingerprint())
+                ? fetched.fingerprint()
+                : null;
+
+        Set<String> workerIds = new HashSet<>();
+        for (F2PoolWorkerSample sample : workers) {
+            if (sample != null && StringUtils.hasText(sample.workerId())) {
+                workerIds.add(sample.workerId().trim());
             }
-            Map<String, Long> owners = ownershipResolver.resolveOwners(workerIds);
+        }
+        Map<String, Long> owners = ownershipResolver.resolveOwners(workerIds);
 
-            List<F2PoolWorkerSnapshot> snapshots = new ArrayList<>();
-            Map<String, Long> payhashByWorker = new HashMap<>();
-            int unclaimed = 0;
-            String sampleUnclaimed = null;
+        List<F2PoolWorkerSnapshot> snapshots = new ArrayList<>();
+        Map<String, Long> payhashByWorker = new HashMap<>();
+        int unclaimed = 0;
+        String sampleUnclaimed = null;
 
-            for (F2PoolWorkerSample sample : workers) {
-                if (sample == null || !StringUtils.hasText(sample.workerId())) {
-                    continue;
-                }
-                String rawWorkerId = truncate(sample.workerId().trim(), MAX_WORKER_ID_LEN);
-                Long userId = ownershipResolver.resolveUserId(rawWorkerId, owners);
-                boolean stale = isStale(sample.lastShareAt(), now, properties.getWorkerStaleSeconds());
-                String status = stale ? "STALE" : "ACTIVE";
-
-                if (userId == null) {
-                    unclaimed++;
-                    if (sampleUnclaimed == null) {
-                        sampleUnclaimed = rawWorkerId;
-                    }
-                }
+        for (F2PoolWorkerSample sample : workers) {
+            if (sample == null || !StringUtils.hasText(sample.workerId())) {
+                continue;
+            }
+            String rawWorkerId = truncate(sample.workerId().trim(), MAX_WORKER_ID_LEN);
+            Long userId = ownershipResolver.resolveUserId(rawWorkerId, owners);
+            boolean stale = isStale(sample.lastShareAt(), now, properties.getWorkerStaleSeconds());
+            String status = stale ? "STALE" : "ACTIVE";
 
-                F2PoolWorkerSnapshot snapshot = new F2PoolWorkerSnapshot();
-                snapshot.setAccount(account.getName());
-                snapshot.setCoin(account.getCoin());
-                snapshot.setWorkerId(rawWorkerId);
-                snapshot.setUserId(userId);
-                snapshot.setHashNowHps(BigDecimal.valueOf(sample.hashNowHps()));
-                snapshot.setHashAvgHps(BigDecimal.valueOf(sample.hashAvgHps()));
-                snapshot.setLastShareTime(toLocalDateTime(sample.lastShareAt()));
-                snapshot.setBucketTime(bucketTime);
-                snapshot.setStatus(status);
-                snapshot.setPayloadFingerprint(fingerprint);
-                snapshot.setCreatedTime(LocalDateTime.now(BJT));
-                snapshots.add(snapshot);
-
-                if (!stale) {
-                    long payhash = estimatePayhash(sample);
-                    if (payhash > 0) {
-                        String key = (userId != null) ? ("USR-" + userId) : rawWorkerId;
-                        key = truncate(key, MAX_WORKER_ID_LEN);
-                        payhashByWorker.merge(key, payhash, (existing, value) -> existing + value);
-                    }
+            if (userId == null) {
+                unclaimed++;
+                if (sampleUnclaimed == null) {
+                    sampleUnclaimed = rawWorkerId;
                 }
             }
 
-            if (!snapshots.isEmpty()) {
-                try {
-                    snapshotMapper.insertBatch(snapshots);
-                } catch (DataAccessException ex) {
-                    log.warn("F2Pool worker snapshot insert failed (account={}, coin={}, error={})",
-                            account.getName(), account.getCoin(), ex.getMessage());
+            F2PoolWorkerSnapshot snapshot = new F2PoolWorkerSnapshot();
+            snapshot.setAccount(account.getName());
+            snapshot.setCoin(account.getCoin());
+            snapshot.setWorkerId(rawWorkerId);
+            snapshot.setUserId(userId);
+            snapshot.setHashNowHps(BigDecimal.valueOf(sample.hashNowHps()));
+            snapshot.setHashAvgHps(BigDecimal.valueOf(sample.hashAvgHps()));
+            snapshot.setLastShareTime(toLocalDateTime(sample.lastShareAt()));
+            snapshot.setBucketTime(bucketTime);
+            snapshot.setStatus(status);
+            snapshot.setPayloadFingerprint(fingerprint);
+            snapshot.setCreatedTime(LocalDateTime.now(BJT));
+            snapshots.add(snapshot);
+
+            if (!stale) {
+                long payhash = estimatePayhash(sample);
+                if (payhash > 0) {
+                    String key = (userId != null) ? ("USR-" + userId) : rawWorkerId;
+                    key = truncate(key, MAX_WORKER_ID_LEN);
+                    payhashByWorker.merge(key, payhash, (existing, value) -> existing + value);
                 }
             }
-            if (!payhashByWorker.isEmpty()) {
-                payhashWriter.writeBucket(account.getName(), account.getCoin(), bucketTime, payhashByWorker);
-            }
-            if (unclaimed > 0) {
-                alertService.raiseAlert(account.getName(), account.getCoin(), null,
-                        "UNCLAIMED_WORKER", "WARN", sampleUnclaimed,
-                        "unclaimed workers=" + unclaimed);
+        }
+
+        if (!JobShard.owns(shard, account.getName())) {
+            return lostShard(account);
+        }
+        if (!snapshots.isEmpty()) {
+            try {
+                snapshotMapper.insertBatch(snapshots);
+            } catch (DataAccessException ex) {
+                log.warn("F2Pool worker snapshot insert failed (account={}, coin={}, error={})",
+                        account.getName(), account.getCoin(), ex.getMessage());
             }
         }
+        if (!JobShard.owns(shard, account.getName())) {
+            return lostShard(account);
+        }
+        if (!payhashByWorker.isEmpty()) {
+            payhashWriter.writeBucket(account.getName(), account.getCoin(), bucketTime, payhashByWorker);
+        }
+        if (unclaimed > 0) {
+            alertService.raiseAlert(account.getName(), account.getCoin(), null,
+                    "UNCLAIMED_WORKER", "WARN", sampleUnclaimed,
+                    "unclaimed workers=" + unclaimed);
+        }
+        return "ok";
     }
 
-    private WorkerFetchResult fetchWorkersV2(F2PoolProperties.Account account) {
-        List<F2PoolWorkerSample> workers = new ArrayList<>();
-        String fingerprint = null;
+    private String lostShard(F2PoolProperties.Account account) {
+        log.warn("F2Pool worker sync aborted: shard lease lost (account={}, coin={})", account.getName(), account.getCoin());
+        return "lost";
+    }
+
+    /**
+     * 拉取账户的 v2 worker 列表：第 1 页返回 total 时剩余分页并发拉取，否则按顺序翻页；
+     * 合并时按页序截止到第一个失败或不足一页的分页，与顺序翻页的结果一致。
+     */
+    private WorkerFetchResult fetchWorkersV2(F2PoolProperties.Account account, JobShard shard) {
         int pageSize = Math.max(1, properties.getWorkersPageSize());
         int maxPages = Math.max(1, properties.getWorkersMaxPages());
-        for (int page = 1; page <= maxPages; page++) {
-            Map<String, Object> payload = new LinkedHashMap<>();
-            payload.put("currency", account.getCoin());
-            payload.put("mining_user_name", account.getName());
-            payload.put("page", page);
-            payload.put("page_size", pageSize);
-            F2PoolClient.F2PoolRawResponse response = client.fetchWorkersV2(account, payload);
-            if (handleHttpError(account, response, "workers")) {
-                break;
-            }
-            if (!StringUtils.hasText(response.body())) {
-                alertService.raiseAlert(account.getName(), account.getCoin(), null,
-                        "API_ERROR", "WARN", "workers", "empty worker response");
-                break;
-            }
-            fingerprint = payloadService.persistPayload(
-                    account.getName(),
-                    account.getCoin(),
-                    "workers",
-                    response.body(),
-                    response.fetchedAt());
-            Optional<F2PoolParser.V2Error> v2Error = parser.detectV2Error(response.body());
-            if (v2Error.isPresent()) {
-                F2PoolParser.V2Error err = v2Error.get();
-                alertService.raiseAlert(account.getName(), account.getCoin(), null,
-                        "REMOTE_ERROR", "WARN", "workers",
-                        "code=" + err.code() + ", msg=" + err.msg());
-                break;
-            }
-            List<F2PoolWorkerSample> pageWorkers = parser.parseWorkersV2(response.body(), account);
-            if (pageWorkers.isEmpty()) {
-                java.util.OptionalInt count = parser.resolveWorkersCountV2(response.body());
-                if (count.isPresent() && count.getAsInt() == 0) {
-                    log.info("F2Pool workers empty (account={}, coin={}, page={})",
-                            account.getName(), account.getCoin(), page);
-                    break;
+        PageFetch first = fetchPageV2(account, shard, 1, pageSize);
+        List<PageFetch> pages = new ArrayList<>();
+        pages.add(first);
+        if (first.more() && maxPages > 1) {
+            if (first.total().isPresent()) {
+                long declaredPages = (first.total().getAsInt() + (long) pageSize - 1) / pageSize;
+                int lastPage = (int) Math.min(maxPages, declaredPages);
+                if (lastPage > 1) {
+                    List<PageFetch> rest = Flux.range(2, lastPage - 1)
+                            .flatMapSequential(page -> Mono.fromCallable(() -> fetchPageV2(account, shard, page, pageSize))
+                                    .subscribeOn(Schedulers.boundedElastic())
+                                    .onErrorResume(ex -> {
+                                        log.warn("F2Pool workers page fetch failed (account={}, coin={}, page={}, error={})",
+                                                account.getName(), account.getCoin(), page, ex.getMessage());
+                                        return Mono.just(PageFetch.stop(page, null));
+                                    }), pageConcurrency())
+                            .collectList()
+                            .block();
+                    if (rest != null) {
+                        pages.addAll(rest);
+                    }
                 }
-                if (page == 1) {
-                    alertService.raiseAlert(account.getName(), account.getCoin(), null,
-                            "PARSE_FAILED", "WARN", "workers", "no worker samples parsed");
+            } else {
+                PageFetch current = first;
+                for (int page = 2; page <= maxPages && current.more(); page++) {
+                    current = fetchPageV2(account, shard, page, pageSize);
+                    pages.add(current);
                 }
-                break;
             }
-            workers.addAll(pageWorkers);
-            if (pageWorkers.size() < pageSize) {
+        }
+        List<F2PoolWorkerSample> workers = new ArrayList<>();
+        String fingerprint = null;
+        for (PageFetch fetch : pages) {
+            if (fetch.fingerprint() != null) {
+                fingerprint = fetch.fingerprint();
+            }
+            workers.addAll(fetch.workers());
+            if (!fetch.more()) {
                 break;
             }
         }
-        return new WorkerFetchResult(workers, fingerprint);
+        return new WorkerFetchResult(workers, "workers", fingerprint);
+    }
+
+    private PageFetch fetchPageV2(F2PoolProperties.Account account, JobShard shard, int page, int pageSize) {
+        if (!JobShard.owns(shard, account.getName())) {
+            return PageFetch.stop(page, null);
+        }
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("currency", account.getCoin());
+        payload.put("mining_user_name", account.getName());
+        payload.put("page", page);
+        payload.put("page_size", pageSize);
+        F2PoolClient.F2PoolRawResponse response = client.fetchWorkersV2(account, payload);
+        if (handleHttpError(account, response, "workers")) {
+            return PageFetch.stop(page, null);
+        }
+        if (!StringUtils.hasText(response.body())) {
+            alertService.raiseAlert(account.getName(), account.getCoin(), null,
+                    "API_ERROR", "WARN", "workers", "empty worker response");
+            return PageFetch.stop(page, null);
+        }
+        if (!JobShard.owns(shard, account.getName())) {
+            return PageFetch.stop(page, null);
+        }
+        String fingerprint = payloadService.persistPayload(
+                account.getName(),
+                account.getCoin(),
+                "workers",
+                response.body(),
+                response.fetchedAt());
+        F2PoolParser.WorkerPageV2 parsed = parser.parseWorkerPageV2(response.body(), account);
+        if (parsed.error() != null) {
+            F2PoolParser.V2Error err = parsed.error();
+            alertService.raiseAlert(account.getName(), account.getCoin(), null,
+                    "REMOTE_ERROR", "WARN", "workers",
+                    "code=" + err.code() + ", msg=" + err.msg());
+            return PageFetch.stop(page, fingerprint);
+        }
+        List<F2PoolWorkerSample> pageWorkers = parsed.workers();
+        if (pageWorkers.isEmpty()) {
+            OptionalInt count = parsed.listSize();
+            if (count.isPresent() && count.getAsInt() == 0) {
+                log.info("F2Pool workers empty (account={}, coin={}, page={})",
+                        account.getName(), account.getCoin(), page);
+            } else if (page == 1) {
+                alertService.raiseAlert(account.getName(), account.getCoin(), null,
+                        "PARSE_FAILED", "WARN", "workers", "no worker samples parsed");
+            }
+            return PageFetch.stop(page, fingerprint);
+        }
+        return new PageFetch(page, pageWorkers, fingerprint, parsed.total(), pageWorkers.size() >= pageSize);
     }
 
-    private WorkerFetchResult fetchWorkersFromAccountOverview(F2PoolProperties.Account account) {
+    private int accountConcurrency() {
+        return Math.max(1, properties.getWorkerSyncConcurrency());
+    }
+
+    /**
+     * 分页并发：账户并发 × 分页并发不超过 provider 舱壁，避免自身请求触发 BULKHEAD_FULL。
+     */
+    private int pageConcurrency() {
+        int bulkheadShare = Math.max(1, outboundProperties.getMaxConcurrentPerProvider()) / accountConcurrency();
+        return Math.max(1, Math.min(properties.getWorkerPageConcurrency(), bulkheadShare));
+    }
+
+    private WorkerFetchResult fetchWorkersFromAccountOverview(F2PoolProperties.Account account, JobShard shard) {
         F2PoolClient.F2PoolRawResponse response = client.fetchAccountOverview(account);
         if (handleHttpError(account, response, "account_overview")) {
-            return new WorkerFetchResult(Collections.emptyList(), null);
+            return new WorkerFetchResult(Collections.emptyList(), null, null);
         }
         if (response == null || !StringUtils.hasText(response.body())) {
             alertService.raiseAlert(account.getName(), account.getCoin(), null,
                     "API_ERROR", "WARN", "account_overview", "empty account overview response");
-            return new WorkerFetchResult(Collections.emptyList(), null);
+            return new WorkerFetchResult(Collections.emptyList(), null, null);
+        }
+        if (!JobShard.owns(shard, account.getName())) {
+            return new WorkerFetchResult(Collections.emptyList(), null, null);
         }
         String fingerprint = payloadService.persistPayload(
                 account.getName(),
@@ -243,7 +386,7 @@ public class F2PoolWorkerSyncService {
             alertService.raiseAlert(account.getName(), account.getCoin(), null,
                     "PARSE_FAILED", "WARN", "account_overview", "no worker samples parsed");
         }
-        return new WorkerFetchResult(workers, fingerprint);
+        return new WorkerFetchResult(workers, "account_overview_workers", fingerprint);
     }
 
     private boolean isStale(Instant lastShareAt, Instant now, int staleSeconds) {
@@ -0,0 +1,116 @@
+package com.slb.mining_backend.common.http;
+
+import com.slb.mining_backend.config.OutboundCallProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.offset;
+
+class OutboundCallGovernorTest {
+
+    private static final String URL = "https://api.c3pool.com/miner/a/stats";
+
+    private final AtomicLong nanos = new AtomicLong(1_000_000_000L);
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @Test
+    void circuitShouldOpenAfterFailuresAndCloseOnSuccessfulProbe() {
+        OutboundCallProperties properties = new OutboundCallProperties();
+        properties.setFailureThreshold(2);
+        properties.setOpenSeconds(30);
+        OutboundCallGovernor.Channel channel = newGovernor(properties).channel("c3pool", 1000d);
+        AtomicInteger calls = new AtomicInteger();
+
+        for (int i = 0; i < 2; i++) {
+            assertThatThrownBy(() -> channel.execute("/stats", URL, null, () -> {
+                calls.incrementAndGet();
+                return Mono.<String>error(status(HttpStatus.SERVICE_UNAVAILABLE));
+            }).block()).isInstanceOf(WebClientResponseException.class);
+        }
+        assertThatThrownBy(() -> channel.execute("/stats", URL, null, () -> {
+            calls.incrementAndGet();
+            return Mono.just("ok");
+        }).block()).isInstanceOfSatisfying(OutboundCallRejectedException.class,
+                ex -> assertThat(ex.getReason()).isEqualTo(OutboundCallRejectedException.Reason.CIRCUIT_OPEN));
+        assertThat(calls.get()).isEqualTo(2);
+        assertThat(registry.get("slb.outbound.circuit.open").gauge().value()).isEqualTo(1d);
+
+        // 熔断到期后放行一个探测请求，成功即恢复
+        nanos.addAndGet(Duration.ofSeconds(31).toNanos());
+        assertThat(channel.execute("/stats", URL, null, () -> Mono.just("ok")).block()).isEqualTo("ok");
+        assertThat(registry.get("slb.outbound.circuit.open").gauge().value()).isZero();
+    }
+
+    @Test
+    void throttledResponsesShouldSlowDownPermitsUntilRecovered() {
+        OutboundCallProperties properties = new OutboundCallProperties();
+        properties.setFailureThreshold(100);
+        OutboundCallGovernor.Channel channel = newGovernor(properties).channel("f2pool", 1d);
+
+        assertThatThrownBy(() -> channel.execute("/v2/x", URL, null,
+                () -> Mono.<String>error(status(HttpStatus.TOO_MANY_REQUESTS))).block())
+                .isInstanceOf(WebClientResponseException.class);
+        assertThat(registry.get("slb.outbound.rate.ratio").gauge().value()).isEqualTo(0.5d);
+
+        // 之后的许可按降速后的间隔（2 秒）发放；预计等待超过截止时间的调用被拒绝且不消耗许可
+        nanos.addAndGet(Duration.ofSeconds(1).toNanos());
+        assertThat(channel.execute("/v2/x", URL, Duration.ZERO, () -> Mono.just("ok")).block()).isEqualTo("ok");
+        assertThat(registry.get("slb.outbound.rate.ratio").gauge().value()).isCloseTo(0.55d, offset(1e-9));
+
+        nanos.addAndGet(Duration.ofSeconds(1).toNanos());
+        assertThatThrownBy(() -> channel.execute("/v2/x", URL, Duration.ofMillis(500), () -> Mono.just("ok")).block())
+                .isInstanceOfSatisfying(OutboundCallRejectedException.class,
+                        ex -> assertThat(ex.getReason()).isEqualTo(OutboundCallRejectedException.Reason.RATE_LIMITED));
+
+        nanos.addAndGet(Duration.ofSeconds(1).toNanos());
+        assertThat(channel.execute("/v2/x", URL, Duration.ZERO, () -> Mono.just("ok")).block()).isEqualTo("ok");
+        assertThat(registry.get("slb.outbound.calls").tag("outcome", "failure").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    void bulkheadRejectionShouldRefundTheReservedPermit() {
+        OutboundCallProperties properties = new OutboundCallProperties();
+        properties.setMaxConcurrentPerProvider(1);
+        OutboundCallGovernor.Channel channel = newGovernor(properties).channel("c3pool", 1d);
+        Sinks.One<String> slow = Sinks.one();
+        channel.execute("/stats", URL, Duration.ZERO, slow::asMono).subscribe();
+
+        nanos.addAndGet(Duration.ofSeconds(1).toNanos());
+        assertThatThrownBy(() -> channel.execute("/stats", URL, Duration.ZERO, () -> Mono.just("ok")).block())
+                .isInstanceOfSatisfying(OutboundCallRejectedException.class,
+                        ex -> assertThat(ex.getReason()).isEqualTo(OutboundCallRejectedException.Reason.BULKHEAD_FULL));
+        slow.tryEmitValue("done");
+
+        // 被舱壁拒绝的调用没有发出请求，许可已归还：同一时刻的下一次调用无需等待
+        assertThat(channel.execute("/stats", URL, Duration.ZERO, () -> Mono.just("ok")).block()).isEqualTo("ok");
+    }
+
+    @Test
+    void channelShouldRejectConflictingRateForSameProvider() {
+        OutboundCallGovernor governor = newGovernor(new OutboundCallProperties());
+        OutboundCallGovernor.Channel channel = governor.channel("c3pool", 1d);
+
+        assertThat(governor.channel("c3pool", 1d)).isSameAs(channel);
+        assertThatThrownBy(() -> governor.channel("c3pool", 2d))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("c3pool");
+    }
+
+    private OutboundCallGovernor newGovernor(OutboundCallProperties properties) {
+        return new OutboundCallGovernor(properties, registry, nanos::get);
+    }
+
+    private static WebClientResponseException status(HttpStatus status) {
+        return WebClientResponseException.create(status.value(), status.getReasonPhrase(), null, null, null);
+    }
+}
@@ -0,0 +1,152 @@
+package com.slb.mining_backend.common.job;
+
+import com.slb.mining_backend.config.JobCoordinatorProperties;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.dao.DataAccessResourceFailureException;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class JobCoordinatorTest {
+
+    private final JobLeaseMapper mapper = Mockito.mock(JobLeaseMapper.class);
+    private final AtomicLong tokens = new AtomicLong();
+
+    @Test
+    void exclusiveJobShouldSkipWhenLeaseIsHeldElsewhere() {
+        JobCoordinator coordinator = newCoordinator();
+        when(mapper.tryAcquire(eq("job"), anyString(), anyLong())).thenReturn(0);
+        AtomicInteger runs = new AtomicInteger();
+
+        boolean ran = coordinator.runExclusive("job", runs::incrementAndGet);
+
+        assertThat(ran).isFalse();
+        assertThat(runs.get()).isZero();
+        verify(mapper, never()).release(anyString(), anyString(), anyLong(), anyLong());
+    }
+
+    @Test
+    void exclusiveJobShouldExposeLeaseAndReleaseWithMinHold() {
+        JobCoordinator coordinator = newCoordinator();
+        stubAcquireAlwaysSucceeds();
+        AtomicReference<JobLease> seen = new AtomicReference<>();
+
+        boolean ran = coordinator.runExclusive("job", () -> seen.set(JobLease.current()));
+
+        assertThat(ran).isTrue();
+        assertThat(seen.get()).isNotNull();
+        assertThat(seen.get().getFencingToken()).isPositive();
+        assertThat(JobLease.current()).isNull();
+        verify(mapper).release(eq("job"), eq(seen.get().getOwner()), eq(seen.get().getFencingToken()), eq(10_000L));
+    }
+
+    @Test
+    void shardedJobShouldHandOverShardsWhenNodesJoin() throws Throwable {
+        JobCoordinator coordinator = newCoordinator();
+        stubAcquireAlwaysSucceeds();
+        AtomicReference<JobShard> seen = new AtomicReference<>();
+
+        when(mapper.countActiveNodes(anyLong())).thenReturn(1);
+        coordinator.heartbeat();
+        coordinator.invokeSharded("sync", 8, () -> seen.set(JobShard.current()));
+        assertThat(seen.get().ownedCount()).isEqualTo(8);
+        assertThat(JobShard.owns("any-account")).isTrue();
+
+        // 第二个节点上线：下一次执行前归还超额分片
+        when(mapper.countActiveNodes(anyLong())).thenReturn(2);
+        coordinator.heartbeat();
+        coordinator.invokeSharded("sync", 8, () -> seen.set(JobShard.current()));
+        assertThat(seen.get().ownedCount()).isEqualTo(4);
+        verify(mapper, times(4)).release(startsWith("sync#"), anyString(), anyLong(), eq(0L));
+        verify(mapper, times(8)).tryAcquire(startsWith("sync#"), anyString(), anyLong());
+    }
+
+    @Test
+    void failedRenewalShouldMarkRunningLeaseLost() {
+        JobCoordinator coordinator = newCoordinator();
+        stubAcquireAlwaysSucceeds();
+        when(mapper.renew(anyString(), anyString(), anyLong(), anyLong())).thenReturn(0);
+        AtomicReference<Boolean> lostInside = new AtomicReference<>();
+
+        coordinator.runExclusive("settle", () -> {
+            coordinator.renewAll();
+            lostInside.set(JobLease.currentLost());
+        });
+
+        assertThat(lostInside.get()).isTrue();
+        // 已被接管的租约不再释放，避免覆盖新持有者
+        verify(mapper, never()).release(anyString(), anyString(), anyLong(), anyLong());
+    }
+
+    @Test
+    void exclusiveJobShouldRunWithoutLeaseWhenLeaseStoreIsUnavailable() {
+        JobCoordinator coordinator = newCoordinator();
+        when(mapper.tryAcquire(anyString(), anyString(), anyLong()))
+                .thenThrow(new DataAccessResourceFailureException("table missing"));
+        AtomicReference<JobLease> seen = new AtomicReference<>();
+        AtomicInteger runs = new AtomicInteger();
+
+        boolean ran = coordinator.runExclusive("job", () -> {
+            runs.incrementAndGet();
+            seen.set(JobLease.current());
+        });
+
+        assertThat(ran).isTrue();
+        assertThat(runs.get()).isEqualTo(1);
+        assertThat(seen.get()).isNull();
+    }
+
+    @Test
+    void shardedJobShouldRunAllShardsWhenLeaseStoreIsUnavailable() throws Throwable {
+        JobCoordinator coordinator = newCoordinator();
+        when(mapper.tryAcquire(anyString(), anyString(), anyLong()))
+                .thenThrow(new DataAccessResourceFailureException("db down"));
+        AtomicReference<Boolean> ownsInside = new AtomicReference<>();
+
+        boolean ran = coordinator.invokeSharded("sync", 8, () -> ownsInside.set(JobShard.owns("any-account")));
+
+        assertThat(ran).isTrue();
+        assertThat(ownsInside.get()).isTrue();
+    }
+
+    @Test
+    void lostShardLeaseShouldStopOwningItsKeysMidRun() throws Throwable {
+        JobCoordinator coordinator = newCoordinator();
+        stubAcquireAlwaysSucceeds();
+        when(mapper.renew(anyString(), anyString(), anyLong(), anyLong())).thenReturn(0);
+        AtomicReference<Boolean> before = new AtomicReference<>();
+        AtomicReference<Boolean> after = new AtomicReference<>();
+
+        coordinator.invokeSharded("sync", 8, () -> {
+            before.set(JobShard.owns("any-account"));
+            coordinator.renewAll();
+            after.set(JobShard.owns("any-account"));
+        });
+
+        assertThat(before.get()).isTrue();
+        assertThat(after.get()).isFalse();
+    }
+
+    private JobCoordinator newCoordinator() {
+        JobCoordinatorProperties properties = new JobCoordinatorProperties();
+        properties.setNodeId("node-a");
+        return new JobCoordinator(mapper, properties);
+    }
+
+    private void stubAcquireAlwaysSucceeds() {
+        when(mapper.tryAcquire(anyString(), anyString(), anyLong())).thenReturn(1);
+        when(mapper.selectFencingToken(anyString(), anyString())).thenAnswer(invocation -> tokens.incrementAndGet());
+    }
+}
@@ -0,0 +1,66 @@
+package com.slb.mining_backend.common.security;
+
+import com.slb.mining_backend.config.PrincipalCacheProperties;
+import com.slb.mining_backend.modules.users.entity.User;
+import com.slb.mining_backend.modules.users.mapper.UserMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AuthenticatedPrincipalCacheTest {
+
+    private final UserMapper userMapper = Mockito.mock(UserMapper.class);
+    private final StringRedisTemplate redisTemplate = Mockito.mock(StringRedisTemplate.class);
+
+    @Test
+    void repeatedLookupsShouldQueryOnce() {
+        Mockito.when(userMapper.selectById(1L)).thenReturn(Optional.of(user(1L, 1)));
+        AuthenticatedPrincipalCache cache = newCache();
+
+        cache.get(1L);
+        cache.get(1L);
+
+        Mockito.verify(userMapper, Mockito.times(1)).selectById(1L);
+    }
+
+    @Test
+    void disabledUserShouldBeVisibleAfterInvalidation() {
+        Mockito.when(userMapper.selectById(1L)).thenReturn(Optional.of(user(1L, 1)), Optional.of(user(1L, 0)));
+        AuthenticatedPrincipalCache cache = newCache();
+        assertThat(cache.get(1L).getStatus()).isEqualTo(1);
+
+        cache.invalidateAfterCommit(1L);
+
+        assertThat(cache.get(1L).getStatus()).isZero();
+        Mockito.verify(redisTemplate).convertAndSend("auth:principal:invalidate", "1");
+    }
+
+    @Test
+    void unknownUserShouldNotBeCached() {
+        Mockito.when(userMapper.selectById(9L)).thenReturn(Optional.empty());
+        AuthenticatedPrincipalCache cache = newCache();
+
+        assertThat(cache.get(9L)).isNull();
+        assertThat(cache.get(9L)).isNull();
+
+        Mockito.verify(userMapper, Mockito.times(2)).selectById(9L);
+    }
+
+    private AuthenticatedPrincipalCache newCache() {
+        return new AuthenticatedPrincipalCache(userMapper, redisTemplate, Mockito.mock(RedisMessageListenerContainer.class),
+                new PrincipalCacheProperties(), new SimpleMeterRegistry());
+    }
+
+    private static User user(Long id, int status) {
+        User user = new User();
+        user.setId(id);
+        user.setStatus(status);
+        return user;
+    }
+}
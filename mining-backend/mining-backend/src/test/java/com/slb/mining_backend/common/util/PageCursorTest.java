@@ -0,0 +1,49 @@
+package com.slb.mining_backend.common.util;
+
+import com.slb.mining_backend.common.exception.BizException;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PageCursorTest {
+
+    @Test
+    void encodedCursorShouldRoundTrip() {
+        PageCursor cursor = new PageCursor("deviceName", "asc", "矿机|#1", "dev-001");
+
+        String encoded = cursor.encode();
+
+        assertThat(encoded).doesNotContain("=", "+", "/");
+        assertThat(PageCursor.decode(encoded, "deviceName", "asc")).isEqualTo(cursor);
+    }
+
+    @Test
+    void blankCursorShouldMeanFirstPage() {
+        assertThat(PageCursor.decode(null, "createTime", "desc")).isNull();
+        assertThat(PageCursor.decode(" ", "createTime", "desc")).isNull();
+    }
+
+    @Test
+    void cursorShouldBeRejectedWhenSortChanges() {
+        String encoded = new PageCursor("createTime", "desc", "2026-01-01T00:00", "dev-001").encode();
+
+        assertThatThrownBy(() -> PageCursor.decode(encoded, "createTime", "asc"))
+                .isInstanceOf(BizException.class);
+        assertThatThrownBy(() -> PageCursor.decode(encoded, "deviceName", "desc"))
+                .isInstanceOf(BizException.class);
+    }
+
+    @Test
+    void malformedCursorShouldBeRejected() {
+        assertThatThrownBy(() -> PageCursor.decode("not-a-cursor", "createTime", "desc"))
+                .isInstanceOf(BizException.class);
+    }
+
+    @Test
+    void sizeShouldBeClamped() {
+        assertThat(PageCursor.clampSize(0)).isEqualTo(1);
+        assertThat(PageCursor.clampSize(20)).isEqualTo(20);
+        assertThat(PageCursor.clampSize(10_000)).isEqualTo(PageCursor.MAX_PAGE_SIZE);
+    }
+}
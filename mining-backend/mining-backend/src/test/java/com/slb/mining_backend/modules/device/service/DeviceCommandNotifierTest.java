@@ -0,0 +1,74 @@
+package com.slb.mining_backend.modules.device.service;
+
+import com.slb.mining_backend.modules.device.config.DeviceCommandPushProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class DeviceCommandNotifierTest {
+
+    private final StringRedisTemplate redisTemplate = Mockito.mock(StringRedisTemplate.class);
+    @SuppressWarnings("unchecked")
+    private final ValueOperations<String, String> valueOps = Mockito.mock(ValueOperations.class);
+    private final DeviceCommandWaiterRegistry waiterRegistry = new DeviceCommandWaiterRegistry();
+    private final DeviceCommandNotifier notifier = new DeviceCommandNotifier(redisTemplate,
+            Mockito.mock(RedisMessageListenerContainer.class), waiterRegistry, new DeviceCommandPushProperties());
+
+    @AfterEach
+    void tearDown() {
+        notifier.shutdown();
+    }
+
+    @Test
+    void onlyExplicitNoneMarkerShouldSkipDatabaseLookup() {
+        when(redisTemplate.opsForValue()).thenReturn(valueOps);
+
+        when(valueOps.get("device:command:pending:dev-1")).thenReturn(null);
+        assertThat(notifier.mayHavePendingCommand("dev-1")).isTrue();
+        when(valueOps.get("device:command:pending:dev-1")).thenReturn("1");
+        assertThat(notifier.mayHavePendingCommand("dev-1")).isTrue();
+        when(valueOps.get("device:command:pending:dev-1")).thenReturn("0");
+        assertThat(notifier.mayHavePendingCommand("dev-1")).isFalse();
+        when(valueOps.get("device:command:pending:dev-1")).thenThrow(new RedisConnectionFailureException("down"));
+        assertThat(notifier.mayHavePendingCommand("dev-1")).isTrue();
+    }
+
+    @Test
+    void noneMarkerShouldNotOverwriteExistingPendingMarker() {
+        when(redisTemplate.opsForValue()).thenReturn(valueOps);
+
+        notifier.markNoPendingCommand("dev-1");
+
+        verify(valueOps).setIfAbsent(eq("device:command:pending:dev-1"), eq("0"), any());
+    }
+
+    @Test
+    void signalShouldRunWaitersOffTheCallingThread() throws InterruptedException {
+        Thread caller = Thread.currentThread();
+        CountDownLatch woken = new CountDownLatch(1);
+        Thread[] runner = new Thread[1];
+        waiterRegistry.register("dev-1", () -> {
+            runner[0] = Thread.currentThread();
+            woken.countDown();
+        }, 4);
+
+        notifier.signalAsync("dev-1");
+
+        assertThat(woken.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(runner[0]).isNotSameAs(caller);
+        assertThat(runner[0].getName()).startsWith("device-command-signal-");
+    }
+}
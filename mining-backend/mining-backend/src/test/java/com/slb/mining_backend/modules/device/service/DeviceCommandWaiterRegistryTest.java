@@ -0,0 +1,48 @@
+package com.slb.mining_backend.modules.device.service;
+
+import com.slb.mining_backend.common.exception.BizException;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class DeviceCommandWaiterRegistryTest {
+
+    @Test
+    void signalShouldWakeAllWaitersOfDeviceOnce() {
+        DeviceCommandWaiterRegistry registry = new DeviceCommandWaiterRegistry();
+        AtomicInteger woken = new AtomicInteger();
+        registry.register("dev-1", woken::incrementAndGet, 4);
+        registry.register("dev-1", woken::incrementAndGet, 4);
+        registry.register("dev-2", woken::incrementAndGet, 4);
+
+        assertThat(registry.signal("dev-1")).isEqualTo(2);
+        assertThat(registry.signal("dev-1")).isZero();
+        assertThat(woken.get()).isEqualTo(2);
+        assertThat(registry.size()).isEqualTo(1);
+    }
+
+    @Test
+    void cancelledWaiterShouldNotBeWoken() {
+        DeviceCommandWaiterRegistry registry = new DeviceCommandWaiterRegistry();
+        AtomicInteger woken = new AtomicInteger();
+        Runnable cancel = registry.register("dev-1", woken::incrementAndGet, 4);
+
+        cancel.run();
+
+        assertThat(registry.signal("dev-1")).isZero();
+        assertThat(woken.get()).isZero();
+        assertThat(registry.size()).isZero();
+    }
+
+    @Test
+    void registerShouldRejectWaitersBeyondLimit() {
+        DeviceCommandWaiterRegistry registry = new DeviceCommandWaiterRegistry();
+        registry.register("dev-1", () -> { }, 1);
+
+        assertThatThrownBy(() -> registry.register("dev-1", () -> { }, 1))
+                .isInstanceOf(BizException.class);
+    }
+}
@@ -0,0 +1,133 @@
+package com.slb.mining_backend.modules.device.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.slb.mining_backend.modules.device.config.DeviceMetadataCacheProperties;
+import com.slb.mining_backend.modules.device.config.DevicePresenceProperties;
+import com.slb.mining_backend.modules.device.dto.DeviceGpuHashrateItemDto;
+import com.slb.mining_backend.modules.device.dto.DeviceGpuHashrateReportReqDto;
+import com.slb.mining_backend.modules.device.entity.Device;
+import com.slb.mining_backend.modules.device.entity.DeviceGpuHashrateReport;
+import com.slb.mining_backend.modules.device.mapper.DeviceGpuHashrateReportMapper;
+import com.slb.mining_backend.modules.device.mapper.DeviceHashrateReportMapper;
+import com.slb.mining_backend.modules.device.mapper.DeviceMapper;
+import com.slb.mining_backend.modules.device.mapper.DeviceRemoteCommandMapper;
+import com.slb.mining_backend.modules.earnings.service.MarketDataService;
+import com.slb.mining_backend.modules.invite.config.InviteProperties;
+import com.slb.mining_backend.modules.invite.service.InviteService;
+import com.slb.mining_backend.modules.system.service.PlatformSettingsService;
+import com.slb.mining_backend.modules.users.mapper.UserMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class DeviceGpuHashrateReportBatchTest {
+
+    private final DeviceMapper deviceMapper = Mockito.mock(DeviceMapper.class);
+    private final DeviceGpuHashrateReportMapper gpuMapper = Mockito.mock(DeviceGpuHashrateReportMapper.class);
+    private final DeviceHashrateReportBuffer buffer = Mockito.mock(DeviceHashrateReportBuffer.class);
+
+    @Test
+    void gpuReportShouldBeWrittenAsOneMultiRowUpsertWithPerAlgorithmTotals() {
+        DeviceService service = newService();
+        DeviceGpuHashrateReportReqDto dto = new DeviceGpuHashrateReportReqDto();
+        dto.setBucketTime(LocalDateTime.of(2026, 10, 1, 12, 30, 42));
+        dto.setGpus(List.of(
+                gpu(0, 45.5, "octopus"),
+                gpu(1, 30.0, "kawpow"),
+                gpu(2, 10.25, "octopus"),
+                gpu(-1, 99.0, "octopus"),
+                gpu(3, -1.0, "octopus")));
+
+        service.reportGpuHashrateDetail("dev-1", dto, 1L);
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<DeviceGpuHashrateReport>> rows = ArgumentCaptor.forClass(List.class);
+        verify(gpuMapper).batchUpsertMinuteReports(rows.capture());
+        verify(gpuMapper).batchUpsertLatest(rows.getValue());
+        verify(gpuMapper, never()).upsertMinuteReport(any());
+        assertThat(rows.getValue()).extracting(DeviceGpuHashrateReport::getGpuIndex).containsExactly(0, 1, 2);
+        assertThat(rows.getValue()).allSatisfy(row -> {
+            assertThat(row.getDeviceId()).isEqualTo("dev-1");
+            assertThat(row.getUserId()).isEqualTo(1L);
+            assertThat(row.getBucketTime()).isEqualTo(LocalDateTime.of(2026, 10, 1, 12, 30));
+        });
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Device>> devices = ArgumentCaptor.forClass(List.class);
+        verify(deviceMapper).batchUpdateReportedStatus(devices.capture());
+        assertThat(devices.getValue()).singleElement().satisfies(device -> {
+            assertThat(device.getGpuHashrate()).isEqualTo(85.75);
+            assertThat(device.getGpuHashrateOctopus()).isEqualTo(55.75);
+            assertThat(device.getGpuHashrateKawpow()).isEqualTo(30.0);
+            assertThat(device.getCpuHashrate()).isNull();
+        });
+    }
+
+    @Test
+    void bufferedModeShouldEnqueueInsteadOfWriting() {
+        when(buffer.isEnabled()).thenReturn(true);
+        DeviceService service = newService();
+        DeviceGpuHashrateReportReqDto dto = new DeviceGpuHashrateReportReqDto();
+        dto.setGpus(new ArrayList<>(List.of(gpu(0, 45.5, "octopus"))));
+
+        service.reportGpuHashrateDetail("dev-1", dto, 1L);
+
+        verify(buffer).enqueueGpuReports(anyList(), any(Device.class));
+        verify(gpuMapper, never()).batchUpsertMinuteReports(anyList());
+        verify(deviceMapper, never()).batchUpdateReportedStatus(anyList());
+    }
+
+    private DeviceService newService() {
+        Device device = new Device();
+        device.setId("dev-1");
+        device.setUserId(1L);
+        when(deviceMapper.findById("dev-1")).thenReturn(Optional.of(device));
+        when(deviceMapper.findByIdAndUserId("dev-1", 1L)).thenReturn(Optional.of(device));
+        return new DeviceService(
+                deviceMapper,
+                Mockito.mock(DeviceHashrateReportMapper.class),
+                gpuMapper,
+                Mockito.mock(DeviceRemoteCommandMapper.class),
+                new ObjectMapper(),
+                Mockito.mock(MarketDataService.class),
+                Mockito.mock(UserMapper.class),
+                Mockito.mock(InviteService.class),
+                Mockito.mock(InviteProperties.class),
+                Mockito.mock(PlatformSettingsService.class),
+                buffer,
+                new LocalDevicePresenceRegistry(),
+                new DevicePresenceProperties(),
+                Mockito.mock(DeviceHashrateRollupService.class),
+                Mockito.mock(DeviceCommandNotifier.class),
+                Mockito.mock(HashrateSummaryCache.class),
+                new DeviceMetadataCache(deviceMapper,
+                        Mockito.mock(StringRedisTemplate.class),
+                        Mockito.mock(RedisMessageListenerContainer.class),
+                        new DeviceMetadataCacheProperties(),
+                        new SimpleMeterRegistry()));
+    }
+
+    private static DeviceGpuHashrateItemDto gpu(int index, double hashrate, String algorithm) {
+        DeviceGpuHashrateItemDto item = new DeviceGpuHashrateItemDto();
+        item.setIndex(index);
+        item.setName("RTX3080");
+        item.setHashrate(hashrate);
+        item.setAlgorithm(algorithm);
+        return item;
+    }
+}
@@ -0,0 +1,105 @@
+package com.slb.mining_backend.modules.device.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.slb.mining_backend.modules.device.config.DeviceMetadataCacheProperties;
+import com.slb.mining_backend.modules.device.config.DevicePresenceProperties;
+import com.slb.mining_backend.modules.device.mapper.DeviceGpuHashrateReportMapper;
+import com.slb.mining_backend.modules.device.mapper.DeviceHashrateReportMapper;
+import com.slb.mining_backend.modules.device.mapper.DeviceMapper;
+import com.slb.mining_backend.modules.device.mapper.DeviceRemoteCommandMapper;
+import com.slb.mining_backend.modules.device.vo.DeviceGpuHashrateSnapshotVo;
+import com.slb.mining_backend.modules.earnings.service.MarketDataService;
+import com.slb.mining_backend.modules.invite.config.InviteProperties;
+import com.slb.mining_backend.modules.invite.service.InviteService;
+import com.slb.mining_backend.modules.system.service.PlatformSettingsService;
+import com.slb.mining_backend.modules.users.mapper.UserMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class DeviceGpuLatestReadTest {
+
+    private final DeviceGpuHashrateReportMapper gpuMapper = Mockito.mock(DeviceGpuHashrateReportMapper.class);
+    private final MarketDataService marketDataService = Mockito.mock(MarketDataService.class);
+
+    @Test
+    void snapshotsShouldBeReadFromLatestTableWithOfflineCutoff() {
+        DeviceGpuHashrateSnapshotVo gpu0 = snapshot("dev-1", 0, "45.5");
+        DeviceGpuHashrateSnapshotVo gpu1 = snapshot("dev-1", 1, "30");
+        when(gpuMapper.selectLatestByUser(eq(1L), any())).thenReturn(List.of(gpu0, gpu1));
+        when(marketDataService.getPoolTotalHashrate()).thenReturn(BigDecimal.ZERO);
+        DeviceService service = newService();
+
+        LocalDateTime before = LocalDateTime.now();
+        List<DeviceGpuHashrateSnapshotVo> snapshots = service.getLatestGpuHashrateSnapshots(1L);
+
+        ArgumentCaptor<LocalDateTime> cutoff = ArgumentCaptor.forClass(LocalDateTime.class);
+        verify(gpuMapper).selectLatestByUser(eq(1L), cutoff.capture());
+        assertThat(cutoff.getValue()).isBetween(before.minusMinutes(5).minusSeconds(1), LocalDateTime.now().minusMinutes(5));
+        assertThat(snapshots).containsExactly(gpu0, gpu1);
+        assertThat(snapshots).allSatisfy(s -> assertThat(s.getGpuDailyIncomeCny()).isNotNull());
+        verify(gpuMapper, Mockito.never()).selectByDeviceSince(anyLong(), any(), any());
+    }
+
+    @Test
+    void emptyLatestTableShouldSkipIncomeEstimation() {
+        when(gpuMapper.selectLatestByUser(eq(1L), any())).thenReturn(List.of());
+        DeviceService service = newService();
+
+        assertThat(service.getLatestGpuHashrateSnapshots(1L)).isEmpty();
+        verifyNoInteractions(marketDataService);
+    }
+
+    private DeviceService newService() {
+        DeviceMapper deviceMapper = Mockito.mock(DeviceMapper.class);
+        DeviceService service = new DeviceService(
+                deviceMapper,
+                Mockito.mock(DeviceHashrateReportMapper.class),
+                gpuMapper,
+                Mockito.mock(DeviceRemoteCommandMapper.class),
+                new ObjectMapper(),
+                marketDataService,
+                Mockito.mock(UserMapper.class),
+                Mockito.mock(InviteService.class),
+                Mockito.mock(InviteProperties.class),
+                Mockito.mock(PlatformSettingsService.class),
+                Mockito.mock(DeviceHashrateReportBuffer.class),
+                new LocalDevicePresenceRegistry(),
+                new DevicePresenceProperties(),
+                Mockito.mock(DeviceHashrateRollupService.class),
+                Mockito.mock(DeviceCommandNotifier.class),
+                Mockito.mock(HashrateSummaryCache.class),
+                new DeviceMetadataCache(deviceMapper,
+                        Mockito.mock(StringRedisTemplate.class),
+                        Mockito.mock(RedisMessageListenerContainer.class),
+                        new DeviceMetadataCacheProperties(),
+                        new SimpleMeterRegistry()));
+        ReflectionTestUtils.setField(service, "deviceOfflineThresholdMinutes", 5L);
+        return service;
+    }
+
+    private static DeviceGpuHashrateSnapshotVo snapshot(String deviceId, int gpuIndex, String hashrate) {
+        DeviceGpuHashrateSnapshotVo vo = new DeviceGpuHashrateSnapshotVo();
+        vo.setDeviceId(deviceId);
+        vo.setGpuIndex(gpuIndex);
+        vo.setHashrate(new BigDecimal(hashrate));
+        vo.setAlgorithm("octopus");
+        return vo;
+    }
+}
@@ -0,0 +1,107 @@
+package com.slb.mining_backend.modules.device.service;
+
+import com.slb.mining_backend.common.exception.BizException;
+import com.slb.mining_backend.modules.device.config.DeviceReportBufferProperties;
+import com.slb.mining_backend.modules.device.entity.Device;
+import com.slb.mining_backend.modules.device.entity.DeviceHashrateReport;
+import com.slb.mining_backend.modules.device.mapper.DeviceGpuHashrateReportMapper;
+import com.slb.mining_backend.modules.device.mapper.DeviceHashrateReportMapper;
+import com.slb.mining_backend.modules.device.mapper.DeviceMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class DeviceHashrateReportBufferTest {
+
+    private static final LocalDateTime MINUTE = LocalDateTime.of(2026, 10, 1, 12, 0);
+
+    private final DeviceHashrateReportMapper reportMapper = Mockito.mock(DeviceHashrateReportMapper.class);
+    private final DeviceMapper deviceMapper = Mockito.mock(DeviceMapper.class);
+    private final DeviceReportBufferProperties properties = new DeviceReportBufferProperties();
+
+    @Test
+    void sameBucketShouldKeepLastReportAndNewestDeviceStatus() {
+        properties.setEnabled(true);
+        DeviceHashrateReportBuffer buffer = newBuffer();
+
+        buffer.enqueue(report("dev-1", MINUTE, "100"), device("dev-1", MINUTE.plusSeconds(50), "100"));
+        buffer.enqueue(report("dev-1", MINUTE, "120"), device("dev-1", MINUTE.plusSeconds(55), "120"));
+        // 乱序到达的旧状态不覆盖较新的状态
+        buffer.enqueue(report("dev-1", MINUTE, "130"), device("dev-1", MINUTE.plusSeconds(10), "90"));
+        buffer.scheduledFlush();
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<DeviceHashrateReport>> reports = ArgumentCaptor.forClass(List.class);
+        verify(reportMapper).batchUpsertMinuteReports(reports.capture());
+        assertThat(reports.getValue()).singleElement()
+                .satisfies(r -> assertThat(r.getCpuHashrate()).isEqualByComparingTo("130"));
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Device>> devices = ArgumentCaptor.forClass(List.class);
+        verify(deviceMapper).batchUpdateReportedStatus(devices.capture());
+        assertThat(devices.getValue()).singleElement().satisfies(d -> {
+            assertThat(d.getLastOnlineTime()).isEqualTo(MINUTE.plusSeconds(55));
+            assertThat(d.getCpuHashrate()).isEqualByComparingTo("120");
+        });
+    }
+
+    @Test
+    void fullBufferShouldRejectNewBucketsButStillCoalesceExistingOnes() {
+        properties.setEnabled(true);
+        properties.setMaxPendingReports(1);
+        properties.setOfferTimeoutMs(0);
+        DeviceHashrateReportBuffer buffer = newBuffer();
+
+        buffer.enqueue(report("dev-1", MINUTE, "100"), null);
+        buffer.enqueue(report("dev-1", MINUTE, "110"), null);
+        assertThatThrownBy(() -> buffer.enqueue(report("dev-2", MINUTE, "100"), null))
+                .isInstanceOf(BizException.class);
+
+        // 刷盘失败：数据回填且仍占用容量
+        doThrow(new org.springframework.dao.DataAccessResourceFailureException("down"))
+                .when(reportMapper).batchUpsertMinuteReports(anyList());
+        buffer.scheduledFlush();
+        assertThatThrownBy(() -> buffer.enqueue(report("dev-2", MINUTE, "100"), null))
+                .isInstanceOf(BizException.class);
+
+        // 刷盘成功后释放容量
+        Mockito.reset(reportMapper);
+        buffer.scheduledFlush();
+        buffer.enqueue(report("dev-2", MINUTE, "100"), null);
+        verify(reportMapper, times(1)).batchUpsertMinuteReports(anyList());
+    }
+
+    private DeviceHashrateReportBuffer newBuffer() {
+        return new DeviceHashrateReportBuffer(reportMapper, Mockito.mock(DeviceGpuHashrateReportMapper.class),
+                deviceMapper, properties, Mockito.mock(HashrateSummaryCache.class), new SimpleMeterRegistry());
+    }
+
+    private static DeviceHashrateReport report(String deviceId, LocalDateTime bucket, String cpu) {
+        DeviceHashrateReport report = new DeviceHashrateReport();
+        report.setUserId(1L);
+        report.setDeviceId(deviceId);
+        report.setBucketTime(bucket);
+        report.setCpuHashrate(new BigDecimal(cpu));
+        return report;
+    }
+
+    private static Device device(String deviceId, LocalDateTime lastOnline, String cpu) {
+        Device device = new Device();
+        device.setId(deviceId);
+        device.setUserId(1L);
+        device.setLastOnlineTime(lastOnline);
+        device.setCpuHashrate(new BigDecimal(cpu));
+        return device;
+    }
+}
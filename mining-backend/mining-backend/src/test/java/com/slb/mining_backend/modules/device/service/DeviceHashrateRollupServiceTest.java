@@ -0,0 +1,108 @@
+package com.slb.mining_backend.modules.device.service;
+
+import com.slb.mining_backend.modules.device.config.DeviceHashrateRollupProperties;
+import com.slb.mining_backend.modules.device.mapper.DeviceGpuHashrateReportMapper;
+import com.slb.mining_backend.modules.device.mapper.DeviceHashrateReportMapper;
+import com.slb.mining_backend.modules.device.mapper.DeviceHashrateRollupMapper;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+
+class DeviceHashrateRollupServiceTest {
+
+    private final DeviceHashrateRollupMapper rollupMapper = Mockito.mock(DeviceHashrateRollupMapper.class);
+    private final DeviceHashrateReportMapper reportMapper = Mockito.mock(DeviceHashrateReportMapper.class);
+    private final DeviceGpuHashrateReportMapper gpuReportMapper = Mockito.mock(DeviceGpuHashrateReportMapper.class);
+
+    @Test
+    void resolveTierShouldPickFinestTierWithinPointBudget() {
+        DeviceHashrateRollupService service = newService(new DeviceHashrateRollupProperties());
+
+        assertThat(service.resolveTierMinutes(60)).isEqualTo(DeviceHashrateRollupService.TIER_MINUTE);
+        assertThat(service.resolveTierMinutes(360)).isEqualTo(DeviceHashrateRollupService.TIER_MINUTE);
+        assertThat(service.resolveTierMinutes(24 * 60)).isEqualTo(DeviceHashrateRollupService.TIER_QUARTER_HOUR);
+        assertThat(service.resolveTierMinutes(7 * 24 * 60)).isEqualTo(DeviceHashrateRollupService.TIER_HOUR);
+        assertThat(service.resolveTierMinutes(30 * 24 * 60)).isEqualTo(DeviceHashrateRollupService.TIER_HOUR);
+    }
+
+    @Test
+    void disabledRollupShouldKeepMinuteBucketsAndLegacyWindow() {
+        DeviceHashrateRollupProperties properties = new DeviceHashrateRollupProperties();
+        properties.setEnabled(false);
+        DeviceHashrateRollupService service = newService(properties);
+
+        assertThat(service.resolveTierMinutes(24 * 60)).isEqualTo(DeviceHashrateRollupService.TIER_MINUTE);
+        assertThat(service.maxTrendMinutes()).isEqualTo(24 * 60);
+    }
+
+    @Test
+    void purgeShouldDeleteInBatchesUntilExhausted() {
+        DeviceHashrateRollupProperties properties = new DeviceHashrateRollupProperties();
+        properties.setPurgeBatchSize(100);
+        properties.setMinuteRetentionDays(7);
+        Mockito.when(reportMapper.deleteBefore(any(), eq(100))).thenReturn(100, 100, 7);
+        DeviceHashrateRollupService service = newService(properties);
+
+        service.purgeExpired();
+
+        Mockito.verify(reportMapper, Mockito.times(3)).deleteBefore(any(), eq(100));
+        Mockito.verify(gpuReportMapper, Mockito.times(1)).deleteBefore(any(), eq(100));
+        Mockito.verify(rollupMapper, Mockito.times(2)).deleteBefore(anyInt(), any(), eq(100));
+    }
+
+    @Test
+    void minuteBucketsShouldNotBePurgedByDefault() {
+        DeviceHashrateRollupService service = newService(new DeviceHashrateRollupProperties());
+
+        service.purgeExpired();
+
+        Mockito.verify(reportMapper, Mockito.never()).deleteBefore(any(), anyInt());
+        Mockito.verify(gpuReportMapper, Mockito.never()).deleteBefore(any(), anyInt());
+    }
+
+    @Test
+    void bucketStartShouldAlignToQuarterAndHourInLocalTime() {
+        LocalDateTime time = LocalDateTime.of(2026, 10, 1, 13, 44, 59);
+
+        assertThat(DeviceHashrateRollupService.bucketStart(time, DeviceHashrateRollupService.TIER_QUARTER_HOUR))
+                .isEqualTo(LocalDateTime.of(2026, 10, 1, 13, 30));
+        assertThat(DeviceHashrateRollupService.bucketStart(time, DeviceHashrateRollupService.TIER_HOUR))
+                .isEqualTo(LocalDateTime.of(2026, 10, 1, 13, 0));
+    }
+
+    @Test
+    void rollupShouldResumeFromWatermarkAndKeepItOnFailure() {
+        DeviceHashrateRollupService service = newService(new DeviceHashrateRollupProperties());
+        ArgumentCaptor<LocalDateTime> since = ArgumentCaptor.forClass(LocalDateTime.class);
+
+        service.rollupRecent();
+        service.rollupRecent();
+        Mockito.verify(rollupMapper, Mockito.times(2))
+                .rollupFromMinuteReports(eq(DeviceHashrateRollupService.TIER_HOUR), since.capture(), any());
+        // 冷启动回看 120 分钟；第二轮只从高水位所在整点起
+        LocalDateTime now = LocalDateTime.now();
+        assertThat(since.getAllValues().get(0)).isBefore(now.minusMinutes(119));
+        assertThat(since.getAllValues().get(1)).isAfter(now.minusMinutes(66));
+
+        // 汇总失败时高水位不推进，下一轮从同一起点重算
+        Mockito.when(rollupMapper.rollupGpuFromMinuteReports(anyInt(), any(), any()))
+                .thenThrow(new RuntimeException("db down"));
+        service.rollupRecent();
+        service.rollupRecent();
+        ArgumentCaptor<LocalDateTime> retried = ArgumentCaptor.forClass(LocalDateTime.class);
+        Mockito.verify(rollupMapper, Mockito.times(4))
+                .rollupFromMinuteReports(eq(DeviceHashrateRollupService.TIER_HOUR), retried.capture(), any());
+        assertThat(retried.getAllValues().get(3)).isEqualTo(retried.getAllValues().get(2));
+    }
+
+    private DeviceHashrateRollupService newService(DeviceHashrateRollupProperties properties) {
+        return new DeviceHashrateRollupService(rollupMapper, reportMapper, gpuReportMapper, properties);
+    }
+}
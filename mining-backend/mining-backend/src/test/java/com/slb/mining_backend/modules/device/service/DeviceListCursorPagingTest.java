@@ -0,0 +1,171 @@
+package com.slb.mining_backend.modules.device.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.slb.mining_backend.common.vo.CursorPageVo;
+import com.slb.mining_backend.modules.device.config.DeviceMetadataCacheProperties;
+import com.slb.mining_backend.modules.device.config.DevicePresenceProperties;
+import com.slb.mining_backend.modules.device.entity.Device;
+import com.slb.mining_backend.modules.device.mapper.DeviceGpuHashrateReportMapper;
+import com.slb.mining_backend.modules.device.mapper.DeviceHashrateReportMapper;
+import com.slb.mining_backend.modules.device.mapper.DeviceMapper;
+import com.slb.mining_backend.modules.device.mapper.DeviceRemoteCommandMapper;
+import com.slb.mining_backend.modules.device.vo.DeviceVo;
+import com.slb.mining_backend.modules.earnings.service.MarketDataService;
+import com.slb.mining_backend.modules.invite.config.InviteProperties;
+import com.slb.mining_backend.modules.invite.service.InviteService;
+import com.slb.mining_backend.modules.system.service.PlatformSettingsService;
+import com.slb.mining_backend.modules.users.mapper.UserMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+/**
+ * 设备列表游标分页：排序值大量重复且含 NULL 时，逐页翻完的结果与一次性排序完全一致，不漏行也不重复。
+ *
+ * 测试环境没有 MySQL：Mapper 按 DeviceMapper.xml 中 findByUserIdAndStatusAfter 的游标条件与排序
+ * （NULL 在升序最前、降序最后）在内存中执行。
+ */
+class DeviceListCursorPagingTest {
+
+    private static final long USER_ID = 7L;
+    private static final LocalDateTime T0 = LocalDateTime.of(2026, 1, 1, 0, 0);
+
+    private final List<Device> devices = buildDevices();
+    private final DeviceMapper deviceMapper = Mockito.mock(DeviceMapper.class);
+
+    @Test
+    void walkingAllPagesShouldReturnEveryDeviceExactlyOnceForEverySortAndOrder() {
+        when(deviceMapper.findByUserIdAndStatusAfter(eq(USER_ID), any(), anyString(), anyString(), any(), any(), anyInt()))
+                .thenAnswer(invocation -> findAfter(
+                        invocation.getArgument(2),
+                        invocation.getArgument(3),
+                        invocation.getArgument(4),
+                        invocation.getArgument(5),
+                        invocation.getArgument(6)));
+        DeviceService service = newService();
+
+        for (String sortBy : List.of("createTime", "deviceName", "lastOnlineTime")) {
+            for (String orderBy : List.of("asc", "desc")) {
+                List<String> walked = new ArrayList<>();
+                String cursor = null;
+                int pages = 0;
+                do {
+                    CursorPageVo<DeviceVo> page = service.getDeviceListByCursor(
+                            USER_ID, null, cursor, 3, sortBy, orderBy, false);
+                    page.getList().forEach(vo -> walked.add(vo.getDeviceId()));
+                    cursor = page.getNextCursor();
+                    assertThat(page.getHasMore()).isEqualTo(cursor != null);
+                    pages++;
+                } while (cursor != null && pages < 100);
+
+                assertThat(walked).as("%s %s", sortBy, orderBy)
+                        .doesNotHaveDuplicates()
+                        .containsExactlyElementsOf(sorted(sortBy, orderBy).stream().map(Device::getId).toList());
+            }
+        }
+    }
+
+    /**
+     * 与 DeviceMapper.xml 中 findByUserIdAndStatusAfter 的四种游标条件一一对应。
+     */
+    private List<Device> findAfter(String sortBy, String orderBy, Object cursorValue, String cursorKey, int limit) {
+        boolean asc = "asc".equals(orderBy);
+        Function<Device, Comparable<Object>> column = column(sortBy);
+        return sorted(sortBy, orderBy).stream()
+                .filter(device -> {
+                    if (cursorKey == null) {
+                        return true;
+                    }
+                    Comparable<Object> value = column.apply(device);
+                    int byId = device.getId().compareTo(cursorKey);
+                    if (cursorValue == null) {
+                        return asc ? (value == null && byId > 0) || value != null : value == null && byId < 0;
+                    }
+                    if (value == null) {
+                        return !asc;
+                    }
+                    int byValue = value.compareTo(cursorValue);
+                    return asc ? byValue > 0 || (byValue == 0 && byId > 0) : byValue < 0 || (byValue == 0 && byId < 0);
+                })
+                .limit(limit)
+                .toList();
+    }
+
+    private List<Device> sorted(String sortBy, String orderBy) {
+        Function<Device, Comparable<Object>> column = column(sortBy);
+        Comparator<Device> comparator = Comparator.comparing(column, Comparator.nullsFirst(Comparator.naturalOrder()));
+        comparator = comparator.thenComparing(Device::getId);
+        return devices.stream().sorted("asc".equals(orderBy) ? comparator : comparator.reversed()).toList();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Function<Device, Comparable<Object>> column(String sortBy) {
+        return switch (sortBy) {
+            case "deviceName" -> device -> (Comparable<Object>) (Comparable<?>) device.getDeviceName();
+            case "lastOnlineTime" -> device -> (Comparable<Object>) (Comparable<?>) device.getLastOnlineTime();
+            default -> device -> (Comparable<Object>) (Comparable<?>) device.getCreateTime();
+        };
+    }
+
+    private static List<Device> buildDevices() {
+        List<Device> devices = new ArrayList<>();
+        for (int i = 0; i < 14; i++) {
+            Device device = new Device();
+            device.setId(String.format("dev-%02d", i));
+            // 名称：三个重复值 + 若干 NULL
+            device.setDeviceName(i % 4 == 3 ? null : "rig-" + (i % 3));
+            // 在线时间：两个重复时间点 + 若干 NULL
+            device.setLastOnlineTime(i % 5 == 0 ? null : T0.plusHours(i % 2));
+            // 创建时间：成对重复
+            device.setCreateTime(T0.minusDays(i / 2));
+            device.setCpuHashrate(0d);
+            devices.add(device);
+        }
+        assertThat(devices).filteredOn(device -> Objects.isNull(device.getDeviceName())).hasSizeGreaterThan(1);
+        return devices;
+    }
+
+    private DeviceService newService() {
+        MarketDataService marketDataService = Mockito.mock(MarketDataService.class);
+        when(marketDataService.getPoolTotalHashrate()).thenReturn(BigDecimal.ZERO);
+        return new DeviceService(
+                deviceMapper,
+                Mockito.mock(DeviceHashrateReportMapper.class),
+                Mockito.mock(DeviceGpuHashrateReportMapper.class),
+                Mockito.mock(DeviceRemoteCommandMapper.class),
+                new ObjectMapper(),
+                marketDataService,
+                Mockito.mock(UserMapper.class),
+                Mockito.mock(InviteService.class),
+                Mockito.mock(InviteProperties.class),
+                Mockito.mock(PlatformSettingsService.class),
+                Mockito.mock(DeviceHashrateReportBuffer.class),
+                new LocalDevicePresenceRegistry(),
+                new DevicePresenceProperties(),
+                Mockito.mock(DeviceHashrateRollupService.class),
+                Mockito.mock(DeviceCommandNotifier.class),
+                Mockito.mock(HashrateSummaryCache.class),
+                new DeviceMetadataCache(deviceMapper,
+                        Mockito.mock(StringRedisTemplate.class),
+                        Mockito.mock(RedisMessageListenerContainer.class),
+                        new DeviceMetadataCacheProperties(),
+                        new SimpleMeterRegistry()));
+    }
+}
@@ -0,0 +1,120 @@
+package com.slb.mining_backend.modules.device.service;
+
+import com.slb.mining_backend.modules.device.config.DeviceMetadataCacheProperties;
+import com.slb.mining_backend.modules.device.entity.Device;
+import com.slb.mining_backend.modules.device.mapper.DeviceMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DeviceMetadataCacheTest {
+
+    private final DeviceMapper deviceMapper = Mockito.mock(DeviceMapper.class);
+    private final StringRedisTemplate redisTemplate = Mockito.mock(StringRedisTemplate.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void repeatedLookupsShouldHitCacheAndExportMetrics() {
+        Mockito.when(deviceMapper.findById("dev-1")).thenReturn(Optional.of(device("dev-1", 1L)));
+        DeviceMetadataCache cache = newCache();
+
+        assertThat(cache.get("dev-1").isOwnedBy(1L)).isTrue();
+        assertThat(cache.get("dev-1").isOwnedBy(2L)).isFalse();
+
+        Mockito.verify(deviceMapper, Mockito.times(1)).findById("dev-1");
+        assertThat(meterRegistry.get("cache.gets").tag("cache", DeviceMetadataCache.CACHE_NAME)
+                .tag("result", "hit").functionCounter().count()).isEqualTo(1.0);
+        assertThat(meterRegistry.get("cache.gets").tag("cache", DeviceMetadataCache.CACHE_NAME)
+                .tag("result", "miss").functionCounter().count()).isEqualTo(1.0);
+    }
+
+    @Test
+    void invalidationShouldReloadAndBroadcast() {
+        Mockito.when(deviceMapper.findById("dev-1"))
+                .thenReturn(Optional.of(device("dev-1", 1L)), Optional.of(device("dev-1", 2L)));
+        DeviceMetadataCache cache = newCache();
+        cache.get("dev-1");
+
+        cache.invalidateAfterCommit("dev-1");
+
+        assertThat(cache.get("dev-1").userId()).isEqualTo(2L);
+        Mockito.verify(redisTemplate).convertAndSend("device:metadata:invalidate", "dev-1");
+    }
+
+    @Test
+    void invalidationDuringLoadShouldNotCacheStaleOwner() {
+        DeviceMetadataCache cache = newCache();
+        Mockito.when(deviceMapper.findById("dev-1")).thenAnswer(invocation -> {
+            // 加载期间其他请求完成了换绑
+            cache.invalidateAfterCommit("dev-1");
+            return Optional.of(device("dev-1", 1L));
+        });
+
+        cache.get("dev-1");
+        cache.get("dev-1");
+
+        Mockito.verify(deviceMapper, Mockito.times(2)).findById("dev-1");
+    }
+
+    @Test
+    void missingDeviceShouldNotBeCached() {
+        Mockito.when(deviceMapper.findById("dev-x")).thenReturn(Optional.empty());
+        DeviceMetadataCache cache = newCache();
+
+        assertThat(cache.get("dev-x")).isNull();
+        assertThat(cache.get("dev-x")).isNull();
+
+        Mockito.verify(deviceMapper, Mockito.times(2)).findById("dev-x");
+    }
+
+    @Test
+    void verifiedLookupShouldReloadWhenOwnerVersionChanged() {
+        @SuppressWarnings("unchecked")
+        ValueOperations<String, String> valueOps = Mockito.mock(ValueOperations.class);
+        Mockito.when(redisTemplate.opsForValue()).thenReturn(valueOps);
+        Mockito.when(valueOps.get("device:metadata:ver:dev-1")).thenReturn(null, null, "1700000000000");
+        Mockito.when(deviceMapper.findById("dev-1"))
+                .thenReturn(Optional.of(device("dev-1", 1L)), Optional.of(device("dev-1", 2L)));
+        DeviceMetadataCache cache = newCache();
+
+        assertThat(cache.getVerified("dev-1").userId()).isEqualTo(1L);
+        // 版本未变：命中
+        assertThat(cache.getVerified("dev-1").userId()).isEqualTo(1L);
+        // 其他节点已换绑（失效广播未到达）：版本变化，回源
+        assertThat(cache.getVerified("dev-1").userId()).isEqualTo(2L);
+        Mockito.verify(deviceMapper, Mockito.times(2)).findById("dev-1");
+    }
+
+    @Test
+    void verifiedLookupShouldHitDatabaseWhenVersionUnavailable() {
+        Mockito.when(redisTemplate.opsForValue()).thenThrow(new RedisConnectionFailureException("down"));
+        Mockito.when(deviceMapper.findById("dev-1")).thenReturn(Optional.of(device("dev-1", 1L)));
+        DeviceMetadataCache cache = newCache();
+
+        cache.getVerified("dev-1");
+        cache.getVerified("dev-1");
+
+        Mockito.verify(deviceMapper, Mockito.times(2)).findById("dev-1");
+    }
+
+    private DeviceMetadataCache newCache() {
+        return new DeviceMetadataCache(deviceMapper, redisTemplate, Mockito.mock(RedisMessageListenerContainer.class),
+                new DeviceMetadataCacheProperties(), meterRegistry);
+    }
+
+    private static Device device(String id, Long userId) {
+        Device device = new Device();
+        device.setId(id);
+        device.setUserId(userId);
+        device.setIsDeleted(false);
+        return device;
+    }
+}
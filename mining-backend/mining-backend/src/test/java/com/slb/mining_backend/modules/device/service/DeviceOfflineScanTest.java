@@ -0,0 +1,81 @@
+package com.slb.mining_backend.modules.device.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.slb.mining_backend.modules.device.config.DeviceMetadataCacheProperties;
+import com.slb.mining_backend.modules.device.config.DevicePresenceProperties;
+import com.slb.mining_backend.modules.device.mapper.DeviceGpuHashrateReportMapper;
+import com.slb.mining_backend.modules.device.mapper.DeviceHashrateReportMapper;
+import com.slb.mining_backend.modules.device.mapper.DeviceMapper;
+import com.slb.mining_backend.modules.device.mapper.DeviceRemoteCommandMapper;
+import com.slb.mining_backend.modules.earnings.service.MarketDataService;
+import com.slb.mining_backend.modules.invite.config.InviteProperties;
+import com.slb.mining_backend.modules.invite.service.InviteService;
+import com.slb.mining_backend.modules.system.service.PlatformSettingsService;
+import com.slb.mining_backend.modules.users.mapper.UserMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.when;
+
+class DeviceOfflineScanTest {
+
+    private final DeviceMapper deviceMapper = Mockito.mock(DeviceMapper.class);
+    private final LocalDevicePresenceRegistry registry = new LocalDevicePresenceRegistry();
+
+    @Test
+    void expiredDevicesShouldLeaveRegistryOnlyAfterOfflineUpdateSucceeds() {
+        DeviceService service = newService();
+        LocalDateTime stale = LocalDateTime.now().minusMinutes(30);
+        registry.touch("d1", 1L, stale);
+        registry.touch("d2", 1L, stale.plusSeconds(1));
+
+        when(deviceMapper.markDevicesOfflineByIds(anyList(), any()))
+                .thenThrow(new DataAccessResourceFailureException("db down"));
+        assertThatThrownBy(service::markDevicesOfflineIfHeartbeatExpired)
+                .isInstanceOf(DataAccessResourceFailureException.class);
+        assertThat(registry.size()).isEqualTo(2);
+
+        Mockito.reset(deviceMapper);
+        when(deviceMapper.markDevicesOfflineByIds(anyList(), any())).thenReturn(2);
+        service.markDevicesOfflineIfHeartbeatExpired();
+        assertThat(registry.size()).isZero();
+    }
+
+    private DeviceService newService() {
+        DeviceService service = new DeviceService(
+                deviceMapper,
+                Mockito.mock(DeviceHashrateReportMapper.class),
+                Mockito.mock(DeviceGpuHashrateReportMapper.class),
+                Mockito.mock(DeviceRemoteCommandMapper.class),
+                new ObjectMapper(),
+                Mockito.mock(MarketDataService.class),
+                Mockito.mock(UserMapper.class),
+                Mockito.mock(InviteService.class),
+                Mockito.mock(InviteProperties.class),
+                Mockito.mock(PlatformSettingsService.class),
+                Mockito.mock(DeviceHashrateReportBuffer.class),
+                registry,
+                new DevicePresenceProperties(),
+                Mockito.mock(DeviceHashrateRollupService.class),
+                Mockito.mock(DeviceCommandNotifier.class),
+                Mockito.mock(HashrateSummaryCache.class),
+                new DeviceMetadataCache(deviceMapper,
+                        Mockito.mock(StringRedisTemplate.class),
+                        Mockito.mock(RedisMessageListenerContainer.class),
+                        new DeviceMetadataCacheProperties(),
+                        new SimpleMeterRegistry()));
+        ReflectionTestUtils.setField(service, "deviceOfflineThresholdMinutes", 5L);
+        return service;
+    }
+}
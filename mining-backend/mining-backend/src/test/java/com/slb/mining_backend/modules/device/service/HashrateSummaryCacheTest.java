@@ -0,0 +1,145 @@
+package com.slb.mining_backend.modules.device.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.slb.mining_backend.common.event.MarketDataRefreshedEvent;
+import com.slb.mining_backend.modules.device.config.DeviceSummaryCacheProperties;
+import com.slb.mining_backend.modules.device.entity.Device;
+import com.slb.mining_backend.modules.device.vo.HashrateSummaryVo;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HashrateSummaryCacheTest {
+
+    private final AtomicInteger computations = new AtomicInteger();
+
+    @Test
+    void repeatedReadsShouldHitUntilUserIsInvalidated() {
+        HashrateSummaryCache cache = newCache(localProperties());
+
+        cache.get(1L, loader());
+        cache.get(1L, loader());
+        cache.get(2L, loader());
+        assertThat(computations.get()).isEqualTo(2);
+
+        cache.invalidateUsers(List.of(1L));
+        cache.get(1L, loader());
+        cache.get(2L, loader());
+        assertThat(computations.get()).isEqualTo(3);
+    }
+
+    @Test
+    void marketRefreshShouldInvalidateAllUsers() {
+        HashrateSummaryCache cache = newCache(localProperties());
+        cache.get(1L, loader());
+        cache.get(2L, loader());
+
+        cache.onMarketDataRefreshed(new MarketDataRefreshedEvent("test"));
+        cache.get(1L, loader());
+        cache.get(2L, loader());
+
+        assertThat(computations.get()).isEqualTo(4);
+    }
+
+    @Test
+    void invalidationDuringComputationShouldNotBeOverwritten() {
+        HashrateSummaryCache cache = newCache(localProperties());
+
+        // 计算过程中有新上报落库：本次结果基于旧数据，不能被后续读取命中
+        cache.get(1L, () -> {
+            cache.invalidateUsers(List.of(1L));
+            return summary(computations.incrementAndGet());
+        });
+        HashrateSummaryVo fresh = cache.get(1L, loader());
+
+        assertThat(computations.get()).isEqualTo(2);
+        assertThat(fresh.getDailyIncomeCny()).isEqualByComparingTo("2");
+    }
+
+    @Test
+    void disabledCacheShouldAlwaysCompute() {
+        DeviceSummaryCacheProperties properties = localProperties();
+        properties.setEnabled(false);
+        HashrateSummaryCache cache = newCache(properties);
+
+        cache.get(1L, loader());
+        cache.get(1L, loader());
+
+        assertThat(computations.get()).isEqualTo(2);
+    }
+
+    @Test
+    void steadyReportsShouldNotInvalidateButMaterialChangesShould() {
+        HashrateSummaryCache cache = newCache(localProperties());
+        cache.onDevicesReported(List.of(device("d1", 1L, 1000d, 50d)));
+        cache.get(1L, loader());
+
+        // 5% 以内的波动：继续命中
+        cache.onDevicesReported(List.of(device("d1", 1L, 1030d, 51d)));
+        cache.get(1L, loader());
+        assertThat(computations.get()).isEqualTo(1);
+
+        // GPU 算力变化超过阈值
+        cache.onDevicesReported(List.of(device("d1", 1L, 1030d, 40d)));
+        cache.get(1L, loader());
+        assertThat(computations.get()).isEqualTo(2);
+
+        // 新设备首次上报
+        cache.onDevicesReported(List.of(device("d2", 1L, 500d, 0d)));
+        cache.get(1L, loader());
+        assertThat(computations.get()).isEqualTo(3);
+    }
+
+    @Test
+    void lruEvictionShouldKeepRecentEntriesAndNeverResurrectStaleVersions() {
+        DeviceSummaryCacheProperties properties = localProperties();
+        properties.setLocalMaxEntries(2);
+        HashrateSummaryCache cache = newCache(properties);
+
+        // 计算期间失效：写入的旧条目版本落后
+        cache.get(1L, () -> {
+            cache.invalidateUsers(List.of(1L));
+            return summary(computations.incrementAndGet());
+        });
+        // 填满后用户 1 的版本记录被淘汰，旧条目仍不能命中
+        cache.invalidateUsers(List.of(2L, 3L, 4L));
+        cache.get(1L, loader());
+        assertThat(computations.get()).isEqualTo(2);
+    }
+
+    private HashrateSummaryCache newCache(DeviceSummaryCacheProperties properties) {
+        return new HashrateSummaryCache(properties, Mockito.mock(StringRedisTemplate.class), new ObjectMapper());
+    }
+
+    private static DeviceSummaryCacheProperties localProperties() {
+        DeviceSummaryCacheProperties properties = new DeviceSummaryCacheProperties();
+        properties.setRedisEnabled(false);
+        return properties;
+    }
+
+    private static Device device(String id, Long userId, double cpu, double gpu) {
+        Device device = new Device();
+        device.setId(id);
+        device.setUserId(userId);
+        device.setCpuHashrate(cpu);
+        device.setGpuHashrate(gpu);
+        return device;
+    }
+
+    private Supplier<HashrateSummaryVo> loader() {
+        return () -> summary(computations.incrementAndGet());
+    }
+
+    private static HashrateSummaryVo summary(int seq) {
+        HashrateSummaryVo vo = new HashrateSummaryVo();
+        vo.setDailyIncomeCny(BigDecimal.valueOf(seq));
+        return vo;
+    }
+}
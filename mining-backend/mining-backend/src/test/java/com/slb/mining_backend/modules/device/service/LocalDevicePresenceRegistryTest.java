@@ -0,0 +1,53 @@
+package com.slb.mining_backend.modules.device.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LocalDevicePresenceRegistryTest {
+
+    private final LocalDateTime now = LocalDateTime.of(2026, 1, 1, 12, 0);
+
+    @Test
+    void expiredDevicesShouldStayUntilRemovalIsConfirmed() {
+        LocalDevicePresenceRegistry registry = new LocalDevicePresenceRegistry();
+        registry.touch("d1", 1L, now.minusMinutes(10));
+        registry.touch("d2", 1L, now.minusMinutes(8));
+        registry.touch("d3", 2L, now.minusMinutes(6));
+        registry.touch("d4", 2L, now.minusMinutes(1));
+
+        LocalDateTime cutoff = now.minusMinutes(5);
+        assertThat(registry.peekExpired(cutoff, 2)).containsExactly("d1", "d2");
+        // 未确认移除前再次读取仍返回同一批（DB 更新失败时下一轮重试）
+        assertThat(registry.peekExpired(cutoff, 2)).containsExactly("d1", "d2");
+        assertThat(registry.removeExpired(List.of("d1", "d2"), cutoff)).isEqualTo(2);
+        assertThat(registry.peekExpired(cutoff, 2)).containsExactly("d3");
+
+        // 读取后重新上报的设备不会被移除
+        registry.touch("d3", 2L, now);
+        assertThat(registry.removeExpired(List.of("d3"), cutoff)).isZero();
+        assertThat(registry.peekExpired(cutoff, 2)).isEmpty();
+        assertThat(registry.size()).isEqualTo(2);
+        assertThat(registry.countOnline(cutoff)).isEqualTo(2);
+    }
+
+    @Test
+    void touchShouldRefreshHeartbeatAndMoveOwner() {
+        LocalDevicePresenceRegistry registry = new LocalDevicePresenceRegistry();
+        registry.touch("d1", 1L, now.minusMinutes(10));
+        registry.touch("d1", 2L, now);
+
+        LocalDateTime cutoff = now.minusMinutes(5);
+        assertThat(registry.peekExpired(cutoff, 10)).isEmpty();
+        assertThat(registry.countOnlineByUser(1L, cutoff)).isZero();
+        assertThat(registry.countOnlineByUser(2L, cutoff)).isEqualTo(1);
+
+        registry.remove("d1");
+        assertThat(registry.size()).isZero();
+        assertThat(registry.countOnlineByUser(2L, cutoff)).isZero();
+        assertThat(registry.peekExpired(now.plusMinutes(1), 10)).isEqualTo(List.of());
+    }
+}
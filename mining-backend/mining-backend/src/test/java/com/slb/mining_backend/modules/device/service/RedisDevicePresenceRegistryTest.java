@@ -0,0 +1,79 @@
+package com.slb.mining_backend.modules.device.service;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+class RedisDevicePresenceRegistryTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2026, 1, 1, 12, 0);
+
+    private record Call(List<String> keys, List<Object> args) {
+    }
+
+    @SuppressWarnings("unchecked")
+    private final HashOperations<String, Object, Object> hashOps = Mockito.mock(HashOperations.class);
+    private final List<Call> calls = new ArrayList<>();
+    private final List<Long> results = new ArrayList<>();
+
+    private final StringRedisTemplate redisTemplate = new StringRedisTemplate() {
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> T execute(RedisScript<T> script, List<String> keys, Object... args) {
+            calls.add(new Call(List.copyOf(keys), Arrays.asList(args)));
+            return (T) (results.isEmpty() ? Long.valueOf(1L) : results.remove(0));
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <HK, HV> HashOperations<String, HK, HV> opsForHash() {
+            return (HashOperations<String, HK, HV>) (HashOperations<String, ?, ?>) hashOps;
+        }
+    };
+
+    private final RedisDevicePresenceRegistry registry = new RedisDevicePresenceRegistry(redisTemplate);
+
+    @Test
+    void touchShouldDeclareAllKeysAndRetryWithActualOwnerOnMismatch() {
+        results.add(0L);
+        when(hashOps.get(RedisDevicePresenceRegistry.KEY_OWNER, "d1")).thenReturn("1");
+
+        registry.touch("d1", 2L, NOW);
+
+        assertThat(calls).hasSize(2);
+        assertThat(calls.get(0).keys()).containsExactly(RedisDevicePresenceRegistry.KEY_LAST_SEEN,
+                RedisDevicePresenceRegistry.KEY_OWNER, "{device:presence}:user:2", "{device:presence}:user:2");
+        assertThat(calls.get(1).keys()).containsExactly(RedisDevicePresenceRegistry.KEY_LAST_SEEN,
+                RedisDevicePresenceRegistry.KEY_OWNER, "{device:presence}:user:2", "{device:presence}:user:1");
+        assertThat(calls.get(1).args()).containsExactly("d1", calls.get(1).args().get(1), "2", "1");
+        assertThat(calls).allSatisfy(call -> assertThat(call.keys()).allMatch(k -> k.startsWith("{device:presence}")));
+    }
+
+    @Test
+    void removeExpiredShouldPassEachOwnerKeyAndExpectedOwner() {
+        when(hashOps.multiGet(eq(RedisDevicePresenceRegistry.KEY_OWNER), anyList()))
+                .thenReturn(Arrays.asList("1", null));
+        results.add(2L);
+
+        int removed = registry.removeExpired(List.of("d1", "d2"), NOW);
+
+        assertThat(removed).isEqualTo(2);
+        Call call = calls.get(0);
+        assertThat(call.keys()).containsExactly(RedisDevicePresenceRegistry.KEY_LAST_SEEN,
+                RedisDevicePresenceRegistry.KEY_OWNER, "{device:presence}:user:1", "{device:presence}:user:none");
+        assertThat(call.args()).hasSize(5);
+        assertThat(call.args().subList(1, 5)).containsExactly("d1", "1", "d2", "");
+    }
+}
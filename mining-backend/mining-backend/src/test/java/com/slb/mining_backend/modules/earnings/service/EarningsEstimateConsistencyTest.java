@@ -65,7 +65,17 @@ class EarningsEstimateConsistencyTest {
                 deviceUserMapper,
                 Mockito.mock(InviteService.class),
                 Mockito.mock(InviteProperties.class),
-                Mockito.mock(PlatformSettingsService.class)
+                Mockito.mock(PlatformSettingsService.class),
+                Mockito.mock(com.slb.mining_backend.modules.device.service.DeviceHashrateReportBuffer.class),
+                Mockito.mock(com.slb.mining_backend.modules.device.service.DevicePresenceRegistry.class),
+                new com.slb.mining_backend.modules.device.config.DevicePresenceProperties(),
+                Mockito.mock(com.slb.mining_backend.modules.device.service.DeviceHashrateRollupService.class),
+                Mockito.mock(com.slb.mining_backend.modules.device.service.DeviceCommandNotifier.class),
+                new com.slb.mining_backend.modules.device.service.HashrateSummaryCache(
+                        new com.slb.mining_backend.modules.device.config.DeviceSummaryCacheProperties(),
+                        Mockito.mock(org.springframework.data.redis.core.StringRedisTemplate.class),
+                        new ObjectMapper()),
+                Mockito.mock(com.slb.mining_backend.modules.device.service.DeviceMetadataCache.class)
         );
         ReflectionTestUtils.setField(deviceService, "xmrBlockReward", new BigDecimal("0.6"));
         ReflectionTestUtils.setField(deviceService, "blocksPerHour", new BigDecimal("30"));
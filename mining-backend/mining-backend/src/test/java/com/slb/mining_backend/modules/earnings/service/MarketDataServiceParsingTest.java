@@ -7,6 +7,7 @@ import com.slb.mining_backend.modules.exchange.service.ExchangeRateService;
 import com.slb.mining_backend.modules.xmr.service.antpool.AntpoolClient;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.web.reactive.function.client.WebClient;
 
 import java.lang.reflect.Method;
@@ -29,7 +30,8 @@ class MarketDataServiceParsingTest {
                 Mockito.mock(DeviceMapper.class),
                 Mockito.mock(AntpoolClient.class),
                 WebClient.builder(),
-                objectMapper
+                objectMapper,
+                Mockito.mock(ApplicationEventPublisher.class)
         );
 
         Method extractHashrate = MarketDataService.class.getDeclaredMethod("extractHashrate", JsonNode.class);
@@ -52,7 +54,8 @@ class MarketDataServiceParsingTest {
                 Mockito.mock(DeviceMapper.class),
                 Mockito.mock(AntpoolClient.class),
                 WebClient.builder(),
-                objectMapper
+                objectMapper,
+                Mockito.mock(ApplicationEventPublisher.class)
         );
 
         Method extractHashrate = MarketDataService.class.getDeclaredMethod("extractHashrate", JsonNode.class);
@@ -0,0 +1,74 @@
+package com.slb.mining_backend.modules.exchange.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.slb.mining_backend.common.job.JobCoordinator;
+import com.slb.mining_backend.modules.exchange.config.ExchangeRateProperties;
+import com.slb.mining_backend.modules.exchange.entity.ExchangeRate;
+import com.slb.mining_backend.modules.exchange.mapper.ExchangeRateMapper;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ExchangeRateServiceTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.now(ZoneId.of("Asia/Shanghai"));
+
+    private final ExchangeRateMapper mapper = Mockito.mock(ExchangeRateMapper.class);
+    private final ExchangeRateService service = new ExchangeRateService(mapper,
+            Mockito.mock(ApplicationEventPublisher.class), Mockito.mock(JobCoordinator.class), new ExchangeRateProperties());
+
+    @Test
+    void warmedSnapshotShouldServeReadsAndPersistOnlyChangedOrCheckpointedRates() throws Exception {
+        when(mapper.selectLatestBySymbols(anyCollection())).thenReturn(List.of(
+                row("XMR/CNY", "2000", NOW.minusMinutes(10)),
+                row("CFX/XMR", "0.0001", NOW.minusHours(2)),
+                row("RVN/XMR", "0.00005", NOW.minusMinutes(10))));
+
+        service.warmUp();
+        assertThat(service.getXmrToCnyRate()).isEqualByComparingTo("2000");
+        assertThat(service.getCfxToXmrRate()).isEqualByComparingTo("0.0001");
+        assertThat(service.getLatestRate("RVN/XMR")).isEqualByComparingTo("0.00005");
+        assertThat(service.getLatestRate("USDT/CNY")).isZero();
+        verify(mapper, never()).selectLatestBySymbol(anyString());
+        long warmedVersion = service.getSnapshot().version();
+
+        service.applyQuotes(new ObjectMapper().readTree("""
+                {"monero":{"cny":2000.5,"usd":280},
+                 "tether":{"cny":7.1,"usd":1},
+                 "conflux-token":{"cny":0.2},
+                 "ravencoin":{"usd":0.014}}
+                """));
+
+        assertThat(service.getSnapshot().version()).isGreaterThan(warmedVersion);
+        assertThat(service.getXmrToCnyRate()).isEqualByComparingTo("2000.5");
+        assertThat(service.getXmrToUsdtRate()).isEqualByComparingTo("280");
+        assertThat(service.getCfxToUsdtRate()).isEqualByComparingTo("0.02816901");
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<ExchangeRate>> captor = ArgumentCaptor.forClass(List.class);
+        verify(mapper).batchInsert(captor.capture());
+        // XMR/CNY 变化低于阈值、RVN/XMR 未变化且未到检查点：不写库；CFX/XMR 变化虽小但已到检查点
+        assertThat(captor.getValue()).extracting(ExchangeRate::getSymbol)
+                .containsExactlyInAnyOrder("USDT/CNY", "XMR/USDT", "CFX/CNY", "CFX/USDT", "CFX/XMR");
+    }
+
+    private static ExchangeRate row(String symbol, String px, LocalDateTime createdTime) {
+        ExchangeRate rate = new ExchangeRate();
+        rate.setSymbol(symbol);
+        rate.setPx(new BigDecimal(px));
+        rate.setCreatedTime(createdTime);
+        return rate;
+    }
+}
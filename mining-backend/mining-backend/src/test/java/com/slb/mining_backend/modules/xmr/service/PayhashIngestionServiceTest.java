@@ -0,0 +1,162 @@
+package com.slb.mining_backend.modules.xmr.service;
+
+import com.slb.mining_backend.modules.xmr.config.PayhashTimeseriesProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.DefaultTypedTuple;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class PayhashIngestionServiceTest {
+
+    private static final long BUCKET = 1_767_225_600_000L;
+    private static final String FLUSHING_KEY = "pool:payhash:flushing:" + BUCKET + ":token-1";
+
+    private final StringRedisTemplate redisTemplate = Mockito.mock(StringRedisTemplate.class);
+    private final NamedParameterJdbcTemplate jdbcTemplate = Mockito.mock(NamedParameterJdbcTemplate.class);
+    private final PayhashRollupService rollupService = Mockito.mock(PayhashRollupService.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final PayhashIngestionService service = new PayhashIngestionService(redisTemplate, jdbcTemplate,
+            new PayhashTimeseriesProperties(), rollupService,
+            new TransactionTemplate(Mockito.mock(PlatformTransactionManager.class)), meterRegistry);
+    @SuppressWarnings("unchecked")
+    private final ZSetOperations<String, String> zSetOps = Mockito.mock(ZSetOperations.class);
+    /**
+     * 最后一次管道（删除/重试/移入 lost）在该连接上回放，便于校验写入的命令。
+     */
+    private final StringRedisConnection connection = Mockito.mock(StringRedisConnection.class);
+    private final List<Integer> pipelines = new ArrayList<>();
+
+    @Test
+    void flushingKeyShouldBePersistedOnceThenDeleted() {
+        stubRedis(Map.of("USR-1", "100", "USR-2", "40"));
+        when(jdbcTemplate.update(contains("payhash_ingest_flushes"), any(SqlParameterSource.class))).thenReturn(1);
+
+        service.flushPastBuckets();
+
+        verify(jdbcTemplate).batchUpdate(anyString(), any(MapSqlParameterSource[].class));
+        verify(rollupService).addDeltas(Mockito.eq(PayhashRollupService.SOURCE_POOL), Mockito.isNull(), Mockito.isNull(),
+                any(), Mockito.eq(Map.of("USR-1", 100L, "USR-2", 40L)));
+        // 三次管道：升级过渡的 EXISTS 探测、读取 flushing 桶、删除 key 与索引
+        assertThat(pipelines).hasSize(3);
+        verify(connection).del(FLUSHING_KEY);
+        verify(connection).zRem("pool:payhash:flushing", FLUSHING_KEY);
+    }
+
+    @Test
+    void retryAfterCommitShouldOnlyDropTheFlushingKey() {
+        stubRedis(Map.of("USR-1", "100"));
+        // 上次已提交但未删除 key：落库记录已存在
+        when(jdbcTemplate.update(contains("payhash_ingest_flushes"), any(SqlParameterSource.class))).thenReturn(0);
+
+        service.flushPastBuckets();
+
+        verify(jdbcTemplate, never()).batchUpdate(anyString(), any(MapSqlParameterSource[].class));
+        verify(rollupService, never()).addDeltas(anyString(), any(), any(), any(), any());
+        assertThat(pipelines).hasSize(3);
+        verify(connection).del(FLUSHING_KEY);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void claimShouldPassEveryTouchedKeyToTheScript() {
+        stubRedis(Map.of("USR-1", "100"));
+        when(jdbcTemplate.update(contains("payhash_ingest_flushes"), any(SqlParameterSource.class))).thenReturn(1);
+        when(zSetOps.rangeByScore(eq("pool:payhash:index"), anyDouble(), anyDouble(), anyLong(), anyLong()))
+                .thenReturn(new LinkedHashSet<>(List.of(String.valueOf(BUCKET))));
+
+        service.flushPastBuckets();
+
+        ArgumentCaptor<RedisScript<Long>> script = ArgumentCaptor.forClass(RedisScript.class);
+        ArgumentCaptor<List<String>> keys = ArgumentCaptor.forClass(List.class);
+        verify(redisTemplate).execute(script.capture(), keys.capture(), eq(String.valueOf(BUCKET)));
+        assertThat(keys.getValue()).hasSize(4);
+        assertThat(keys.getValue().subList(0, 3))
+                .containsExactly("pool:payhash:index", "pool:payhash:flushing", "pool:payhash:" + BUCKET);
+        assertThat(keys.getValue().get(3)).startsWith("pool:payhash:flushing:" + BUCKET + ":");
+        assertThat(script.getValue().getScriptAsString()).contains("PERSIST").doesNotContain("ARGV[3]");
+    }
+
+    @Test
+    void missingFlushingKeyShouldBeMovedToLostIndexAndCounted() {
+        stubRedis(Map.of());
+
+        service.flushPastBuckets();
+
+        verify(jdbcTemplate, never()).update(contains("INSERT IGNORE"), any(SqlParameterSource.class));
+        verify(connection).zAdd(eq("pool:payhash:lost"), anyDouble(), eq(FLUSHING_KEY));
+        verify(connection).zRem("pool:payhash:flushing", FLUSHING_KEY);
+        verify(connection, never()).del(any(String[].class));
+        assertThat(meterRegistry.counter("slb.payhash.ingest.flushing.lost").count()).isEqualTo(1.0);
+    }
+
+    @Test
+    void failedPersistShouldPushTheKeyBackInsteadOfHoldingTheWindow() {
+        stubRedis(Map.of("USR-1", "100"));
+        when(jdbcTemplate.update(contains("payhash_ingest_flushes"), any(SqlParameterSource.class)))
+                .thenThrow(new QueryTimeoutException("lock wait timeout"));
+        long before = System.currentTimeMillis();
+
+        service.flushPastBuckets();
+
+        ArgumentCaptor<Double> retryAt = ArgumentCaptor.forClass(Double.class);
+        verify(connection).zAdd(eq("pool:payhash:flushing"), retryAt.capture(), eq(FLUSHING_KEY));
+        assertThat(retryAt.getValue()).isGreaterThan((double) before);
+        verify(connection, never()).del(any(String[].class));
+        // 只读取已到重试时间的 flushing key
+        ArgumentCaptor<Double> maxScore = ArgumentCaptor.forClass(Double.class);
+        verify(zSetOps).rangeByScoreWithScores(eq("pool:payhash:flushing"), anyDouble(), maxScore.capture(),
+                anyLong(), anyLong());
+        assertThat(maxScore.getValue()).isLessThan(retryAt.getValue());
+    }
+
+    @SuppressWarnings("unchecked")
+    private void stubRedis(Map<String, String> bucketContents) {
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), any(Object[].class))).thenReturn(1L);
+        when(redisTemplate.opsForZSet()).thenReturn(zSetOps);
+        Set<ZSetOperations.TypedTuple<String>> flushing = new LinkedHashSet<>();
+        flushing.add(new DefaultTypedTuple<>(FLUSHING_KEY, (double) BUCKET));
+        when(zSetOps.rangeByScoreWithScores(anyString(), anyDouble(), anyDouble(), anyLong(), anyLong()))
+                .thenReturn(flushing);
+        when(redisTemplate.executePipelined(any(RedisCallback.class))).thenAnswer(invocation -> {
+            pipelines.add(pipelines.size());
+            // 首次调用为升级过渡的 EXISTS 探测，第二次为 HGETALL，第三次为删除/重试/移入 lost
+            if (pipelines.size() == 2) {
+                return List.of(bucketContents);
+            }
+            if (pipelines.size() == 3) {
+                invocation.<RedisCallback<Object>>getArgument(0).doInRedis(connection);
+            }
+            return List.of();
+        });
+    }
+}
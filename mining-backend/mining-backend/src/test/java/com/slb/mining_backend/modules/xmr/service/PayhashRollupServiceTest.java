@@ -0,0 +1,258 @@
+package com.slb.mining_backend.modules.xmr.service;
+
+import com.slb.mining_backend.modules.xmr.config.F2PoolPayhashTimeseriesProperties;
+import com.slb.mining_backend.modules.xmr.config.PayhashRollupProperties;
+import com.slb.mining_backend.modules.xmr.config.PayhashTimeseriesProperties;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.when;
+
+class PayhashRollupServiceTest {
+
+    private static final LocalDateTime COVERED = LocalDateTime.of(2026, 1, 1, 0, 0);
+
+    /**
+     * 记录语句顺序与参数；覆盖起点按 source 保存在内存中（初始为空，修复任务走首次运行分支），其余查询返回空结果。
+     */
+    private static final class RecordingJdbcTemplate extends NamedParameterJdbcTemplate {
+        final List<String> statements = new ArrayList<>();
+        final List<SqlParameterSource> params = new ArrayList<>();
+        final Map<Object, Timestamp> coverage = new HashMap<>();
+
+        RecordingJdbcTemplate() {
+            super(Mockito.mock(DataSource.class));
+        }
+
+        @Override
+        public int update(String sql, SqlParameterSource paramSource) {
+            record(sql, paramSource);
+            if (sql.contains("covered_from = LEAST")) {
+                coverage.put(paramSource.getValue("source"), (Timestamp) paramSource.getValue("coveredFrom"));
+            }
+            return 0;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> List<T> queryForList(String sql, SqlParameterSource paramSource, Class<T> elementType) {
+            record(sql, paramSource);
+            Timestamp coveredFrom = coverage.get(paramSource.getValue("source"));
+            if (sql.startsWith("SELECT covered_from") && coveredFrom != null) {
+                return List.of((T) coveredFrom);
+            }
+            return List.of();
+        }
+
+        void record(String sql, SqlParameterSource paramSource) {
+            statements.add(sql.strip().replaceAll("\\s+", " "));
+            params.add(paramSource);
+        }
+
+        @Override
+        public void query(String sql, SqlParameterSource paramSource, RowCallbackHandler rch) {
+            record(sql, paramSource);
+        }
+
+        int indexOf(String fragment) {
+            for (int i = 0; i < statements.size(); i++) {
+                if (statements.get(i).contains(fragment)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+
+    @Test
+    void hourAlignedWindowShouldReadOnlyHourlyRollup() {
+        List<PayhashRollupService.Range> ranges = PayhashRollupService.plan(
+                at(3, 10, 0), at(3, 11, 0), COVERED);
+
+        assertThat(ranges).containsExactly(
+                new PayhashRollupService.Range(PayhashRollupService.Grain.HOUR, at(3, 10, 0), at(3, 11, 0)));
+    }
+
+    @Test
+    void unalignedWindowShouldScanOnlyPartialHours() {
+        List<PayhashRollupService.Range> ranges = PayhashRollupService.plan(
+                at(3, 9, 45), at(3, 12, 5), COVERED);
+
+        assertThat(ranges).containsExactly(
+                new PayhashRollupService.Range(PayhashRollupService.Grain.MINUTE, at(3, 9, 45), at(3, 10, 0)),
+                new PayhashRollupService.Range(PayhashRollupService.Grain.HOUR, at(3, 10, 0), at(3, 12, 0)),
+                new PayhashRollupService.Range(PayhashRollupService.Grain.MINUTE, at(3, 12, 0), at(3, 12, 5)));
+    }
+
+    @Test
+    void multiDayWindowShouldUseDailyRollupForFullDays() {
+        List<PayhashRollupService.Range> ranges = PayhashRollupService.plan(
+                at(3, 22, 0), at(6, 2, 0), COVERED);
+
+        assertThat(ranges).containsExactly(
+                new PayhashRollupService.Range(PayhashRollupService.Grain.HOUR, at(3, 22, 0), at(4, 0, 0)),
+                new PayhashRollupService.Range(PayhashRollupService.Grain.DAY, at(4, 0, 0), at(6, 0, 0)),
+                new PayhashRollupService.Range(PayhashRollupService.Grain.HOUR, at(6, 0, 0), at(6, 2, 0)));
+    }
+
+    @Test
+    void windowBeforeCoverageShouldFallBackToMinuteRows() {
+        assertThat(PayhashRollupService.plan(at(3, 10, 0), at(3, 12, 0), null)).containsExactly(
+                new PayhashRollupService.Range(PayhashRollupService.Grain.MINUTE, at(3, 10, 0), at(3, 12, 0)));
+
+        List<PayhashRollupService.Range> ranges = PayhashRollupService.plan(
+                at(3, 10, 0), at(3, 13, 0), at(3, 11, 30));
+        assertThat(ranges).containsExactly(
+                new PayhashRollupService.Range(PayhashRollupService.Grain.MINUTE, at(3, 10, 0), at(3, 12, 0)),
+                new PayhashRollupService.Range(PayhashRollupService.Grain.HOUR, at(3, 12, 0), at(3, 13, 0)));
+    }
+
+    @Test
+    void overwriteDiffShouldIncludeRemovedWorkersOnlyForWholeBucketRewrite() {
+        Map<String, Long> before = Map.of("USR-1", 100L, "USR-2", 50L);
+        Map<String, Long> after = Map.of("USR-1", 120L, "USR-3", 10L);
+
+        assertThat(PayhashRollupService.diff(before, after, true))
+                .containsOnly(Map.entry("USR-1", 20L), Map.entry("USR-3", 10L), Map.entry("USR-2", -50L));
+        assertThat(PayhashRollupService.diff(before, after, false))
+                .containsOnly(Map.entry("USR-1", 20L), Map.entry("USR-3", 10L));
+    }
+
+    @Test
+    void repairShouldHoldExclusiveCoverageLockBeforeRecomputing() {
+        RecordingJdbcTemplate jdbc = new RecordingJdbcTemplate();
+        newService(jdbc).repairRecent();
+
+        int fenceRow = jdbc.indexOf("INSERT IGNORE INTO payhash_rollup_coverage");
+        int exclusive = jdbc.indexOf("FROM payhash_rollup_coverage WHERE source = :source FOR UPDATE");
+        int delete = jdbc.indexOf("DELETE FROM payhash_rollup_hourly");
+        assertThat(fenceRow).isNotNegative();
+        assertThat(exclusive).isGreaterThan(fenceRow);
+        assertThat(delete).isGreaterThan(exclusive);
+    }
+
+    @Test
+    void backfillShouldRecomputeOneHourPerTransactionAndAdvanceCoverage() {
+        RecordingJdbcTemplate jdbc = new RecordingJdbcTemplate();
+        PayhashRollupProperties properties = new PayhashRollupProperties();
+        properties.setRepairLookbackHours(2);
+        properties.setBackfillHours(6);
+        newService(jdbc, properties).repairRecent();
+
+        // 每个 source：1 个修复窗口事务 + 4 个单小时回填事务，每个事务只加一次排他锁、只重算一段小时明细
+        List<List<Integer>> transactions = transactions(jdbc);
+        assertThat(transactions).hasSize(10);
+        List<LocalDateTime> coveredSteps = new ArrayList<>();
+        for (int t = 0; t < transactions.size(); t++) {
+            List<Integer> statements = transactions.get(t);
+            assertThat(statements.stream().filter(i -> jdbc.statements.get(i).endsWith("FOR UPDATE")).count()).isEqualTo(1);
+            List<Integer> deletes = statements.stream()
+                    .filter(i -> jdbc.statements.get(i).startsWith("DELETE FROM payhash_rollup_hourly"))
+                    .toList();
+            assertThat(deletes).hasSize(1);
+            if (t % 5 > 0) {
+                SqlParameterSource range = jdbc.params.get(deletes.get(0));
+                assertThat(Duration.between(((Timestamp) range.getValue("from")).toLocalDateTime(),
+                        ((Timestamp) range.getValue("to")).toLocalDateTime())).isEqualTo(Duration.ofHours(1));
+            }
+            for (int i : statements) {
+                if (jdbc.statements.get(i).contains("covered_from = LEAST")) {
+                    coveredSteps.add(((Timestamp) jdbc.params.get(i).getValue("coveredFrom")).toLocalDateTime());
+                }
+            }
+        }
+        // 覆盖起点在每个事务提交时前移一小时：修复窗口起点（当前小时 - 2）到回填起点（当前小时 - 6）
+        assertThat(coveredSteps).hasSize(10);
+        for (int source = 0; source < 2; source++) {
+            List<LocalDateTime> steps = coveredSteps.subList(source * 5, source * 5 + 5);
+            for (int i = 1; i < steps.size(); i++) {
+                assertThat(steps.get(i)).isEqualTo(steps.get(i - 1).minusHours(1));
+            }
+        }
+
+        // 回填完成后再次运行只重算修复窗口
+        jdbc.statements.clear();
+        jdbc.params.clear();
+        newService(jdbc, properties).repairRecent();
+        assertThat(transactions(jdbc)).hasSize(2);
+    }
+
+    @Test
+    void overwriteWriterShouldEnterSharedFenceBeforeLockingBucket() {
+        RecordingJdbcTemplate jdbc = new RecordingJdbcTemplate();
+        newService(jdbc).lockBucket(PayhashRollupService.SOURCE_POOL, null, null, at(3, 10, 5), null);
+
+        int shared = jdbc.indexOf("LOCK IN SHARE MODE");
+        int bucket = jdbc.indexOf("FROM miner_payhash_stats");
+        assertThat(shared).isNotNegative();
+        assertThat(bucket).isGreaterThan(shared);
+    }
+
+    private static PayhashRollupService newService(NamedParameterJdbcTemplate jdbc) {
+        return newService(jdbc, new PayhashRollupProperties());
+    }
+
+    /**
+     * 事务开始/提交以 BEGIN/COMMIT 记录在语句序列中。
+     */
+    private static PayhashRollupService newService(NamedParameterJdbcTemplate jdbc, PayhashRollupProperties properties) {
+        PlatformTransactionManager transactionManager = Mockito.mock(PlatformTransactionManager.class);
+        if (jdbc instanceof RecordingJdbcTemplate recording) {
+            when(transactionManager.getTransaction(any())).thenAnswer(inv -> {
+                recording.record("BEGIN", null);
+                return Mockito.mock(TransactionStatus.class);
+            });
+            doAnswer(inv -> {
+                recording.record("COMMIT", null);
+                return null;
+            }).when(transactionManager).commit(any());
+        }
+        return new PayhashRollupService(jdbc,
+                new TransactionTemplate(transactionManager),
+                properties,
+                new PayhashTimeseriesProperties(),
+                new F2PoolPayhashTimeseriesProperties());
+    }
+
+    /**
+     * 按 BEGIN/COMMIT 切分出每个事务内的语句下标。
+     */
+    private static List<List<Integer>> transactions(RecordingJdbcTemplate jdbc) {
+        List<List<Integer>> transactions = new ArrayList<>();
+        List<Integer> current = null;
+        for (int i = 0; i < jdbc.statements.size(); i++) {
+            String statement = jdbc.statements.get(i);
+            if (statement.equals("BEGIN")) {
+                current = new ArrayList<>();
+            } else if (statement.equals("COMMIT")) {
+                transactions.add(current);
+                current = null;
+            } else if (current != null) {
+                current.add(i);
+            }
+        }
+        return transactions;
+    }
+
+    private static LocalDateTime at(int day, int hour, int minute) {
+        return LocalDateTime.of(2026, 3, day, hour, minute);
+    }
+}
@@ -0,0 +1,96 @@
+package com.slb.mining_backend.modules.xmr.service;
+
+import com.slb.mining_backend.modules.users.dto.UserBalanceDelta;
+import com.slb.mining_backend.modules.users.mapper.UserMapper;
+import com.slb.mining_backend.modules.xmr.config.PlatformCreditBufferProperties;
+import com.slb.mining_backend.modules.xmr.mapper.SettlementPlatformCreditMapper;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.jdbc.BadSqlGrammarException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class PlatformCreditBufferTest {
+
+    private static final long ADMIN = 1L;
+    private static final long UNCLAIMED = 999L;
+
+    private final SettlementPlatformCreditMapper creditMapper = Mockito.mock(SettlementPlatformCreditMapper.class);
+    private final UserMapper userMapper = Mockito.mock(UserMapper.class);
+    private final PlatformCreditBufferProperties properties = new PlatformCreditBufferProperties();
+    private final PlatformCreditBuffer buffer = new PlatformCreditBuffer(creditMapper, userMapper,
+            new TransactionTemplate(Mockito.mock(PlatformTransactionManager.class)), properties, ADMIN, UNCLAIMED);
+
+    @Test
+    void onlyPlatformAndUnclaimedAccountsShouldBeBuffered() {
+        assertThat(buffer.isBuffered(ADMIN)).isTrue();
+        assertThat(buffer.isBuffered(UNCLAIMED)).isTrue();
+        assertThat(buffer.isBuffered(42L)).isFalse();
+
+        properties.setEnabled(false);
+        assertThat(buffer.isBuffered(ADMIN)).isFalse();
+    }
+
+    @Test
+    void flushShouldApplyClaimedSumsOncePerAccount() {
+        List<UserBalanceDelta> sums = List.of(
+                new UserBalanceDelta(ADMIN, new BigDecimal("12.5"), new BigDecimal("3.00")),
+                new UserBalanceDelta(UNCLAIMED, new BigDecimal("4"), BigDecimal.ZERO));
+        when(creditMapper.selectPendingUpperId(anyInt())).thenReturn(40L);
+        when(creditMapper.claimPending(eq(40L), anyString())).thenReturn(37);
+        when(creditMapper.sumClaimed(anyString())).thenReturn(sums);
+
+        assertThat(buffer.flush()).isEqualTo(37);
+        verify(userMapper).batchAddSettlementBalances(sums);
+    }
+
+    @Test
+    void flushShouldNotTouchBalancesWhenAnotherFlushClaimedTheRows() {
+        when(creditMapper.selectPendingUpperId(anyInt())).thenReturn(40L);
+        when(creditMapper.claimPending(anyLong(), anyString())).thenReturn(0);
+
+        assertThat(buffer.flush()).isZero();
+        verify(creditMapper, never()).sumClaimed(anyString());
+        verify(userMapper, never()).batchAddSettlementBalances(anyList());
+    }
+
+    @Test
+    void missingBufferTableShouldFallBackToDirectBalanceUpdate() {
+        BadSqlGrammarException missing = new BadSqlGrammarException("insert", "INSERT INTO settlement_platform_credits",
+                new SQLException("Table 'settlement_platform_credits' doesn't exist"));
+        Mockito.doThrow(missing).when(creditMapper).batchInsert(anyList(), any());
+
+        buffer.appendCal(ADMIN, new BigDecimal("2.5"), "tx-1");
+
+        verify(userMapper).batchAddSettlementBalances(List.of(new UserBalanceDelta(ADMIN, new BigDecimal("2.5"), BigDecimal.ZERO)));
+        assertThat(buffer.isBuffered(ADMIN)).isFalse();
+        assertThat(buffer.flush()).isZero();
+        verify(creditMapper, never()).selectPendingUpperId(anyInt());
+    }
+
+    @Test
+    void startupCheckShouldDisableBufferingWhenTableIsMissing() {
+        when(creditMapper.selectPendingUpperId(anyInt())).thenThrow(new BadSqlGrammarException("select",
+                "SELECT ... FROM settlement_platform_credits", new SQLException("Table doesn't exist")));
+
+        buffer.checkTable();
+
+        assertThat(buffer.isBuffered(ADMIN)).isFalse();
+        assertThat(buffer.isBuffered(UNCLAIMED)).isFalse();
+    }
+}
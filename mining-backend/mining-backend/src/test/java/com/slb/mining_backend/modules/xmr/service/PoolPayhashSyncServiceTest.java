@@ -0,0 +1,132 @@
+package com.slb.mining_backend.modules.xmr.service;
+
+import com.slb.mining_backend.modules.xmr.config.PayhashTimeseriesProperties;
+import com.slb.mining_backend.modules.xmr.config.PoolWorkerFetchProperties;
+import com.slb.mining_backend.modules.xmr.domain.PoolClient;
+import com.slb.mining_backend.modules.xmr.domain.PoolClientException;
+import com.slb.mining_backend.modules.xmr.domain.WorkerHash;
+import com.slb.mining_backend.modules.xmr.entity.XmrPoolStats;
+import com.slb.mining_backend.modules.xmr.mapper.XmrPoolStatsMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class PoolPayhashSyncServiceTest {
+
+    private final PoolClient poolClient = Mockito.mock(PoolClient.class);
+    private final XmrPoolStatsMapper poolStatsMapper = Mockito.mock(XmrPoolStatsMapper.class);
+    private final NamedParameterJdbcTemplate jdbcTemplate = Mockito.mock(NamedParameterJdbcTemplate.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final PoolWorkerFetchProperties fetchProperties = new PoolWorkerFetchProperties();
+
+    @Test
+    void syncDeadlineShouldCutOffHangingSubaddressAndKeepCompletedOnes() {
+        fetchProperties.setSyncDeadlineMs(1000L);
+        fetchProperties.setAddressDeadlineMs(30_000L);
+        stubStats();
+        when(poolClient.fetchWorkersAsync(eq("addr-a"), any())).thenReturn(Mono.just(List.of(worker("w-a", 100))));
+        when(poolClient.fetchWorkersAsync(eq("addr-b"), any())).thenReturn(Mono.never());
+
+        long start = System.nanoTime();
+        newService().syncFromPool();
+
+        // 单地址截止时间远大于整轮截止时间：按整轮截止时间返回
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofSeconds(10));
+        assertThat(writtenPayhash()).isEqualTo(Map.of("USR-1", 6_000L));
+        assertThat(meterRegistry.counter("slb.payhash.pool.sync.gaps", "reason", "TIMEOUT").count()).isEqualTo(1.0);
+    }
+
+    @Test
+    void subaddressCutOffByDeadlineShouldFallBackToCachedWorkers() {
+        fetchProperties.setSyncDeadlineMs(1000L);
+        fetchProperties.setAddressDeadlineMs(30_000L);
+        stubStats();
+        when(poolClient.fetchWorkersAsync(eq("addr-a"), any())).thenReturn(Mono.just(List.of(worker("w-a", 100))));
+        when(poolClient.fetchWorkersAsync(eq("addr-b"), any()))
+                .thenReturn(Mono.just(List.of(worker("w-b", 50))), Mono.never());
+        PoolPayhashSyncService service = newService();
+
+        service.syncFromPool();
+        service.syncFromPool();
+
+        assertThat(writtenPayhash()).isEqualTo(Map.of("USR-1", 6_000L, "USR-2", 3_000L));
+        assertThat(meterRegistry.counter("slb.payhash.pool.sync.cache.fallbacks", "reason", "TIMEOUT").count())
+                .isEqualTo(1.0);
+        assertThat(meterRegistry.counter("slb.payhash.pool.sync.gaps", "reason", "TIMEOUT").count()).isZero();
+    }
+
+    @Test
+    void failedSubaddressShouldNotDropPartialResultsOfOthers() {
+        stubStats();
+        when(poolClient.fetchWorkersAsync(eq("addr-a"), any())).thenReturn(Mono.just(List.of(worker("w-a", 100))));
+        when(poolClient.fetchWorkersAsync(eq("addr-b"), any()))
+                .thenReturn(Mono.error(new PoolClientException("HTTP 503")));
+
+        newService().syncFromPool();
+
+        assertThat(writtenPayhash()).isEqualTo(Map.of("USR-1", 6_000L));
+        assertThat(meterRegistry.counter("slb.payhash.pool.sync.gaps", "reason", "UPSTREAM_FAILED").count())
+                .isEqualTo(1.0);
+        assertThat(meterRegistry.counter("slb.payhash.pool.sync.gaps", "reason", "TIMEOUT").count()).isZero();
+    }
+
+    private PoolPayhashSyncService newService() {
+        when(poolClient.name()).thenReturn("c3pool");
+        return new PoolPayhashSyncService(poolClient, poolStatsMapper, jdbcTemplate,
+                new PayhashTimeseriesProperties(),
+                Mockito.mock(WorkerWhitelistService.class),
+                Mockito.mock(PayhashRollupService.class),
+                new TransactionTemplate(Mockito.mock(PlatformTransactionManager.class)),
+                fetchProperties, meterRegistry,
+                60, false, true, 600, 120);
+    }
+
+    private void stubStats() {
+        when(poolStatsMapper.selectAll()).thenReturn(List.of(stats(1L, "addr-a", "w-a"), stats(2L, "addr-b", "w-b")));
+    }
+
+    /**
+     * 最后一次写入分钟桶的（workerId -> payhash）。
+     */
+    private Map<String, Long> writtenPayhash() {
+        ArgumentCaptor<MapSqlParameterSource[]> batch = ArgumentCaptor.forClass(MapSqlParameterSource[].class);
+        verify(jdbcTemplate, atLeastOnce()).batchUpdate(anyString(), batch.capture());
+        Map<String, Long> written = new HashMap<>();
+        Arrays.stream(batch.getValue()).forEach(row ->
+                written.put((String) row.getValue("workerId"), (Long) row.getValue("payhash")));
+        return written;
+    }
+
+    private static XmrPoolStats stats(Long userId, String subaddress, String workerId) {
+        XmrPoolStats stats = new XmrPoolStats();
+        stats.setUserId(userId);
+        stats.setSubaddress(subaddress);
+        stats.setWorkerId(workerId);
+        return stats;
+    }
+
+    private static WorkerHash worker(String workerId, double hashNowHps) {
+        return new WorkerHash("addr", workerId, hashNowHps, hashNowHps, Instant.now());
+    }
+}
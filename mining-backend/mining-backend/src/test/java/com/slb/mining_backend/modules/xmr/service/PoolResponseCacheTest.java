@@ -0,0 +1,84 @@
+package com.slb.mining_backend.modules.xmr.service;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PoolResponseCacheTest {
+
+    private final AtomicLong nanos = new AtomicLong(1_000_000_000L);
+    private final PoolResponseCache cache = new PoolResponseCache(30, 120, nanos::get);
+    private final String key = PoolResponseCache.key("c3pool", "/miner/${address}/stats", "addr-1");
+
+    @Test
+    void concurrentCallersShouldShareOneInflightRequest() {
+        AtomicInteger loads = new AtomicInteger();
+        Sinks.One<String> upstream = Sinks.one();
+
+        Mono<PoolResponseCache.Response> first = cache.get(key, () -> {
+            loads.incrementAndGet();
+            return upstream.asMono();
+        });
+        Mono<PoolResponseCache.Response> second = cache.get(key, () -> {
+            loads.incrementAndGet();
+            return Mono.just("other");
+        });
+        first.subscribe();
+        upstream.tryEmitValue("body");
+
+        assertThat(second.block(Duration.ofSeconds(1)).body()).isEqualTo("body");
+        assertThat(loads.get()).isEqualTo(1);
+    }
+
+    @Test
+    void blockingCallerShouldNotJoinDeadlineBoundedFlight() {
+        Sinks.One<String> bounded = Sinks.one();
+        Mono<PoolResponseCache.Response> deadlineCall = cache.get(key, true, bounded::asMono);
+        deadlineCall.subscribe(response -> { }, err -> { });
+
+        // 带截止时间的请求因拿不到许可快速失败，不能连带阻塞调用失败
+        String body = cache.get(key, false, () -> Mono.just("blocking")).block(Duration.ofSeconds(1)).body();
+        bounded.tryEmitError(new IllegalStateException("RATE_LIMITED"));
+
+        assertThat(body).isEqualTo("blocking");
+        assertThat(cache.get(key, true, () -> Mono.just("unused")).block().body()).isEqualTo("blocking");
+    }
+
+    @Test
+    void freshEntryShouldBeServedWithoutLoading() {
+        AtomicInteger loads = new AtomicInteger();
+        cache.get(key, () -> Mono.just("v1")).block();
+
+        nanos.addAndGet(Duration.ofSeconds(20).toNanos());
+        String body = cache.get(key, () -> {
+            loads.incrementAndGet();
+            return Mono.just("v2");
+        }).block().body();
+
+        assertThat(body).isEqualTo("v1");
+        assertThat(loads.get()).isZero();
+    }
+
+    @Test
+    void failingUpstreamShouldServeStaleWithinMaxAgeWithOriginalFetchTime() {
+        Instant before = Instant.now();
+        PoolResponseCache.Response first = cache.get(key, () -> Mono.just("v1")).block();
+
+        nanos.addAndGet(Duration.ofSeconds(100).toNanos());
+        PoolResponseCache.Response stale = cache.get(key, () -> Mono.error(new IllegalStateException("503"))).block();
+        assertThat(stale.body()).isEqualTo("v1");
+        assertThat(stale.fetchedAt()).isEqualTo(first.fetchedAt()).isAfterOrEqualTo(before);
+
+        nanos.addAndGet(Duration.ofSeconds(30).toNanos());
+        assertThatThrownBy(() -> cache.get(key, () -> Mono.error(new IllegalStateException("503"))).block())
+                .hasMessageContaining("503");
+    }
+}
@@ -0,0 +1,166 @@
+package com.slb.mining_backend.modules.xmr.service;
+
+import com.slb.mining_backend.modules.users.mapper.UserMapper;
+import com.slb.mining_backend.modules.xmr.config.SharePipelineProperties;
+import com.slb.mining_backend.modules.xmr.config.WorkerWhitelistProperties;
+import com.slb.mining_backend.modules.xmr.dto.PoolShareItemDto;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+
+class ShareAggregatorServiceTest {
+
+    private static final int WORKERS = 50;
+    private static final int SHARES = 20_000;
+    private static final int THREADS = 4;
+
+    /**
+     * 测试环境没有 Redis：按 worker 汇总写入的 difficulty，并记录每次命令（管道内为每次管道）的往返。
+     */
+    private static final class RedisModel {
+        final AtomicInteger roundTrips = new AtomicInteger();
+        final AtomicInteger pipelineFailures = new AtomicInteger();
+        final Map<String, Long> hashes = new ConcurrentHashMap<>();
+    }
+
+    @Test
+    void pipelinedAccumulationShouldWriteSameTotalsAsDirectWrites() throws Exception {
+        RedisModel direct = run(false);
+        RedisModel pipelined = run(true);
+
+        assertThat(pipelined.hashes).hasSize(WORKERS).isEqualTo(direct.hashes);
+        assertThat(direct.roundTrips.get()).isEqualTo(SHARES * 3);
+        // 所有 share 落在至多两个分钟桶内，一次刷写只产生一次管道往返
+        assertThat(pipelined.roundTrips.get()).isEqualTo(1);
+    }
+
+    @Test
+    void batchShouldCountOnlyWhitelistedPositiveShares() {
+        RedisModel redis = new RedisModel();
+        ShareAggregatorService service = newService(redis, true);
+
+        int accepted = service.accumulateShares(List.of(
+                new PoolShareItemDto("USR-1", 100L),
+                new PoolShareItemDto("USR-1", 50L),
+                new PoolShareItemDto("USR-unknown", 100L),
+                new PoolShareItemDto("USR-2", 0L),
+                new PoolShareItemDto(" ", 100L)));
+        service.flush();
+
+        assertThat(accepted).isEqualTo(2);
+        assertThat(redis.hashes).containsExactlyEntriesOf(Map.of("USR-1", 150L));
+    }
+
+    @Test
+    void failedFlushShouldKeepCountersForNextFlush() {
+        RedisModel redis = new RedisModel();
+        redis.pipelineFailures.set(1);
+        ShareAggregatorService service = newService(redis, true);
+        service.accumulateShare("USR-1", 100L);
+        service.accumulateShare("USR-2", 30L);
+
+        assertThat(service.flush()).isZero();
+        assertThat(redis.hashes).isEmpty();
+
+        assertThat(service.flush()).isEqualTo(2);
+        assertThat(redis.hashes).isEqualTo(Map.of("USR-1", 100L, "USR-2", 30L));
+        assertThat(service.flush()).isZero();
+    }
+
+    private RedisModel run(boolean pipelineEnabled) throws Exception {
+        RedisModel redis = new RedisModel();
+        ShareAggregatorService service = newService(redis, pipelineEnabled);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                int offset = t;
+                futures.add(executor.submit(() -> {
+                    for (int i = offset; i < SHARES; i += THREADS) {
+                        service.accumulateShare("USR-" + (i % WORKERS), 1_000L + (i % 7));
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            service.flush();
+        } finally {
+            executor.shutdown();
+        }
+        return redis;
+    }
+
+    private ShareAggregatorService newService(RedisModel redis, boolean pipelineEnabled) {
+        List<String> workerIds = new ArrayList<>(WORKERS);
+        for (int i = 0; i < WORKERS; i++) {
+            workerIds.add("USR-" + i);
+        }
+        UserMapper userMapper = Mockito.mock(UserMapper.class);
+        Mockito.when(userMapper.selectActiveWorkerIds()).thenReturn(workerIds);
+        StringRedisTemplate redisTemplate = newRedisTemplate(redis);
+        WorkerWhitelistService whitelistService = new WorkerWhitelistService(userMapper, redisTemplate,
+                Mockito.mock(RedisMessageListenerContainer.class), new WorkerWhitelistProperties());
+        whitelistService.reloadLocalSnapshot();
+        SharePipelineProperties properties = new SharePipelineProperties();
+        properties.setEnabled(pipelineEnabled);
+        return new ShareAggregatorService(redisTemplate, whitelistService, properties);
+    }
+
+    @SuppressWarnings("unchecked")
+    private StringRedisTemplate newRedisTemplate(RedisModel redis) {
+        StringRedisTemplate redisTemplate = Mockito.mock(StringRedisTemplate.class);
+        HashOperations<String, Object, Object> hashOps = Mockito.mock(HashOperations.class);
+        ZSetOperations<String, String> zSetOps = Mockito.mock(ZSetOperations.class);
+        Mockito.when(redisTemplate.<Object, Object>opsForHash()).thenReturn(hashOps);
+        Mockito.when(redisTemplate.opsForZSet()).thenReturn(zSetOps);
+        Mockito.when(hashOps.increment(anyString(), any(), anyLong())).thenAnswer(invocation -> {
+            redis.roundTrips.incrementAndGet();
+            return redis.hashes.merge(invocation.getArgument(1), invocation.<Long>getArgument(2), Long::sum);
+        });
+        Mockito.when(redisTemplate.expire(anyString(), any())).thenAnswer(invocation -> {
+            redis.roundTrips.incrementAndGet();
+            return true;
+        });
+        Mockito.when(zSetOps.add(anyString(), anyString(), anyDouble())).thenAnswer(invocation -> {
+            redis.roundTrips.incrementAndGet();
+            return true;
+        });
+
+        StringRedisConnection connection = Mockito.mock(StringRedisConnection.class);
+        Mockito.when(connection.hIncrBy(anyString(), anyString(), anyLong())).thenAnswer(invocation -> {
+            redis.hashes.merge(invocation.getArgument(1), invocation.<Long>getArgument(2), Long::sum);
+            return null;
+        });
+        Mockito.when(redisTemplate.executePipelined(any(RedisCallback.class))).thenAnswer(invocation -> {
+            redis.roundTrips.incrementAndGet();
+            if (redis.pipelineFailures.getAndUpdate(n -> Math.max(0, n - 1)) > 0) {
+                throw new QueryTimeoutException("redis timeout");
+            }
+            invocation.<RedisCallback<Object>>getArgument(0).doInRedis(connection);
+            return List.of();
+        });
+        return redisTemplate;
+    }
+}
@@ -0,0 +1,389 @@
+package com.slb.mining_backend.modules.xmr.service;
+
+import com.slb.mining_backend.modules.asset.mapper.AssetLedgerMapper;
+import com.slb.mining_backend.modules.asset.service.AssetLedgerService;
+import com.slb.mining_backend.modules.device.mapper.DeviceGpuHashrateReportMapper;
+import com.slb.mining_backend.modules.device.mapper.DeviceMapper;
+import com.slb.mining_backend.modules.earnings.entity.EarningsHistory;
+import com.slb.mining_backend.modules.earnings.mapper.EarningsHistoryMapper;
+import com.slb.mining_backend.modules.earnings.mapper.EarningsMapper;
+import com.slb.mining_backend.modules.earnings.service.MarketDataService;
+import com.slb.mining_backend.modules.exchange.service.ExchangeRateService;
+import com.slb.mining_backend.modules.invite.config.InviteProperties;
+import com.slb.mining_backend.modules.invite.mapper.CommissionRecordMapper;
+import com.slb.mining_backend.modules.invite.mapper.PlatformCommissionMapper;
+import com.slb.mining_backend.modules.invite.service.InviteService;
+import com.slb.mining_backend.modules.users.dto.UserBalanceDelta;
+import com.slb.mining_backend.modules.users.entity.User;
+import com.slb.mining_backend.modules.users.mapper.UserMapper;
+import com.slb.mining_backend.modules.xmr.config.F2PoolProperties;
+import com.slb.mining_backend.modules.xmr.config.PlatformCreditBufferProperties;
+import com.slb.mining_backend.modules.xmr.config.WalletSettlementBatchProperties;
+import com.slb.mining_backend.modules.xmr.dto.WorkerPayhashScore;
+import com.slb.mining_backend.modules.xmr.entity.XmrWalletIncoming;
+import com.slb.mining_backend.modules.xmr.entity.XmrWalletSettlementMark;
+import com.slb.mining_backend.modules.xmr.entity.XmrWalletSettlementShare;
+import com.slb.mining_backend.modules.xmr.mapper.SettlementPlatformCreditMapper;
+import com.slb.mining_backend.modules.xmr.mapper.XmrWalletIncomingMapper;
+import com.slb.mining_backend.modules.xmr.mapper.XmrWalletSettlementMarkMapper;
+import com.slb.mining_backend.modules.xmr.service.antpool.AntpoolPayhashWindowScoreService;
+import com.slb.mining_backend.modules.xmr.service.f2pool.F2PoolPayhashWindowScoreService;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+
+/**
+ * 批量分片结算的重试正确性：部分分片失败后重试，即使期间邀请人变化导致分片归属改变、
+ * 或重试轮次关闭了批量开关且 payhash 快照已变化，每份分账也只按首次分摊入账一次。
+ *
+ * 测试环境没有 MySQL：写操作在事务内先暂存，提交时才落到内存账本，回滚时丢弃。
+ */
+class WalletSettlementBatchRetryTest {
+
+    private static final long ADMIN_USER_ID = 900L;
+    private static final long UNCLAIMED_USER_ID = 999L;
+    private static final long USER_A = 1L;
+    private static final long USER_B = 2L;
+    private static final long INVITER_EVEN = 10L;
+    private static final long INVITER_ODD = 11L;
+
+    /**
+     * 内存账本：已提交的余额/标记/已结算交易，以及当前线程事务内暂存的写操作。
+     */
+    private static final class Ledger {
+        final Map<Long, User> users = new ConcurrentHashMap<>();
+        final Map<Long, BigDecimal> cal = new ConcurrentHashMap<>();
+        final Map<Long, BigDecimal> cny = new ConcurrentHashMap<>();
+        final List<XmrWalletSettlementMark> marks = new CopyOnWriteArrayList<>();
+        final List<XmrWalletSettlementShare> shares = new CopyOnWriteArrayList<>();
+        final Set<String> settledTx = ConcurrentHashMap.newKeySet();
+        final ThreadLocal<List<Runnable>> pending = new ThreadLocal<>();
+
+        void write(Runnable op) {
+            List<Runnable> tx = pending.get();
+            if (tx != null) {
+                tx.add(op);
+            } else {
+                op.run();
+            }
+        }
+
+        void credit(Long userId, BigDecimal cal, BigDecimal cny) {
+            write(() -> {
+                if (cal != null && cal.signum() != 0) {
+                    this.cal.merge(userId, cal, BigDecimal::add);
+                }
+                if (cny != null && cny.signum() != 0) {
+                    this.cny.merge(userId, cny, BigDecimal::add);
+                }
+            });
+        }
+
+        PlatformTransactionManager transactionManager() {
+            return new PlatformTransactionManager() {
+                @Override
+                public TransactionStatus getTransaction(TransactionDefinition definition) {
+                    pending.set(new ArrayList<>());
+                    return new SimpleTransactionStatus();
+                }
+
+                @Override
+                public void commit(TransactionStatus status) {
+                    List<Runnable> ops = pending.get();
+                    pending.remove();
+                    ops.forEach(Runnable::run);
+                }
+
+                @Override
+                public void rollback(TransactionStatus status) {
+                    pending.remove();
+                }
+            };
+        }
+    }
+
+    @Test
+    void retryAfterPartialFailureShouldCreditEachShareOnceEvenWhenInviterChanges() {
+        Ledger reference = new Ledger();
+        XmrWalletSettlementService referenceService = newService(reference, new AtomicBoolean(false));
+        referenceService.settleWalletIncomingHourly();
+        referenceService.shutdown();
+        assertThat(reference.settledTx).containsExactlyInAnyOrder("tx-1", "tx-2");
+
+        Ledger ledger = new Ledger();
+        AtomicBoolean failShardOfB = new AtomicBoolean(true);
+        XmrWalletSettlementService service = newService(ledger, failShardOfB);
+        try {
+            // 首轮：A 所在分片（邀请人 10 → 分片 0）提交，B 所在分片（邀请人 11 → 分片 1）写标记时失败并回滚
+            service.settleWalletIncomingHourly();
+            assertThat(ledger.settledTx).isEmpty();
+            assertThat(ledger.marks).extracting(XmrWalletSettlementMark::getUserId).containsOnly(USER_A);
+            assertThat(ledger.cal).containsKey(USER_A).doesNotContainKey(USER_B);
+            BigDecimal creditedA = ledger.cal.get(USER_A);
+
+            // 重试前 A 换了邀请人：按当前邀请人 A 会落到 B 的分片，但 A 的分账已有完成标记，不能再入账
+            ledger.users.get(USER_A).setInviterId(INVITER_ODD);
+            failShardOfB.set(false);
+            service.settleWalletIncomingHourly();
+            assertThat(ledger.cal.get(USER_A)).isEqualByComparingTo(creditedA);
+        } finally {
+            service.shutdown();
+        }
+
+        assertThat(ledger.settledTx).containsExactlyInAnyOrder("tx-1", "tx-2");
+        assertThat(ledger.marks).hasSize(4);
+        assertThat(normalize(ledger.cal)).isEqualTo(normalize(reference.cal));
+        assertThat(normalize(ledger.cny)).isEqualTo(normalize(reference.cny));
+    }
+
+    @Test
+    void serialRetryAfterPartialFailureShouldReuseRecordedSplitAndCreditEachUserOnce() {
+        Ledger reference = new Ledger();
+        XmrWalletSettlementService referenceService = newService(reference, new AtomicBoolean(false));
+        referenceService.settleWalletIncomingHourly();
+        referenceService.shutdown();
+
+        Ledger ledger = new Ledger();
+        XmrWalletSettlementService batchService = newService(ledger, new AtomicBoolean(true));
+        try {
+            batchService.settleWalletIncomingHourly();
+        } finally {
+            batchService.shutdown();
+        }
+        assertThat(ledger.settledTx).isEmpty();
+        assertThat(ledger.marks).extracting(XmrWalletSettlementMark::getUserId).containsOnly(USER_A);
+        assertThat(ledger.shares).hasSize(4);
+
+        // 重试轮次：批量开关已关闭，且 payhash 快照已变化（A 的算力翻倍）；仍须按首次分摊续结，A 不能再次入账
+        XmrWalletSettlementService serialService = newService(ledger, new AtomicBoolean(false), false, new BigDecimal("6"));
+        try {
+            serialService.settleWalletIncomingHourly();
+        } finally {
+            serialService.shutdown();
+        }
+
+        assertThat(ledger.settledTx).containsExactlyInAnyOrder("tx-1", "tx-2");
+        assertThat(ledger.marks).hasSize(4);
+        assertThat(ledger.marks).extracting(mark -> mark.getTxHash() + "/" + mark.getUserId()).doesNotHaveDuplicates();
+        assertThat(normalize(ledger.cal)).isEqualTo(normalize(reference.cal));
+        assertThat(normalize(ledger.cny)).isEqualTo(normalize(reference.cny));
+    }
+
+    private XmrWalletSettlementService newService(Ledger ledger, AtomicBoolean failShardOfB) {
+        return newService(ledger, failShardOfB, true, new BigDecimal("3"));
+    }
+
+    private XmrWalletSettlementService newService(Ledger ledger,
+                                                  AtomicBoolean failShardOfB,
+                                                  boolean batchEnabled,
+                                                  BigDecimal scoreOfA) {
+        ledger.users.put(USER_A, user(USER_A, INVITER_EVEN));
+        ledger.users.put(USER_B, user(USER_B, INVITER_ODD));
+        ledger.users.put(INVITER_EVEN, user(INVITER_EVEN, null));
+        ledger.users.put(INVITER_ODD, user(INVITER_ODD, null));
+        ledger.users.put(UNCLAIMED_USER_ID, user(UNCLAIMED_USER_ID, null));
+
+        List<XmrWalletIncoming> incomes = new ArrayList<>();
+        for (int i = 1; i <= 2; i++) {
+            XmrWalletIncoming income = new XmrWalletIncoming();
+            income.setTxHash("tx-" + i);
+            income.setAmountXmr(new BigDecimal("1.5"));
+            income.setTs(LocalDateTime.of(2026, 1, 1, 10, 10 + i));
+            income.setSettled(false);
+            incomes.add(income);
+        }
+        XmrWalletIncomingMapper incomingMapper = Mockito.mock(XmrWalletIncomingMapper.class,
+                WalletSettlementBatchRetryTest::emptyValue);
+        Mockito.doAnswer(invocation -> unsettled(incomes, ledger).stream().limit(1).toList())
+                .when(incomingMapper).selectOldestUnsettledWithTs(anyInt());
+        Mockito.doAnswer(invocation -> unsettled(incomes, ledger))
+                .when(incomingMapper).selectUnsettledInRange(any(), any(), anyInt());
+        Mockito.doAnswer(invocation -> {
+            List<String> txHashes = invocation.getArgument(0);
+            ledger.write(() -> ledger.settledTx.addAll(txHashes));
+            return txHashes.size();
+        }).when(incomingMapper).markSettledByTxHashes(anyList());
+
+        UserMapper userMapper = Mockito.mock(UserMapper.class, WalletSettlementBatchRetryTest::emptyValue);
+        Mockito.doAnswer(invocation -> Optional.ofNullable(ledger.users.get(invocation.<Long>getArgument(0))))
+                .when(userMapper).selectById(anyLong());
+        Mockito.doAnswer(invocation -> {
+            Collection<Long> ids = invocation.getArgument(0);
+            return ids.stream().map(ledger.users::get).filter(Objects::nonNull).toList();
+        }).when(userMapper).selectByIds(anyCollection());
+        Mockito.doAnswer(invocation -> {
+            ledger.credit(invocation.getArgument(0), invocation.getArgument(1), null);
+            return null;
+        }).when(userMapper).updateUserWallet(anyLong(), any());
+        Mockito.doAnswer(invocation -> {
+            ledger.credit(invocation.getArgument(0), null, invocation.getArgument(1));
+            return 1;
+        }).when(userMapper).updateCashBalances(anyLong(), any(), any(), any());
+        Mockito.doAnswer(invocation -> {
+            List<UserBalanceDelta> deltas = invocation.getArgument(0);
+            for (UserBalanceDelta delta : deltas) {
+                ledger.credit(delta.getUserId(), delta.getCalAmount(), delta.getCnyAmount());
+            }
+            return deltas.size();
+        }).when(userMapper).batchAddSettlementBalances(anyList());
+
+        EarningsHistoryMapper historyMapper = Mockito.mock(EarningsHistoryMapper.class,
+                WalletSettlementBatchRetryTest::emptyValue);
+        Mockito.doAnswer(invocation -> {
+            List<EarningsHistory> histories = invocation.getArgument(0);
+            long id = 1;
+            for (EarningsHistory history : histories) {
+                history.setId(id++);
+            }
+            return histories.size();
+        }).when(historyMapper).batchInsert(anyList());
+
+        AssetLedgerMapper assetLedgerMapper = Mockito.mock(AssetLedgerMapper.class,
+                WalletSettlementBatchRetryTest::emptyValue);
+        Mockito.doReturn(1).when(assetLedgerMapper)
+                .countByUserIdAndRefTypeAndRemarkPrefix(anyLong(), anyString(), anyString());
+
+        XmrWalletSettlementMarkMapper markMapper = Mockito.mock(XmrWalletSettlementMarkMapper.class);
+        Mockito.doAnswer(invocation -> {
+            Collection<String> txHashes = invocation.getArgument(0);
+            return ledger.marks.stream().filter(mark -> txHashes.contains(mark.getTxHash())).toList();
+        }).when(markMapper).selectByTxHashes(anyCollection());
+        Mockito.doAnswer(invocation -> {
+            List<XmrWalletSettlementMark> marks = new ArrayList<>(invocation.<List<XmrWalletSettlementMark>>getArgument(0));
+            if (failShardOfB.get() && marks.stream().anyMatch(mark -> mark.getUserId() == USER_B)) {
+                throw new DataIntegrityViolationException("injected shard failure");
+            }
+            ledger.write(() -> ledger.marks.addAll(marks));
+            return marks.size();
+        }).when(markMapper).batchInsert(anyList());
+        Mockito.doAnswer(invocation -> {
+            Collection<String> txHashes = invocation.getArgument(0);
+            return ledger.shares.stream().filter(share -> txHashes.contains(share.getTxHash())).toList();
+        }).when(markMapper).selectSharesByTxHashes(anyCollection());
+        Mockito.doAnswer(invocation -> {
+            List<XmrWalletSettlementShare> shares = new ArrayList<>(invocation.<List<XmrWalletSettlementShare>>getArgument(0));
+            ledger.write(() -> ledger.shares.addAll(shares));
+            return shares.size();
+        }).when(markMapper).batchInsertShares(anyList());
+
+        InviteService inviteService = Mockito.mock(InviteService.class, WalletSettlementBatchRetryTest::emptyValue);
+        Mockito.doReturn(new BigDecimal("0.05")).when(inviteService).getCommissionRateForUser(anyLong());
+        PayhashWindowScoreService payhashWindowScoreService = Mockito.mock(PayhashWindowScoreService.class);
+        Mockito.when(payhashWindowScoreService.aggregate(any(), any())).thenReturn(List.of(
+                new WorkerPayhashScore("USR-" + USER_A, scoreOfA),
+                new WorkerPayhashScore("USR-" + USER_B, new BigDecimal("5"))));
+        ExchangeRateService exchangeRateService = Mockito.mock(ExchangeRateService.class);
+        Mockito.when(exchangeRateService.getXmrToCnyRate()).thenReturn(new BigDecimal("1500"));
+        MarketDataService marketDataService = Mockito.mock(MarketDataService.class);
+        Mockito.when(marketDataService.getCalToCnyRate()).thenReturn(new BigDecimal("1.5"));
+        Mockito.when(marketDataService.getCalXmrRatio()).thenReturn(new BigDecimal("0.001"));
+
+        WalletSettlementBatchProperties batchProperties = new WalletSettlementBatchProperties();
+        batchProperties.setEnabled(batchEnabled);
+        batchProperties.setShardCount(2);
+        PlatformCreditBufferProperties creditProperties = new PlatformCreditBufferProperties();
+        creditProperties.setEnabled(false);
+        TransactionTemplate transactionTemplate = new TransactionTemplate(ledger.transactionManager());
+        PlatformCreditBuffer creditBuffer = new PlatformCreditBuffer(
+                Mockito.mock(SettlementPlatformCreditMapper.class), userMapper, transactionTemplate,
+                creditProperties, ADMIN_USER_ID, UNCLAIMED_USER_ID);
+        return new XmrWalletSettlementService(
+                incomingMapper,
+                payhashWindowScoreService,
+                Mockito.mock(AntpoolPayhashWindowScoreService.class),
+                Mockito.mock(F2PoolPayhashWindowScoreService.class),
+                new F2PoolProperties(),
+                userMapper,
+                exchangeRateService,
+                marketDataService,
+                new AssetLedgerService(assetLedgerMapper),
+                historyMapper,
+                Mockito.mock(EarningsMapper.class, WalletSettlementBatchRetryTest::emptyValue),
+                Mockito.mock(DeviceMapper.class, WalletSettlementBatchRetryTest::emptyValue),
+                Mockito.mock(DeviceGpuHashrateReportMapper.class, WalletSettlementBatchRetryTest::emptyValue),
+                Mockito.mock(PlatformCommissionMapper.class, WalletSettlementBatchRetryTest::emptyValue),
+                Mockito.mock(CommissionRecordMapper.class, WalletSettlementBatchRetryTest::emptyValue),
+                inviteService,
+                new InviteProperties(),
+                transactionTemplate,
+                batchProperties,
+                markMapper,
+                creditBuffer,
+                ADMIN_USER_ID,
+                300,
+                5000,
+                600_000L,
+                false,
+                false,
+                "FALLBACK_UNCLAIMED",
+                60,
+                UNCLAIMED_USER_ID);
+    }
+
+    private static User user(long id, Long inviterId) {
+        User user = new User();
+        user.setId(id);
+        user.setWorkerId("USR-" + id);
+        user.setSettlementCurrency("CAL");
+        user.setInviterId(inviterId);
+        return user;
+    }
+
+    private static Object emptyValue(InvocationOnMock invocation) {
+        Class<?> type = invocation.getMethod().getReturnType();
+        if (type == int.class || type == Integer.class) {
+            return 0;
+        }
+        if (type == long.class || type == Long.class) {
+            return 0L;
+        }
+        if (type == boolean.class) {
+            return false;
+        }
+        if (List.class.isAssignableFrom(type)) {
+            return List.of();
+        }
+        if (type == Optional.class) {
+            return Optional.empty();
+        }
+        return null;
+    }
+
+    private static List<XmrWalletIncoming> unsettled(List<XmrWalletIncoming> incomes, Ledger ledger) {
+        return incomes.stream().filter(income -> !ledger.settledTx.contains(income.getTxHash())).toList();
+    }
+
+    private static Map<Long, BigDecimal> normalize(Map<Long, BigDecimal> amounts) {
+        Map<Long, BigDecimal> normalized = new TreeMap<>();
+        amounts.forEach((userId, amount) -> normalized.put(userId, amount.stripTrailingZeros()));
+        return normalized;
+    }
+}
@@ -0,0 +1,110 @@
+package com.slb.mining_backend.modules.xmr.service;
+
+import com.slb.mining_backend.modules.users.mapper.UserMapper;
+import com.slb.mining_backend.modules.xmr.config.WorkerWhitelistProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.core.SetOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class WorkerWhitelistServiceTest {
+
+    private final UserMapper userMapper = Mockito.mock(UserMapper.class);
+    private final StringRedisTemplate redisTemplate = Mockito.mock(StringRedisTemplate.class);
+    @SuppressWarnings("unchecked")
+    private final SetOperations<String, String> setOps = Mockito.mock(SetOperations.class);
+    private final WorkerWhitelistService service = new WorkerWhitelistService(userMapper, redisTemplate,
+            Mockito.mock(RedisMessageListenerContainer.class), new WorkerWhitelistProperties());
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+    }
+
+    @Test
+    void refreshShouldRebuildUnderTempKeyAndRenameWithoutDeletingLiveSet() {
+        when(redisTemplate.opsForSet()).thenReturn(setOps);
+        when(userMapper.selectActiveWorkerIds()).thenReturn(List.of("w-1", "w-2"));
+
+        service.refreshWhitelist();
+
+        verify(setOps).add(startsWith("pool:valid_workers:rebuild:"), any(String[].class));
+        verify(redisTemplate).rename(startsWith("pool:valid_workers:rebuild:"), eq("pool:valid_workers"));
+        verify(redisTemplate, never()).delete(anyString());
+        verify(redisTemplate).convertAndSend("pool:valid_workers:changed", "*");
+        assertThat(service.isValid("w-1")).isTrue();
+        assertThat(service.isValid("w-3")).isFalse();
+        // 本地快照命中后不再访问 Redis
+        verify(setOps, never()).isMember(anyString(), any());
+    }
+
+    @Test
+    void pushedRegistrationShouldBeVisibleWithoutReload() {
+        when(redisTemplate.opsForSet()).thenReturn(setOps);
+        when(userMapper.selectActiveWorkerIds()).thenReturn(List.of("w-1"));
+        service.refreshWhitelist();
+
+        service.onMessage(new DefaultMessage("pool:valid_workers:changed".getBytes(StandardCharsets.UTF_8),
+                "+w-9".getBytes(StandardCharsets.UTF_8)), null);
+
+        assertThat(service.isValid("w-9")).isTrue();
+        assertThat(service.isValid("w-1")).isTrue();
+    }
+
+    @Test
+    void workerAddedWhileReloadIsLoadingShouldSurviveTheReload() {
+        when(userMapper.selectActiveWorkerIds()).thenReturn(List.of("w-1"));
+        service.reloadLocalSnapshot();
+
+        // 加载读取数据库期间（读到的结果不含 w-9），另一线程推送了新 worker
+        when(userMapper.selectActiveWorkerIds()).thenAnswer(invocation -> {
+            service.onMessage(message("+w-9"), null);
+            return List.of("w-1");
+        });
+        service.reloadLocalSnapshot();
+
+        assertThat(service.isValid("w-9")).isTrue();
+        assertThat(service.isValid("w-1")).isTrue();
+    }
+
+    @Test
+    void reloadBroadcastShouldLoadOffTheListenerThread() throws InterruptedException {
+        Thread listenerThread = Thread.currentThread();
+        AtomicReference<Thread> loader = new AtomicReference<>();
+        CountDownLatch loaded = new CountDownLatch(1);
+        when(userMapper.selectActiveWorkerIds()).thenAnswer(invocation -> {
+            loader.set(Thread.currentThread());
+            loaded.countDown();
+            return List.of("w-1");
+        });
+
+        service.onMessage(message("*"), null);
+
+        assertThat(loaded.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(loader.get()).isNotSameAs(listenerThread);
+        assertThat(loader.get().getName()).isEqualTo("worker-whitelist-reload");
+    }
+
+    private static DefaultMessage message(String body) {
+        return new DefaultMessage("pool:valid_workers:changed".getBytes(StandardCharsets.UTF_8),
+                body.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,112 @@
+package com.slb.mining_backend.modules.xmr.service;
+
+import com.slb.mining_backend.modules.xmr.config.PayoutSyncProperties;
+import com.slb.mining_backend.modules.xmr.config.XmrPoolProperties;
+import com.slb.mining_backend.modules.xmr.config.XmrWalletProperties;
+import com.slb.mining_backend.modules.xmr.domain.PoolClient;
+import com.slb.mining_backend.modules.xmr.domain.PoolPayment;
+import com.slb.mining_backend.modules.xmr.entity.PayoutSyncWatermark;
+import com.slb.mining_backend.modules.xmr.entity.XmrWalletIncoming;
+import com.slb.mining_backend.modules.xmr.mapper.PayoutSyncWatermarkMapper;
+import com.slb.mining_backend.modules.xmr.mapper.XmrWalletIncomingMapper;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class XmrWalletIncomingSyncServiceTest {
+
+    private static final ZoneId BJT = ZoneId.of("Asia/Shanghai");
+    private static final String ADDRESS = "4master";
+
+    private final PoolClient poolClient = Mockito.mock(PoolClient.class);
+    private final XmrWalletIncomingMapper incomingMapper = Mockito.mock(XmrWalletIncomingMapper.class);
+    private final PayoutSyncWatermarkMapper watermarkMapper = Mockito.mock(PayoutSyncWatermarkMapper.class);
+    private final PayoutSyncProperties syncProperties = new PayoutSyncProperties();
+
+    @Test
+    void shouldStopAtWatermarkAndInsertOnlyUnseenPaymentsInOneBatch() {
+        syncProperties.setWalletPageSize(3);
+        syncProperties.setOverlapMinutes(60);
+        Instant hwm = Instant.parse("2026-01-01T10:00:00Z");
+        PayoutSyncWatermark watermark = new PayoutSyncWatermark();
+        watermark.setLastTs(LocalDateTime.ofInstant(hwm, BJT));
+        when(poolClient.name()).thenReturn("c3pool");
+        when(watermarkMapper.selectOne("c3pool", ADDRESS)).thenReturn(Optional.of(watermark));
+        // 第 0 页已越过回看窗口（最后一笔早于 hwm - 60min），不应再请求第 1 页
+        when(poolClient.fetchPayments(ADDRESS, 0, 3)).thenReturn(List.of(
+                new PoolPayment(ADDRESS, 2_000_000_000_000L, "new", null, hwm.plusSeconds(600)),
+                new PoolPayment(ADDRESS, 1_000_000_000_000L, "legacy", null, hwm.minusSeconds(60)),
+                new PoolPayment(ADDRESS, 1_000_000_000_000L, "old", null, hwm.minusSeconds(7200))));
+        when(incomingMapper.selectExistingTxHashes(any())).thenReturn(List.of("legacy"));
+        when(incomingMapper.batchInsertIgnore(anyList())).thenAnswer(invocation -> invocation.<List<?>>getArgument(0).size());
+
+        newService().syncPayments();
+
+        verify(poolClient, never()).fetchPayments(eq(ADDRESS), eq(1), anyInt());
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Collection<String>> lookup = ArgumentCaptor.forClass(Collection.class);
+        verify(incomingMapper).selectExistingTxHashes(lookup.capture());
+        assertThat(lookup.getValue()).containsExactlyInAnyOrder("c3pool:new", "new", "c3pool:legacy", "legacy");
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<XmrWalletIncoming>> inserted = ArgumentCaptor.forClass(List.class);
+        verify(incomingMapper).batchInsertIgnore(inserted.capture());
+        assertThat(inserted.getValue()).extracting(XmrWalletIncoming::getTxHash).containsExactly("c3pool:new");
+        verify(incomingMapper, never()).selectByTxHash(any());
+        verify(watermarkMapper).advance("c3pool", ADDRESS, LocalDateTime.ofInstant(hwm.plusSeconds(600), BJT), null);
+    }
+
+    @Test
+    void shouldNotAdvanceWatermarkWhenPagingStopsAtMaxPages() {
+        syncProperties.setWalletPageSize(2);
+        syncProperties.setMaxPages(1);
+        syncProperties.setOverlapMinutes(60);
+        Instant hwm = Instant.parse("2026-01-01T10:00:00Z");
+        PayoutSyncWatermark watermark = new PayoutSyncWatermark();
+        watermark.setLastTs(LocalDateTime.ofInstant(hwm, BJT));
+        when(poolClient.name()).thenReturn("c3pool");
+        when(watermarkMapper.selectOne("c3pool", ADDRESS)).thenReturn(Optional.of(watermark));
+        // 满页且都晚于回看窗口：第 1 页之后可能还有未拉到的打款
+        when(poolClient.fetchPayments(ADDRESS, 0, 2)).thenReturn(List.of(
+                new PoolPayment(ADDRESS, 2_000_000_000_000L, "a", null, hwm.plusSeconds(7200)),
+                new PoolPayment(ADDRESS, 1_000_000_000_000L, "b", null, hwm.plusSeconds(3600))));
+        when(incomingMapper.selectExistingTxHashes(any())).thenReturn(List.of());
+        when(incomingMapper.batchInsertIgnore(anyList())).thenAnswer(invocation -> invocation.<List<?>>getArgument(0).size());
+
+        newService().syncPayments();
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<XmrWalletIncoming>> inserted = ArgumentCaptor.forClass(List.class);
+        verify(incomingMapper).batchInsertIgnore(inserted.capture());
+        assertThat(inserted.getValue()).extracting(XmrWalletIncoming::getTxHash).containsExactly("c3pool:a", "c3pool:b");
+        verify(watermarkMapper, never()).advance(any(), any(), any(), any());
+    }
+
+    private XmrWalletIncomingSyncService newService() {
+        XmrPoolProperties.Provider provider = new XmrPoolProperties.Provider();
+        provider.setId("c3pool");
+        XmrPoolProperties poolProperties = new XmrPoolProperties();
+        poolProperties.setDefaultProvider("c3pool");
+        poolProperties.setProviders(List.of(provider));
+        XmrWalletProperties walletProperties = new XmrWalletProperties();
+        walletProperties.setEnabled(true);
+        walletProperties.setMasterAddress(ADDRESS);
+        IncomingPayoutWriter writer = new IncomingPayoutWriter(incomingMapper, watermarkMapper, syncProperties);
+        return new XmrWalletIncomingSyncService(poolClient, writer, poolProperties, walletProperties, syncProperties);
+    }
+}
@@ -0,0 +1,171 @@
+package com.slb.mining_backend.modules.xmr.service.antpool;
+
+import com.slb.mining_backend.common.job.JobLease;
+import com.slb.mining_backend.config.OutboundCallProperties;
+import com.slb.mining_backend.modules.users.mapper.UserMapper;
+import com.slb.mining_backend.modules.xmr.config.AntpoolPayhashTimeseriesProperties;
+import com.slb.mining_backend.modules.xmr.config.AntpoolProperties;
+import com.slb.mining_backend.modules.xmr.entity.XmrWorkerHashSnapshot;
+import com.slb.mining_backend.modules.xmr.mapper.XmrWorkerHashSnapshotMapper;
+import com.slb.mining_backend.modules.xmr.service.WorkerIdNormalizationHelper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.MockedStatic;
+import org.mockito.Mockito;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+import java.util.function.IntToLongFunction;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * worker 并发分页：按页序合并、在第一个失败分页处截止、分页并发受 provider 舱壁约束，
+ * 以及任务租约丢失后并发线程上不再拉取分页、不再落库。
+ */
+class AntpoolWorkerSyncServiceTest {
+
+    private static final int PAGE_SIZE = 2;
+
+    private final AntpoolProperties properties = new AntpoolProperties();
+    private final OutboundCallProperties outboundProperties = new OutboundCallProperties();
+    private final AntpoolClient client = mock(AntpoolClient.class);
+    private final AntpoolParser parser = mock(AntpoolParser.class);
+    private final WorkerIdNormalizationHelper normalizationHelper = mock(WorkerIdNormalizationHelper.class);
+    private final UserMapper userMapper = mock(UserMapper.class);
+    private final XmrWorkerHashSnapshotMapper snapshotMapper = mock(XmrWorkerHashSnapshotMapper.class);
+    private final NamedParameterJdbcTemplate jdbcTemplate = mock(NamedParameterJdbcTemplate.class);
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+
+    @Test
+    void parallelPagesShouldMergeInPageOrderAndStopAtFirstFailedPage() {
+        configure(4, 8);
+        // 5 页：越靠前的页响应越慢，第 4 页请求失败，之后的页不应计入
+        stubPages(5, page -> (6 - page) * 20L, page -> {
+            if (page == 4) {
+                throw new IllegalStateException("boom");
+            }
+        });
+
+        newService().syncWorkers();
+
+        assertThat(insertedWorkerIds()).containsExactly("w1-0", "w1-1", "w2-0", "w2-1", "w3-0", "w3-1");
+        verify(jdbcTemplate).batchUpdate(anyString(), any(MapSqlParameterSource[].class));
+    }
+
+    @Test
+    void pageConcurrencyShouldStayWithinProviderBulkhead() {
+        configure(8, 3);
+        stubPages(10, page -> 50L, page -> { });
+
+        newService().syncWorkers();
+
+        assertThat(maxInFlight.get()).isEqualTo(3);
+        assertThat(insertedWorkerIds()).hasSize(20);
+    }
+
+    @Test
+    void lostLeaseShouldStopPagingAndSkipWrites() {
+        configure(1, 8);
+        AtomicBoolean lost = new AtomicBoolean();
+        JobLease lease = mock(JobLease.class);
+        when(lease.isLost()).thenAnswer(inv -> lost.get());
+        // 第 2 页返回时租约丢失：后续分页不再拉取，已拉到的数据不落库
+        stubPages(5, page -> 0L, page -> {
+            if (page == 2) {
+                lost.set(true);
+            }
+        });
+
+        try (MockedStatic<JobLease> jobLease = Mockito.mockStatic(JobLease.class, Mockito.CALLS_REAL_METHODS)) {
+            jobLease.when(JobLease::current).thenReturn(lease);
+            jobLease.when(JobLease::currentLost).thenAnswer(inv -> lost.get());
+            newService().syncWorkers();
+        }
+
+        verify(client, times(2)).fetchWorkers(anyInt(), anyInt());
+        verify(userMapper, never()).selectByWorkerIds(any());
+        verify(snapshotMapper, never()).insertBatch(any());
+        verify(jdbcTemplate, never()).batchUpdate(anyString(), any(MapSqlParameterSource[].class));
+    }
+
+    private void configure(int pageConcurrency, int bulkhead) {
+        properties.setEnabled(true);
+        properties.setWorkerPageSize(PAGE_SIZE);
+        properties.setWorkerPageConcurrency(pageConcurrency);
+        outboundProperties.setMaxConcurrentPerProvider(bulkhead);
+        when(normalizationHelper.stripPlatformPrefix(anyString())).thenAnswer(inv -> inv.getArgument(0));
+        when(userMapper.selectByWorkerIds(any())).thenReturn(List.of());
+    }
+
+    /**
+     * 第 page 页的响应体为 "page-N"，解析为 PAGE_SIZE 个 worker 并声明 totalPages，同时统计同时在途的请求数；
+     * onResponse 在响应返回前调用（抛出异常即模拟该页请求失败）。
+     */
+    private void stubPages(int totalPages, IntToLongFunction delayMs, IntConsumer onResponse) {
+        when(client.fetchWorkers(anyInt(), anyInt())).thenAnswer(inv -> {
+            int page = inv.getArgument(0);
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(delayMs.applyAsLong(page));
+            } finally {
+                inFlight.decrementAndGet();
+            }
+            onResponse.accept(page);
+            return new AntpoolClient.AntpoolRawResponse("page-" + page, Instant.now());
+        });
+        when(parser.parseWorkers(anyString())).thenAnswer(inv -> {
+            String body = inv.getArgument(0);
+            int page = Integer.parseInt(body.substring("page-".length()));
+            List<AntpoolParser.WorkerItem> items = new ArrayList<>();
+            for (int i = 0; i < PAGE_SIZE; i++) {
+                items.add(new AntpoolParser.WorkerItem("w" + page + "-" + i, new BigDecimal("1.5")));
+            }
+            return new AntpoolParser.ParsedWorkers(items, totalPages);
+        });
+    }
+
+    private List<String> insertedWorkerIds() {
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<XmrWorkerHashSnapshot>> captor = ArgumentCaptor.forClass(List.class);
+        verify(snapshotMapper).insertBatch(captor.capture());
+        List<String> ids = new ArrayList<>();
+        for (XmrWorkerHashSnapshot snapshot : captor.getValue()) {
+            ids.add(snapshot.getWorkerId());
+        }
+        return ids;
+    }
+
+    private AntpoolWorkerSyncService newService() {
+        return new AntpoolWorkerSyncService(
+                properties,
+                client,
+                parser,
+                normalizationHelper,
+                userMapper,
+                snapshotMapper,
+                jdbcTemplate,
+                new AntpoolPayhashTimeseriesProperties(),
+                null,
+                outboundProperties,
+                new SimpleMeterRegistry(),
+                60);
+    }
+}
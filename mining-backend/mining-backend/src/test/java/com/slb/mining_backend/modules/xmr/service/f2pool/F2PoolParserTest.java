@@ -40,4 +40,36 @@ class F2PoolParserTest {
         assertThat(result3.get(0).workerId()).isEqualTo("w3");
         assertThat(result3.get(0).hashNowHps()).isEqualTo(3_000d);
     }
+
+    @Test
+    void streamingWorkerPageShouldReportErrorsAndEmptyLists() {
+        F2PoolParser parser = new F2PoolParser(objectMapper, new F2PoolProperties());
+        F2PoolProperties.Account account = new F2PoolProperties.Account();
+        account.setName("acc");
+        account.setCoin("conflux");
+
+        F2PoolParser.WorkerPageV2 error = parser.parseWorkerPageV2("{\"code\":1001,\"msg\":\"invalid secret\",\"data\":{\"list\":[]}}", account);
+        assertThat(error.error()).isEqualTo(new F2PoolParser.V2Error(1001, "invalid secret"));
+        assertThat(error.workers()).isEmpty();
+
+        F2PoolParser.WorkerPageV2 empty = parser.parseWorkerPageV2("{\"code\":0,\"data\":{\"list\":[]}}", account);
+        assertThat(empty.error()).isNull();
+        assertThat(empty.listSize()).hasValue(0);
+
+        // list 优先于 workers；非数组的 list 不回退到后续 key（与树解析一致）
+        F2PoolParser.WorkerPageV2 nonArray = parser.parseWorkerPageV2(
+                "{\"data\":{\"workers\":[{\"worker_name\":\"w1\"}],\"list\":{}}}", account);
+        assertThat(nonArray.workers()).isEmpty();
+        assertThat(nonArray.listSize()).isEmpty();
+
+        F2PoolParser.WorkerPageV2 page = parser.parseWorkerPageV2(
+                "{\"data\":{\"list\":[{\"hash_rate_info\":{\"name\":\"USR-1.rig\",\"hash_rate\":\"2000000\"},\"last_share_at\":1700000000},{\"status\":0}]}}",
+                account);
+        assertThat(page.listSize()).hasValue(2);
+        assertThat(page.workers()).singleElement().satisfies(sample -> {
+            assertThat(sample.workerId()).isEqualTo("USR-1.rig");
+            assertThat(sample.hashNowHps()).isEqualTo(2d);
+            assertThat(sample.hashAvgHps()).isEqualTo(2d);
+        });
+    }
 }
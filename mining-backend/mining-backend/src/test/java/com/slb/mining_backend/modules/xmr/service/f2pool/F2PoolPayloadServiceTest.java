@@ -0,0 +1,111 @@
+package com.slb.mining_backend.modules.xmr.service.f2pool;
+
+import com.slb.mining_backend.modules.xmr.config.F2PoolPayloadStoreProperties;
+import com.slb.mining_backend.modules.xmr.entity.F2PoolRawPayload;
+import com.slb.mining_backend.modules.xmr.mapper.F2PoolRawPayloadMapper;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.springframework.dao.DataAccessResourceFailureException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class F2PoolPayloadServiceTest {
+
+    private static final String BODY = "{\"workers\":[{\"hash_rate_info\":{\"name\":\"USR-1.rig\",\"hash_rate\":123.4}}]}";
+
+    private final F2PoolRawPayloadMapper mapper = Mockito.mock(F2PoolRawPayloadMapper.class);
+    private final F2PoolPayloadStoreProperties properties = new F2PoolPayloadStoreProperties();
+
+    @Test
+    void repeatedPayloadShouldBeWrittenOnceAndCompressedOffThread() {
+        F2PoolPayloadService service = new F2PoolPayloadService(mapper, properties);
+
+        String first = service.persistPayload("acct", "conflux", "workers", BODY, Instant.now());
+        String second = service.persistPayload("acct", "conflux", "workers", BODY, Instant.now());
+        assertThat(second).isEqualTo(first).hasSize(64);
+        verify(mapper, never()).batchInsertIgnore(anyList());
+        // 落库前也能按指纹取回
+        assertThat(service.findPayload("acct", "workers", first)).contains(BODY);
+
+        service.flush();
+        service.persistPayload("acct", "conflux", "workers", BODY, Instant.now());
+        service.flush();
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<F2PoolRawPayload>> captor = ArgumentCaptor.forClass(List.class);
+        verify(mapper, times(1)).batchInsertIgnore(captor.capture());
+        F2PoolRawPayload row = captor.getValue().get(0);
+        assertThat(row.getPayload()).isNull();
+        assertThat(row.getPayloadSize()).isEqualTo(BODY.getBytes(StandardCharsets.UTF_8).length);
+        assertThat(new String(F2PoolPayloadService.gunzip(row.getPayloadGz()), StandardCharsets.UTF_8)).isEqualTo(BODY);
+    }
+
+    @Test
+    void lookupShouldDecodeCompressedAndLegacyRows() {
+        F2PoolPayloadService service = new F2PoolPayloadService(mapper, properties);
+        F2PoolRawPayload compressed = new F2PoolRawPayload();
+        compressed.setPayloadGz(F2PoolPayloadService.gzip(BODY.getBytes(StandardCharsets.UTF_8)));
+        F2PoolRawPayload legacy = new F2PoolRawPayload();
+        legacy.setPayload(BODY);
+        when(mapper.selectByFingerprint("acct", "workers", "fp-new")).thenReturn(Optional.of(compressed));
+        when(mapper.selectByFingerprint("acct", "workers", "fp-old")).thenReturn(Optional.of(legacy));
+
+        assertThat(service.findPayload("acct", "workers", "fp-new")).contains(BODY);
+        assertThat(service.findPayload("acct", "workers", "fp-old")).contains(BODY);
+    }
+
+    @Test
+    void referencedPayloadShouldBeWrittenBeforeTheReferencingRow() {
+        F2PoolPayloadService service = new F2PoolPayloadService(mapper, properties);
+        String fingerprint = service.persistPayload("acct", "conflux", "workers", BODY, Instant.now());
+        verify(mapper, never()).batchInsertIgnore(anyList());
+
+        assertThat(service.ensureStored("acct", "workers", fingerprint)).isTrue();
+        verify(mapper, times(1)).batchInsertIgnore(anyList());
+
+        // 已写库：后台刷写与再次确认都不再写入
+        service.flush();
+        assertThat(service.ensureStored("acct", "workers", fingerprint)).isTrue();
+        verify(mapper, times(1)).batchInsertIgnore(anyList());
+    }
+
+    @Test
+    void failedWriteShouldTellCallerNotToReferenceTheFingerprint() {
+        F2PoolPayloadService service = new F2PoolPayloadService(mapper, properties);
+        String fingerprint = service.persistPayload("acct", "conflux", "workers", BODY, Instant.now());
+        doThrow(new DataAccessResourceFailureException("db down")).when(mapper).batchInsertIgnore(anyList());
+
+        assertThat(service.ensureStored("acct", "workers", fingerprint)).isFalse();
+        // 正文仍在队列中，等待后台刷写重试
+        assertThat(service.findPayload("acct", "workers", fingerprint)).contains(BODY);
+    }
+
+    @Test
+    void purgeShouldForgetStoredFingerprints() {
+        F2PoolPayloadService service = new F2PoolPayloadService(mapper, properties);
+        service.persistPayload("acct", "conflux", "workers", BODY, Instant.now());
+        service.flush();
+        when(mapper.deleteExpiredUnreferenced(any(), anyInt())).thenReturn(1, 0);
+
+        service.maintain();
+        service.persistPayload("acct", "conflux", "workers", BODY, Instant.now());
+        service.flush();
+
+        // 清理可能已删除该正文：再次出现时重新写入
+        verify(mapper, times(2)).batchInsertIgnore(anyList());
+    }
+}
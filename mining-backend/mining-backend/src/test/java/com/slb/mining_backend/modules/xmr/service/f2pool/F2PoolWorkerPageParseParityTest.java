@@ -0,0 +1,90 @@
+package com.slb.mining_backend.modules.xmr.service.f2pool;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.slb.mining_backend.modules.xmr.config.F2PoolProperties;
+import com.slb.mining_backend.modules.xmr.domain.F2PoolWorkerSample;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+/**
+ * v2 worker 列表单页：树解析（detectV2Error + parseWorkersV2 + resolveWorkersCountV2）与单遍流式解析的结果一致性。
+ *
+ * 使用与线上 /v2/hash_rate/worker/list 结构一致的合成页面（page_size=200），
+ * 校验两条路径解析出的 worker 样本、列表长度、总数与错误码一致（算力在 double 精度内一致）。
+ */
+class F2PoolWorkerPageParseParityTest {
+
+    private static final int WORKERS_PER_PAGE = 200;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void streamingParseShouldMatchTreeParse() {
+        String page = buildPage(WORKERS_PER_PAGE);
+        F2PoolProperties.Account account = account();
+
+        F2PoolParser.WorkerPageV2 tree = newParser(false).parseWorkerPageV2(page, account);
+        F2PoolParser.WorkerPageV2 stream = newParser(true).parseWorkerPageV2(page, account);
+
+        assertThat(tree.error()).isNull();
+        assertThat(stream.error()).isNull();
+        assertThat(stream.listSize()).isEqualTo(tree.listSize());
+        assertThat(stream.total()).isEqualTo(tree.total());
+        assertThat(stream.workers()).hasSize(WORKERS_PER_PAGE).hasSameSizeAs(tree.workers());
+        for (int i = 0; i < tree.workers().size(); i++) {
+            F2PoolWorkerSample expected = tree.workers().get(i);
+            F2PoolWorkerSample actual = stream.workers().get(i);
+            assertThat(actual.workerId()).isEqualTo(expected.workerId());
+            assertThat(actual.lastShareAt()).isEqualTo(expected.lastShareAt());
+            assertThat(actual.hashNowHps()).isCloseTo(expected.hashNowHps(), within(1e-9));
+            assertThat(actual.hashAvgHps()).isCloseTo(expected.hashAvgHps(), within(1e-9));
+        }
+    }
+
+    @Test
+    void streamingParseShouldReportSameErrorAsTreeParse() {
+        String page = "{\"code\":1001,\"msg\":\"invalid token\",\"data\":null}";
+        F2PoolProperties.Account account = account();
+
+        F2PoolParser.WorkerPageV2 tree = newParser(false).parseWorkerPageV2(page, account);
+        F2PoolParser.WorkerPageV2 stream = newParser(true).parseWorkerPageV2(page, account);
+
+        assertThat(tree.error()).isEqualTo(new F2PoolParser.V2Error(1001, "invalid token"));
+        assertThat(stream.error()).isEqualTo(tree.error());
+        assertThat(stream.workers()).isEmpty();
+        assertThat(stream.listSize()).isEqualTo(tree.listSize());
+    }
+
+    private static F2PoolProperties.Account account() {
+        F2PoolProperties.Account account = new F2PoolProperties.Account();
+        account.setName("acct");
+        account.setCoin("conflux");
+        return account;
+    }
+
+    private F2PoolParser newParser(boolean streaming) {
+        F2PoolProperties properties = new F2PoolProperties();
+        properties.getV2().setStreamingParse(streaming);
+        return new F2PoolParser(objectMapper, properties);
+    }
+
+    private static String buildPage(int workers) {
+        StringBuilder sb = new StringBuilder("{\"code\":0,\"msg\":\"\",\"data\":{\"total\":")
+                .append(workers).append(",\"list\":[");
+        for (int i = 0; i < workers; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append("{\"hash_rate_info\":{\"name\":\"USR-").append(1000 + i).append(".rig").append(i % 4)
+                    .append("\",\"hash_rate\":").append(123_456_789.25d + i * 1_000.5d)
+                    .append(",\"h1_hash_rate\":\"").append(120_000_000 + i * 777).append('"')
+                    .append(",\"h24_hash_rate\":").append(118_000_000 + i)
+                    .append(",\"h1_stale_hash_rate\":0,\"h24_stale_hash_rate\":0}")
+                    .append(",\"last_share_at\":").append(1_760_000_000L + i)
+                    .append(",\"status\":0,\"host\":\"10.0.0.").append(i % 255).append("\"}");
+        }
+        return sb.append("]}}").toString();
+    }
+}
@@ -0,0 +1,179 @@
+package com.slb.mining_backend.modules.xmr.service.f2pool;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.slb.mining_backend.common.job.JobShard;
+import com.slb.mining_backend.config.OutboundCallProperties;
+import com.slb.mining_backend.modules.xmr.config.F2PoolProperties;
+import com.slb.mining_backend.modules.xmr.entity.F2PoolWorkerSnapshot;
+import com.slb.mining_backend.modules.xmr.mapper.F2PoolWorkerSnapshotMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.MockedStatic;
+import org.mockito.Mockito;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+import java.util.function.IntToLongFunction;
+import java.util.function.IntUnaryOperator;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * worker 并发分页：按页序合并、在第一个不足一页的分页处截止、分页并发受 provider 舱壁约束，
+ * 以及分片租约丢失后并发线程上不再拉取分页、不再落库。
+ */
+class F2PoolWorkerSyncServiceTest {
+
+    private static final int PAGE_SIZE = 2;
+
+    private final F2PoolProperties properties = new F2PoolProperties();
+    private final OutboundCallProperties outboundProperties = new OutboundCallProperties();
+    private final F2PoolClient client = mock(F2PoolClient.class);
+    private final F2PoolPayloadService payloadService = mock(F2PoolPayloadService.class);
+    private final WorkerOwnershipResolver ownershipResolver = mock(WorkerOwnershipResolver.class);
+    private final F2PoolWorkerSnapshotMapper snapshotMapper = mock(F2PoolWorkerSnapshotMapper.class);
+    private final F2PoolPayhashWriter payhashWriter = mock(F2PoolPayhashWriter.class);
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+
+    @Test
+    void parallelPagesShouldMergeInPageOrderAndStopAtFirstShortPage() {
+        configure(1, 4, 8);
+        // 5 页：越靠前的页响应越慢，第 3 页不足一页，之后的页不应计入
+        stubPages(10, page -> page == 3 ? 1 : PAGE_SIZE, page -> (6 - page) * 20L, page -> { });
+
+        newService().syncWorkers();
+
+        assertThat(insertedWorkerIds()).containsExactly("w1-0", "w1-1", "w2-0", "w2-1", "w3-0");
+        verify(payhashWriter).writeBucket(anyString(), anyString(), any(), anyMap());
+    }
+
+    @Test
+    void pageConcurrencyShouldStayWithinProviderBulkheadShare() {
+        // 舱壁 4 / 账户并发 2 = 每账户 2 个并发分页，低于配置的 8
+        configure(2, 8, 4);
+        stubPages(18, page -> PAGE_SIZE, page -> 50L, page -> { });
+
+        newService().syncWorkers();
+
+        assertThat(maxInFlight.get()).isEqualTo(2);
+        assertThat(insertedWorkerIds()).hasSize(18);
+    }
+
+    @Test
+    void lostShardShouldStopPagingAndSkipWrites() {
+        configure(1, 1, 8);
+        AtomicBoolean lost = new AtomicBoolean();
+        JobShard shard = mock(JobShard.class);
+        when(shard.contains(anyString())).thenAnswer(inv -> !lost.get());
+        // 第 2 页返回时租约丢失：后续分页不再拉取，已拉到的数据不落库
+        stubPages(10, page -> PAGE_SIZE, page -> 0L, page -> {
+            if (page == 2) {
+                lost.set(true);
+            }
+        });
+
+        try (MockedStatic<JobShard> jobShard = Mockito.mockStatic(JobShard.class, Mockito.CALLS_REAL_METHODS)) {
+            jobShard.when(JobShard::current).thenReturn(shard);
+            newService().syncWorkers();
+        }
+
+        verify(client, times(2)).fetchWorkersV2(any(), anyMap());
+        verify(payloadService, times(1)).persistPayload(anyString(), anyString(), anyString(), anyString(), any());
+        verify(payloadService, never()).ensureStored(anyString(), anyString(), anyString());
+        verify(snapshotMapper, never()).insertBatch(any());
+        verify(payhashWriter, never()).writeBucket(anyString(), anyString(), any(), anyMap());
+    }
+
+    private void configure(int accountConcurrency, int pageConcurrency, int bulkhead) {
+        properties.setEnabled(true);
+        properties.setWorkersPageSize(PAGE_SIZE);
+        properties.setWorkersMaxPages(20);
+        properties.setWorkerSyncConcurrency(accountConcurrency);
+        properties.setWorkerPageConcurrency(pageConcurrency);
+        properties.setWorkerStaleSeconds(0);
+        F2PoolProperties.Account account = new F2PoolProperties.Account();
+        account.setName("acct");
+        account.setCoin("btc");
+        properties.setAccounts(List.of(account));
+        outboundProperties.setMaxConcurrentPerProvider(bulkhead);
+        when(payloadService.persistPayload(anyString(), anyString(), anyString(), anyString(), any())).thenReturn("fp");
+        when(payloadService.ensureStored(anyString(), anyString(), anyString())).thenReturn(true);
+        when(ownershipResolver.resolveOwners(any())).thenReturn(Map.of());
+    }
+
+    /**
+     * 按请求中的 page 返回合成页面（total 个 worker，size 决定本页条数），同时统计同时在途的请求数；
+     * onResponse 在响应返回前调用。
+     */
+    private void stubPages(int total, IntUnaryOperator size, IntToLongFunction delayMs, IntConsumer onResponse) {
+        when(client.fetchWorkersV2(any(), anyMap())).thenAnswer(inv -> {
+            Map<String, Object> payload = inv.getArgument(1);
+            int page = (Integer) payload.get("page");
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(delayMs.applyAsLong(page));
+            } finally {
+                inFlight.decrementAndGet();
+            }
+            onResponse.accept(page);
+            return new F2PoolClient.F2PoolRawResponse(buildPage(page, size.applyAsInt(page), total), Instant.now(), 200, null);
+        });
+    }
+
+    private List<String> insertedWorkerIds() {
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<F2PoolWorkerSnapshot>> captor = ArgumentCaptor.forClass(List.class);
+        verify(snapshotMapper).insertBatch(captor.capture());
+        List<String> ids = new ArrayList<>();
+        for (F2PoolWorkerSnapshot snapshot : captor.getValue()) {
+            ids.add(snapshot.getWorkerId());
+        }
+        return ids;
+    }
+
+    private F2PoolWorkerSyncService newService() {
+        return new F2PoolWorkerSyncService(
+                properties,
+                client,
+                new F2PoolParser(new ObjectMapper(), properties),
+                payloadService,
+                ownershipResolver,
+                snapshotMapper,
+                payhashWriter,
+                mock(F2PoolAlertService.class),
+                outboundProperties,
+                new SimpleMeterRegistry(),
+                60,
+                true);
+    }
+
+    private static String buildPage(int page, int workers, int total) {
+        StringBuilder sb = new StringBuilder("{\"code\":0,\"msg\":\"\",\"data\":{\"total\":")
+                .append(total).append(",\"list\":[");
+        for (int i = 0; i < workers; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append("{\"hash_rate_info\":{\"name\":\"w").append(page).append('-').append(i)
+                    .append("\",\"hash_rate\":1000000000,\"h24_hash_rate\":900000000}")
+                    .append(",\"last_share_at\":").append(Instant.now().getEpochSecond())
+                    .append(",\"status\":0}");
+        }
+        return sb.append("]}}").toString();
+    }
+}